@@ -1,9 +1,15 @@
 package entity;
 
 public class Book {
+    private int id;
     private String title, author, isbn;
     private boolean available;
 
+    public Book(int id, String title, String author, String isbn, boolean available) {
+        this(title, author, isbn, available);
+        this.id = id;
+    }
+
     public Book(String title, String author, String isbn, boolean available) {
         this.title = title;
         this.author = author;
@@ -11,6 +17,14 @@ public class Book {
         this.available = available;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -3,7 +3,7 @@ package entity;
 import java.time.LocalDate;
 
 public class Loan {
-    private int bookID, userID;
+    private int id, bookID, userID;
     private LocalDate loanDate,
             expectedReturnDate, //expected date of book return
             actualReturnDate; //actual date on which the book was returned
@@ -24,6 +24,23 @@ public class Loan {
         this.actualReturnDate = actualReturnDate;
     }
 
+    public Loan(int id, int bookID, int userID, LocalDate loanDate, LocalDate expectedReturnDate, LocalDate actualReturnDate) {
+        this.id = id;
+        this.bookID = bookID;
+        this.userID = userID;
+        this.loanDate = loanDate;
+        this.expectedReturnDate = expectedReturnDate;
+        this.actualReturnDate = actualReturnDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public int getBookID() {
         return bookID;
     }
@@ -0,0 +1,48 @@
+package entity;
+
+import java.time.LocalDate;
+
+public class LoanEvent {
+    private int bookID;
+    private String title, author;
+    private LocalDate loanDate;
+
+    public LoanEvent(int bookID, String title, String author, LocalDate loanDate) {
+        this.bookID = bookID;
+        this.title = title;
+        this.author = author;
+        this.loanDate = loanDate;
+    }
+
+    public int getBookID() {
+        return bookID;
+    }
+
+    public void setBookID(int bookID) {
+        this.bookID = bookID;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public LocalDate getLoanDate() {
+        return loanDate;
+    }
+
+    public void setLoanDate(LocalDate loanDate) {
+        this.loanDate = loanDate;
+    }
+}
@@ -0,0 +1,36 @@
+package entity;
+
+public class LoanFee {
+    private int loanId, userId;
+    private long feeCents;
+
+    public LoanFee(int loanId, int userId, long feeCents) {
+        this.loanId = loanId;
+        this.userId = userId;
+        this.feeCents = feeCents;
+    }
+
+    public int getLoanId() {
+        return loanId;
+    }
+
+    public void setLoanId(int loanId) {
+        this.loanId = loanId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public void setUserId(int userId) {
+        this.userId = userId;
+    }
+
+    public long getFeeCents() {
+        return feeCents;
+    }
+
+    public void setFeeCents(long feeCents) {
+        this.feeCents = feeCents;
+    }
+}
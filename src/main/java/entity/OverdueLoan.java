@@ -0,0 +1,75 @@
+package entity;
+
+import java.time.LocalDate;
+
+public class OverdueLoan {
+    private int bookID, userID;
+    private String title, isbn, borrowerName, borrowerEmail;
+    private LocalDate expectedReturnDate;
+
+    public OverdueLoan(int bookID, String title, String isbn, int userID, String borrowerName, String borrowerEmail, LocalDate expectedReturnDate) {
+        this.bookID = bookID;
+        this.title = title;
+        this.isbn = isbn;
+        this.userID = userID;
+        this.borrowerName = borrowerName;
+        this.borrowerEmail = borrowerEmail;
+        this.expectedReturnDate = expectedReturnDate;
+    }
+
+    public int getBookID() {
+        return bookID;
+    }
+
+    public void setBookID(int bookID) {
+        this.bookID = bookID;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public void setIsbn(String isbn) {
+        this.isbn = isbn;
+    }
+
+    public int getUserID() {
+        return userID;
+    }
+
+    public void setUserID(int userID) {
+        this.userID = userID;
+    }
+
+    public String getBorrowerName() {
+        return borrowerName;
+    }
+
+    public void setBorrowerName(String borrowerName) {
+        this.borrowerName = borrowerName;
+    }
+
+    public String getBorrowerEmail() {
+        return borrowerEmail;
+    }
+
+    public void setBorrowerEmail(String borrowerEmail) {
+        this.borrowerEmail = borrowerEmail;
+    }
+
+    public LocalDate getExpectedReturnDate() {
+        return expectedReturnDate;
+    }
+
+    public void setExpectedReturnDate(LocalDate expectedReturnDate) {
+        this.expectedReturnDate = expectedReturnDate;
+    }
+}
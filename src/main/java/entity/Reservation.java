@@ -1,10 +1,12 @@
 package entity;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
 public class Reservation {
-    private int bookId, userId;
+    private int id, bookId, userId;
     private LocalDate reservationDate;
+    private Instant holdExpiresAt;
 
     public Reservation(int bookId, int userId, LocalDate reservationDate) {
         this.bookId = bookId;
@@ -12,6 +14,22 @@ public class Reservation {
         this.reservationDate = reservationDate;
     }
 
+    public Reservation(int id, int bookId, int userId, LocalDate reservationDate, Instant holdExpiresAt) {
+        this.id = id;
+        this.bookId = bookId;
+        this.userId = userId;
+        this.reservationDate = reservationDate;
+        this.holdExpiresAt = holdExpiresAt;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public int getBookId() {
         return bookId;
     }
@@ -35,4 +53,12 @@ public class Reservation {
     public void setReservationDate(LocalDate reservationDate) {
         this.reservationDate = reservationDate;
     }
+
+    public Instant getHoldExpiresAt() {
+        return holdExpiresAt;
+    }
+
+    public void setHoldExpiresAt(Instant holdExpiresAt) {
+        this.holdExpiresAt = holdExpiresAt;
+    }
 }
@@ -1,6 +1,7 @@
 package entity;
 
 public class User {
+    private int id;
     private String name, email;
 
     public User(String name, String email) {
@@ -8,6 +9,20 @@ public class User {
         this.email = email;
     }
 
+    public User(int id, String name, String email) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -2,8 +2,15 @@ package repository;
 
 import entity.Book;
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This class represents a repository for managing book data in a database.
@@ -11,6 +18,7 @@ import java.util.List;
 public class BookRepository {
 
     private Connection connection;
+    private DatabaseRouter router;
 
     /**
      * Constructs a new BookRepository and establishes a connection to the database.
@@ -26,19 +34,39 @@ public class BookRepository {
         }
     }
 
+    /**
+     * Constructs a new BookRepository that writes to the primary database of the router
+     * and sends its read-only queries to the replicas.
+     *
+     * @param router The router choosing the database of each call.
+     */
+    public BookRepository(DatabaseRouter router) {
+        this.router = router;
+        try {
+            connection = router.primaryConnection();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Saves a book to the database.
      *
-     * @param book The book object to be saved.
+     * @param book The book object to be saved; it receives the generated id.
      * @return true if the book was saved successfully, false otherwise.
      */
     public boolean saveBook(Book book) {
-        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO books (title, author, isbn, available) VALUES (?, ?, ?, ?)")) {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO books (title, author, isbn, available, updated_at) VALUES (?, ?, ?, ?, now())",
+                Statement.RETURN_GENERATED_KEYS)) {
             statement.setString(1, book.getTitle());
             statement.setString(2, book.getAuthor());
             statement.setString(3, book.getIsbn());
             statement.setBoolean(4, book.isAvailable());
             statement.executeUpdate();
+            ResultSet keys = statement.getGeneratedKeys();
+            if (keys.next()) {
+                book.setId(keys.getInt("id"));
+            }
             return true;
         } catch (SQLException e) {
             e.printStackTrace();
@@ -54,7 +82,7 @@ public class BookRepository {
      * @return true if the book was updated successfully, false otherwise.
      */
     public boolean updateBook(int bookId, Book book) {
-        try (PreparedStatement statement = connection.prepareStatement("UPDATE books SET title = ?, author = ?, isbn = ?, available = ? WHERE id = ?")) {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE books SET title = ?, author = ?, isbn = ?, available = ?, updated_at = now() WHERE id = ?")) {
             statement.setString(1, book.getTitle());
             statement.setString(2, book.getAuthor());
             statement.setString(3, book.getIsbn());
@@ -78,14 +106,7 @@ public class BookRepository {
         try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM books WHERE id = ?")) {
             statement.setInt(1, id);
             ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new Book(
-                        resultSet.getString("title"),
-                        resultSet.getString("author"),
-                        resultSet.getString("isbn"),
-                        resultSet.getBoolean("available")
-                );
-            }
+            return RowMapper.mapFirst(resultSet, BookRowMapper.FACTORY);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -118,17 +139,10 @@ public class BookRepository {
      */
     public List<Book> findByTitle(String title) {
         List<Book> books = new ArrayList<>();
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM books WHERE title ILIKE ?")) {
+        try (LeasedConnection read = readConnection(); PreparedStatement statement = read.get().prepareStatement("SELECT * FROM books WHERE title ILIKE ?")) {
             statement.setString(1, "%" + title + "%");
             ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                books.add(new Book(
-                        resultSet.getString("title"),
-                        resultSet.getString("author"),
-                        resultSet.getString("isbn"),
-                        resultSet.getBoolean("available")
-                ));
-            }
+            books = RowMapper.mapAll(resultSet, BookRowMapper.FACTORY);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -143,17 +157,10 @@ public class BookRepository {
      */
     public List<Book> findByAuthor(String author) {
         List<Book> books = new ArrayList<>();
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM books WHERE author ILIKE ?")) {
+        try (LeasedConnection read = readConnection(); PreparedStatement statement = read.get().prepareStatement("SELECT * FROM books WHERE author ILIKE ?")) {
             statement.setString(1, "%" + author + "%");
             ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                books.add(new Book(
-                        resultSet.getString("title"),
-                        resultSet.getString("author"),
-                        resultSet.getString("isbn"),
-                        resultSet.getBoolean("available")
-                ));
-            }
+            books = RowMapper.mapAll(resultSet, BookRowMapper.FACTORY);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -167,17 +174,10 @@ public class BookRepository {
      * @return The book with the matching ISBN, or null if not found.
      */
     public Book findByIsbn(String isbn) {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM books WHERE isbn = ?")) {
+        try (LeasedConnection read = readConnection(); PreparedStatement statement = read.get().prepareStatement("SELECT * FROM books WHERE isbn = ?")) {
             statement.setString(1, isbn);
             ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new Book(
-                        resultSet.getString("title"),
-                        resultSet.getString("author"),
-                        resultSet.getString("isbn"),
-                        resultSet.getBoolean("available")
-                );
-            }
+            return RowMapper.mapFirst(resultSet, BookRowMapper.FACTORY);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -187,6 +187,7 @@ public class BookRepository {
 
     /**
      * Checks if a book is available by its ID.
+     * Always read from the primary database, since a loan is decided on the answer and a replica may lag behind.
      *
      * @param bookId The ID of the book to check.
      * @return true if the book is available, false if it's checked out or does not exist.
@@ -206,6 +207,93 @@ public class BookRepository {
         }
     }
 
+    /**
+     * Finds the books inserted or updated since the given instant.
+     *
+     * @param since The instant to search from; {@link Instant#EPOCH} returns the whole catalog.
+     * @return List of books changed since the instant, with their ids, or null if the query failed.
+     */
+    public List<Book> findUpdatedSince(Instant since) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM books WHERE updated_at >= ?")) {
+            statement.setTimestamp(1, Timestamp.from(since));
+            ResultSet resultSet = statement.executeQuery();
+            return RowMapper.mapAll(resultSet, BookRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null; // Database error; callers must not mistake it for "nothing changed"
+        }
+    }
+
+    /**
+     * Finds several books by id. Each chunk of ids is fetched with a single query.
+     *
+     * @param ids The ids of the books to search for.
+     * @return The books found, keyed by id; ids without a matching book are absent. null if the query failed.
+     */
+    public Map<Integer, Book> findByIds(int[] ids) {
+        Map<Integer, Book> books = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM books WHERE id = ANY(?)")) {
+            for (Integer[] chunk : SqlArrays.chunks(ids)) {
+                Array array = connection.createArrayOf("integer", chunk);
+                statement.setArray(1, array);
+                ResultSet resultSet = statement.executeQuery();
+                for (Book book : RowMapper.mapAll(resultSet, BookRowMapper.FACTORY)) {
+                    books.put(book.getId(), book);
+                }
+                array.free();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null; // Database error; callers must not mistake it for "not found"
+        }
+        return books;
+    }
+
+    /**
+     * Marks the available books among the given ones as unavailable, in one statement.
+     * Sharded deployments claim books this way before saving the loans on the shard of the user.
+     *
+     * @param bookIds The IDs of the books to claim.
+     * @return The IDs of the claimed books; books missing or already unavailable are absent. null if the update failed.
+     */
+    public Set<Integer> claimBooks(int[] bookIds) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE books SET available = false, updated_at = now() WHERE id = ANY(?) AND available RETURNING id")) {
+            statement.setArray(1, connection.createArrayOf("integer", Arrays.stream(bookIds).boxed().toArray()));
+            Set<Integer> claimed = new LinkedHashSet<>();
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                claimed.add(resultSet.getInt(1));
+            }
+            return claimed;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Marks books as available again, such as after they are returned or when a checkout is undone.
+     *
+     * @param bookIds The IDs of the books to release.
+     * @return true if the update succeeded, false otherwise.
+     */
+    public boolean releaseBooks(Collection<Integer> bookIds) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE books SET available = true, updated_at = now() WHERE id = ANY(?)")) {
+            statement.setArray(1, connection.createArrayOf("integer", bookIds.toArray()));
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private LeasedConnection readConnection() throws SQLException {
+        return router != null ? router.read() : LeasedConnection.shared(connection);
+    }
+
     /**
      * Closes the connection to the database.
      */
@@ -0,0 +1,35 @@
+package repository;
+
+import entity.Book;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of the books table to {@link Book} instances.
+ */
+public class BookRowMapper implements RowMapper<Book> {
+
+    public static final RowMapper.Factory<Book> FACTORY = BookRowMapper::new;
+
+    private final int id, title, author, isbn, available;
+
+    private BookRowMapper(ResultSet resultSet) throws SQLException {
+        id = resultSet.findColumn("id");
+        title = resultSet.findColumn("title");
+        author = resultSet.findColumn("author");
+        isbn = resultSet.findColumn("isbn");
+        available = resultSet.findColumn("available");
+    }
+
+    @Override
+    public Book mapRow(ResultSet resultSet) throws SQLException {
+        return new Book(
+                resultSet.getInt(id),
+                resultSet.getString(title),
+                resultSet.getString(author),
+                resultSet.getString(isbn),
+                resultSet.getBoolean(available)
+        );
+    }
+}
@@ -0,0 +1,111 @@
+package repository;
+
+import entity.Book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * This class writes and reads catalog snapshots as memory-mapped files.
+ * <p>
+ * A snapshot holds a header (magic, version, book count, sync instant in epoch milliseconds) followed by one
+ * record per book: id, availability flag, and the ISBN, title and author as length-prefixed UTF-8 strings.
+ */
+public class CatalogSnapshot {
+
+    private static final int MAGIC = 0x43415431; // "CAT1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+
+    private CatalogSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot. The file is written next to the target and moved into place,
+     * so a crash while writing never leaves a truncated snapshot behind.
+     *
+     * @param path     The path of the snapshot file.
+     * @param books    The books to write; every book must have an id.
+     * @param syncedAt The instant up to which the books reflect the database.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, Collection<Book> books, Instant syncedAt) throws IOException {
+        byte[][] strings = new byte[books.size() * 3][];
+        long size = HEADER_BYTES;
+        int i = 0;
+        for (Book book : books) {
+            strings[i] = book.getIsbn().getBytes(StandardCharsets.UTF_8);
+            strings[i + 1] = book.getTitle().getBytes(StandardCharsets.UTF_8);
+            strings[i + 2] = book.getAuthor().getBytes(StandardCharsets.UTF_8);
+            size += Integer.BYTES + 1 + 3 * Integer.BYTES + strings[i].length + strings[i + 1].length + strings[i + 2].length;
+            i += 3;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Catalog too large for a single snapshot");
+        }
+
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(books.size()).putLong(syncedAt.toEpochMilli());
+            i = 0;
+            for (Book book : books) {
+                buffer.putInt(book.getId()).put((byte) (book.isAvailable() ? 1 : 0));
+                for (int j = 0; j < 3; j++) {
+                    buffer.putInt(strings[i + j].length).put(strings[i + j]);
+                }
+                i += 3;
+            }
+            buffer.force();
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot, passing every book to the given consumer.
+     *
+     * @param path     The path of the snapshot file.
+     * @param consumer The consumer receiving each book.
+     * @return The instant up to which the snapshot reflects the database.
+     * @throws IOException if the file cannot be read or is not a catalog snapshot.
+     */
+    public static Instant read(Path path, Consumer<Book> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a catalog snapshot: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a catalog snapshot: " + path);
+            }
+            int count = buffer.getInt();
+            Instant syncedAt = Instant.ofEpochMilli(buffer.getLong());
+            for (int i = 0; i < count; i++) {
+                int id = buffer.getInt();
+                boolean available = buffer.get() == 1;
+                String isbn = readString(buffer);
+                String title = readString(buffer);
+                String author = readString(buffer);
+                consumer.accept(new Book(id, title, author, isbn, available));
+            }
+            return syncedAt;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,155 @@
+package repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * This class routes repository calls between a primary database and its read replicas.
+ * <p>
+ * Writes always go to the primary. Read-only calls go to a replica chosen round-robin or by the fewest connections
+ * in use. A user who wrote recently reads from the primary until the read-your-writes window has passed, so a fresh
+ * loan is visible right away even if the replicas lag. The data sources are expected to pool their connections.
+ */
+public class DatabaseRouter {
+
+    /**
+     * How replicas are chosen for reads.
+     */
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_LOADED
+    }
+
+    private static final int SWEEP_THRESHOLD = 10_000;
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Strategy strategy;
+    private final long readYourWritesNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicInteger[] connectionsInUse;
+    private final Map<Integer, Long> lastWriteByUser = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new DatabaseRouter.
+     *
+     * @param primary              The primary database, receiving all writes.
+     * @param replicas             The read replicas; when empty, reads go to the primary.
+     * @param strategy             How replicas are chosen for reads.
+     * @param readYourWritesWindow How long a user's reads stay on the primary after one of their writes.
+     */
+    public DatabaseRouter(DataSource primary, List<DataSource> replicas, Strategy strategy, Duration readYourWritesWindow) {
+        this(primary, replicas, strategy, readYourWritesWindow, System::nanoTime);
+    }
+
+    DatabaseRouter(DataSource primary, List<DataSource> replicas, Strategy strategy, Duration readYourWritesWindow,
+                   LongSupplier nanoClock) {
+        if (primary == null || replicas == null || strategy == null) {
+            throw new IllegalArgumentException("Primary, replicas and strategy cannot be null");
+        }
+        if (readYourWritesWindow == null || readYourWritesWindow.isNegative()) {
+            throw new IllegalArgumentException("Read-your-writes window cannot be negative");
+        }
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.strategy = strategy;
+        this.readYourWritesNanos = readYourWritesWindow.toNanos();
+        this.nanoClock = nanoClock;
+        this.connectionsInUse = new AtomicInteger[this.replicas.size()];
+        for (int i = 0; i < connectionsInUse.length; i++) {
+            connectionsInUse[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Opens a connection to the primary database.
+     *
+     * @return A new primary connection.
+     * @throws SQLException if the connection cannot be opened.
+     */
+    public Connection primaryConnection() throws SQLException {
+        return primary.getConnection();
+    }
+
+    /**
+     * Leases a connection for a read-only call that is not tied to a user.
+     *
+     * @return A replica connection, or a primary connection if there are no usable replicas.
+     * @throws SQLException if no connection can be opened.
+     */
+    public LeasedConnection read() throws SQLException {
+        if (replicas.isEmpty()) {
+            return LeasedConnection.owned(primary.getConnection(), null);
+        }
+        int index = chooseReplica();
+        connectionsInUse[index].incrementAndGet();
+        try {
+            return LeasedConnection.owned(replicas.get(index).getConnection(), connectionsInUse[index]::decrementAndGet);
+        } catch (SQLException e) {
+            connectionsInUse[index].decrementAndGet();
+            e.printStackTrace(); // an unreachable replica must not fail the read
+            return LeasedConnection.owned(primary.getConnection(), null);
+        }
+    }
+
+    /**
+     * Leases a connection for a read-only call on behalf of a user.
+     *
+     * @param userId The ID of the user.
+     * @return A primary connection within the user's read-your-writes window, otherwise as {@link #read()}.
+     * @throws SQLException if no connection can be opened.
+     */
+    public LeasedConnection read(int userId) throws SQLException {
+        Long lastWrite = lastWriteByUser.get(userId);
+        if (lastWrite != null) {
+            if (nanoClock.getAsLong() - lastWrite < readYourWritesNanos) {
+                return LeasedConnection.owned(primary.getConnection(), null);
+            }
+            lastWriteByUser.remove(userId, lastWrite);
+        }
+        return read();
+    }
+
+    /**
+     * Records a committed write on behalf of a user, opening their read-your-writes window.
+     *
+     * @param userId The ID of the user.
+     */
+    public void recordWrite(int userId) {
+        long now = nanoClock.getAsLong();
+        lastWriteByUser.put(userId, now);
+        if (lastWriteByUser.size() > SWEEP_THRESHOLD) {
+            lastWriteByUser.values().removeIf(lastWrite -> now - lastWrite >= readYourWritesNanos);
+        }
+    }
+
+    /**
+     * Gets the number of leased connections per replica.
+     *
+     * @param replica The index of the replica.
+     * @return The number of connections in use.
+     */
+    public int getConnectionsInUse(int replica) {
+        return connectionsInUse[replica].get();
+    }
+
+    private int chooseReplica() {
+        if (strategy == Strategy.ROUND_ROBIN) {
+            return Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        }
+        int best = 0;
+        for (int i = 1; i < connectionsInUse.length; i++) {
+            if (connectionsInUse[i].get() < connectionsInUse[best].get()) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
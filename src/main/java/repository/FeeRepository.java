@@ -0,0 +1,199 @@
+package repository;
+
+import entity.LoanFee;
+
+import java.sql.*;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a repository for late fees.
+ * <p>
+ * The fee of each loan is kept in loan_fees and the total of each user in user_fees, which is updated together with
+ * the fees, so reading what a user owes is a primary key lookup. Every write stamps its rows with the database
+ * clock: a full recomputation upserts all current fees and then deletes the rows it did not touch.
+ */
+public class FeeRepository {
+
+    private Connection connection;
+
+    /**
+     * Constructs a new FeeRepository and establishes a connection to the database.
+     */
+    public FeeRepository() {
+        try {
+            String url = "jdbc:postgresql://localhost:5432/library";
+            String user = "postgres";
+            String password = "admin";
+            connection = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructs a new FeeRepository on an existing connection.
+     *
+     * @param connection The connection to the database.
+     */
+    public FeeRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets the time of the database clock, which stamps every fee written after it.
+     *
+     * @return The current time, or null if a database error occurred.
+     */
+    public Instant currentTime() {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT clock_timestamp()")) {
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getTimestamp(1).toInstant();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Saves the fees of loans and the totals of their users as one batch, replacing the previous values.
+     * Used by full recomputations, which know the complete totals.
+     *
+     * @param fees   The fees of the loans.
+     * @param totals The outstanding cents of users, keyed by user ID.
+     * @return true if everything was saved, false if the transaction was rolled back.
+     */
+    public boolean saveFees(List<LoanFee> fees, Map<Integer, Long> totals) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement feeUpsert = connection.prepareStatement(
+                         "INSERT INTO loan_fees (loan_id, user_id, fee_cents) VALUES (?, ?, ?) ON CONFLICT (loan_id) " +
+                                 "DO UPDATE SET user_id = EXCLUDED.user_id, fee_cents = EXCLUDED.fee_cents, updated_at = now()");
+                 PreparedStatement totalUpsert = connection.prepareStatement(
+                         "INSERT INTO user_fees (user_id, outstanding_cents) VALUES (?, ?) ON CONFLICT (user_id) " +
+                                 "DO UPDATE SET outstanding_cents = EXCLUDED.outstanding_cents, updated_at = now()")) {
+                for (LoanFee fee : fees) {
+                    feeUpsert.setInt(1, fee.getLoanId());
+                    feeUpsert.setInt(2, fee.getUserId());
+                    feeUpsert.setLong(3, fee.getFeeCents());
+                    feeUpsert.addBatch();
+                }
+                for (Map.Entry<Integer, Long> total : totals.entrySet()) {
+                    totalUpsert.setInt(1, total.getKey());
+                    totalUpsert.setLong(2, total.getValue());
+                    totalUpsert.addBatch();
+                }
+                feeUpsert.executeBatch();
+                totalUpsert.executeBatch();
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Deletes the fees and totals not written since a point in time, such as those a recomputation found to be zero.
+     *
+     * @param before The time returned by {@link #currentTime()} before the recomputation started.
+     * @return The number of fees deleted, or -1 if a database error occurred.
+     */
+    public int deleteFeesNotUpdatedSince(Instant before) {
+        try (PreparedStatement fees = connection.prepareStatement("DELETE FROM loan_fees WHERE updated_at < ?");
+             PreparedStatement totals = connection.prepareStatement("DELETE FROM user_fees WHERE updated_at < ?")) {
+            fees.setTimestamp(1, Timestamp.from(before));
+            totals.setTimestamp(1, Timestamp.from(before));
+            int deleted = fees.executeUpdate();
+            totals.executeUpdate();
+            return deleted;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Sets the fee of one loan and moves the total of its user by the difference, in one transaction.
+     *
+     * @param fee The new fee of the loan; zero clears it.
+     * @return true if the fee was saved, false if the transaction was rolled back.
+     */
+    public boolean recordFee(LoanFee fee) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement previous = connection.prepareStatement(
+                         "SELECT fee_cents FROM loan_fees WHERE loan_id = ? FOR UPDATE");
+                 PreparedStatement feeUpsert = connection.prepareStatement(
+                         "INSERT INTO loan_fees (loan_id, user_id, fee_cents) VALUES (?, ?, ?) ON CONFLICT (loan_id) " +
+                                 "DO UPDATE SET fee_cents = EXCLUDED.fee_cents, updated_at = now()");
+                 PreparedStatement totalUpsert = connection.prepareStatement(
+                         "INSERT INTO user_fees (user_id, outstanding_cents) VALUES (?, ?) ON CONFLICT (user_id) " +
+                                 "DO UPDATE SET outstanding_cents = user_fees.outstanding_cents + EXCLUDED.outstanding_cents, " +
+                                 "updated_at = now()")) {
+                previous.setInt(1, fee.getLoanId());
+                ResultSet resultSet = previous.executeQuery();
+                long delta = fee.getFeeCents() - (resultSet.next() ? resultSet.getLong(1) : 0);
+
+                feeUpsert.setInt(1, fee.getLoanId());
+                feeUpsert.setInt(2, fee.getUserId());
+                feeUpsert.setLong(3, fee.getFeeCents());
+                feeUpsert.executeUpdate();
+                totalUpsert.setInt(1, fee.getUserId());
+                totalUpsert.setLong(2, delta);
+                totalUpsert.executeUpdate();
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Finds what a user owes.
+     *
+     * @param userId The ID of the user.
+     * @return The outstanding cents, 0 if the user owes nothing, or -1 if a database error occurred.
+     */
+    public long findOutstanding(int userId) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT outstanding_cents FROM user_fees WHERE user_id = ?")) {
+            statement.setInt(1, userId);
+            ResultSet resultSet = statement.executeQuery();
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Closes the connection to the database.
+     */
+    public void closeConnection() {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
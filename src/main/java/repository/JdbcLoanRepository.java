@@ -0,0 +1,802 @@
+package repository;
+
+import entity.Book;
+import entity.Loan;
+import entity.LoanEvent;
+import entity.OutboxMessage;
+import entity.OverdueLoan;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A loan repository backed by a single database, or by one shard of a {@link ShardedLoanRepository}.
+ */
+public class JdbcLoanRepository implements LoanRepository {
+
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private Connection connection;
+    private DatabaseRouter router;
+
+    /**
+     * Constructs a new JdbcLoanRepository and establishes a connection to the database.
+     */
+    public JdbcLoanRepository() {
+        try {
+            String url = "jdbc:postgresql://localhost:5432/library";
+            String user = "postgres";
+            String password = "admin";
+            connection = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructs a new JdbcLoanRepository on an existing connection, such as one shard of a sharded deployment.
+     *
+     * @param connection The connection to the database.
+     */
+    public JdbcLoanRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Constructs a new JdbcLoanRepository that writes to the primary database of the router
+     * and sends its read-only queries to the replicas.
+     *
+     * @param router The router choosing the database of each call.
+     */
+    public JdbcLoanRepository(DatabaseRouter router) {
+        this.router = router;
+        try {
+            connection = router.primaryConnection();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Saves a loan to the database.
+     *
+     * @param loan The loan object to be saved.
+     * @return true if the loan was saved successfully, false otherwise.
+     */
+    @Override
+    public boolean saveLoan(Loan loan) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO loans (book_id, user_id, loan_date, expected_return_date, actual_return_date) VALUES (?, ?, ?, ?)"
+        )) {
+            statement.setLong(1, loan.getBookID());
+            statement.setLong(2, loan.getUserID());
+            statement.setDate(3, Date.valueOf(loan.getLoanDate()));
+            statement.setDate(4, Date.valueOf(loan.getExpectedReturnDate()));
+            statement.setDate(5, Date.valueOf(loan.getActualReturnDate()));
+            statement.executeUpdate();
+            recordWrite(loan.getUserID());
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Saves a loan together with its notification in a single transaction,
+     * so the notification is delivered if and only if the loan was committed.
+     *
+     * @param loan         The loan object to be saved; it receives the generated ID.
+     * @param notification The notification to add to the outbox.
+     * @return true if the loan was saved successfully, false otherwise.
+     */
+    @Override
+    public boolean saveLoan(Loan loan, OutboxMessage notification) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO loans (book_id, user_id, loan_date, expected_return_date) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                statement.setInt(1, loan.getBookID());
+                statement.setInt(2, loan.getUserID());
+                statement.setDate(3, Date.valueOf(loan.getLoanDate()));
+                statement.setDate(4, Date.valueOf(loan.getExpectedReturnDate()));
+                statement.executeUpdate();
+                ResultSet keys = statement.getGeneratedKeys();
+                if (keys.next()) {
+                    loan.setId(keys.getInt("id"));
+                }
+                OutboxRepository.insert(connection, notification);
+                connection.commit();
+                recordWrite(loan.getUserID());
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Loans several books to a user in a single transaction.
+     * The available books are claimed with one set-based update and their loans inserted as one batch,
+     * together with the notification of each loaned book; books that are no longer available are skipped.
+     *
+     * @param userId             The ID of the user taking the loans.
+     * @param bookIds            The IDs of the books to loan.
+     * @param loanDate           The date the loans start.
+     * @param expectedReturnDate The date the loans are due.
+     * @param notifications      The notification to add to the outbox for each book, keyed by book ID.
+     * @return The saved loans, with their generated IDs, or null if the transaction was rolled back.
+     */
+    @Override
+    public List<Loan> loanBooks(int userId, int[] bookIds, LocalDate loanDate, LocalDate expectedReturnDate,
+                                Map<Integer, OutboxMessage> notifications) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement claim = connection.prepareStatement(
+                    "UPDATE books SET available = false, updated_at = now() WHERE id = ANY(?) AND available RETURNING id")) {
+                claim.setArray(1, connection.createArrayOf("integer", Arrays.stream(bookIds).boxed().toArray()));
+                Set<Integer> claimed = new LinkedHashSet<>();
+                ResultSet resultSet = claim.executeQuery();
+                while (resultSet.next()) {
+                    claimed.add(resultSet.getInt(1));
+                }
+
+                List<Loan> loans = insertLoans(userId, claimed, loanDate, expectedReturnDate, notifications);
+                connection.commit();
+                recordWrite(userId);
+                return loans;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Saves one open loan per book for a user, with their notifications, all or none, without touching the books.
+     * Sharded deployments claim the books in the catalog database first, then save the loans on the user's shard.
+     *
+     * @param userId             The ID of the user taking the loans.
+     * @param bookIds            The IDs of the claimed books.
+     * @param loanDate           The date the loans start.
+     * @param expectedReturnDate The date the loans are due.
+     * @param notifications      The notification to add to the outbox for each book, keyed by book ID.
+     * @return The saved loans, with their generated IDs, or null if the transaction was rolled back.
+     */
+    public List<Loan> saveLoans(int userId, Collection<Integer> bookIds, LocalDate loanDate, LocalDate expectedReturnDate,
+                                Map<Integer, OutboxMessage> notifications) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                List<Loan> loans = insertLoans(userId, bookIds, loanDate, expectedReturnDate, notifications);
+                connection.commit();
+                recordWrite(userId);
+                return loans;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private List<Loan> insertLoans(int userId, Collection<Integer> bookIds, LocalDate loanDate,
+                                   LocalDate expectedReturnDate, Map<Integer, OutboxMessage> notifications) throws SQLException {
+        List<Loan> loans = new ArrayList<>();
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO loans (book_id, user_id, loan_date, expected_return_date) VALUES (?, ?, ?, ?)",
+                new String[]{"id"})) {
+            for (int bookId : bookIds) {
+                insert.setInt(1, bookId);
+                insert.setInt(2, userId);
+                insert.setDate(3, Date.valueOf(loanDate));
+                insert.setDate(4, Date.valueOf(expectedReturnDate));
+                insert.addBatch();
+                loans.add(new Loan(bookId, userId, loanDate, expectedReturnDate));
+            }
+            if (loans.isEmpty()) {
+                return loans;
+            }
+            insert.executeBatch();
+            ResultSet keys = insert.getGeneratedKeys(); // one row per inserted loan, in batch order
+            for (Loan loan : loans) {
+                if (keys.next()) {
+                    loan.setId(keys.getInt(1));
+                }
+            }
+        }
+        for (Loan loan : loans) {
+            OutboxMessage notification = notifications.get(loan.getBookID());
+            if (notification != null) {
+                OutboxRepository.insert(connection, notification);
+            }
+        }
+        return loans;
+    }
+
+    /**
+     * Finds a loan by ID.
+     *
+     * @param loanId The ID of the loan to search for.
+     * @return The loan with the matching ID, or null if not found.
+     */
+    @Override
+    public Loan findById(int loanId) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM loans WHERE id = ?")) {
+            statement.setLong(1, loanId);
+            ResultSet resultSet = statement.executeQuery();
+            return RowMapper.mapFirst(resultSet, LoanRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Finds several loans by id. Each chunk of ids is fetched with a single query.
+     *
+     * @param ids The ids of the loans to search for.
+     * @return The loans found, keyed by id; ids without a matching loan are absent. null if the query failed.
+     */
+    @Override
+    public Map<Integer, Loan> findByIds(int[] ids) {
+        Map<Integer, Loan> loans = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM loans WHERE id = ANY(?)")) {
+            for (Integer[] chunk : SqlArrays.chunks(ids)) {
+                Array array = connection.createArrayOf("integer", chunk);
+                statement.setArray(1, array);
+                ResultSet resultSet = statement.executeQuery();
+                for (Loan loan : RowMapper.mapAll(resultSet, LoanRowMapper.FACTORY)) {
+                    loans.put(loan.getId(), loan);
+                }
+                array.free();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null; // Database error; callers must not mistake it for "not found"
+        }
+        return loans;
+    }
+
+    /**
+     * Updates the returned date of a loan.
+     *
+     * @param loanId The ID of the loan to update.
+     * @param actualReturnedDate The actual returned date.
+     * @return true if the loan was updated, false if it does not exist or the update failed.
+     */
+    @Override
+    public boolean updateReturnedDate(int loanId, LocalDate actualReturnedDate) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE loans SET actual_return_date = ? WHERE id = ? RETURNING user_id")) {
+            statement.setDate(1, Date.valueOf(actualReturnedDate));
+            statement.setInt(2, loanId);
+            ResultSet resultSet = statement.executeQuery();
+            if (!resultSet.next()) {
+                return false;
+            }
+            recordWrite(resultSet.getInt(1));
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Returns several loans like {@link #returnLoans(Map, LocalDate)}, but offers each book to a hold first, such as
+     * a waiting reservation. The loans are closed first, so a book is never held while still on loan; the books not
+     * held are then released. A loan whose book can be neither held nor released is opened again.
+     *
+     * @param bookIdsByLoanId  The book ID of each loan to return, keyed by loan ID.
+     * @param actualReturnDate The actual return date.
+     * @param holdBook         Called with the book of each closed loan; true if the book is now held and must stay
+     *                         unavailable.
+     * @return The IDs of the returned loans, in request order; loans already returned or failing are absent.
+     */
+    @Override
+    public Set<Integer> returnLoans(Map<Integer, Integer> bookIdsByLoanId, LocalDate actualReturnDate,
+                                    IntPredicate holdBook) {
+        Set<Integer> closed = closeLoans(bookIdsByLoanId.keySet(), actualReturnDate);
+        if (closed == null || closed.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+        Set<Integer> failed = settleReturns(bookIdsByLoanId, closed, holdBook, this::releaseBooks);
+        if (!failed.isEmpty()) {
+            reopenLoans(failed, actualReturnDate);
+        }
+        return returnedInOrder(bookIdsByLoanId, closed, failed);
+    }
+
+    /**
+     * Offers the book of each closed loan to a hold and releases the books not held.
+     *
+     * @return The IDs of the closed loans whose book could be neither held nor released, to open again.
+     */
+    static Set<Integer> settleReturns(Map<Integer, Integer> bookIdsByLoanId, Set<Integer> closed, IntPredicate holdBook,
+                                      Predicate<List<Integer>> releaseBooks) {
+        Set<Integer> failed = new HashSet<>();
+        List<Integer> releasing = new ArrayList<>();
+        List<Integer> released = new ArrayList<>();
+        for (int loanId : closed) {
+            int bookId = bookIdsByLoanId.get(loanId);
+            try {
+                if (!holdBook.test(bookId)) {
+                    releasing.add(loanId);
+                    released.add(bookId);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // whether anyone is waiting is unknown, so the book cannot be released
+                failed.add(loanId);
+            }
+        }
+        if (!released.isEmpty() && !releaseBooks.test(released)) {
+            failed.addAll(releasing);
+        }
+        return failed;
+    }
+
+    /**
+     * Lists the loans closed and kept closed, in request order.
+     */
+    static Set<Integer> returnedInOrder(Map<Integer, Integer> bookIdsByLoanId, Set<Integer> closed, Set<Integer> failed) {
+        Set<Integer> returned = new LinkedHashSet<>();
+        for (int loanId : bookIdsByLoanId.keySet()) {
+            if (closed.contains(loanId) && !failed.contains(loanId)) {
+                returned.add(loanId);
+            }
+        }
+        return returned;
+    }
+
+    /**
+     * Sets the return date of open loans, without touching their books.
+     * Returns close the loans first, then hold or release their books, in the catalog database when sharded.
+     *
+     * @param loanIds          The IDs of the loans to close.
+     * @param actualReturnDate The actual return date.
+     * @return The IDs of the closed loans; loans missing or already returned are absent. null if the update failed.
+     */
+    public Set<Integer> closeLoans(Collection<Integer> loanIds, LocalDate actualReturnDate) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE loans SET actual_return_date = ? WHERE id = ANY(?) AND actual_return_date IS NULL RETURNING id, user_id")) {
+            statement.setDate(1, Date.valueOf(actualReturnDate));
+            statement.setArray(2, connection.createArrayOf("integer", loanIds.toArray()));
+            Set<Integer> closed = new LinkedHashSet<>();
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                closed.add(resultSet.getInt(1));
+                recordWrite(resultSet.getInt(2));
+            }
+            return closed;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Opens loans closed by {@link #closeLoans} again, undoing a return whose books could not be released.
+     *
+     * @param loanIds          The IDs of the loans to reopen.
+     * @param actualReturnDate The return date they were closed with; loans closed on another date are left alone.
+     * @return true if the update succeeded, false otherwise.
+     */
+    @Override
+    public boolean reopenLoans(Collection<Integer> loanIds, LocalDate actualReturnDate) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE loans SET actual_return_date = NULL WHERE id = ANY(?) AND actual_return_date = ? RETURNING user_id")) {
+            statement.setArray(1, connection.createArrayOf("integer", loanIds.toArray()));
+            statement.setDate(2, Date.valueOf(actualReturnDate));
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                recordWrite(resultSet.getInt(1));
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private boolean releaseBooks(Collection<Integer> bookIds) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE books SET available = true, updated_at = now() WHERE id = ANY(?)")) {
+            statement.setArray(1, connection.createArrayOf("integer", bookIds.toArray()));
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Finds loans by user ID.
+     * Only the active (hot) loans table is scanned; archived loans are read with findArchivedByUserId.
+     *
+     * @param userId The ID of the user to search for.
+     * @return List of loans associated with the user.
+     */
+    @Override
+    public List<Loan> findByUserId(int userId) {
+        List<Loan> loans = new ArrayList<>();
+        try (LeasedConnection read = readConnection(userId); PreparedStatement statement = read.get().prepareStatement("SELECT * FROM loans WHERE user_id = ?")) {
+            statement.setLong(1, userId);
+            ResultSet resultSet = statement.executeQuery();
+            loans = RowMapper.mapAll(resultSet, LoanRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return loans;
+    }
+
+    /**
+     * Finds a page of archived loans by user ID, most recent first, ties broken by descending ID.
+     * Pages are keyed on the last loan of the previous page rather than an offset, so loans archived between two
+     * pages do not make the next one repeat or skip loans.
+     *
+     * @param userId The ID of the user to search for.
+     * @param after  The last loan of the previous page, or null for the first page.
+     * @param limit  The maximum number of archived loans to return.
+     * @return List of archived loans associated with the user.
+     */
+    @Override
+    public List<Loan> findArchivedByUserId(int userId, Loan after, int limit) {
+        List<Loan> loans = new ArrayList<>();
+        try (LeasedConnection read = readConnection(userId); PreparedStatement statement = read.get().prepareStatement(
+                after == null
+                        ? "SELECT * FROM loans_archive WHERE user_id = ? ORDER BY loan_date DESC, id DESC LIMIT ?"
+                        : "SELECT * FROM loans_archive WHERE user_id = ? AND (loan_date, id) < (?, ?) "
+                        + "ORDER BY loan_date DESC, id DESC LIMIT ?"
+        )) {
+            int index = 1;
+            statement.setLong(index++, userId);
+            if (after != null) {
+                statement.setDate(index++, Date.valueOf(after.getLoanDate()));
+                statement.setInt(index++, after.getId());
+            }
+            statement.setInt(index, limit);
+            ResultSet resultSet = statement.executeQuery();
+            loans = RowMapper.mapAll(resultSet, LoanRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return loans;
+    }
+
+    /**
+     * Moves loans returned before the given date from the loans table into loans_archive.
+     * The delete and the insert run in a single statement, so a loan is never in both tables.
+     *
+     * @param returnedBefore Loans with an actual return date before this date are archived.
+     * @return The number of archived loans, or -1 if a database error occurred.
+     */
+    @Override
+    public int archiveReturnedLoans(LocalDate returnedBefore) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "WITH moved AS (DELETE FROM loans WHERE actual_return_date IS NOT NULL AND actual_return_date < ? RETURNING *) " +
+                        "INSERT INTO loans_archive SELECT * FROM moved"
+        )) {
+            statement.setDate(1, Date.valueOf(returnedBefore));
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Finds books that have not been returned by the specified date.
+     *
+     * @param date The date to check for overdue books.
+     * @return List of books that are overdue.
+     */
+    @Override
+    public List<Book> findOverdueBooks(Date date) {
+        List<Book> books = new ArrayList<>();
+        String query = "SELECT b.* " +
+                         "FROM books b JOIN loans l ON b.id = l.book_id " +
+                        "WHERE l.actual_return_date IS NULL AND l.expected_return_date < ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setDate(1, date);
+            ResultSet resultSet = statement.executeQuery();
+            books = RowMapper.mapAll(resultSet, BookRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+
+        return books;
+    }
+
+    /**
+     * Counts the loans in the active loans table.
+     *
+     * @return The number of loans, or -1 if a database error occurred.
+     */
+    @Override
+    public int countLoans() {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM loans")) {
+            ResultSet resultSet = statement.executeQuery();
+            resultSet.next();
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Counts the loans of each book, active and archived.
+     *
+     * @return The number of loans keyed by book ID; books never loaned are absent. null if a database error occurred.
+     */
+    @Override
+    public Map<Integer, Integer> countLoansByBook() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT book_id, COUNT(*) FROM (SELECT book_id FROM loans UNION ALL SELECT book_id FROM loans_archive) l GROUP BY book_id")) {
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                counts.put(resultSet.getInt(1), resultSet.getInt(2));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return counts;
+    }
+
+    /**
+     * Streams every loan of the active loans table to the given consumer.
+     * Rows are read through a server-side cursor, so memory use does not grow with the table.
+     *
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    @Override
+    public boolean streamLoans(Consumer<Loan> consumer) {
+        return streamLoanRows("SELECT * FROM loans", consumer);
+    }
+
+    /**
+     * Streams every loan, active and archived, grouped by user: all loans of a user come one after the other,
+     * most recent first. Rows are read through a server-side cursor, so memory use stays flat.
+     *
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    @Override
+    public boolean streamLoansByUser(Consumer<Loan> consumer) {
+        return streamLoanRows("SELECT id, book_id, user_id, loan_date, expected_return_date, actual_return_date FROM loans " +
+                "UNION ALL SELECT id, book_id, user_id, loan_date, expected_return_date, actual_return_date FROM loans_archive " +
+                "ORDER BY user_id, loan_date DESC", consumer);
+    }
+
+    /**
+     * Streams the loans that have not been returned yet. Rows are read through a server-side cursor,
+     * so memory use stays flat.
+     *
+     * @param consumer The consumer receiving each open loan.
+     * @return true if all open loans were streamed, false if a database error occurred.
+     */
+    @Override
+    public boolean streamOpenLoans(Consumer<Loan> consumer) {
+        return streamLoanRows("SELECT * FROM loans WHERE actual_return_date IS NULL", consumer);
+    }
+
+    private boolean streamLoanRows(String query, Consumer<Loan> consumer) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false); // PostgreSQL only honours the fetch size inside a transaction
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                ResultSet resultSet = statement.executeQuery();
+                RowMapper<Loan> mapper = LoanRowMapper.FACTORY.forResultSet(resultSet);
+                while (resultSet.next()) {
+                    consumer.accept(mapper.mapRow(resultSet));
+                }
+                connection.commit();
+                return true;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Streams the loans that have not been returned by the specified date, with their book and borrower,
+     * oldest due date first. Rows are read through a server-side cursor, so memory use stays flat.
+     *
+     * @param date     The date to check for overdue loans.
+     * @param consumer The consumer receiving each overdue loan.
+     * @return true if all overdue loans were streamed, false if a database error occurred.
+     */
+    @Override
+    public boolean streamOverdueLoans(LocalDate date, Consumer<OverdueLoan> consumer) {
+        return streamLoanDetails("SELECT l.book_id, b.title, b.isbn, l.user_id, u.name, u.email, l.expected_return_date " +
+                "FROM loans l JOIN books b ON b.id = l.book_id JOIN users u ON u.id = l.user_id " +
+                "WHERE l.actual_return_date IS NULL AND l.expected_return_date < ? " +
+                "ORDER BY l.expected_return_date", date, consumer);
+    }
+
+    /**
+     * Streams the loans not returned yet that are due by the specified date, overdue ones included,
+     * with their book and borrower. The rows of each user are consecutive, earliest due date first,
+     * so per-user digests can be built from this single query in one pass.
+     *
+     * @param dueBy    The last due date to include.
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    @Override
+    public boolean streamDueLoansByUser(LocalDate dueBy, Consumer<OverdueLoan> consumer) {
+        return streamLoanDetails("SELECT l.book_id, b.title, b.isbn, l.user_id, u.name, u.email, l.expected_return_date " +
+                "FROM loans l JOIN books b ON b.id = l.book_id JOIN users u ON u.id = l.user_id " +
+                "WHERE l.actual_return_date IS NULL AND l.expected_return_date <= ? " +
+                "ORDER BY l.user_id, l.expected_return_date", dueBy, consumer);
+    }
+
+    private boolean streamLoanDetails(String query, LocalDate date, Consumer<OverdueLoan> consumer) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false); // PostgreSQL only honours the fetch size inside a transaction
+            try (PreparedStatement statement = connection.prepareStatement(query)) {
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                statement.setDate(1, Date.valueOf(date));
+                ResultSet resultSet = statement.executeQuery();
+                RowMapper<OverdueLoan> mapper = OverdueLoanRowMapper.FACTORY.forResultSet(resultSet);
+                while (resultSet.next()) {
+                    consumer.accept(mapper.mapRow(resultSet));
+                }
+                connection.commit();
+                return true;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Streams the loans made between the specified dates, active and archived, with the title and author of their
+     * book, in no particular order. Rows are read through a server-side cursor, so memory use stays flat.
+     *
+     * @param since    The first loan date to include.
+     * @param until    The last loan date to include.
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    @Override
+    public boolean streamLoanEvents(LocalDate since, LocalDate until, Consumer<LoanEvent> consumer) {
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false); // PostgreSQL only honours the fetch size inside a transaction
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT l.book_id, b.title, b.author, l.loan_date FROM (" +
+                            "SELECT book_id, loan_date FROM loans WHERE loan_date BETWEEN ? AND ? " +
+                            "UNION ALL SELECT book_id, loan_date FROM loans_archive WHERE loan_date BETWEEN ? AND ?) l " +
+                            "JOIN books b ON b.id = l.book_id")) {
+                statement.setFetchSize(STREAM_FETCH_SIZE);
+                statement.setDate(1, Date.valueOf(since));
+                statement.setDate(2, Date.valueOf(until));
+                statement.setDate(3, Date.valueOf(since));
+                statement.setDate(4, Date.valueOf(until));
+                ResultSet resultSet = statement.executeQuery();
+                RowMapper<LoanEvent> mapper = LoanEventRowMapper.FACTORY.forResultSet(resultSet);
+                while (resultSet.next()) {
+                    consumer.accept(mapper.mapRow(resultSet));
+                }
+                connection.commit();
+                return true;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private LeasedConnection readConnection(int userId) throws SQLException {
+        return router != null ? router.read(userId) : LeasedConnection.shared(connection);
+    }
+
+    /**
+     * Makes this shard generate loan IDs congruent to its index modulo the shard count, so that a loan is found on
+     * shard {@code loanId % shardCount} (see {@link Shards}). The loans sequence steps by the shard count and restarts
+     * above every loan ID used on the shard so far, archived ones included. Run it on each shard when the shards are
+     * provisioned, and again whenever shards are added.
+     *
+     * @param shardIndex The index of this shard.
+     * @param shardCount The number of shards.
+     * @return true if the sequence was aligned, false otherwise.
+     */
+    public boolean alignLoanSequence(int shardIndex, int shardCount) {
+        if (shardCount <= 0 || shardIndex < 0 || shardIndex >= shardCount) {
+            throw new IllegalArgumentException("Shard index must be between 0 and the shard count");
+        }
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LOCK TABLE loans IN EXCLUSIVE MODE"); // no loan takes an ID while the sequence moves
+                ResultSet resultSet = statement.executeQuery("SELECT pg_get_serial_sequence('loans', 'id'), GREATEST("
+                        + "(SELECT COALESCE(MAX(id), 0) FROM loans), (SELECT COALESCE(MAX(id), 0) FROM loans_archive))");
+                resultSet.next();
+                String sequence = resultSet.getString(1);
+                long after = resultSet.getLong(2) + 1;
+                long next = after + Math.floorMod(shardIndex - after, (long) shardCount);
+                statement.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + shardCount + " RESTART WITH " + next);
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void recordWrite(int userId) {
+        if (router != null) {
+            router.recordWrite(userId);
+        }
+    }
+
+    /**
+     * Closes the connection to the database.
+     */
+    @Override
+    public void closeConnection() {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
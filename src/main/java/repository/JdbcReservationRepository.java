@@ -0,0 +1,203 @@
+package repository;
+
+import entity.Reservation;
+
+import java.sql.*;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * This class represents a repository for managing reservation data in a database.
+ */
+public class JdbcReservationRepository implements ReservationRepository {
+
+    private Connection connection;
+
+    /**
+     * Constructs a new JdbcReservationRepository and establishes a connection to the database.
+     */
+    public JdbcReservationRepository() {
+        try {
+            String url = "jdbc:postgresql://localhost:5432/library";
+            String user = "postgres";
+            String password = "admin";
+            connection = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructs a new JdbcReservationRepository on an existing connection, such as one shard of a sharded deployment.
+     *
+     * @param connection The connection to the database.
+     */
+    public JdbcReservationRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Saves a reservation to the database.
+     *
+     * @param reservation The reservation object to be saved.
+     * @return true if the reservation was saved successfully, false otherwise.
+     */
+    @Override
+    public boolean saveReservation(Reservation reservation) {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO reservations (book_id, user_id, reservation_date) VALUES (?, ?, ?)")) {
+            statement.setLong(1, reservation.getBookId());
+            statement.setLong(2, reservation.getUserId());
+            statement.setDate(3, Date.valueOf(reservation.getReservationDate()));
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Finds the reservations first in line for a book: the oldest ones still waiting.
+     * Reads the partial index on waiting reservations, so the cost does not grow with past reservations.
+     *
+     * @param bookId The ID of the book.
+     * @param limit  The maximum number of reservations.
+     * @return The reservations, oldest first; empty if nobody is waiting, null if the query failed.
+     */
+    @Override
+    public List<Reservation> findWaiting(int bookId, int limit) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, book_id, user_id, reservation_date, hold_expires_at FROM reservations "
+                        + "WHERE book_id = ? AND status = 'WAITING' ORDER BY reservation_date, id LIMIT ?"
+        )) {
+            statement.setLong(1, bookId);
+            statement.setInt(2, limit);
+            ResultSet resultSet = statement.executeQuery();
+            return RowMapper.mapAll(resultSet, ReservationRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Finds the reservation holding a book for a user, whichever node started the hold.
+     *
+     * @param bookId The ID of the book.
+     * @param userId The ID of the user.
+     * @return The held reservation, or null if the book is not held for the user or the query failed.
+     */
+    @Override
+    public Reservation findHold(int bookId, int userId) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, book_id, user_id, reservation_date, hold_expires_at FROM reservations "
+                        + "WHERE book_id = ? AND user_id = ? AND status = 'HELD' LIMIT 1"
+        )) {
+            statement.setLong(1, bookId);
+            statement.setLong(2, userId);
+            ResultSet resultSet = statement.executeQuery();
+            return RowMapper.mapFirst(resultSet, ReservationRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Holds a book for a waiting reservation until a pickup deadline.
+     * Only a reservation still waiting is updated, so two nodes cannot both hold a book for it.
+     *
+     * @param reservation The waiting reservation.
+     * @param expiresAt   The pickup deadline.
+     * @return true if the reservation is now held, false if it was no longer waiting or the update failed.
+     */
+    @Override
+    public boolean startHold(Reservation reservation, Instant expiresAt) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE reservations SET status = 'HELD', hold_expires_at = ? WHERE id = ? AND status = 'WAITING'"
+        )) {
+            statement.setTimestamp(1, Timestamp.from(expiresAt));
+            statement.setLong(2, reservation.getId());
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Ends the hold of a reservation, either because the book was picked up or because the deadline passed.
+     * Only a reservation still held is updated, so a pickup and an expiry cannot both end it.
+     *
+     * @param reservation The held reservation.
+     * @param fulfilled   true if the book was picked up, false if the hold expired.
+     * @return true if the hold was ended, false if it had already ended or the update failed.
+     */
+    @Override
+    public boolean endHold(Reservation reservation, boolean fulfilled) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE reservations SET status = ? WHERE id = ? AND status = 'HELD'"
+        )) {
+            statement.setString(1, fulfilled ? "FULFILLED" : "EXPIRED");
+            statement.setLong(2, reservation.getId());
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Holds a book again for a reservation whose pickup could not be completed, keeping its pickup deadline.
+     * Only a fulfilled reservation is updated, so an expired hold is not brought back.
+     *
+     * @param reservation The reservation picked up.
+     * @return true if the reservation is held again, false if it was not fulfilled or the update failed.
+     */
+    @Override
+    public boolean reopenHold(Reservation reservation) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE reservations SET status = 'HELD' WHERE id = ? AND status = 'FULFILLED'"
+        )) {
+            statement.setLong(1, reservation.getId());
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Finds the reservations holding a book, to reschedule their deadlines after a restart.
+     * Reads the partial index on held reservations.
+     *
+     * @return The held reservations, or null if the query failed.
+     */
+    @Override
+    public List<Reservation> findActiveHolds() {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id, book_id, user_id, reservation_date, hold_expires_at FROM reservations "
+                        + "WHERE status = 'HELD' ORDER BY hold_expires_at"
+        )) {
+            ResultSet resultSet = statement.executeQuery();
+            return RowMapper.mapAll(resultSet, ReservationRowMapper.FACTORY);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Closes the connection to the database.
+     */
+    @Override
+    public void closeConnection() {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
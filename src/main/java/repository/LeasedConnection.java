@@ -0,0 +1,64 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A connection handed out for the duration of one repository call.
+ * Closing it releases it: a connection opened for the call is closed, a shared one is left open.
+ */
+public class LeasedConnection implements AutoCloseable {
+
+    private final Connection connection;
+    private final boolean owned;
+    private final Runnable onRelease;
+
+    private LeasedConnection(Connection connection, boolean owned, Runnable onRelease) {
+        this.connection = connection;
+        this.owned = owned;
+        this.onRelease = onRelease;
+    }
+
+    /**
+     * Leases a long-lived connection that must stay open after the call.
+     *
+     * @param connection The shared connection.
+     * @return The lease.
+     */
+    public static LeasedConnection shared(Connection connection) {
+        return new LeasedConnection(connection, false, null);
+    }
+
+    /**
+     * Leases a connection opened for this call only.
+     *
+     * @param connection The connection, closed on release.
+     * @param onRelease  Called once the connection has been released, or null.
+     * @return The lease.
+     */
+    public static LeasedConnection owned(Connection connection, Runnable onRelease) {
+        return new LeasedConnection(connection, true, onRelease);
+    }
+
+    /**
+     * Gets the leased connection.
+     *
+     * @return The connection.
+     */
+    public Connection get() {
+        return connection;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            if (owned) {
+                connection.close();
+            }
+        } finally {
+            if (onRelease != null) {
+                onRelease.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package repository;
+
+import entity.LoanEvent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of the loan history query to {@link LoanEvent} instances.
+ */
+public class LoanEventRowMapper implements RowMapper<LoanEvent> {
+
+    public static final RowMapper.Factory<LoanEvent> FACTORY = LoanEventRowMapper::new;
+
+    private final int bookId, title, author, loanDate;
+
+    private LoanEventRowMapper(ResultSet resultSet) throws SQLException {
+        bookId = resultSet.findColumn("book_id");
+        title = resultSet.findColumn("title");
+        author = resultSet.findColumn("author");
+        loanDate = resultSet.findColumn("loan_date");
+    }
+
+    @Override
+    public LoanEvent mapRow(ResultSet resultSet) throws SQLException {
+        return new LoanEvent(
+                resultSet.getInt(bookId),
+                resultSet.getString(title),
+                resultSet.getString(author),
+                resultSet.getDate(loanDate).toLocalDate()
+        );
+    }
+}
@@ -2,125 +2,139 @@ package repository;
 
 import entity.Book;
 import entity.Loan;
+import entity.LoanEvent;
+import entity.OutboxMessage;
+import entity.OverdueLoan;
 
-import java.sql.*;
+import java.sql.Date;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 
-public class LoanRepository {
-
-    private Connection connection;
+/**
+ * Stores loans, either in a single database ({@link JdbcLoanRepository}) or across shards
+ * ({@link ShardedLoanRepository}). Methods report database errors through their return value rather than by throwing.
+ */
+public interface LoanRepository {
 
     /**
-     * Constructs a new LoanRepository and establishes a connection to the database.
+     * Saves a loan.
+     *
+     * @param loan The loan object to be saved.
+     * @return true if the loan was saved successfully, false otherwise.
      */
-    public LoanRepository() {
-        try {
-            String url = "jdbc:postgresql://localhost:5432/library";
-            String user = "postgres";
-            String password = "admin";
-            connection = DriverManager.getConnection(url, user, password);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
+    boolean saveLoan(Loan loan);
 
     /**
-     * Saves a loan to the database.
+     * Saves a loan together with its notification in a single transaction,
+     * so the notification is delivered if and only if the loan was committed.
      *
-     * @param loan The loan object to be saved.
+     * @param loan         The loan object to be saved; it receives the generated ID.
+     * @param notification The notification to add to the outbox.
      * @return true if the loan was saved successfully, false otherwise.
      */
-    public boolean saveLoan(Loan loan) {
-        try (PreparedStatement statement = connection.prepareStatement(
-                "INSERT INTO loans (book_id, user_id, loan_date, expected_return_date, actual_return_date) VALUES (?, ?, ?, ?)"
-        )) {
-            statement.setLong(1, loan.getBookID());
-            statement.setLong(2, loan.getUserID());
-            statement.setDate(3, Date.valueOf(loan.getLoanDate()));
-            statement.setDate(4, Date.valueOf(loan.getExpectedReturnDate()));
-            statement.setDate(5, Date.valueOf(loan.getActualReturnDate()));
-            statement.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
+    boolean saveLoan(Loan loan, OutboxMessage notification);
 
     /**
-     * Finds loans by user ID.
+     * Loans several books to a user, all or none; books that are no longer available are skipped.
+     *
+     * @param userId             The ID of the user taking the loans.
+     * @param bookIds            The IDs of the books to loan.
+     * @param loanDate           The date the loans start.
+     * @param expectedReturnDate The date the loans are due.
+     * @param notifications      The notification to add to the outbox for each book, keyed by book ID.
+     * @return The saved loans, with their generated IDs, or null if nothing was saved because of an error.
+     */
+    List<Loan> loanBooks(int userId, int[] bookIds, LocalDate loanDate, LocalDate expectedReturnDate,
+                         Map<Integer, OutboxMessage> notifications);
+
+    /**
+     * Finds a loan by ID.
      *
      * @param loanId The ID of the loan to search for.
-     * @return List of loans associated with the user.
+     * @return The loan with the matching ID, or null if not found.
      */
-    public Loan findById(int loanId) {
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM loans WHERE loan_id = ?")) {
-            statement.setLong(1, loanId);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                new Loan(
-                        // Assuming the existence of appropriate constructors and methods in Loan and User classes
-                        resultSet.getInt("book_id"),
-                        resultSet.getInt("user_id"),
-                        resultSet.getDate("loan_date").toLocalDate(),
-                        resultSet.getDate("expected_return_date").toLocalDate()
-                );
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
-    }
+    Loan findById(int loanId);
+
+    /**
+     * Finds several loans by id.
+     *
+     * @param ids The ids of the loans to search for.
+     * @return The loans found, keyed by id; ids without a matching loan are absent. null if the query failed.
+     */
+    Map<Integer, Loan> findByIds(int[] ids);
 
     /**
      * Updates the returned date of a loan.
      *
      * @param loanId The ID of the loan to update.
      * @param actualReturnedDate The actual returned date.
-     * @return true if the update was successful, false otherwise.
-     */
-    public boolean updateReturnedDate(int loanId, LocalDate actualReturnedDate) {
-        try (PreparedStatement statement = connection.prepareStatement("UPDATE loans SET actual_return_date = ? WHERE id = ?")) {
-            statement.setDate(1, Date.valueOf(actualReturnedDate));
-            statement.setInt(2, loanId);
-            statement.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
+     * @return true if the loan was updated, false if it does not exist or the update failed.
+     */
+    boolean updateReturnedDate(int loanId, LocalDate actualReturnedDate);
+
+    /**
+     * Returns several loans: sets their actual return date and makes their books available again.
+     *
+     * @param bookIdsByLoanId  The book ID of each loan to return, keyed by loan ID.
+     * @param actualReturnDate The actual return date.
+     * @return The IDs of the returned loans, in request order; loans already returned or failing are absent.
+     */
+    default Set<Integer> returnLoans(Map<Integer, Integer> bookIdsByLoanId, LocalDate actualReturnDate) {
+        return returnLoans(bookIdsByLoanId, actualReturnDate, bookId -> false);
     }
 
     /**
-     * Finds loans by user ID.
+     * Returns several loans like {@link #returnLoans(Map, LocalDate)}, but offers each book to a hold first, such as
+     * a waiting reservation. A book is never held while its loan is still open, and a loan whose book can be neither
+     * held nor released is left open.
+     *
+     * @param bookIdsByLoanId  The book ID of each loan to return, keyed by loan ID.
+     * @param actualReturnDate The actual return date.
+     * @param holdBook         Called with the book of each closed loan; true if the book is now held and must stay
+     *                         unavailable.
+     * @return The IDs of the returned loans, in request order; loans already returned or failing are absent.
+     */
+    Set<Integer> returnLoans(Map<Integer, Integer> bookIdsByLoanId, LocalDate actualReturnDate, IntPredicate holdBook);
+
+    /**
+     * Opens returned loans again, undoing a return whose books could not be released.
+     *
+     * @param loanIds          The IDs of the loans to reopen.
+     * @param actualReturnDate The return date they were closed with; loans closed on another date are left alone.
+     * @return true if the update succeeded, false otherwise.
+     */
+    boolean reopenLoans(Collection<Integer> loanIds, LocalDate actualReturnDate);
+
+    /**
+     * Finds the active loans of a user; archived loans are read with findArchivedByUserId.
      *
      * @param userId The ID of the user to search for.
      * @return List of loans associated with the user.
      */
-    public List<Loan> findByUserId(int userId) {
-        List<Loan> loans = new ArrayList<>();
-        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM loans WHERE user_id = ?")) {
-            statement.setLong(1, userId);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                loans.add(new Loan(
-                        // Assuming the existence of appropriate constructors and methods in Loan and User classes
-                        resultSet.getInt("book_id"),
-                        resultSet.getInt("user_id"),
-                        resultSet.getDate("loan_date").toLocalDate(),
-                        resultSet.getDate("expected_return_date").toLocalDate(),
-                        resultSet.getDate("actual_return_date").toLocalDate()
-                ));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return loans;
-    }
+    List<Loan> findByUserId(int userId);
 
+    /**
+     * Finds a page of archived loans by user ID, most recent first, ties broken by descending ID.
+     *
+     * @param userId The ID of the user to search for.
+     * @param after  The last loan of the previous page, or null for the first page.
+     * @param limit  The maximum number of archived loans to return.
+     * @return List of archived loans associated with the user.
+     */
+    List<Loan> findArchivedByUserId(int userId, Loan after, int limit);
 
+    /**
+     * Moves loans returned before the given date to the archive.
+     *
+     * @param returnedBefore Loans with an actual return date before this date are archived.
+     * @return The number of archived loans, or -1 if a database error occurred.
+     */
+    int archiveReturnedLoans(LocalDate returnedBefore);
 
     /**
      * Finds books that have not been returned by the specified date.
@@ -128,41 +142,78 @@ public class LoanRepository {
      * @param date The date to check for overdue books.
      * @return List of books that are overdue.
      */
-    public List<Book> findOverdueBooks(Date date) {
-        List<Book> books = new ArrayList<>();
-        String query = "SELECT b.title, b.author, b.isbn, b.available " +
-                         "FROM books b JOIN loans l ON b.id = l.book_id " +
-                        "WHERE l.due_date < ? AND l.return_date IS NULL";
-
-        try (PreparedStatement statement = connection.prepareStatement(query)) {
-            statement.setDate(1, date);
-            ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                books.add(new Book(
-                        resultSet.getString("title"),
-                        resultSet.getString("author"),
-                        resultSet.getString("isbn"),
-                        resultSet.getBoolean("available")
-                ));
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-
-        return books;
-    }
+    List<Book> findOverdueBooks(Date date);
 
     /**
-     * Closes the connection to the database.
+     * Counts the active loans.
+     *
+     * @return The number of loans, or -1 if a database error occurred.
      */
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
+    int countLoans();
+
+    /**
+     * Counts the loans of each book, active and archived.
+     *
+     * @return The number of loans keyed by book ID; books never loaned are absent. null if a database error occurred.
+     */
+    Map<Integer, Integer> countLoansByBook();
+
+    /**
+     * Streams every active loan to the given consumer, never calling it concurrently.
+     *
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    boolean streamLoans(Consumer<Loan> consumer);
+
+    /**
+     * Streams every loan, active and archived, grouped by user: all loans of a user come one after the other.
+     *
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    boolean streamLoansByUser(Consumer<Loan> consumer);
+
+    /**
+     * Streams the loans that have not been returned yet.
+     *
+     * @param consumer The consumer receiving each open loan.
+     * @return true if all open loans were streamed, false if a database error occurred.
+     */
+    boolean streamOpenLoans(Consumer<Loan> consumer);
+
+    /**
+     * Streams the loans that have not been returned by the specified date, with their book and borrower.
+     *
+     * @param date     The date to check for overdue loans.
+     * @param consumer The consumer receiving each overdue loan.
+     * @return true if all overdue loans were streamed, false if a database error occurred.
+     */
+    boolean streamOverdueLoans(LocalDate date, Consumer<OverdueLoan> consumer);
+
+    /**
+     * Streams the loans not returned yet that are due by the specified date, overdue ones included,
+     * with their book and borrower. The rows of each user are consecutive.
+     *
+     * @param dueBy    The last due date to include.
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    boolean streamDueLoansByUser(LocalDate dueBy, Consumer<OverdueLoan> consumer);
 
+    /**
+     * Streams the loans made between the specified dates, active and archived, with the title and author of their
+     * book, in no particular order.
+     *
+     * @param since    The first loan date to include.
+     * @param until    The last loan date to include.
+     * @param consumer The consumer receiving each loan.
+     * @return true if all loans were streamed, false if a database error occurred.
+     */
+    boolean streamLoanEvents(LocalDate since, LocalDate until, Consumer<LoanEvent> consumer);
+
+    /**
+     * Closes the connection to the database.
+     */
+    void closeConnection();
 }
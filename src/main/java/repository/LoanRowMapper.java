@@ -0,0 +1,39 @@
+package repository;
+
+import entity.Loan;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of the loans and loans_archive tables to {@link Loan} instances.
+ */
+public class LoanRowMapper implements RowMapper<Loan> {
+
+    public static final RowMapper.Factory<Loan> FACTORY = LoanRowMapper::new;
+
+    private final int id, bookId, userId, loanDate, expectedReturnDate, actualReturnDate;
+
+    private LoanRowMapper(ResultSet resultSet) throws SQLException {
+        id = resultSet.findColumn("id");
+        bookId = resultSet.findColumn("book_id");
+        userId = resultSet.findColumn("user_id");
+        loanDate = resultSet.findColumn("loan_date");
+        expectedReturnDate = resultSet.findColumn("expected_return_date");
+        actualReturnDate = resultSet.findColumn("actual_return_date");
+    }
+
+    @Override
+    public Loan mapRow(ResultSet resultSet) throws SQLException {
+        Date returned = resultSet.getDate(actualReturnDate); // null while the loan is open
+        return new Loan(
+                resultSet.getInt(id),
+                resultSet.getInt(bookId),
+                resultSet.getInt(userId),
+                resultSet.getDate(loanDate).toLocalDate(),
+                resultSet.getDate(expectedReturnDate).toLocalDate(),
+                returned != null ? returned.toLocalDate() : null
+        );
+    }
+}
@@ -0,0 +1,100 @@
+package repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * This class reads a columnar loan snapshot written by {@link LoanSnapshotWriter}.
+ * Columns are exposed as read-only views over the memory-mapped file, so scanning them copies nothing.
+ */
+public class LoanSnapshotReader implements Closeable {
+
+    static final int MAGIC = 0x4C4E5331; // "LNS1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    /**
+     * Value stored for a loan that has not been returned yet.
+     */
+    public static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * The columns of a loan snapshot, in file order.
+     */
+    public enum Column {
+        BOOK_ID, USER_ID, LOAN_DATE, EXPECTED_RETURN_DATE, ACTUAL_RETURN_DATE
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final int capacity;
+
+    /**
+     * Opens a snapshot file for reading.
+     *
+     * @param path The path of the snapshot file.
+     * @throws IOException if the file cannot be read or is not a loan snapshot.
+     */
+    public LoanSnapshotReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.size() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not a loan snapshot: " + path);
+        }
+        this.rowCount = buffer.getInt(8);
+        this.capacity = buffer.getInt(12);
+    }
+
+    /**
+     * Gets the number of loans in the snapshot.
+     *
+     * @return The number of loans.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Gets a zero-copy, read-only view of a column.
+     *
+     * @param column The column to read.
+     * @return A buffer holding one int per loan, positioned at the first loan.
+     */
+    public IntBuffer column(Column column) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(HEADER_BYTES + column.ordinal() * capacity * Integer.BYTES);
+        view.limit(view.position() + rowCount * Integer.BYTES);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * Converts a stored date value back to a date.
+     *
+     * @param epochDay The stored value.
+     * @return The date, or null if the value is {@link #NO_DATE}.
+     */
+    public static LocalDate toDate(int epochDay) {
+        return epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Closes the snapshot file.
+     *
+     * @throws IOException if the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
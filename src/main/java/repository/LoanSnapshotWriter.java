@@ -0,0 +1,155 @@
+package repository;
+
+import entity.Loan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ * This class writes a columnar loan snapshot through a memory-mapped file.
+ * <p>
+ * The file starts with a header (magic, version, row count, capacity) followed by one int column
+ * per {@link LoanSnapshotReader.Column}, each {@code capacity} entries long. Dates are stored as epoch days,
+ * a missing actual return date as {@link LoanSnapshotReader#NO_DATE}.
+ * <p>
+ * The snapshot is written next to the target and only moved into place by {@link #commit()}, so a failed export
+ * never leaves a truncated snapshot behind; closing without committing discards it.
+ */
+public class LoanSnapshotWriter implements Closeable {
+
+    private static final int COLUMNS = LoanSnapshotReader.Column.values().length;
+
+    private final Path path;
+    private final Path tempPath;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int rowCount;
+    private boolean committed;
+
+    /**
+     * Starts a snapshot that replaces the file at the given path once committed.
+     *
+     * @param path     The path of the snapshot file.
+     * @param capacity The number of loans expected; the snapshot grows if more are appended.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public LoanSnapshotWriter(Path path, int capacity) throws IOException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        this.path = path;
+        this.tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        this.capacity = capacity;
+        this.channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = map(capacity);
+        this.buffer.putInt(0, LoanSnapshotReader.MAGIC);
+        this.buffer.putInt(4, LoanSnapshotReader.VERSION);
+        this.buffer.putInt(12, capacity);
+    }
+
+    /**
+     * Appends a loan to the snapshot, growing it when it is full.
+     *
+     * @param loan The loan to append.
+     * @throws UncheckedIOException if the snapshot cannot grow.
+     */
+    public void append(Loan loan) {
+        if (rowCount == capacity) {
+            grow();
+        }
+        put(LoanSnapshotReader.Column.BOOK_ID, loan.getBookID());
+        put(LoanSnapshotReader.Column.USER_ID, loan.getUserID());
+        put(LoanSnapshotReader.Column.LOAN_DATE, toEpochDay(loan.getLoanDate()));
+        put(LoanSnapshotReader.Column.EXPECTED_RETURN_DATE, toEpochDay(loan.getExpectedReturnDate()));
+        put(LoanSnapshotReader.Column.ACTUAL_RETURN_DATE, toEpochDay(loan.getActualReturnDate()));
+        rowCount++;
+    }
+
+    /**
+     * Gets the number of loans written so far.
+     *
+     * @return The number of loans in the snapshot.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Writes the row count to the header, flushes the mapping to disk and moves the snapshot into place.
+     *
+     * @throws IOException if the file cannot be flushed or moved.
+     */
+    public void commit() throws IOException {
+        buffer.putInt(8, rowCount);
+        buffer.force();
+        channel.close();
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        committed = true;
+    }
+
+    /**
+     * Closes the file; a snapshot that was not committed is deleted and the previous one is left as it was.
+     *
+     * @throws IOException if the file cannot be closed or deleted.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            channel.close();
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    /**
+     * Doubles the capacity, moving each column to its new offset. Columns only move towards the end of the file, so
+     * they are copied last column first and last row first.
+     */
+    private void grow() {
+        int newCapacity = Math.max(16, capacity * 2);
+        try {
+            buffer = map(newCapacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot could not grow", e);
+        }
+        for (int column = COLUMNS - 1; column > 0; column--) {
+            for (int row = rowCount - 1; row >= 0; row--) {
+                buffer.putInt(offset(column, row, newCapacity), buffer.getInt(offset(column, row, capacity)));
+            }
+        }
+        capacity = newCapacity;
+        buffer.putInt(12, capacity);
+    }
+
+    private MappedByteBuffer map(int capacity) throws IOException {
+        long size = LoanSnapshotReader.HEADER_BYTES + (long) COLUMNS * capacity * Integer.BYTES;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Capacity exceeds the maximum snapshot size");
+        }
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    private void put(LoanSnapshotReader.Column column, int value) {
+        buffer.putInt(offset(column.ordinal(), rowCount, capacity), value);
+    }
+
+    private static int offset(int column, int row, int capacity) {
+        return LoanSnapshotReader.HEADER_BYTES + (column * capacity + row) * Integer.BYTES;
+    }
+
+    private static int toEpochDay(LocalDate date) {
+        return date == null ? LoanSnapshotReader.NO_DATE : (int) date.toEpochDay();
+    }
+}
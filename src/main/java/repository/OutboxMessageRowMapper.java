@@ -0,0 +1,35 @@
+package repository;
+
+import entity.OutboxMessage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of the outbox table to {@link OutboxMessage} instances.
+ */
+public class OutboxMessageRowMapper implements RowMapper<OutboxMessage> {
+
+    public static final RowMapper.Factory<OutboxMessage> FACTORY = OutboxMessageRowMapper::new;
+
+    private final int id, recipient, subject, body, attempts;
+
+    private OutboxMessageRowMapper(ResultSet resultSet) throws SQLException {
+        id = resultSet.findColumn("id");
+        recipient = resultSet.findColumn("recipient");
+        subject = resultSet.findColumn("subject");
+        body = resultSet.findColumn("body");
+        attempts = resultSet.findColumn("attempts");
+    }
+
+    @Override
+    public OutboxMessage mapRow(ResultSet resultSet) throws SQLException {
+        return new OutboxMessage(
+                resultSet.getLong(id),
+                resultSet.getString(recipient),
+                resultSet.getString(subject),
+                resultSet.getString(body),
+                resultSet.getInt(attempts)
+        );
+    }
+}
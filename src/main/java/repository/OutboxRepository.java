@@ -0,0 +1,192 @@
+package repository;
+
+import entity.OutboxMessage;
+
+import java.sql.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class represents a repository for the notification outbox.
+ * <p>
+ * Notifications are inserted in the transaction of the change they announce (see {@link JdbcLoanRepository#saveLoan(entity.Loan, OutboxMessage)}),
+ * so they exist exactly when the change was committed. Relays claim pending rows with {@code FOR UPDATE SKIP LOCKED}
+ * and lease them by pushing {@code available_at} forward: concurrent relays never block on or share a row,
+ * and the rows of a relay that dies are claimed again once their lease runs out.
+ */
+public class OutboxRepository {
+
+    private Connection connection;
+
+    /**
+     * Constructs a new OutboxRepository and establishes a connection to the database.
+     */
+    public OutboxRepository() {
+        try {
+            String url = "jdbc:postgresql://localhost:5432/library";
+            String user = "postgres";
+            String password = "admin";
+            connection = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructs a new OutboxRepository on an existing connection.
+     *
+     * @param connection The connection to the database.
+     */
+    public OutboxRepository(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Adds a notification to the outbox on its own.
+     *
+     * @param message The notification.
+     * @return true if the notification was saved successfully, false otherwise.
+     */
+    public boolean enqueue(OutboxMessage message) {
+        try {
+            insert(connection, message);
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Adds a notification to the outbox unless one with the same deduplication key was already added.
+     *
+     * @param message  The notification.
+     * @param dedupKey The key identifying the notification, such as the loan and the reminder offset.
+     * @return true if the notification is in the outbox, added now or before; false if a database error occurred.
+     */
+    public boolean enqueueOnce(OutboxMessage message, String dedupKey) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO outbox (recipient, subject, body, dedup_key) VALUES (?, ?, ?, ?) ON CONFLICT (dedup_key) DO NOTHING")) {
+            statement.setString(1, message.getRecipient());
+            statement.setString(2, message.getSubject());
+            statement.setString(3, message.getBody());
+            statement.setString(4, dedupKey);
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Claims a batch of pending notifications and leases them to the caller.
+     * Each claim counts as a delivery attempt.
+     *
+     * @param limit The maximum number of notifications to claim.
+     * @param lease How long the notifications stay hidden from other relays.
+     * @return The claimed notifications, oldest first; empty if there are none or a database error occurred.
+     */
+    public List<OutboxMessage> claimBatch(int limit, Duration lease) {
+        List<OutboxMessage> messages = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE outbox SET available_at = now() + make_interval(secs => ?), attempts = attempts + 1 " +
+                        "WHERE id IN (SELECT id FROM outbox WHERE sent_at IS NULL AND failed_at IS NULL AND available_at <= now() " +
+                        "ORDER BY available_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id, recipient, subject, body, attempts")) {
+            statement.setDouble(1, lease.toMillis() / 1000d);
+            statement.setInt(2, limit);
+            ResultSet resultSet = statement.executeQuery();
+            messages = RowMapper.mapAll(resultSet, OutboxMessageRowMapper.FACTORY);
+            messages.sort((a, b) -> Long.compare(a.getId(), b.getId())); // RETURNING does not keep the subquery order
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return messages;
+    }
+
+    /**
+     * Marks notifications as delivered.
+     *
+     * @param ids The IDs of the delivered notifications.
+     * @return true if the notifications were updated successfully, false otherwise.
+     */
+    public boolean markSent(long[] ids) {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE outbox SET sent_at = now() WHERE id = ANY(?)")) {
+            Long[] boxed = new Long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                boxed[i] = ids[i];
+            }
+            Array array = connection.createArrayOf("bigint", boxed);
+            statement.setArray(1, array);
+            statement.executeUpdate();
+            array.free();
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Schedules another delivery attempt of a notification.
+     *
+     * @param id         The ID of the notification.
+     * @param retryAfter How long to wait before the next attempt.
+     * @return true if the notification was updated successfully, false otherwise.
+     */
+    public boolean markFailed(long id, Duration retryAfter) {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE outbox SET available_at = now() + make_interval(secs => ?) WHERE id = ?")) {
+            statement.setDouble(1, retryAfter.toMillis() / 1000d);
+            statement.setLong(2, id);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Gives up on a notification; it stays in the outbox for inspection but is never claimed again.
+     *
+     * @param id The ID of the notification.
+     * @return true if the notification was updated successfully, false otherwise.
+     */
+    public boolean markAbandoned(long id) {
+        try (PreparedStatement statement = connection.prepareStatement("UPDATE outbox SET failed_at = now() WHERE id = ?")) {
+            statement.setLong(1, id);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Inserts a notification through a connection, inside whatever transaction the connection is in.
+     */
+    static void insert(Connection connection, OutboxMessage message) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "INSERT INTO outbox (recipient, subject, body) VALUES (?, ?, ?)")) {
+            statement.setString(1, message.getRecipient());
+            statement.setString(2, message.getSubject());
+            statement.setString(3, message.getBody());
+            statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Closes the connection to the database.
+     */
+    public void closeConnection() {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
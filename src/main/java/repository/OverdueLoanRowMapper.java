@@ -0,0 +1,39 @@
+package repository;
+
+import entity.OverdueLoan;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of the overdue loans query to {@link OverdueLoan} instances.
+ */
+public class OverdueLoanRowMapper implements RowMapper<OverdueLoan> {
+
+    public static final RowMapper.Factory<OverdueLoan> FACTORY = OverdueLoanRowMapper::new;
+
+    private final int bookId, title, isbn, userId, name, email, expectedReturnDate;
+
+    private OverdueLoanRowMapper(ResultSet resultSet) throws SQLException {
+        bookId = resultSet.findColumn("book_id");
+        title = resultSet.findColumn("title");
+        isbn = resultSet.findColumn("isbn");
+        userId = resultSet.findColumn("user_id");
+        name = resultSet.findColumn("name");
+        email = resultSet.findColumn("email");
+        expectedReturnDate = resultSet.findColumn("expected_return_date");
+    }
+
+    @Override
+    public OverdueLoan mapRow(ResultSet resultSet) throws SQLException {
+        return new OverdueLoan(
+                resultSet.getInt(bookId),
+                resultSet.getString(title),
+                resultSet.getString(isbn),
+                resultSet.getInt(userId),
+                resultSet.getString(name),
+                resultSet.getString(email),
+                resultSet.getDate(expectedReturnDate).toLocalDate()
+        );
+    }
+}
@@ -2,58 +2,79 @@ package repository;
 
 import entity.Reservation;
 
-import java.sql.*;
+import java.time.Instant;
+import java.util.List;
 
 /**
- * This class represents a repository for managing reservation data in a database.
+ * Stores reservations, either in a single database ({@link JdbcReservationRepository}) or across shards
+ * ({@link ShardedReservationRepository}).
  */
-public class ReservationRepository {
+public interface ReservationRepository {
 
-    private Connection connection;
+    /**
+     * Saves a reservation.
+     *
+     * @param reservation The reservation object to be saved.
+     * @return true if the reservation was saved successfully, false otherwise.
+     */
+    boolean saveReservation(Reservation reservation);
+
+    /**
+     * Finds the reservations first in line for a book: the oldest ones still waiting.
+     *
+     * @param bookId The ID of the book.
+     * @param limit  The maximum number of reservations.
+     * @return The reservations, oldest first; empty if nobody is waiting, null if the query failed.
+     */
+    List<Reservation> findWaiting(int bookId, int limit);
 
     /**
-     * Constructs a new ReservationRepository and establishes a connection to the database.
+     * Finds the reservation holding a book for a user, whichever node started the hold.
+     *
+     * @param bookId The ID of the book.
+     * @param userId The ID of the user.
+     * @return The held reservation, or null if the book is not held for the user or the query failed.
      */
-    public ReservationRepository() {
-        try {
-            String url = "jdbc:postgresql://localhost:5432/library";
-            String user = "postgres";
-            String password = "admin";
-            connection = DriverManager.getConnection(url, user, password);
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
+    Reservation findHold(int bookId, int userId);
 
     /**
-     * Saves a reservation to the database.
+     * Holds a book for a waiting reservation until a pickup deadline.
+     * Only a reservation still waiting is updated, so two nodes cannot both hold a book for it.
      *
-     * @param reservation The reservation object to be saved.
-     * @return true if the reservation was saved successfully, false otherwise.
+     * @param reservation The waiting reservation.
+     * @param expiresAt   The pickup deadline.
+     * @return true if the reservation is now held, false if it was no longer waiting or the update failed.
+     */
+    boolean startHold(Reservation reservation, Instant expiresAt);
+
+    /**
+     * Ends the hold of a reservation, either because the book was picked up or because the deadline passed.
+     * Only a reservation still held is updated, so a pickup and an expiry cannot both end it.
+     *
+     * @param reservation The held reservation.
+     * @param fulfilled   true if the book was picked up, false if the hold expired.
+     * @return true if the hold was ended, false if it had already ended or the update failed.
+     */
+    boolean endHold(Reservation reservation, boolean fulfilled);
+
+    /**
+     * Holds a book again for a reservation whose pickup could not be completed, keeping its pickup deadline.
+     * Only a fulfilled reservation is updated, so an expired hold is not brought back.
+     *
+     * @param reservation The reservation picked up.
+     * @return true if the reservation is held again, false if it was not fulfilled or the update failed.
+     */
+    boolean reopenHold(Reservation reservation);
+
+    /**
+     * Finds the reservations holding a book, to reschedule their deadlines after a restart.
+     *
+     * @return The held reservations, or null if the query failed.
      */
-    public boolean saveReservation(Reservation reservation) {
-        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO reservations (book_id, user_id, reservation_date) VALUES (?, ?, ?)")) {
-            statement.setLong(1, reservation.getBookId());
-            statement.setLong(2, reservation.getUserId());
-            statement.setDate(3, Date.valueOf(reservation.getReservationDate()));
-            statement.executeUpdate();
-            return true;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
+    List<Reservation> findActiveHolds();
 
     /**
      * Closes the connection to the database.
      */
-    public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-    }
+    void closeConnection();
 }
@@ -0,0 +1,37 @@
+package repository;
+
+import entity.Reservation;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Maps rows of the reservations table to {@link Reservation} instances.
+ */
+public class ReservationRowMapper implements RowMapper<Reservation> {
+
+    public static final RowMapper.Factory<Reservation> FACTORY = ReservationRowMapper::new;
+
+    private final int id, bookId, userId, reservationDate, holdExpiresAt;
+
+    private ReservationRowMapper(ResultSet resultSet) throws SQLException {
+        id = resultSet.findColumn("id");
+        bookId = resultSet.findColumn("book_id");
+        userId = resultSet.findColumn("user_id");
+        reservationDate = resultSet.findColumn("reservation_date");
+        holdExpiresAt = resultSet.findColumn("hold_expires_at");
+    }
+
+    @Override
+    public Reservation mapRow(ResultSet resultSet) throws SQLException {
+        Timestamp expires = resultSet.getTimestamp(holdExpiresAt); // null until the reservation is held
+        return new Reservation(
+                resultSet.getInt(id),
+                resultSet.getInt(bookId),
+                resultSet.getInt(userId),
+                resultSet.getDate(reservationDate).toLocalDate(),
+                expires != null ? expires.toInstant() : null
+        );
+    }
+}
@@ -0,0 +1,76 @@
+package repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps the current row of a result set to an entity.
+ * <p>
+ * A mapper is created once per result set through its {@link Factory}, which resolves the column positions,
+ * so mapping each row only uses index-based getters.
+ *
+ * @param <T> The entity type.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Maps the current row.
+     *
+     * @param resultSet The result set, positioned on a row.
+     * @return The mapped entity.
+     * @throws SQLException if a column cannot be read.
+     */
+    T mapRow(ResultSet resultSet) throws SQLException;
+
+    /**
+     * Creates row mappers bound to the columns of a result set.
+     *
+     * @param <T> The entity type.
+     */
+    @FunctionalInterface
+    interface Factory<T> {
+
+        /**
+         * Resolves the column positions of a result set.
+         *
+         * @param resultSet The result set to map.
+         * @return A mapper for the rows of the result set.
+         * @throws SQLException if a required column is missing.
+         */
+        RowMapper<T> forResultSet(ResultSet resultSet) throws SQLException;
+    }
+
+    /**
+     * Maps every remaining row of a result set.
+     *
+     * @param resultSet The result set to map.
+     * @param factory   The factory of the row mapper.
+     * @param <T>       The entity type.
+     * @return The mapped entities.
+     * @throws SQLException if a row cannot be read.
+     */
+    static <T> List<T> mapAll(ResultSet resultSet, Factory<T> factory) throws SQLException {
+        List<T> results = new ArrayList<>();
+        RowMapper<T> mapper = factory.forResultSet(resultSet);
+        while (resultSet.next()) {
+            results.add(mapper.mapRow(resultSet));
+        }
+        return results;
+    }
+
+    /**
+     * Maps the next row of a result set.
+     *
+     * @param resultSet The result set to map.
+     * @param factory   The factory of the row mapper.
+     * @param <T>       The entity type.
+     * @return The mapped entity, or null if there is no next row.
+     * @throws SQLException if the row cannot be read.
+     */
+    static <T> T mapFirst(ResultSet resultSet, Factory<T> factory) throws SQLException {
+        return resultSet.next() ? factory.forResultSet(resultSet).mapRow(resultSet) : null;
+    }
+}
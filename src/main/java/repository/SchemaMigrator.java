@@ -0,0 +1,186 @@
+package repository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * This class creates and evolves the database schema.
+ * <p>
+ * Migrations are SQL scripts under {@code /db/migration} named {@code V<version>__<description>.sql}.
+ * Each pending migration runs in its own transaction and is recorded in the schema_version table with a checksum,
+ * so a migration that was edited after being applied is detected instead of silently skipped.
+ */
+public class SchemaMigrator {
+
+    /**
+     * The migrations, in order. A new migration is added at the end and never changes once released.
+     */
+    static final List<String> MIGRATIONS = List.of(
+            "V1__create_tables.sql",
+            "V2__performance_indexes.sql",
+            "V3__trigram_search_indexes.sql",
+            "V4__notification_outbox.sql",
+            "V5__outbox_dedup_key.sql",
+            "V6__normalize_isbns.sql",
+            "V7__late_fees.sql",
+            "V8__reservation_holds.sql"
+    );
+
+    private static final long ADVISORY_LOCK_KEY = 0x6C6962726172794CL; // keeps concurrent nodes from migrating twice
+
+    private Connection connection;
+
+    /**
+     * Constructs a new SchemaMigrator and establishes a connection to the database.
+     */
+    public SchemaMigrator() {
+        try {
+            String url = "jdbc:postgresql://localhost:5432/library";
+            String user = "postgres";
+            String password = "admin";
+            connection = DriverManager.getConnection(url, user, password);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Constructs a new SchemaMigrator on an existing connection.
+     *
+     * @param connection The connection to migrate through.
+     */
+    public SchemaMigrator(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Applies the pending migrations.
+     *
+     * @return The number of applied migrations, or -1 if a database error occurred.
+     * @throws IllegalStateException if an applied migration no longer matches its script.
+     */
+    public int migrate() {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_lock(" + ADVISORY_LOCK_KEY + ")");
+            try {
+                statement.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                        "version INTEGER PRIMARY KEY, description TEXT NOT NULL, checksum BIGINT NOT NULL, " +
+                        "installed_at TIMESTAMPTZ NOT NULL DEFAULT now())");
+                Map<Integer, Long> applied = findAppliedChecksums();
+
+                int count = 0;
+                for (String name : MIGRATIONS) {
+                    int version = version(name);
+                    String script = load(name);
+                    long checksum = checksum(script);
+                    Long appliedChecksum = applied.get(version);
+                    if (appliedChecksum == null) {
+                        apply(version, description(name), script, checksum);
+                        count++;
+                    } else if (appliedChecksum != checksum) {
+                        throw new IllegalStateException("Migration " + name + " was changed after it was applied");
+                    }
+                }
+                return count;
+            } finally {
+                statement.execute("SELECT pg_advisory_unlock(" + ADVISORY_LOCK_KEY + ")");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    /**
+     * Gets the current schema version.
+     *
+     * @return The highest applied version, 0 if none, or -1 if a database error occurred.
+     */
+    public int currentVersion() {
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery(
+                    "SELECT COALESCE(MAX(version), 0) FROM schema_version");
+            resultSet.next();
+            return resultSet.getInt(1);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private Map<Integer, Long> findAppliedChecksums() throws SQLException {
+        Map<Integer, Long> checksums = new HashMap<>();
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("SELECT version, checksum FROM schema_version");
+            while (resultSet.next()) {
+                checksums.put(resultSet.getInt(1), resultSet.getLong(2));
+            }
+        }
+        return checksums;
+    }
+
+    private void apply(int version, String description, String script, long checksum) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement();
+             PreparedStatement record = connection.prepareStatement(
+                     "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)")) {
+            statement.execute(script);
+            record.setInt(1, version);
+            record.setString(2, description);
+            record.setLong(3, checksum);
+            record.executeUpdate();
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    static int version(String name) {
+        return Integer.parseInt(name.substring(1, name.indexOf("__")));
+    }
+
+    static String description(String name) {
+        return name.substring(name.indexOf("__") + 2, name.length() - ".sql".length()).replace('_', ' ');
+    }
+
+    static String load(String name) {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream("/db/migration/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Migration not found: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static long checksum(String script) {
+        CRC32 crc = new CRC32();
+        crc.update(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Closes the connection to the database.
+     */
+    public void closeConnection() {
+        try {
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
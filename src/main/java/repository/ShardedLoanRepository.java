@@ -0,0 +1,415 @@
+package repository;
+
+import entity.Book;
+import entity.Loan;
+import entity.LoanEvent;
+import entity.OutboxMessage;
+import entity.OverdueLoan;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * A loan repository partitioned across several databases by user ID.
+ * <p>
+ * Calls for one user, or for one loan, go to a single shard (see {@link Shards} for the placement rules); a loan
+ * missing from the shard its ID points to is looked for on the others. {@link #alignLoanSequences()} sets up the
+ * loan ID sequences this relies on.
+ * Calls spanning all users are sent to every shard in parallel and their results merged.
+ * The overdue queries join books and users, so every shard database holds a read-only copy of those tables.
+ * Book availability is only written in the catalog database. The calls that claim or release books together with
+ * their loans, {@link #loanBooks} and {@link #returnLoans}, update the catalog and a shard in two steps, undoing the
+ * first when the second fails, since the two databases cannot share a transaction.
+ */
+public class ShardedLoanRepository implements LoanRepository {
+
+    private final List<JdbcLoanRepository> shards;
+    private final BookRepository catalog;
+    private final ExecutorService executor;
+
+    /**
+     * Constructs a new ShardedLoanRepository.
+     *
+     * @param shards   One repository per shard, in shard order.
+     * @param catalog  The repository of the catalog database, where book availability is written.
+     * @param executor The executor running cross-shard queries in parallel.
+     */
+    public ShardedLoanRepository(List<JdbcLoanRepository> shards, BookRepository catalog, ExecutorService executor) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (catalog == null) {
+            throw new IllegalArgumentException("Catalog repository cannot be null");
+        }
+        this.shards = List.copyOf(shards);
+        this.catalog = catalog;
+        this.executor = executor;
+    }
+
+    /**
+     * Aligns the loan ID sequence of every shard with its index, so loans are found from their ID.
+     *
+     * @return true if all shards were aligned, false otherwise.
+     */
+    public boolean alignLoanSequences() {
+        boolean aligned = true;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            aligned &= shards.get(shard).alignLoanSequence(shard, shards.size());
+        }
+        return aligned;
+    }
+
+    @Override
+    public boolean saveLoan(Loan loan) {
+        return userShard(loan.getUserID()).saveLoan(loan);
+    }
+
+    /**
+     * Saves a loan and its notification on the shard of the user, so each shard has its own outbox and relay.
+     */
+    @Override
+    public boolean saveLoan(Loan loan, OutboxMessage notification) {
+        return userShard(loan.getUserID()).saveLoan(loan, notification);
+    }
+
+    /**
+     * Claims the available books in the catalog database, then saves their loans and notifications on the shard of
+     * the user, whose outbox relay delivers them.
+     * If the loans cannot be saved, the books are released again and the checkout fails as a whole.
+     */
+    @Override
+    public List<Loan> loanBooks(int userId, int[] bookIds, LocalDate loanDate, LocalDate expectedReturnDate,
+                                Map<Integer, OutboxMessage> notifications) {
+        Set<Integer> claimed = catalog.claimBooks(bookIds);
+        if (claimed == null) {
+            return null;
+        }
+        if (claimed.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Loan> loans = userShard(userId).saveLoans(userId, claimed, loanDate, expectedReturnDate, notifications);
+        if (loans == null) {
+            catalog.releaseBooks(claimed); // if this fails too, the books stay unavailable until released by hand
+        }
+        return loans;
+    }
+
+    @Override
+    public Loan findById(int loanId) {
+        int home = Shards.ofLoan(loanId, shards.size());
+        Loan loan = shards.get(home).findById(loanId);
+        for (int shard = 0; loan == null && shard < shards.size(); shard++) {
+            if (shard != home) {
+                loan = shards.get(shard).findById(loanId);
+            }
+        }
+        return loan;
+    }
+
+    @Override
+    public Map<Integer, Loan> findByIds(int[] ids) {
+        Map<Integer, List<Integer>> idsByShard = new HashMap<>();
+        for (int id : ids) {
+            idsByShard.computeIfAbsent(Shards.ofLoan(id, shards.size()), shard -> new ArrayList<>()).add(id);
+        }
+        List<CompletableFuture<Map<Integer, Loan>>> futures = new ArrayList<>();
+        idsByShard.forEach((shard, shardIds) -> futures.add(CompletableFuture.supplyAsync(
+                () -> shards.get(shard).findByIds(shardIds.stream().mapToInt(Integer::intValue).toArray()), executor)));
+
+        Map<Integer, Loan> loans = new HashMap<>();
+        for (CompletableFuture<Map<Integer, Loan>> future : futures) {
+            Map<Integer, Loan> found = future.join();
+            if (found == null) {
+                return null;
+            }
+            loans.putAll(found);
+        }
+
+        int[] missing = Arrays.stream(ids).filter(id -> !loans.containsKey(id)).distinct().toArray();
+        if (missing.length > 0) {
+            for (Map<Integer, Loan> found : scatterOffHome(missing, JdbcLoanRepository::findByIds).values()) {
+                if (found == null) {
+                    return null;
+                }
+                loans.putAll(found);
+            }
+        }
+        return loans;
+    }
+
+    @Override
+    public boolean updateReturnedDate(int loanId, LocalDate actualReturnedDate) {
+        int home = Shards.ofLoan(loanId, shards.size());
+        if (shards.get(home).updateReturnedDate(loanId, actualReturnedDate)) {
+            return true;
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shard != home && shards.get(shard).updateReturnedDate(loanId, actualReturnedDate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens loans again on their shards; a loan closed before the sequences were aligned is opened where it is found.
+     */
+    @Override
+    public boolean reopenLoans(Collection<Integer> loanIds, LocalDate actualReturnDate) {
+        Map<Integer, List<Integer>> idsByShard = new HashMap<>();
+        for (int loanId : loanIds) {
+            idsByShard.computeIfAbsent(Shards.ofLoan(loanId, shards.size()), shard -> new ArrayList<>()).add(loanId);
+        }
+        boolean reopened = true;
+        for (Map.Entry<Integer, List<Integer>> entry : idsByShard.entrySet()) {
+            reopened &= shards.get(entry.getKey()).reopenLoans(entry.getValue(), actualReturnDate);
+        }
+        int[] ids = loanIds.stream().mapToInt(Integer::intValue).toArray();
+        for (boolean shardReopened : scatterOffHome(ids, (shard, offHome) -> shard.reopenLoans(
+                Arrays.stream(offHome).boxed().collect(Collectors.toList()), actualReturnDate)).values()) {
+            reopened &= shardReopened;
+        }
+        return reopened;
+    }
+
+    /**
+     * Closes the loans on their shards, then offers their books to the holds and releases the others in the catalog
+     * database. A loan whose book can be neither held nor released is opened again on the shard that closed it, so a
+     * loan is never reported returned while its book stays unavailable for nobody.
+     */
+    @Override
+    public Set<Integer> returnLoans(Map<Integer, Integer> bookIdsByLoanId, LocalDate actualReturnDate,
+                                    IntPredicate holdBook) {
+        Map<Integer, List<Integer>> idsByShard = new HashMap<>();
+        for (int loanId : bookIdsByLoanId.keySet()) {
+            idsByShard.computeIfAbsent(Shards.ofLoan(loanId, shards.size()), shard -> new ArrayList<>()).add(loanId);
+        }
+        Map<Integer, Set<Integer>> closedByShard = new HashMap<>();
+        Set<Integer> closed = new HashSet<>();
+        idsByShard.forEach((shard, shardIds) -> {
+            Set<Integer> shardClosed = shards.get(shard).closeLoans(shardIds, actualReturnDate);
+            if (shardClosed != null && !shardClosed.isEmpty()) {
+                closedByShard.put(shard, shardClosed);
+                closed.addAll(shardClosed);
+            }
+        });
+        int[] missing = bookIdsByLoanId.keySet().stream().filter(id -> !closed.contains(id)).mapToInt(Integer::intValue).toArray();
+        if (missing.length > 0) { // returned already, or placed before the sequences were aligned
+            scatterOffHome(missing, (shard, ids) -> shard.closeLoans(
+                    Arrays.stream(ids).boxed().collect(Collectors.toList()), actualReturnDate)).forEach((shard, found) -> {
+                if (found != null && !found.isEmpty()) {
+                    closedByShard.computeIfAbsent(shard, s -> new HashSet<>()).addAll(found);
+                    closed.addAll(found);
+                }
+            });
+        }
+        if (closed.isEmpty()) {
+            return new LinkedHashSet<>();
+        }
+
+        Set<Integer> failed = JdbcLoanRepository.settleReturns(bookIdsByLoanId, closed, holdBook, catalog::releaseBooks);
+        closedByShard.forEach((shard, shardClosed) -> {
+            List<Integer> reopen = shardClosed.stream().filter(failed::contains).collect(Collectors.toList());
+            if (!reopen.isEmpty()) {
+                shards.get(shard).reopenLoans(reopen, actualReturnDate);
+            }
+        });
+        return JdbcLoanRepository.returnedInOrder(bookIdsByLoanId, closed, failed);
+    }
+
+    @Override
+    public List<Loan> findByUserId(int userId) {
+        return userShard(userId).findByUserId(userId);
+    }
+
+    @Override
+    public List<Loan> findArchivedByUserId(int userId, Loan after, int limit) {
+        return userShard(userId).findArchivedByUserId(userId, after, limit);
+    }
+
+    @Override
+    public int archiveReturnedLoans(LocalDate returnedBefore) {
+        int total = 0;
+        for (int archived : scatter(shard -> shard.archiveReturnedLoans(returnedBefore))) {
+            if (archived < 0) {
+                return -1;
+            }
+            total += archived;
+        }
+        return total;
+    }
+
+    @Override
+    public List<Book> findOverdueBooks(Date date) {
+        List<Book> books = new ArrayList<>();
+        for (List<Book> shardBooks : scatter(shard -> shard.findOverdueBooks(date))) {
+            books.addAll(shardBooks);
+        }
+        return books;
+    }
+
+    @Override
+    public int countLoans() {
+        int total = 0;
+        for (int count : scatter(JdbcLoanRepository::countLoans)) {
+            if (count < 0) {
+                return -1;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public Map<Integer, Integer> countLoansByBook() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (Map<Integer, Integer> shardCounts : scatter(JdbcLoanRepository::countLoansByBook)) {
+            if (shardCounts == null) {
+                return null;
+            }
+            shardCounts.forEach((bookId, count) -> counts.merge(bookId, count, Integer::sum));
+        }
+        return counts;
+    }
+
+    /**
+     * Streams every loan, one shard after the other, so the consumer is never called concurrently.
+     */
+    @Override
+    public boolean streamLoans(Consumer<Loan> consumer) {
+        for (JdbcLoanRepository shard : shards) {
+            if (!shard.streamLoans(consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams the loans grouped by user, one shard after the other; a user's loans all live on one shard,
+     * so they still arrive together.
+     */
+    @Override
+    public boolean streamLoansByUser(Consumer<Loan> consumer) {
+        for (JdbcLoanRepository shard : shards) {
+            if (!shard.streamLoansByUser(consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams the open loans, one shard after the other, so the consumer is never called concurrently.
+     */
+    @Override
+    public boolean streamOpenLoans(Consumer<Loan> consumer) {
+        for (JdbcLoanRepository shard : shards) {
+            if (!shard.streamOpenLoans(consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams the overdue loans, one shard after the other, so the consumer is never called concurrently
+     * and memory stays flat. Rows are ordered by due date within each shard only.
+     */
+    @Override
+    public boolean streamOverdueLoans(LocalDate date, Consumer<OverdueLoan> consumer) {
+        for (JdbcLoanRepository shard : shards) {
+            if (!shard.streamOverdueLoans(date, consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams the due loans, one shard after the other. A user's loans are all on one shard,
+     * so they stay consecutive.
+     */
+    @Override
+    public boolean streamDueLoansByUser(LocalDate dueBy, Consumer<OverdueLoan> consumer) {
+        for (JdbcLoanRepository shard : shards) {
+            if (!shard.streamDueLoansByUser(dueBy, consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Streams the loan history, one shard after the other, so the consumer is never called concurrently.
+     */
+    @Override
+    public boolean streamLoanEvents(LocalDate since, LocalDate until, Consumer<LoanEvent> consumer) {
+        for (JdbcLoanRepository shard : shards) {
+            if (!shard.streamLoanEvents(since, until, consumer)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes the connections to all shards.
+     */
+    @Override
+    public void closeConnection() {
+        shards.forEach(JdbcLoanRepository::closeConnection);
+    }
+
+    private JdbcLoanRepository userShard(int userId) {
+        return shards.get(Shards.ofUser(userId, shards.size()));
+    }
+
+    /**
+     * Runs a query on every shard in parallel with the IDs whose home is another shard, for loans placed before the
+     * sequences were aligned.
+     *
+     * @return The result of each queried shard, keyed by shard index; shards without such IDs are not queried.
+     */
+    private <T> Map<Integer, T> scatterOffHome(int[] loanIds, BiFunction<JdbcLoanRepository, int[], T> query) {
+        Map<Integer, CompletableFuture<T>> futures = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int index = shard;
+            int[] offHome = Arrays.stream(loanIds).filter(id -> Shards.ofLoan(id, shards.size()) != index).toArray();
+            if (offHome.length > 0) {
+                futures.put(shard, CompletableFuture.supplyAsync(() -> query.apply(shards.get(index), offHome), executor));
+            }
+        }
+        Map<Integer, T> results = new HashMap<>();
+        futures.forEach((shard, future) -> results.put(shard, future.join()));
+        return results;
+    }
+
+    private <T> List<T> scatter(Function<JdbcLoanRepository, T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (JdbcLoanRepository shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+        }
+        List<T> results = new ArrayList<>();
+        for (CompletableFuture<T> future : futures) {
+            results.add(future.join());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,101 @@
+package repository;
+
+import entity.Reservation;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A reservation repository partitioned across several databases by user ID,
+ * so that a user's reservations live on the same shard as the user's loans (see {@link Shards}).
+ */
+public class ShardedReservationRepository implements ReservationRepository {
+
+    private static final Comparator<Reservation> WAITING_ORDER =
+            Comparator.comparing(Reservation::getReservationDate).thenComparingInt(Reservation::getId);
+
+    private final List<JdbcReservationRepository> shards;
+
+    /**
+     * Constructs a new ShardedReservationRepository.
+     *
+     * @param shards One repository per shard, in the same shard order as the loan repositories.
+     */
+    public ShardedReservationRepository(List<JdbcReservationRepository> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    @Override
+    public boolean saveReservation(Reservation reservation) {
+        int shard = Shards.ofUser(reservation.getUserId(), shards.size());
+        return shards.get(shard).saveReservation(reservation);
+    }
+
+    /**
+     * Asks every shard for its first waiting reservations of the book, since reservations are placed by user,
+     * and keeps the oldest.
+     */
+    @Override
+    public List<Reservation> findWaiting(int bookId, int limit) {
+        List<Reservation> waiting = new ArrayList<>();
+        for (JdbcReservationRepository shard : shards) {
+            List<Reservation> shardWaiting = shard.findWaiting(bookId, limit);
+            if (shardWaiting == null) {
+                return null;
+            }
+            waiting.addAll(shardWaiting);
+        }
+        waiting.sort(WAITING_ORDER);
+        return waiting.size() > limit ? new ArrayList<>(waiting.subList(0, limit)) : waiting;
+    }
+
+    @Override
+    public Reservation findHold(int bookId, int userId) {
+        return userShard(userId).findHold(bookId, userId);
+    }
+
+    @Override
+    public boolean startHold(Reservation reservation, Instant expiresAt) {
+        return userShard(reservation.getUserId()).startHold(reservation, expiresAt);
+    }
+
+    @Override
+    public boolean endHold(Reservation reservation, boolean fulfilled) {
+        return userShard(reservation.getUserId()).endHold(reservation, fulfilled);
+    }
+
+    @Override
+    public boolean reopenHold(Reservation reservation) {
+        return userShard(reservation.getUserId()).reopenHold(reservation);
+    }
+
+    @Override
+    public List<Reservation> findActiveHolds() {
+        List<Reservation> holds = new ArrayList<>();
+        for (JdbcReservationRepository shard : shards) {
+            List<Reservation> shardHolds = shard.findActiveHolds();
+            if (shardHolds == null) {
+                return null;
+            }
+            holds.addAll(shardHolds);
+        }
+        return holds;
+    }
+
+    /**
+     * Closes the connections to all shards.
+     */
+    @Override
+    public void closeConnection() {
+        shards.forEach(JdbcReservationRepository::closeConnection);
+    }
+
+    private JdbcReservationRepository userShard(int userId) {
+        return shards.get(Shards.ofUser(userId, shards.size()));
+    }
+}
@@ -0,0 +1,40 @@
+package repository;
+
+/**
+ * The partitioning function of sharded repositories.
+ * <p>
+ * Rows are placed by user ID, so all of a user's loans and reservations live on one shard. Loan IDs are generated
+ * per shard so that {@code loanId % shardCount} is the shard of the loan: {@link JdbcLoanRepository#alignLoanSequence}
+ * makes shard {@code i} of {@code n} step its sequence by {@code n} and yield IDs congruent to {@code i} modulo
+ * {@code n}. A loan can then be found from its ID alone. Loans saved before the sequences were aligned, or before
+ * shards were added, may sit elsewhere; the sharded repository looks for them on the other shards when the expected
+ * one misses.
+ */
+final class Shards {
+
+    private Shards() {
+    }
+
+    /**
+     * Gets the shard holding a user's rows.
+     *
+     * @param userId     The ID of the user.
+     * @param shardCount The number of shards.
+     * @return The shard index.
+     */
+    static int ofUser(int userId, int shardCount) {
+        int hash = userId * 0x9E3779B9; // spreads consecutive IDs across the shards
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+    /**
+     * Gets the shard holding a loan.
+     *
+     * @param loanId     The ID of the loan.
+     * @param shardCount The number of shards.
+     * @return The shard index.
+     */
+    static int ofLoan(int loanId, int shardCount) {
+        return Math.floorMod(loanId, shardCount);
+    }
+}
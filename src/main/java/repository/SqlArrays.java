@@ -0,0 +1,36 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Helpers for passing id sets as SQL array parameters.
+ */
+final class SqlArrays {
+
+    /**
+     * Maximum number of ids bound to a single array parameter.
+     * Larger sets are split, so one huge request does not turn into one huge query plan and result set.
+     */
+    static final int MAX_IDS_PER_QUERY = 5000;
+
+    private SqlArrays() {
+    }
+
+    /**
+     * Removes duplicate ids and splits the rest into chunks of at most {@link #MAX_IDS_PER_QUERY} ids.
+     *
+     * @param ids The ids.
+     * @return The chunks, ready to be passed to {@link java.sql.Connection#createArrayOf}.
+     */
+    static List<Integer[]> chunks(int[] ids) {
+        int[] distinct = Arrays.stream(ids).distinct().toArray();
+        List<Integer[]> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.length; from += MAX_IDS_PER_QUERY) {
+            int to = Math.min(distinct.length, from + MAX_IDS_PER_QUERY);
+            chunks.add(Arrays.stream(distinct, from, to).boxed().toArray(Integer[]::new));
+        }
+        return chunks;
+    }
+}
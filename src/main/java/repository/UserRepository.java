@@ -2,6 +2,8 @@ package repository;
 
 import entity.User;
 import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
 
 public class UserRepository {
 
@@ -31,12 +33,7 @@ public class UserRepository {
         try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM users WHERE id = ?")) {
             statement.setInt(1, id);
             ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new User(
-                        resultSet.getString("name"),
-                        resultSet.getString("email")
-                );
-            }
+            return RowMapper.mapFirst(resultSet, UserRowMapper.FACTORY);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -53,12 +50,7 @@ public class UserRepository {
         try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM users WHERE email = ?")) {
             statement.setString(1, email);
             ResultSet resultSet = statement.executeQuery();
-            if (resultSet.next()) {
-                return new User(
-                        resultSet.getString("name"),
-                        resultSet.getString("email")
-                );
-            }
+            return RowMapper.mapFirst(resultSet, UserRowMapper.FACTORY);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -83,6 +75,31 @@ public class UserRepository {
         }
     }
 
+    /**
+     * Finds several users by id. Each chunk of ids is fetched with a single query.
+     *
+     * @param ids The ids of the users to search for.
+     * @return The users found, keyed by id; ids without a matching user are absent. null if the query failed.
+     */
+    public Map<Integer, User> findByIds(int[] ids) {
+        Map<Integer, User> users = new HashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT * FROM users WHERE id = ANY(?)")) {
+            for (Integer[] chunk : SqlArrays.chunks(ids)) {
+                Array array = connection.createArrayOf("integer", chunk);
+                statement.setArray(1, array);
+                ResultSet resultSet = statement.executeQuery();
+                for (User user : RowMapper.mapAll(resultSet, UserRowMapper.FACTORY)) {
+                    users.put(user.getId(), user);
+                }
+                array.free();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null; // Database error; callers must not mistake it for "not found"
+        }
+        return users;
+    }
+
     /**
      * Closes the connection to the database.
      */
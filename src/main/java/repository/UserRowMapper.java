@@ -0,0 +1,31 @@
+package repository;
+
+import entity.User;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps rows of the users table to {@link User} instances.
+ */
+public class UserRowMapper implements RowMapper<User> {
+
+    public static final RowMapper.Factory<User> FACTORY = UserRowMapper::new;
+
+    private final int id, name, email;
+
+    private UserRowMapper(ResultSet resultSet) throws SQLException {
+        id = resultSet.findColumn("id");
+        name = resultSet.findColumn("name");
+        email = resultSet.findColumn("email");
+    }
+
+    @Override
+    public User mapRow(ResultSet resultSet) throws SQLException {
+        return new User(
+                resultSet.getInt(id),
+                resultSet.getString(name),
+                resultSet.getString(email)
+        );
+    }
+}
@@ -0,0 +1,264 @@
+package service;
+
+import entity.Book;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A prefix index over book titles and author names, ranked by loan popularity.
+ * <p>
+ * Titles and authors are normalized (lower case, no accents, punctuation as spaces) and indexed from the start of
+ * every word, so "soledad" completes "Cien años de soledad". The trie lives in primitive arrays: child links are one
+ * open-addressing map keyed by parent node and character, and every node stores its own top {@link #MAX_RESULTS}
+ * entries in a flat int array. A completion is a walk down the prefix followed by a copy of the node's list, so its cost
+ * depends on the prefix length only, not on the catalog size. Keys are indexed up to {@link #MAX_KEY_LENGTH} characters;
+ * longer prefixes filter the list of the deepest node.
+ * <p>
+ * Popularity only grows, through {@link #addBook} and {@link #recordLoan}, and each increase is pushed into the lists
+ * along the paths of the entry. A renamed title or author keeps its old entry until the index is rebuilt.
+ * This class is not thread-safe.
+ */
+public class AutocompleteIndex {
+
+    public static final int MAX_RESULTS = 10;
+    static final int MAX_KEY_LENGTH = 32;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final int ROOT = 0;
+    private static final int NO_ENTRY = -1;
+
+    private String[] texts = new String[256];
+    private byte[] kinds = new byte[256];
+    private long[] scores = new long[256];
+    private int entryCount;
+    private final Map<String, Integer> entriesByKey = new HashMap<>();
+    private final Map<Integer, int[]> entriesByBook = new HashMap<>(); // title entry, author entry
+
+    private final LongIntHashMap children = new LongIntHashMap(1024);
+    private int[] top = new int[1024 * MAX_RESULTS];
+    private byte[] topSizes = new byte[1024];
+    private int nodeCount = 1;
+
+    /**
+     * Adds a book with its loan count. Adding a book already in the index only adds to its popularity.
+     *
+     * @param book      The book.
+     * @param loanCount The number of loans of the book.
+     */
+    public void addBook(Book book, long loanCount) {
+        if (book.getId() > 0 && entriesByBook.containsKey(book.getId())) {
+            recordLoans(book.getId(), loanCount);
+            return;
+        }
+        int title = entry(Suggestion.Kind.TITLE, book.getTitle());
+        int author = entry(Suggestion.Kind.AUTHOR, book.getAuthor());
+        if (book.getId() > 0) {
+            entriesByBook.put(book.getId(), new int[]{title, author});
+        }
+        addScore(title, loanCount);
+        addScore(author, loanCount);
+    }
+
+    /**
+     * Counts one more loan of a book, raising its title and author.
+     *
+     * @param bookId The ID of the loaned book.
+     */
+    public void recordLoan(int bookId) {
+        recordLoans(bookId, 1);
+    }
+
+    /**
+     * Completes a prefix.
+     *
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of suggestions, at most {@link #MAX_RESULTS}.
+     * @return The most popular titles and authors with a word starting with the prefix, most popular first.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int node = ROOT;
+        for (int i = 0; i < Math.min(key.length(), MAX_KEY_LENGTH); i++) {
+            node = children.get(childKey(node, key.charAt(i)));
+            if (node == LongIntHashMap.MISSING) {
+                return new ArrayList<>();
+            }
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>(Math.min(limit, MAX_RESULTS));
+        for (int i = 0; i < topSizes[node] && suggestions.size() < limit; i++) {
+            int entry = top[node * MAX_RESULTS + i];
+            if (key.length() <= MAX_KEY_LENGTH || hasWordStartingWith(normalize(texts[entry]), key)) {
+                suggestions.add(new Suggestion(texts[entry], Suggestion.Kind.values()[kinds[entry]], scores[entry]));
+            }
+        }
+        return suggestions;
+    }
+
+    /**
+     * Gets the number of distinct titles and authors.
+     *
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Gets the number of trie nodes.
+     *
+     * @return The number of nodes, the root included.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Normalizes text for indexing and lookup: accents removed, lower case, runs of other characters as one space.
+     *
+     * @param text The text.
+     * @return The normalized text.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        StringBuilder normalized = new StringBuilder(stripped.length());
+        boolean space = true;
+        for (int i = 0; i < stripped.length(); i++) {
+            char c = stripped.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int length = normalized.length();
+        return space && length > 0 ? normalized.substring(0, length - 1) : normalized.toString();
+    }
+
+    private void recordLoans(int bookId, long count) {
+        int[] entries = entriesByBook.get(bookId);
+        if (entries != null) {
+            addScore(entries[0], count);
+            addScore(entries[1], count);
+        }
+    }
+
+    private int entry(Suggestion.Kind kind, String text) {
+        String normalized = normalize(text);
+        Integer existing = entriesByKey.get(kind.ordinal() + normalized);
+        if (existing != null) {
+            return existing;
+        }
+        int entry = entryCount++;
+        if (entry == texts.length) {
+            texts = Arrays.copyOf(texts, entry * 2);
+            kinds = Arrays.copyOf(kinds, entry * 2);
+            scores = Arrays.copyOf(scores, entry * 2);
+        }
+        texts[entry] = text;
+        kinds[entry] = (byte) kind.ordinal();
+        entriesByKey.put(kind.ordinal() + normalized, entry);
+        forEachNode(normalized, true, node -> offer(node, entry));
+        return entry;
+    }
+
+    private void addScore(int entry, long count) {
+        if (count <= 0) {
+            return;
+        }
+        scores[entry] += count;
+        forEachNode(normalize(texts[entry]), false, node -> offer(node, entry));
+    }
+
+    private interface NodeVisitor {
+        void visit(int node);
+    }
+
+    /**
+     * Visits the node of every prefix of every word-start suffix of a normalized text.
+     */
+    private void forEachNode(String normalized, boolean create, NodeVisitor visitor) {
+        for (int start = 0; start < normalized.length(); start++) {
+            if (start > 0 && normalized.charAt(start - 1) != ' ') {
+                continue;
+            }
+            int node = ROOT;
+            int end = Math.min(normalized.length(), start + MAX_KEY_LENGTH);
+            for (int i = start; i < end; i++) {
+                long key = childKey(node, normalized.charAt(i));
+                int child = children.get(key);
+                if (child == LongIntHashMap.MISSING) {
+                    if (!create) {
+                        break;
+                    }
+                    child = newNode();
+                    children.put(key, child);
+                }
+                node = child;
+                visitor.visit(node);
+            }
+        }
+    }
+
+    /**
+     * Puts an entry into the ranked list of a node, or moves it up after its score grew.
+     */
+    private void offer(int node, int entry) {
+        int base = node * MAX_RESULTS;
+        int size = topSizes[node];
+        int position = NO_ENTRY;
+        for (int i = 0; i < size; i++) {
+            if (top[base + i] == entry) {
+                position = i;
+                break;
+            }
+        }
+        if (position == NO_ENTRY) {
+            if (size < MAX_RESULTS) {
+                position = size;
+                topSizes[node]++;
+            } else if (scores[entry] > scores[top[base + size - 1]]) {
+                position = size - 1;
+            } else {
+                return;
+            }
+        }
+        while (position > 0 && scores[top[base + position - 1]] < scores[entry]) {
+            top[base + position] = top[base + position - 1];
+            position--;
+        }
+        top[base + position] = entry;
+    }
+
+    private int newNode() {
+        int node = nodeCount++;
+        if (node == topSizes.length) {
+            topSizes = Arrays.copyOf(topSizes, node * 2);
+            top = Arrays.copyOf(top, node * 2 * MAX_RESULTS);
+        }
+        return node;
+    }
+
+    private static long childKey(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+
+    private static boolean hasWordStartingWith(String normalized, String prefix) {
+        return normalized.startsWith(prefix) || normalized.contains(" " + prefix);
+    }
+}
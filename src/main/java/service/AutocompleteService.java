@@ -0,0 +1,161 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+import repository.BookRepository;
+import repository.LoanRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class completes what is typed in the search box with titles and authors, most loaned first, from an
+ * in-memory {@link AutocompleteIndex} instead of a table scan per keystroke.
+ * <p>
+ * The index is built from the catalog and the loan counts of each book. New books are added as they are saved, and
+ * new loans raise their book when this service is registered as a {@link LoanListener}; a periodic rebuild picks up
+ * changes made by other nodes and drops renamed titles. A rebuild reads the database without holding the lock and then swaps the index in.
+ */
+public class AutocompleteService implements LoanListener {
+
+    private final BookRepository bookRepository;
+    private final LoanRepository loanRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private AutocompleteIndex index = new AutocompleteIndex();
+
+    /**
+     * Constructs a new AutocompleteService with an empty index; call {@link #rebuild()} to load it.
+     *
+     * @param bookRepository The BookRepository instance to be used for book operations.
+     * @param loanRepository The LoanRepository instance providing loan counts.
+     */
+    public AutocompleteService(BookRepository bookRepository, LoanRepository loanRepository) {
+        this.bookRepository = bookRepository;
+        this.loanRepository = loanRepository;
+    }
+
+    /**
+     * Replaces the index with one built from the whole catalog and the loan counts.
+     *
+     * @return The number of books indexed, or 0 if the catalog or the loan counts could not be read and the current
+     *         index was kept.
+     */
+    public int rebuild() {
+        List<Book> books = bookRepository.findUpdatedSince(Instant.EPOCH);
+        if (books == null) {
+            return 0; // keep the index we have
+        }
+        Map<Integer, Integer> loanCounts = loanRepository.countLoansByBook();
+        if (loanCounts == null) {
+            return 0; // without counts every book would rank as never loaned
+        }
+        AutocompleteIndex rebuilt = new AutocompleteIndex();
+        for (Book book : books) {
+            rebuilt.addBook(book, loanCounts.getOrDefault(book.getId(), 0));
+        }
+        lock.writeLock().lock();
+        try {
+            index = rebuilt;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return books.size();
+    }
+
+    /**
+     * Completes a prefix with the most loaned titles and authors having a word that starts with it.
+     * Case and accents are ignored.
+     *
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of suggestions, from 1 to {@link AutocompleteIndex#MAX_RESULTS}.
+     * @return The suggestions, most popular first; empty if nothing matches.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null");
+        }
+        if (limit <= 0 || limit > AutocompleteIndex.MAX_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + AutocompleteIndex.MAX_RESULTS);
+        }
+        lock.readLock().lock();
+        try {
+            return index.complete(prefix, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a newly saved book to the index.
+     *
+     * @param book The book.
+     */
+    public void bookAdded(Book book) {
+        lock.writeLock().lock();
+        try {
+            index.addBook(book, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Raises the title and author of a book after a loan.
+     *
+     * @param bookId The ID of the loaned book.
+     */
+    public void loanRecorded(int bookId) {
+        lock.writeLock().lock();
+        try {
+            index.recordLoan(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void loanCreated(Loan loan, Book book) {
+        loanRecorded(book.getId());
+    }
+
+    /**
+     * Gets the number of distinct titles and authors in the index.
+     *
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        lock.readLock().lock();
+        try {
+            return index.getEntryCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Schedules a rebuild of the index at a fixed interval.
+     *
+     * @param executor The executor running the rebuilds.
+     * @param interval The time between two rebuilds.
+     * @return The scheduled task, which can be used to cancel it.
+     */
+    public ScheduledFuture<?> scheduleRebuilds(ScheduledExecutorService executor, Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Rebuild interval must be greater than zero");
+        }
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // keep the schedule alive, the current index stays in use
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,144 @@
+package service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The coalescing and batching shared by the {@link InvalidationBus} implementations.
+ * <p>
+ * Published keys reach the listeners of this node at once, so a node never reads its own stale copies. For the other
+ * nodes they collect in a set, so an entity changed many times is sent once. The first key of a batch arms a flush
+ * after the maximum delay, and a batch that reaches its maximum size is sent at once; either way a burst of changes
+ * costs one message instead of one per change. Each key packs the region and the ID into a long.
+ */
+abstract class BatchingInvalidationBus implements InvalidationBus {
+
+    private final ScheduledExecutorService executor;
+    private final long maxDelayMillis;
+    private final int maxBatch;
+    private final long nodeId = ThreadLocalRandom.current().nextLong();
+    private final List<InvalidationListener> listeners = new CopyOnWriteArrayList<>();
+
+    private Set<Long> pending = new HashSet<>();
+    private boolean flushArmed;
+
+    /**
+     * Constructs a bus.
+     *
+     * @param executor The executor running the delayed flushes.
+     * @param maxDelay How long a key may wait for others to join its batch.
+     * @param maxBatch The number of distinct keys that sends a batch at once.
+     */
+    BatchingInvalidationBus(ScheduledExecutorService executor, Duration maxDelay, int maxBatch) {
+        if (maxDelay == null || maxDelay.isNegative()) {
+            throw new IllegalArgumentException("Maximum delay cannot be negative");
+        }
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Maximum batch must be greater than zero");
+        }
+        this.executor = executor;
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.maxBatch = maxBatch;
+    }
+
+    @Override
+    public void publish(CacheRegion region, int id) {
+        if (region == null) {
+            throw new IllegalArgumentException("Region cannot be null");
+        }
+        long key = key(region, id);
+        dispatch(new long[]{key}, 1);
+        boolean full;
+        synchronized (this) {
+            pending.add(key);
+            full = pending.size() >= maxBatch;
+            if (!full && !flushArmed) {
+                flushArmed = true;
+                executor.schedule(this::scheduledFlush, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full) {
+            flush();
+        }
+    }
+
+    @Override
+    public void subscribe(InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void flush() {
+        Set<Long> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashSet<>();
+            flushArmed = false;
+        }
+        long[] keys = new long[batch.size()];
+        int i = 0;
+        for (long key : batch) {
+            keys[i++] = key;
+        }
+        send(nodeId, keys);
+    }
+
+    /**
+     * Sends a batch of keys to the other nodes.
+     *
+     * @param sender The ID of this node.
+     * @param keys   The distinct keys.
+     */
+    abstract void send(long sender, long[] keys);
+
+    /**
+     * Hands keys received from a node to the listeners, unless this node sent them.
+     *
+     * @param sender The ID of the node that sent them.
+     * @param keys   The keys.
+     * @param count  The number of keys to read from the array.
+     */
+    void deliver(long sender, long[] keys, int count) {
+        if (sender != nodeId) { // already dispatched when it was published
+            dispatch(keys, count);
+        }
+    }
+
+    private void dispatch(long[] keys, int count) {
+        CacheRegion[] regions = CacheRegion.values();
+        for (int i = 0; i < count; i++) {
+            int ordinal = (int) (keys[i] >>> 32);
+            if (ordinal >= regions.length) {
+                continue; // a region this node does not know, from a newer version
+            }
+            for (InvalidationListener listener : listeners) {
+                try {
+                    listener.invalidate(regions[ordinal], (int) keys[i]);
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // one failing cache must not keep the others stale
+                }
+            }
+        }
+    }
+
+    private void scheduledFlush() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // the keys are lost; caches catch up on their next refresh
+        }
+    }
+
+    private static long key(CacheRegion region, int id) {
+        return (long) region.ordinal() << 32 | (id & 0xFFFFFFFFL);
+    }
+}
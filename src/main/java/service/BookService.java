@@ -3,7 +3,11 @@ package service;
 import entity.Book;
 import repository.BookRepository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class provides services for managing book operations.
@@ -11,7 +15,17 @@ import java.util.List;
  * handling business logic and validations related to book data.
  */
 public class BookService {
+
+    /**
+     * The maximum number of books returned by a fuzzy search.
+     */
+    static final int FUZZY_SEARCH_LIMIT = 20;
+
     private final BookRepository bookRepository;
+    private final CatalogCache catalogCache;
+    private final AutocompleteService autocompleteService;
+    private final FuzzySearchService fuzzySearchService;
+    private final RecommendationService recommendationService;
 
     /**
      * Constructs a new BookService instance.
@@ -19,7 +33,59 @@ public class BookService {
      * @param bookRepository The BookRepository instance to be used for book operations.
      */
     public BookService(BookRepository bookRepository) {
+        this(bookRepository, null);
+    }
+
+    /**
+     * Constructs a new BookService instance that answers ISBN and availability lookups from a catalog cache.
+     *
+     * @param bookRepository The BookRepository instance to be used for book operations.
+     * @param catalogCache   The catalog cache, or null to always read from the database.
+     */
+    public BookService(BookRepository bookRepository, CatalogCache catalogCache) {
+        this(bookRepository, catalogCache, null);
+    }
+
+    /**
+     * Constructs a new BookService instance that also completes search prefixes from an in-memory index.
+     *
+     * @param bookRepository      The BookRepository instance to be used for book operations.
+     * @param catalogCache        The catalog cache, or null to always read from the database.
+     * @param autocompleteService The autocomplete index kept up to date with saved books, or null to search the database.
+     */
+    public BookService(BookRepository bookRepository, CatalogCache catalogCache, AutocompleteService autocompleteService) {
+        this(bookRepository, catalogCache, autocompleteService, null);
+    }
+
+    /**
+     * Constructs a new BookService instance that also searches titles and authors tolerating typos.
+     *
+     * @param bookRepository      The BookRepository instance to be used for book operations.
+     * @param catalogCache        The catalog cache, or null to always read from the database.
+     * @param autocompleteService The autocomplete index kept up to date with saved books, or null to search the database.
+     * @param fuzzySearchService  The typo-tolerant indexes kept up to date with saved books, or null to search exactly.
+     */
+    public BookService(BookRepository bookRepository, CatalogCache catalogCache, AutocompleteService autocompleteService,
+                       FuzzySearchService fuzzySearchService) {
+        this(bookRepository, catalogCache, autocompleteService, fuzzySearchService, null);
+    }
+
+    /**
+     * Constructs a new BookService instance that also recommends books borrowed by the same patrons.
+     *
+     * @param bookRepository        The BookRepository instance to be used for book operations.
+     * @param catalogCache          The catalog cache, or null to always read from the database.
+     * @param autocompleteService   The autocomplete index kept up to date with saved books, or null to search the database.
+     * @param fuzzySearchService    The typo-tolerant indexes kept up to date with saved books, or null to search exactly.
+     * @param recommendationService The co-borrowing index, or null to recommend nothing.
+     */
+    public BookService(BookRepository bookRepository, CatalogCache catalogCache, AutocompleteService autocompleteService,
+                       FuzzySearchService fuzzySearchService, RecommendationService recommendationService) {
         this.bookRepository = bookRepository;
+        this.catalogCache = catalogCache;
+        this.autocompleteService = autocompleteService;
+        this.fuzzySearchService = fuzzySearchService;
+        this.recommendationService = recommendationService;
     }
 
     /**
@@ -27,7 +93,7 @@ public class BookService {
      *
      * @param title  The title of the book.
      * @param author The author of the book.
-     * @param isbn   The ISBN of the book.
+     * @param isbn   The ISBN-10 or ISBN-13 of the book; it is stored as ISBN-13.
      * @return true if the book was saved successfully, false otherwise.
      */
     public boolean saveBook(String title, String author, String isbn) {
@@ -44,6 +110,12 @@ public class BookService {
             throw new IllegalArgumentException("ISBN cannot be null or empty");
         }
 
+        long encodedIsbn = IsbnCodec.encode(isbn);
+        if (encodedIsbn == IsbnCodec.INVALID) {
+            throw new IllegalArgumentException("Invalid ISBN");
+        }
+        isbn = IsbnCodec.decode(encodedIsbn);
+
         if (bookRepository.findRepeatedIsbn(isbn)) {
             throw new RuntimeException("ISBN already in use");
         }
@@ -52,6 +124,13 @@ public class BookService {
         boolean result = bookRepository.saveBook(book);
         bookRepository.closeConnection();
 
+        if (result && autocompleteService != null) {
+            autocompleteService.bookAdded(book);
+        }
+        if (result && fuzzySearchService != null) {
+            fuzzySearchService.bookAdded(book);
+        }
+
         return result;
     }
 
@@ -65,6 +144,68 @@ public class BookService {
         return bookRepository.findByTitle(title);
     }
 
+    /**
+     * Searches for books by title, tolerating typos: the closer the match, the earlier the book.
+     * Without typo-tolerant indexes, this is the exact search.
+     *
+     * @param title The title of the book or part of it.
+     * @return List of books matching the title, at most {@link #FUZZY_SEARCH_LIMIT}.
+     */
+    public List<Book> searchBooksByTitleFuzzy(String title) {
+        if (title == null || title.isEmpty()) {
+            throw new IllegalArgumentException("Title cannot be null or empty");
+        }
+        if (fuzzySearchService == null) {
+            return searchBooksByTitle(title);
+        }
+        return booksInOrder(fuzzySearchService.searchTitles(title, FUZZY_SEARCH_LIMIT));
+    }
+
+    /**
+     * Searches for books by author, tolerating typos: the closer the match, the earlier the book.
+     * Without typo-tolerant indexes, this is the exact search.
+     *
+     * @param author The author of the book or part of the name.
+     * @return List of books matching the author, at most {@link #FUZZY_SEARCH_LIMIT}.
+     */
+    public List<Book> searchBooksByAuthorFuzzy(String author) {
+        if (author == null || author.isEmpty()) {
+            throw new IllegalArgumentException("Author cannot be null or empty");
+        }
+        if (fuzzySearchService == null) {
+            return searchBooksByAuthor(author);
+        }
+        return booksInOrder(fuzzySearchService.searchAuthors(author, FUZZY_SEARCH_LIMIT));
+    }
+
+    /**
+     * Suggests titles and authors for what has been typed in the search box so far.
+     * Without an autocomplete index, matching titles are read from the database, unranked.
+     *
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of suggestions.
+     * @return The suggestions, most loaned first.
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null");
+        }
+        if (limit <= 0 || limit > AutocompleteIndex.MAX_RESULTS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + AutocompleteIndex.MAX_RESULTS);
+        }
+        if (autocompleteService != null) {
+            return autocompleteService.complete(prefix, limit);
+        }
+        List<Suggestion> suggestions = new ArrayList<>();
+        for (Book book : bookRepository.findByTitle(prefix)) {
+            if (suggestions.size() == limit) {
+                break;
+            }
+            suggestions.add(new Suggestion(book.getTitle(), Suggestion.Kind.TITLE, 0));
+        }
+        return suggestions;
+    }
+
     /**
      * Searches for books by author.
      *
@@ -78,11 +219,56 @@ public class BookService {
     /**
      * Searches for a book by ISBN.
      *
-     * @param isbn The ISBN of the book.
-     * @return The book with the matching ISBN.
+     * @param isbn The ISBN-10 or ISBN-13 of the book, hyphens allowed.
+     * @return The book with the matching ISBN, or null if there is none or the ISBN is not valid.
      */
     public Book searchBookByIsbn(String isbn) {
-        return bookRepository.findByIsbn(isbn);
+        long encodedIsbn = IsbnCodec.encode(isbn);
+        if (encodedIsbn == IsbnCodec.INVALID) {
+            return null;
+        }
+        if (catalogCache != null) {
+            Book cached = catalogCache.getByIsbn(encodedIsbn);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return bookRepository.findByIsbn(IsbnCodec.decode(encodedIsbn));
+    }
+
+    /**
+     * Searches for several books by id with one query per chunk of ids, instead of one query per book.
+     *
+     * @param bookIds The ids of the books.
+     * @return The books found, keyed by id.
+     */
+    public Map<Integer, Book> searchBooksByIds(int[] bookIds) {
+        if (bookIds == null) {
+            throw new IllegalArgumentException("Book IDs cannot be null");
+        }
+        if (bookIds.length == 0) {
+            return Map.of();
+        }
+        Map<Integer, Book> books = bookRepository.findByIds(bookIds);
+        if (books == null) {
+            throw new RuntimeException("Connection error");
+        }
+        return books;
+    }
+
+    /**
+     * Finds the books most often borrowed by the patrons who borrowed a book.
+     *
+     * @param bookId The ID of the book.
+     * @param limit  The maximum number of books, from 1 to {@link RecommendationService#NEIGHBORS_PER_BOOK}.
+     * @return The books, most shared patrons first; empty if there is no recommendation.
+     */
+    public List<Book> findAlsoBorrowed(int bookId, int limit) {
+        if (recommendationService == null) {
+            return List.of();
+        }
+        int[] bookIds = recommendationService.alsoBorrowed(bookId, limit);
+        return bookIds.length == 0 ? List.of() : booksInOrder(bookIds);
     }
 
     public Boolean checkBookAvailability(int bookId) {
@@ -90,6 +276,13 @@ public class BookService {
             throw new IllegalArgumentException("Book ID must be greater than zero");
         }
 
+        if (catalogCache != null) {
+            Book cached = catalogCache.getById(bookId);
+            if (cached != null) {
+                return cached.isAvailable();
+            }
+        }
+
         Boolean isAvailable = bookRepository.isBookAvailable(bookId);
 
         if (isAvailable == null) {
@@ -99,7 +292,35 @@ public class BookService {
         return isAvailable;
     }
 
+    /**
+     * Resolves ranked book ids to books, from the catalog cache when it has them, keeping the ranking.
+     */
+    private List<Book> booksInOrder(int[] bookIds) {
+        Map<Integer, Book> books = new HashMap<>();
+        int[] missing = bookIds;
+        if (catalogCache != null) {
+            missing = Arrays.stream(bookIds).filter(id -> {
+                Book cached = catalogCache.getById(id);
+                if (cached != null) {
+                    books.put(id, cached);
+                }
+                return cached == null;
+            }).toArray();
+        }
+        if (missing.length > 0) {
+            Map<Integer, Book> found = bookRepository.findByIds(missing);
+            if (found == null) {
+                throw new RuntimeException("Connection error");
+            }
+            books.putAll(found);
+        }
+        List<Book> ordered = new ArrayList<>(bookIds.length);
+        for (int id : bookIds) {
+            Book book = books.get(id);
+            if (book != null) {
+                ordered.add(book);
+            }
+        }
+        return ordered;
+    }
 }
-
-
-
@@ -0,0 +1,34 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+
+import java.time.LocalDate;
+
+/**
+ * Publishes the book of each saved loan and return on an {@link InvalidationBus}, since its availability changed.
+ * Registered as a {@link LoanListener}, it runs after the loan or return is committed.
+ */
+public class CacheInvalidationPublisher implements LoanListener {
+
+    private final InvalidationBus bus;
+
+    /**
+     * Constructs a new CacheInvalidationPublisher.
+     *
+     * @param bus The bus to publish on.
+     */
+    public CacheInvalidationPublisher(InvalidationBus bus) {
+        this.bus = bus;
+    }
+
+    @Override
+    public void loanCreated(Loan loan, Book book) {
+        bus.publish(CacheRegion.BOOK, loan.getBookID());
+    }
+
+    @Override
+    public void loanReturned(Loan loan, LocalDate returnDate) {
+        bus.publish(CacheRegion.BOOK, loan.getBookID());
+    }
+}
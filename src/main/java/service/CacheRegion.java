@@ -0,0 +1,8 @@
+package service;
+
+/**
+ * The kinds of cached entities whose changes are broadcast on an {@link InvalidationBus}.
+ */
+public enum CacheRegion {
+    BOOK
+}
@@ -0,0 +1,166 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class holds the in-memory catalog indexes: books by id and by ISBN.
+ * Books are kept in a {@link CompactCatalog}, so lookups return fresh Book instances.
+ * It is safe for concurrent use. Registered as a {@link LoanListener}, it drops the books whose availability a local
+ * loan or return changed; subscribed to an {@link InvalidationBus}, it drops the books changed on any node.
+ */
+public class CatalogCache implements InvalidationListener, LoanListener {
+
+    private static final int DEFAULT_EXPECTED_SIZE = 1024;
+
+    private final CompactCatalog catalog;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructs an empty cache.
+     */
+    public CatalogCache() {
+        this(DEFAULT_EXPECTED_SIZE);
+    }
+
+    /**
+     * Constructs an empty cache sized for the given number of books.
+     *
+     * @param expectedSize The expected number of books.
+     */
+    public CatalogCache(int expectedSize) {
+        this.catalog = new CompactCatalog(expectedSize);
+    }
+
+    /**
+     * Adds a book to the cache, or replaces the cached book with the same id.
+     *
+     * @param book The book to cache; it must have an id.
+     */
+    public void put(Book book) {
+        lock.writeLock().lock();
+        try {
+            catalog.put(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a cached book by id.
+     *
+     * @param bookId The id of the book.
+     * @return The cached book, or null if it is not cached.
+     */
+    public Book getById(int bookId) {
+        lock.readLock().lock();
+        try {
+            return catalog.getById(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a cached book by ISBN.
+     *
+     * @param isbn The ISBN of the book.
+     * @return The cached book, or null if it is not cached.
+     */
+    public Book getByIsbn(String isbn) {
+        lock.readLock().lock();
+        try {
+            return catalog.getByIsbn(isbn);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets a cached book by encoded ISBN.
+     *
+     * @param isbn The ISBN encoded by {@link IsbnCodec}.
+     * @return The cached book, or null if it is not cached.
+     */
+    public Book getByIsbn(long isbn) {
+        lock.readLock().lock();
+        try {
+            return catalog.getByIsbn(isbn);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the cache.
+     *
+     * @param bookId The id of the book.
+     */
+    public void evict(int bookId) {
+        lock.writeLock().lock();
+        try {
+            catalog.remove(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Evicts the loaned book, since it is no longer available.
+     */
+    @Override
+    public void loanCreated(Loan loan, Book book) {
+        evict(loan.getBookID());
+    }
+
+    /**
+     * Evicts the returned book, since it may be available again.
+     */
+    @Override
+    public void loanReturned(Loan loan, LocalDate returnDate) {
+        evict(loan.getBookID());
+    }
+
+    /**
+     * Evicts a changed book, so its next lookup reads the database.
+     */
+    @Override
+    public void invalidate(CacheRegion region, int id) {
+        if (region == CacheRegion.BOOK) {
+            evict(id);
+        }
+    }
+
+    /**
+     * Gets a copy of all cached books.
+     *
+     * @return The cached books.
+     */
+    public Collection<Book> getBooks() {
+        lock.readLock().lock();
+        try {
+            return catalog.getBooks();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of cached books.
+     *
+     * @return The number of cached books.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return catalog.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package service;
+
+import entity.Book;
+import repository.BookRepository;
+import repository.CatalogSnapshot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class persists the catalog cache to a snapshot file and restores it on startup.
+ * After a restore only the books changed since the snapshot are read from the database.
+ */
+public class CatalogSnapshotService {
+
+    /**
+     * Overlap subtracted from the sync instant, covering clock skew between this node and the database.
+     * Re-reading a few books is harmless because applying a book to the cache is idempotent.
+     */
+    static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+
+    private final BookRepository bookRepository;
+    private final CatalogCache catalogCache;
+    private final Path snapshotPath;
+    private volatile Instant syncedAt = Instant.EPOCH;
+
+    /**
+     * Constructs a new CatalogSnapshotService instance.
+     *
+     * @param bookRepository The BookRepository instance to be used for book operations.
+     * @param catalogCache   The cache to restore and persist.
+     * @param snapshotPath   The path of the snapshot file.
+     */
+    public CatalogSnapshotService(BookRepository bookRepository, CatalogCache catalogCache, Path snapshotPath) {
+        this.bookRepository = bookRepository;
+        this.catalogCache = catalogCache;
+        this.snapshotPath = snapshotPath;
+    }
+
+    /**
+     * Loads the cache from the snapshot file, if there is one, and catches up with the database.
+     * Without a usable snapshot the whole catalog is read from the database.
+     *
+     * @return The number of books read from the database.
+     */
+    public int warmStart() {
+        if (Files.exists(snapshotPath)) {
+            try {
+                syncedAt = CatalogSnapshot.read(snapshotPath, catalogCache::put);
+            } catch (IOException e) {
+                e.printStackTrace(); // an unreadable snapshot only costs a full load
+                syncedAt = Instant.EPOCH;
+            }
+        }
+        return catchUp();
+    }
+
+    /**
+     * Reads the books changed since the last sync from the database into the cache.
+     * The sync instant only moves forward after a successful read, so a failed run is retried from the same point.
+     *
+     * @return The number of books read from the database.
+     * @throws RuntimeException if the books could not be read.
+     */
+    public int catchUp() {
+        Instant syncStart = Instant.now().truncatedTo(ChronoUnit.MILLIS); // the snapshot stores milliseconds
+        Instant since = syncedAt.equals(Instant.EPOCH) ? Instant.EPOCH : syncedAt.minus(SYNC_OVERLAP);
+        List<Book> books = bookRepository.findUpdatedSince(since);
+        if (books == null) {
+            throw new RuntimeException("Connection error");
+        }
+        int count = 0;
+        for (Book book : books) {
+            catalogCache.put(book);
+            count++;
+        }
+        syncedAt = syncStart;
+        return count;
+    }
+
+    /**
+     * Writes the current cache content to the snapshot file.
+     */
+    public void saveSnapshot() {
+        try {
+            CatalogSnapshot.write(snapshotPath, catalogCache.getBooks(), syncedAt);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Catalog snapshot could not be written", e);
+        }
+    }
+
+    /**
+     * Schedules a catch-up followed by a snapshot at a fixed interval.
+     *
+     * @param executor The executor running the snapshots.
+     * @param interval The time between two snapshots.
+     * @return The scheduled task, which can be used to cancel it.
+     */
+    public ScheduledFuture<?> scheduleSnapshots(ScheduledExecutorService executor, Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Snapshot interval must be greater than zero");
+        }
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                catchUp();
+                saveSnapshot();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // keep the schedule alive, the next run retries
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the instant up to which the cache reflects the database.
+     *
+     * @return The last sync instant.
+     */
+    public Instant getSyncedAt() {
+        return syncedAt;
+    }
+}
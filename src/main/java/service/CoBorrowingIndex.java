@@ -0,0 +1,323 @@
+package service;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * For each book, the books most often borrowed by the same patrons, most shared patrons first.
+ * <p>
+ * The index is built from baskets, the distinct books borrowed by each user. Pairs of books are counted in parallel:
+ * a fork/join task splits the users in two ranges with about as many pairs each until a partition has few enough
+ * pairs, counts the pairs of its baskets into a sorted sparse matrix keyed by the pair of book IDs, and the partial
+ * matrices are merged as the tasks join. Splitting by pairs rather than users bounds the memory of a partition, since
+ * a basket of n books has n(n-1)/2 pairs; only a single basket larger than a partition is counted on its own. Only
+ * the top neighbors of each book are kept, in flat arrays with one fixed-size row per book, so a lookup is a hash
+ * probe and an array copy. The index is immutable and can be read by any number of threads.
+ */
+class CoBorrowingIndex {
+
+    /**
+     * The number of pairs counted by one fork/join task, 1.5 MB of keys and counts.
+     */
+    static final int PAIRS_PER_TASK = 1 << 17;
+
+    private final int neighborsPerBook;
+    private final LongIntHashMap rows;
+    private final int[] neighbors;
+    private final int[] counts;
+    private final int[] sizes;
+
+    private CoBorrowingIndex(int neighborsPerBook, LongIntHashMap rows, int[] neighbors, int[] counts, int[] sizes) {
+        this.neighborsPerBook = neighborsPerBook;
+        this.rows = rows;
+        this.neighbors = neighbors;
+        this.counts = counts;
+        this.sizes = sizes;
+    }
+
+    /**
+     * Builds an index from baskets laid out one after the other: the books of user {@code u} are
+     * {@code books[offsets[u]]} to {@code books[offsets[u + 1] - 1]}, without duplicates.
+     *
+     * @param books            The book IDs of all baskets.
+     * @param offsets          The start of each basket, followed by the end of the last one.
+     * @param neighborsPerBook The number of neighbors kept per book.
+     * @param pool             The pool counting the pairs.
+     * @return The index.
+     */
+    static CoBorrowingIndex build(int[] books, int[] offsets, int neighborsPerBook, ForkJoinPool pool) {
+        if (neighborsPerBook <= 0) {
+            throw new IllegalArgumentException("Neighbors per book must be greater than zero");
+        }
+        int users = offsets.length - 1;
+        long[] pairEnds = new long[users + 1];
+        for (int user = 0; user < users; user++) {
+            long size = offsets[user + 1] - offsets[user];
+            pairEnds[user + 1] = pairEnds[user] + size * (size - 1) / 2;
+        }
+        PairCounts pairs = users > 0
+                ? pool.invoke(new PairCountTask(books, offsets, pairEnds, 0, users))
+                : new PairCounts(new long[0], new int[0], 0);
+
+        LongIntHashMap rows = new LongIntHashMap(Math.min(books.length, pairs.size));
+        int rowCount = 0;
+        for (int i = 0; i < pairs.size; i++) {
+            int first = (int) (pairs.keys[i] >>> 32);
+            int second = (int) pairs.keys[i];
+            if (rows.get(first) == LongIntHashMap.MISSING) {
+                rows.put(first, rowCount++);
+            }
+            if (rows.get(second) == LongIntHashMap.MISSING) {
+                rows.put(second, rowCount++);
+            }
+        }
+
+        int[] neighbors = new int[rowCount * neighborsPerBook];
+        int[] counts = new int[neighbors.length];
+        int[] sizes = new int[rowCount];
+        CoBorrowingIndex index = new CoBorrowingIndex(neighborsPerBook, rows, neighbors, counts, sizes);
+        for (int i = 0; i < pairs.size; i++) {
+            int first = (int) (pairs.keys[i] >>> 32);
+            int second = (int) pairs.keys[i];
+            index.offer(rows.get(first), second, pairs.counts[i]);
+            index.offer(rows.get(second), first, pairs.counts[i]);
+        }
+        for (int row = 0; row < sizes.length; row++) {
+            index.sortRow(row);
+        }
+        return index;
+    }
+
+    /**
+     * Gets the books most often borrowed together with a book.
+     *
+     * @param bookId The ID of the book.
+     * @param limit  The maximum number of books.
+     * @return The book IDs, most shared patrons first; empty if no patron borrowed the book with another.
+     */
+    int[] neighbors(int bookId, int limit) {
+        int row = rows.get(bookId);
+        if (row == LongIntHashMap.MISSING) {
+            return new int[0];
+        }
+        int start = row * neighborsPerBook;
+        return Arrays.copyOfRange(neighbors, start, start + Math.min(limit, sizes[row]));
+    }
+
+    /**
+     * Gets the number of patrons who borrowed two books.
+     *
+     * @param bookId     The ID of a book.
+     * @param neighborId The ID of one of its neighbors.
+     * @return The number of patrons, or 0 if the second book is not among the neighbors of the first.
+     */
+    int count(int bookId, int neighborId) {
+        int row = rows.get(bookId);
+        if (row == LongIntHashMap.MISSING) {
+            return 0;
+        }
+        int start = row * neighborsPerBook;
+        for (int i = start; i < start + sizes[row]; i++) {
+            if (neighbors[i] == neighborId) {
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets the number of books having at least one neighbor.
+     *
+     * @return The number of books.
+     */
+    int getBookCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Offers a neighbor to the row of a book, which is kept as a min-heap until {@link #sortRow} so the weakest
+     * neighbor is the one replaced.
+     */
+    private void offer(int row, int neighbor, int count) {
+        int start = row * neighborsPerBook;
+        int size = sizes[row];
+        if (size < neighborsPerBook) {
+            int i = size;
+            while (i > 0 && weaker(neighbor, count, start + (i - 1) / 2)) {
+                int parent = (i - 1) / 2;
+                neighbors[start + i] = neighbors[start + parent];
+                counts[start + i] = counts[start + parent];
+                i = parent;
+            }
+            neighbors[start + i] = neighbor;
+            counts[start + i] = count;
+            sizes[row] = size + 1;
+        } else if (weaker(neighbors[start], counts[start], neighbor, count)) {
+            siftDown(start, size, 0, neighbor, count);
+        }
+    }
+
+    private void sortRow(int row) {
+        int start = row * neighborsPerBook;
+        for (int size = sizes[row]; size > 1; size--) { // heap sort: the weakest goes to the end
+            int neighbor = neighbors[start];
+            int count = counts[start];
+            siftDown(start, size - 1, 0, neighbors[start + size - 1], counts[start + size - 1]);
+            neighbors[start + size - 1] = neighbor;
+            counts[start + size - 1] = count;
+        }
+    }
+
+    private void siftDown(int start, int size, int i, int neighbor, int count) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && weaker(neighbors[start + child + 1], counts[start + child + 1],
+                    neighbors[start + child], counts[start + child])) {
+                child++;
+            }
+            if (!weaker(neighbors[start + child], counts[start + child], neighbor, count)) {
+                break;
+            }
+            neighbors[start + i] = neighbors[start + child];
+            counts[start + i] = counts[start + child];
+            i = child;
+        }
+        neighbors[start + i] = neighbor;
+        counts[start + i] = count;
+    }
+
+    private boolean weaker(int neighbor, int count, int position) {
+        return weaker(neighbor, count, neighbors[position], counts[position]);
+    }
+
+    /**
+     * Orders neighbors by count, then by lower book ID, so rankings do not depend on counting order.
+     */
+    private static boolean weaker(int neighbor, int count, int otherNeighbor, int otherCount) {
+        return count < otherCount || (count == otherCount && neighbor > otherNeighbor);
+    }
+
+    /**
+     * A sparse co-occurrence matrix: the distinct pairs of books, sorted, with the number of users who borrowed both.
+     */
+    private static final class PairCounts {
+
+        final long[] keys;
+        final int[] counts;
+        final int size;
+
+        PairCounts(long[] keys, int[] counts, int size) {
+            this.keys = keys;
+            this.counts = counts;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Counts the pairs of books borrowed by the same user, for a range of users.
+     * <p>
+     * A partition writes out every pair of each basket, sorts them and counts the runs; the sorted matrices of two
+     * partitions are then added up in one linear merge. Sorting and merging primitive arrays touch memory in order,
+     * which is several times faster than adding millions of scattered pairs to a hash map.
+     */
+    private static final class PairCountTask extends RecursiveTask<PairCounts> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] books;
+        private final int[] offsets;
+        private final long[] pairEnds;
+        private final int from;
+        private final int to;
+
+        /**
+         * @param pairEnds The number of pairs in the baskets before each user, followed by the total.
+         */
+        PairCountTask(int[] books, int[] offsets, long[] pairEnds, int from, int to) {
+            this.books = books;
+            this.offsets = offsets;
+            this.pairEnds = pairEnds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PairCounts compute() {
+            if (to - from <= 1 || pairEnds[to] - pairEnds[from] <= PAIRS_PER_TASK) {
+                return countPairs();
+            }
+            long half = pairEnds[from] + (pairEnds[to] - pairEnds[from]) / 2;
+            int found = Arrays.binarySearch(pairEnds, from + 1, to, half);
+            int middle = Math.min(Math.max(found >= 0 ? found : -found - 1, from + 1), to - 1);
+            PairCountTask left = new PairCountTask(books, offsets, pairEnds, from, middle);
+            left.fork();
+            PairCounts right = new PairCountTask(books, offsets, pairEnds, middle, to).compute();
+            return merge(left.join(), right);
+        }
+
+        private PairCounts countPairs() {
+            long[] keys = new long[Math.toIntExact(pairEnds[to] - pairEnds[from])];
+            int size = 0;
+            for (int user = from; user < to; user++) {
+                for (int i = offsets[user]; i < offsets[user + 1]; i++) {
+                    for (int j = i + 1; j < offsets[user + 1]; j++) {
+                        keys[size++] = pairKey(books[i], books[j]);
+                    }
+                }
+            }
+            Arrays.sort(keys);
+
+            int[] counts = new int[keys.length];
+            int distinct = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (distinct > 0 && keys[distinct - 1] == keys[i]) {
+                    counts[distinct - 1]++;
+                } else {
+                    keys[distinct] = keys[i];
+                    counts[distinct++] = 1;
+                }
+            }
+            return new PairCounts(keys, counts, distinct);
+        }
+
+        private static PairCounts merge(PairCounts a, PairCounts b) {
+            long[] keys = new long[a.size + b.size];
+            int[] counts = new int[keys.length];
+            int i = 0;
+            int j = 0;
+            int size = 0;
+            while (i < a.size && j < b.size) {
+                if (a.keys[i] < b.keys[j]) {
+                    keys[size] = a.keys[i];
+                    counts[size++] = a.counts[i++];
+                } else if (a.keys[i] > b.keys[j]) {
+                    keys[size] = b.keys[j];
+                    counts[size++] = b.counts[j++];
+                } else {
+                    keys[size] = a.keys[i];
+                    counts[size++] = a.counts[i++] + b.counts[j++];
+                }
+            }
+            for (; i < a.size; i++, size++) {
+                keys[size] = a.keys[i];
+                counts[size] = a.counts[i];
+            }
+            for (; j < b.size; j++, size++) {
+                keys[size] = b.keys[j];
+                counts[size] = b.counts[j];
+            }
+            return new PairCounts(keys, counts, size);
+        }
+
+        /**
+         * Packs an unordered pair of book IDs into one key, the lower ID in the high half.
+         */
+        private static long pairKey(int a, int b) {
+            return a < b ? (long) a << 32 | b : (long) b << 32 | a;
+        }
+    }
+}
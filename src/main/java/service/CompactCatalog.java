@@ -0,0 +1,239 @@
+package service;
+
+import entity.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact in-memory catalog.
+ * <p>
+ * Books are stored column-wise in primitive arrays: author names are deduplicated through a dictionary of int codes,
+ * ISBNs are encoded into longs by {@link IsbnCodec} and titles are appended as UTF-8 to a single byte array. Callers still see
+ * {@link Book} instances, built on each lookup, with their ISBN normalized to ISBN-13. A book whose ISBN is not valid
+ * keeps it as stored but cannot be found by ISBN. This class is not thread-safe.
+ */
+public class CompactCatalog {
+
+    private static final long NO_ISBN = IsbnCodec.INVALID;
+
+    private int[] ids;
+    private long[] isbns;
+    private int[] authorCodes;
+    private int[] titleOffsets;
+    private int[] titleLengths;
+    private byte[] titleBytes;
+    private final BitSet available = new BitSet();
+    private int size;
+    private int titleBytesUsed;
+
+    private final List<String> authors = new ArrayList<>();
+    private final Map<String, Integer> authorCodesByName = new HashMap<>();
+    private final LongIntHashMap slotsById;
+    private final LongIntHashMap slotsByIsbn;
+    private final Map<Integer, String> invalidIsbns = new HashMap<>();
+
+    /**
+     * Constructs an empty catalog.
+     *
+     * @param expectedSize The expected number of books, used to size the arrays.
+     */
+    public CompactCatalog(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new int[capacity];
+        isbns = new long[capacity];
+        authorCodes = new int[capacity];
+        titleOffsets = new int[capacity];
+        titleLengths = new int[capacity];
+        titleBytes = new byte[capacity * 24];
+        slotsById = new LongIntHashMap(capacity);
+        slotsByIsbn = new LongIntHashMap(capacity);
+    }
+
+    /**
+     * Adds a book, or replaces the book with the same id.
+     *
+     * @param book The book to add; it must have an id.
+     */
+    public void put(Book book) {
+        if (book.getId() <= 0) {
+            throw new IllegalArgumentException("Book ID must be greater than zero");
+        }
+        int slot = slotsById.get(book.getId());
+        boolean newTitle;
+        if (slot == LongIntHashMap.MISSING) {
+            slot = size++;
+            ensureCapacity(size);
+            ids[slot] = book.getId();
+            slotsById.put(book.getId(), slot);
+            newTitle = true;
+        } else {
+            unindexIsbn(slot);
+            newTitle = !book.getTitle().equals(title(slot)); // a rename leaves the old bytes behind
+        }
+
+        long isbn = IsbnCodec.encode(book.getIsbn());
+        isbns[slot] = isbn;
+        if (isbn == NO_ISBN) {
+            invalidIsbns.put(slot, book.getIsbn());
+        } else {
+            slotsByIsbn.put(isbn, slot);
+        }
+
+        authorCodes[slot] = authorCode(book.getAuthor());
+        if (newTitle) {
+            appendTitle(slot, book.getTitle());
+        }
+        available.set(slot, book.isAvailable());
+    }
+
+    /**
+     * Gets a book by id.
+     *
+     * @param bookId The id of the book.
+     * @return A view of the book, or null if it is not in the catalog.
+     */
+    public Book getById(int bookId) {
+        int slot = slotsById.get(bookId);
+        return slot == LongIntHashMap.MISSING ? null : book(slot);
+    }
+
+    /**
+     * Gets a book by ISBN.
+     *
+     * @param isbn The ISBN of the book.
+     * @return A view of the book, or null if it is not in the catalog.
+     */
+    public Book getByIsbn(String isbn) {
+        return getByIsbn(IsbnCodec.encode(isbn));
+    }
+
+    /**
+     * Gets a book by encoded ISBN.
+     *
+     * @param isbn The ISBN encoded by {@link IsbnCodec}.
+     * @return A view of the book, or null if it is not in the catalog.
+     */
+    public Book getByIsbn(long isbn) {
+        if (isbn == NO_ISBN) {
+            return null;
+        }
+        int slot = slotsByIsbn.get(isbn);
+        return slot == LongIntHashMap.MISSING ? null : book(slot);
+    }
+
+    /**
+     * Gets the availability of a book without building a view.
+     *
+     * @param bookId The id of the book.
+     * @return The availability, or null if the book is not in the catalog.
+     */
+    public Boolean isAvailable(int bookId) {
+        int slot = slotsById.get(bookId);
+        return slot == LongIntHashMap.MISSING ? null : available.get(slot);
+    }
+
+    /**
+     * Gets views of all books, in insertion order.
+     *
+     * @return The books of the catalog.
+     */
+    public List<Book> getBooks() {
+        List<Book> books = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            if (ids[slot] != 0) {
+                books.add(book(slot));
+            }
+        }
+        return books;
+    }
+
+    /**
+     * Removes a book.
+     *
+     * @param bookId The id of the book.
+     */
+    public void remove(int bookId) {
+        int slot = slotsById.get(bookId);
+        if (slot == LongIntHashMap.MISSING) {
+            return;
+        }
+        unindexIsbn(slot);
+        slotsById.remove(bookId);
+        ids[slot] = 0; // the slot is left as a hole; removals are rare compared to lookups
+    }
+
+    /**
+     * Gets the number of books in the catalog.
+     *
+     * @return The number of books.
+     */
+    public int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Gets the number of distinct authors.
+     *
+     * @return The size of the author dictionary.
+     */
+    public int getAuthorCount() {
+        return authors.size();
+    }
+
+    private Book book(int slot) {
+        String isbn = isbns[slot] == NO_ISBN ? invalidIsbns.get(slot) : IsbnCodec.decode(isbns[slot]);
+        return new Book(ids[slot], title(slot), authors.get(authorCodes[slot]), isbn, available.get(slot));
+    }
+
+    private String title(int slot) {
+        return new String(titleBytes, titleOffsets[slot], titleLengths[slot], StandardCharsets.UTF_8);
+    }
+
+    private void appendTitle(int slot, String title) {
+        byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+        if (titleBytesUsed + bytes.length > titleBytes.length) {
+            long grown = Math.max((long) titleBytes.length * 3 / 2, (long) titleBytesUsed + bytes.length);
+            titleBytes = Arrays.copyOf(titleBytes, (int) Math.min(grown, Integer.MAX_VALUE - 8));
+        }
+        System.arraycopy(bytes, 0, titleBytes, titleBytesUsed, bytes.length);
+        titleOffsets[slot] = titleBytesUsed;
+        titleLengths[slot] = bytes.length;
+        titleBytesUsed += bytes.length;
+    }
+
+    private int authorCode(String author) {
+        Integer code = authorCodesByName.get(author);
+        if (code == null) {
+            code = authors.size();
+            authors.add(author);
+            authorCodesByName.put(author, code);
+        }
+        return code;
+    }
+
+    private void unindexIsbn(int slot) {
+        if (isbns[slot] == NO_ISBN) {
+            invalidIsbns.remove(slot);
+        } else if (slotsByIsbn.get(isbns[slot]) == slot) {
+            slotsByIsbn.remove(isbns[slot]);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, capacity);
+        isbns = Arrays.copyOf(isbns, capacity);
+        authorCodes = Arrays.copyOf(authorCodes, capacity);
+        titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+        titleLengths = Arrays.copyOf(titleLengths, capacity);
+    }
+}
@@ -0,0 +1,89 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch: approximate counts of long keys in a fixed table of {@code depth x width} counters.
+ * <p>
+ * An estimate is never below the true count and exceeds it by at most {@code 2N / width} with probability
+ * {@code 1 - 2^-depth}, where N is the total count. Sketches of the same shape can be added to and subtracted from
+ * each other, which is how sliding windows are kept. This class is not thread-safe.
+ */
+class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final int[] counters;
+
+    /**
+     * Constructs an empty sketch.
+     *
+     * @param depth The number of rows, each with its own hash function.
+     * @param width The number of counters per row; it is rounded up to a power of two.
+     */
+    CountMinSketch(int depth, int width) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Depth and width must be greater than zero");
+        }
+        this.depth = depth;
+        int rounded = Integer.highestOneBit(width - 1) << 1;
+        this.mask = Math.max(1, rounded) - 1;
+        this.counters = new int[depth * (mask + 1)];
+    }
+
+    /**
+     * Adds to the count of a key.
+     *
+     * @param key   The key.
+     * @param delta The amount to add.
+     */
+    void add(long key, int delta) {
+        for (int row = 0; row < depth; row++) {
+            counters[index(row, key)] += delta;
+        }
+    }
+
+    /**
+     * Estimates the count of a key.
+     *
+     * @param key The key.
+     * @return The estimate, never below the true count.
+     */
+    int estimate(long key) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[index(row, key)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Adds or subtracts all counts of another sketch of the same shape.
+     *
+     * @param other The other sketch.
+     * @param sign  1 to add, -1 to subtract.
+     */
+    void merge(CountMinSketch other, int sign) {
+        if (other.counters.length != counters.length) {
+            throw new IllegalArgumentException("Sketches must have the same shape");
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] += sign * other.counters[i];
+        }
+    }
+
+    /**
+     * Resets all counts to zero.
+     */
+    void clear() {
+        Arrays.fill(counters, 0);
+    }
+
+    private int index(int row, long key) {
+        long hash = (key ^ row * 0xC2B2AE3D27D4EB4FL) * 0x9E3779B97F4A7C15L; // a different hash function per row
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        hash ^= hash >>> 32;
+        return row * (mask + 1) + ((int) hash & mask);
+    }
+}
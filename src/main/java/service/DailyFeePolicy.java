@@ -0,0 +1,51 @@
+package service;
+
+import java.time.LocalDate;
+
+/**
+ * A fee charged for each day a loan is late, after a grace period and up to a cap.
+ * A loan returned within the grace period costs nothing; after it, every late day is charged, the grace days included.
+ */
+public final class DailyFeePolicy implements FeePolicy {
+
+    private final int graceDays;
+    private final long centsPerDay;
+    private final long maxCents;
+
+    /**
+     * Constructs a new DailyFeePolicy.
+     *
+     * @param graceDays   The number of late days that are forgiven.
+     * @param centsPerDay The fee per late day, in cents.
+     * @param maxCents    The highest fee of a loan, in cents.
+     */
+    public DailyFeePolicy(int graceDays, long centsPerDay, long maxCents) {
+        if (graceDays < 0 || centsPerDay < 0 || maxCents < 0) {
+            throw new IllegalArgumentException("Grace days, rate and cap cannot be negative");
+        }
+        this.graceDays = graceDays;
+        this.centsPerDay = centsPerDay;
+        this.maxCents = maxCents;
+    }
+
+    @Override
+    public long feeCents(LocalDate dueDate, LocalDate endDate) {
+        long lateDays = endDate.toEpochDay() - dueDate.toEpochDay();
+        if (lateDays <= graceDays) {
+            return 0;
+        }
+        return Math.min(maxCents, lateDays * centsPerDay);
+    }
+
+    public int getGraceDays() {
+        return graceDays;
+    }
+
+    public long getCentsPerDay() {
+        return centsPerDay;
+    }
+
+    public long getMaxCents() {
+        return maxCents;
+    }
+}
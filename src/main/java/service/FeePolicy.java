@@ -0,0 +1,18 @@
+package service;
+
+import java.time.LocalDate;
+
+/**
+ * Decides the late fee of a loan. Implementations are called from several threads at once and must be thread-safe.
+ */
+public interface FeePolicy {
+
+    /**
+     * Computes the fee of a loan.
+     *
+     * @param dueDate The date the loan was due.
+     * @param endDate The date the book was returned, or the date the fee is computed for while it is still out.
+     * @return The fee in cents; 0 if the loan is not late.
+     */
+    long feeCents(LocalDate dueDate, LocalDate endDate);
+}
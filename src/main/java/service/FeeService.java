@@ -0,0 +1,195 @@
+package service;
+
+import entity.Loan;
+import entity.LoanFee;
+import repository.FeeRepository;
+import repository.LoanRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * This class computes late fees with a {@link FeePolicy} and keeps the total each user owes up to date.
+ * <p>
+ * {@link #recomputeAll(LocalDate)} is the batch job: it streams every loan, archived ones included, grouped by user,
+ * computes the fees of each chunk of {@link #CHUNK_SIZE} loans in parallel, and saves the chunk with the totals of the
+ * users it completes in one batch, so memory stays flat however many loans there are. Loans still out are charged up
+ * to the day of the recomputation. Between recomputations, this service updates the fee of a loan and the total of its
+ * user when the loan is returned, once registered as a {@link LoanListener}. A return saved while a recomputation runs
+ * may be counted as of the recomputation until the next one.
+ */
+public class FeeService implements LoanListener {
+
+    /**
+     * The number of loans computed and saved together by a recomputation.
+     */
+    static final int CHUNK_SIZE = 10_000;
+
+    private final LoanRepository loanRepository;
+    private final FeeRepository feeRepository;
+    private final FeePolicy feePolicy;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new FeeService that computes on the common fork/join pool.
+     *
+     * @param loanRepository The LoanRepository instance providing the loans.
+     * @param feeRepository  The FeeRepository instance keeping the fees.
+     * @param feePolicy      The policy deciding the fee of a late loan.
+     */
+    public FeeService(LoanRepository loanRepository, FeeRepository feeRepository, FeePolicy feePolicy) {
+        this(loanRepository, feeRepository, feePolicy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new FeeService.
+     *
+     * @param loanRepository The LoanRepository instance providing the loans.
+     * @param feeRepository  The FeeRepository instance keeping the fees.
+     * @param feePolicy      The policy deciding the fee of a late loan.
+     * @param pool           The pool computing the fees of a recomputation.
+     */
+    public FeeService(LoanRepository loanRepository, FeeRepository feeRepository, FeePolicy feePolicy, ForkJoinPool pool) {
+        if (feePolicy == null) {
+            throw new IllegalArgumentException("Fee policy cannot be null");
+        }
+        this.loanRepository = loanRepository;
+        this.feeRepository = feeRepository;
+        this.feePolicy = feePolicy;
+        this.pool = pool;
+    }
+
+    /**
+     * Recomputes the fees of all loans and the totals of all users, replacing what was saved before.
+     *
+     * @param asOf The date loans still out are charged until, usually today.
+     * @return The number of loans with a fee.
+     */
+    public int recomputeAll(LocalDate asOf) {
+        if (asOf == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+        Instant started = feeRepository.currentTime();
+        if (started == null) {
+            throw new RuntimeException("Connection error");
+        }
+        FeeBatch batch = new FeeBatch(asOf.toEpochDay());
+        if (!loanRepository.streamLoansByUser(batch::accept) || !batch.finish()) {
+            throw new RuntimeException("Connection error");
+        }
+        if (feeRepository.deleteFeesNotUpdatedSince(started) < 0) {
+            throw new RuntimeException("Connection error");
+        }
+        return batch.charged;
+    }
+
+    /**
+     * Sets the final fee of a returned loan and updates the total of its user.
+     */
+    @Override
+    public void loanReturned(Loan loan, LocalDate returnDate) {
+        if (loan.getId() <= 0) {
+            return;
+        }
+        long fee = feePolicy.feeCents(loan.getExpectedReturnDate(), returnDate);
+        if (!feeRepository.recordFee(new LoanFee(loan.getId(), loan.getUserID(), fee))) {
+            throw new RuntimeException("Connection error");
+        }
+    }
+
+    /**
+     * Gets what a user owes in late fees, as of the last recomputation or return.
+     *
+     * @param userId The ID of the user.
+     * @return The outstanding fees in cents.
+     */
+    public long getOutstandingCents(int userId) {
+        if (userId <= 0) {
+            throw new IllegalArgumentException("User ID must be greater than zero");
+        }
+        long outstanding = feeRepository.findOutstanding(userId);
+        if (outstanding < 0) {
+            throw new RuntimeException("Connection error");
+        }
+        return outstanding;
+    }
+
+    /**
+     * Collects loans grouped by user into chunks, computes and saves each full chunk.
+     */
+    private final class FeeBatch {
+
+        private final long asOfDay;
+        private final int[] loanIds = new int[CHUNK_SIZE];
+        private final int[] userIds = new int[CHUNK_SIZE];
+        private final LocalDate[] dueDates = new LocalDate[CHUNK_SIZE];
+        private final LocalDate[] endDates = new LocalDate[CHUNK_SIZE];
+        private final long[] fees = new long[CHUNK_SIZE];
+        private int size;
+
+        private int currentUser = -1;
+        private long currentTotal;
+        private boolean saved = true;
+        private int charged;
+
+        FeeBatch(long asOfDay) {
+            this.asOfDay = asOfDay;
+        }
+
+        void accept(Loan loan) {
+            if (!saved) {
+                return; // a chunk failed; let the stream run out and report the error once
+            }
+            loanIds[size] = loan.getId();
+            userIds[size] = loan.getUserID();
+            dueDates[size] = loan.getExpectedReturnDate();
+            endDates[size] = loan.getActualReturnDate() != null
+                    ? loan.getActualReturnDate() : LocalDate.ofEpochDay(asOfDay);
+            if (++size == CHUNK_SIZE) {
+                saved = saveChunk(false);
+            }
+        }
+
+        boolean finish() {
+            return saved && saveChunk(true);
+        }
+
+        /**
+         * Computes the fees of the chunk in parallel, then sums them per user in stream order. The total of the last
+         * user is carried to the next chunk, since more of their loans may follow.
+         */
+        private boolean saveChunk(boolean last) {
+            int count = size;
+            pool.submit(() -> IntStream.range(0, count).parallel() // runs on the pool it is submitted to
+                    .forEach(i -> fees[i] = feePolicy.feeCents(dueDates[i], endDates[i]))).join();
+
+            List<LoanFee> chunkFees = new ArrayList<>();
+            Map<Integer, Long> totals = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                if (userIds[i] != currentUser) {
+                    if (currentTotal > 0) {
+                        totals.put(currentUser, currentTotal);
+                    }
+                    currentUser = userIds[i];
+                    currentTotal = 0;
+                }
+                if (fees[i] > 0) {
+                    chunkFees.add(new LoanFee(loanIds[i], userIds[i], fees[i]));
+                    currentTotal += fees[i];
+                }
+            }
+            if (last && currentTotal > 0) {
+                totals.put(currentUser, currentTotal);
+            }
+            size = 0;
+            charged += chunkFees.size();
+            return chunkFees.isEmpty() && totals.isEmpty() || feeRepository.saveFees(chunkFees, totals);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A typo-tolerant substring index over one text field of the catalog, such as titles or author names.
+ * <p>
+ * A query matches a text when some part of the normalized text is within a few edits (insertions, deletions,
+ * substitutions) of the normalized query, so "garcia marques" matches "Gabriel García Márquez" with one edit.
+ * Candidates come from an inverted index of character trigrams: a part within k edits of a query shares at least
+ * {@code grams(query) - 3k} of the query's trigrams with it, so texts sharing fewer are never looked at. Candidates
+ * are then verified, most shared trigrams first, with Myers' bit-parallel edit distance, which handles a whole column
+ * of the distance table per text character. The postings of the most common trigrams are not read when the remaining ones still guarantee that
+ * bound. Results are ranked by edit distance, then by text length. Texts and queries shorter than three
+ * characters have no trigram and are left out.
+ * <p>
+ * Postings are primitive int arrays and the trigram dictionary is a {@link LongIntHashMap}. Texts are only added;
+ * a renamed book keeps matching its old text until the index is rebuilt. This class is not thread-safe for writes,
+ * but concurrent searches are safe when no write runs.
+ */
+public class FuzzyIndex {
+
+    /**
+     * The maximum number of candidates verified per search, which bounds the latency of very common trigrams.
+     */
+    static final int MAX_CANDIDATES = 2_000;
+
+    /**
+     * Grams found in more than one text out of this many are skipped when the edit bound allows it.
+     */
+    private static final int COMMON_GRAM_RATIO = 20;
+
+    private static final int COUNT_SLOT = 0; // the book IDs of an entry follow their count
+
+    private final Map<String, Integer> entriesByText = new HashMap<>();
+    private String[] texts = new String[256];
+    private int[][] bookIds = new int[256][];
+    private int entryCount;
+
+    private final LongIntHashMap grams = new LongIntHashMap(4096);
+    private int[][] postings = new int[1024][];
+    private int[] postingSizes = new int[1024];
+    private int gramCount;
+
+    private final ThreadLocal<int[]> sharedCounts = ThreadLocal.withInitial(() -> new int[0]);
+
+    /**
+     * Adds the text of a book. Adding the same text and book again has no effect.
+     *
+     * @param text   The text, such as the title.
+     * @param bookId The ID of the book.
+     */
+    public void add(String text, int bookId) {
+        String normalized = AutocompleteIndex.normalize(text);
+        if (normalized.length() < 3) {
+            return;
+        }
+        Integer existing = entriesByText.get(normalized);
+        if (existing != null) {
+            int[] ids = bookIds[existing];
+            for (int i = 1; i <= ids[COUNT_SLOT]; i++) {
+                if (ids[i] == bookId) {
+                    return;
+                }
+            }
+            if (ids[COUNT_SLOT] + 1 == ids.length) {
+                ids = bookIds[existing] = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[++ids[COUNT_SLOT]] = bookId;
+            return;
+        }
+
+        int entry = entryCount++;
+        if (entry == texts.length) {
+            texts = Arrays.copyOf(texts, entry * 2);
+            bookIds = Arrays.copyOf(bookIds, entry * 2);
+        }
+        texts[entry] = normalized;
+        bookIds[entry] = new int[]{1, bookId};
+        entriesByText.put(normalized, entry);
+        for (long gram : distinctGrams(normalized)) {
+            addPosting(gram, entry);
+        }
+    }
+
+    /**
+     * Searches the texts containing the query with at most a given number of edits.
+     *
+     * @param query    The text to search for.
+     * @param maxEdits The maximum number of edits.
+     * @param limit    The maximum number of books.
+     * @return The IDs of the matching books, closest match first; empty for queries shorter than three characters.
+     */
+    public int[] search(String query, int maxEdits, int limit) {
+        String normalized = AutocompleteIndex.normalize(query);
+        long[] queryGrams = distinctGrams(normalized);
+        if (queryGrams.length == 0 || limit <= 0) {
+            return new int[0];
+        }
+        int minShared = Math.max(1, queryGrams.length - 3 * maxEdits);
+
+        // A candidate sharing minShared grams shares at least minShared - s of them outside the s longest postings,
+        // so the longest postings, usually the grams of words such as "de" and "la", are skipped while that stays >= 1.
+        int[] postingIds = new int[queryGrams.length];
+        int found = 0;
+        for (long gram : queryGrams) {
+            int posting = grams.get(gram);
+            if (posting != LongIntHashMap.MISSING) {
+                postingIds[found++] = posting;
+            }
+        }
+        postingIds = Arrays.stream(postingIds, 0, found).boxed()
+                .sorted((a, b) -> Integer.compare(postingSizes[a], postingSizes[b]))
+                .mapToInt(Integer::intValue).toArray();
+        int skipped = 0;
+        while (skipped < minShared - 1 && skipped < postingIds.length
+                && postingSizes[postingIds[postingIds.length - 1 - skipped]] > entryCount / COMMON_GRAM_RATIO) {
+            skipped++;
+        }
+        int minCounted = minShared - skipped;
+
+        int[] counts = sharedCounts.get();
+        if (counts.length < entryCount) {
+            counts = new int[texts.length];
+            sharedCounts.set(counts);
+        }
+        List<List<Integer>> byShared = new ArrayList<>(); // candidates bucketed by shared trigram count
+        for (int i = 0; i <= queryGrams.length; i++) {
+            byShared.add(new ArrayList<>());
+        }
+        int[] touched = new int[64];
+        int touchedCount = 0;
+        for (int p = 0; p < postingIds.length - skipped; p++) {
+            int[] entries = postings[postingIds[p]];
+            for (int i = 0, size = postingSizes[postingIds[p]]; i < size; i++) {
+                int entry = entries[i];
+                if (counts[entry]++ == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = entry;
+                }
+            }
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            int entry = touched[i];
+            if (counts[entry] >= minCounted) {
+                byShared.get(counts[entry]).add(entry);
+            }
+            counts[entry] = 0;
+        }
+
+        BitParallelMatcher matcher = normalized.length() <= Long.SIZE ? new BitParallelMatcher(normalized) : null;
+        List<long[]> matches = new ArrayList<>(); // distance, text length, entry
+        int verified = 0;
+        for (int shared = queryGrams.length; shared >= minCounted && verified < MAX_CANDIDATES; shared--) {
+            for (int entry : byShared.get(shared)) {
+                if (verified++ == MAX_CANDIDATES) {
+                    break;
+                }
+                int distance = matcher != null ? matcher.distance(texts[entry], maxEdits)
+                        : substringDistance(normalized, texts[entry], maxEdits);
+                if (distance <= maxEdits) {
+                    matches.add(new long[]{distance, texts[entry].length(), entry});
+                }
+            }
+        }
+        matches.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        Set<Integer> results = new LinkedHashSet<>();
+        for (long[] match : matches) {
+            int[] ids = bookIds[(int) match[2]];
+            for (int i = 1; i <= ids[COUNT_SLOT] && results.size() < limit; i++) {
+                results.add(ids[i]);
+            }
+            if (results.size() == limit) {
+                break;
+            }
+        }
+        return results.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Gets the default number of edits tolerated for a query: none for short queries, up to two for long ones.
+     *
+     * @param query The query.
+     * @return The maximum number of edits.
+     */
+    public static int defaultMaxEdits(String query) {
+        int length = AutocompleteIndex.normalize(query).length();
+        return length < 6 ? 0 : length < 10 ? 1 : 2;
+    }
+
+    /**
+     * Gets the number of distinct texts.
+     *
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Computes the smallest edit distance between a query and any part of a text, giving up past a bound.
+     * Queries longer than 64 characters go through the plain dynamic programming table.
+     *
+     * @return The distance, or {@code maxEdits + 1} if it is larger than maxEdits.
+     */
+    static int substringDistance(String query, String text, int maxEdits) {
+        if (query.length() <= Long.SIZE) {
+            return new BitParallelMatcher(query).distance(text, maxEdits);
+        }
+        int n = text.length();
+        int[] previous = new int[n + 1]; // a match may start anywhere in the text, at no cost
+        int[] current = new int[n + 1];
+        for (int i = 1; i <= query.length(); i++) {
+            char q = query.charAt(i - 1);
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= n; j++) {
+                int cost = previous[j - 1] + (q == text.charAt(j - 1) ? 0 : 1);
+                cost = Math.min(cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = cost;
+                rowMin = Math.min(rowMin, cost);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = maxEdits + 1;
+        for (int j = 0; j <= n; j++) {
+            best = Math.min(best, previous[j]); // a match may end anywhere in the text
+        }
+        return best;
+    }
+
+    /**
+     * Myers' bit-parallel approximate matching: one column of the edit distance table per text character,
+     * held in two machine words, for queries of up to 64 characters.
+     */
+    private static final class BitParallelMatcher {
+
+        private final long[] asciiMasks = new long[128];
+        private final char[] otherChars;
+        private final long[] otherMasks;
+        private final int length;
+
+        BitParallelMatcher(String query) {
+            length = query.length();
+            StringBuilder others = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                char c = query.charAt(i);
+                if (c < 128) {
+                    asciiMasks[c] |= 1L << i;
+                } else if (others.indexOf(String.valueOf(c)) < 0) {
+                    others.append(c);
+                }
+            }
+            otherChars = others.toString().toCharArray();
+            otherMasks = new long[otherChars.length];
+            for (int k = 0; k < otherChars.length; k++) {
+                for (int i = 0; i < length; i++) {
+                    if (query.charAt(i) == otherChars[k]) {
+                        otherMasks[k] |= 1L << i;
+                    }
+                }
+            }
+        }
+
+        int distance(String text, int maxEdits) {
+            long last = 1L << (length - 1);
+            long positive = -1L;
+            long negative = 0L;
+            int score = length;
+            int best = length;
+            for (int j = 0; j < text.length() && best > 0; j++) {
+                long equal = mask(text.charAt(j));
+                long vertical = equal | negative;
+                long horizontal = (((equal & positive) + positive) ^ positive) | equal;
+                long horizontalPositive = negative | ~(horizontal | positive);
+                long horizontalNegative = positive & horizontal;
+                if ((horizontalPositive & last) != 0) {
+                    score++;
+                } else if ((horizontalNegative & last) != 0) {
+                    score--;
+                }
+                horizontalPositive <<= 1; // no carry in: a match may start anywhere in the text
+                horizontalNegative <<= 1;
+                positive = horizontalNegative | ~(vertical | horizontalPositive);
+                negative = horizontalPositive & vertical;
+                best = Math.min(best, score);
+            }
+            return Math.min(best, maxEdits + 1);
+        }
+
+        private long mask(char c) {
+            if (c < 128) {
+                return asciiMasks[c];
+            }
+            for (int k = 0; k < otherChars.length; k++) {
+                if (otherChars[k] == c) {
+                    return otherMasks[k];
+                }
+            }
+            return 0L;
+        }
+    }
+
+    private void addPosting(long gram, int entry) {
+        int posting = grams.get(gram);
+        if (posting == LongIntHashMap.MISSING) {
+            posting = gramCount++;
+            if (posting == postings.length) {
+                postings = Arrays.copyOf(postings, posting * 2);
+                postingSizes = Arrays.copyOf(postingSizes, posting * 2);
+            }
+            postings[posting] = new int[4];
+            grams.put(gram, posting);
+        }
+        int size = postingSizes[posting];
+        if (size == postings[posting].length) {
+            postings[posting] = Arrays.copyOf(postings[posting], size * 2);
+        }
+        postings[posting][size] = entry;
+        postingSizes[posting]++;
+    }
+
+    /**
+     * Extracts the distinct trigrams of a normalized text, each packed into a long.
+     */
+    private static long[] distinctGrams(String normalized) {
+        if (normalized.length() < 3) {
+            return new long[0];
+        }
+        long[] packed = new long[normalized.length() - 2];
+        for (int i = 0; i < packed.length; i++) {
+            packed[i] = (long) normalized.charAt(i) << 32 | (long) normalized.charAt(i + 1) << 16 | normalized.charAt(i + 2);
+        }
+        return Arrays.stream(packed).distinct().toArray();
+    }
+}
@@ -0,0 +1,147 @@
+package service;
+
+import entity.Book;
+import repository.BookRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class searches titles and authors tolerating typos, such as "Garcia Marques", from in-memory
+ * {@link FuzzyIndex} instances instead of repeated table scans.
+ * <p>
+ * The indexes are built from the catalog, new books are added as they are saved, and a periodic rebuild picks up
+ * changes made by other nodes. A rebuild reads the database without holding the lock and then swaps the indexes in.
+ */
+public class FuzzySearchService {
+
+    private final BookRepository bookRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private FuzzyIndex titles = new FuzzyIndex();
+    private FuzzyIndex authors = new FuzzyIndex();
+
+    /**
+     * Constructs a new FuzzySearchService with empty indexes; call {@link #rebuild()} to load them.
+     *
+     * @param bookRepository The BookRepository instance to be used for book operations.
+     */
+    public FuzzySearchService(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    /**
+     * Replaces the indexes with ones built from the whole catalog.
+     *
+     * @return The number of books indexed, or 0 if the catalog could not be read and the current indexes were kept.
+     */
+    public int rebuild() {
+        List<Book> books = bookRepository.findUpdatedSince(Instant.EPOCH);
+        if (books == null) {
+            return 0; // keep the indexes we have
+        }
+        FuzzyIndex rebuiltTitles = new FuzzyIndex();
+        FuzzyIndex rebuiltAuthors = new FuzzyIndex();
+        for (Book book : books) {
+            rebuiltTitles.add(book.getTitle(), book.getId());
+            rebuiltAuthors.add(book.getAuthor(), book.getId());
+        }
+        lock.writeLock().lock();
+        try {
+            titles = rebuiltTitles;
+            authors = rebuiltAuthors;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return books.size();
+    }
+
+    /**
+     * Searches the books whose title contains the query, give or take a few typos.
+     *
+     * @param query The title or part of it.
+     * @param limit The maximum number of books.
+     * @return The IDs of the matching books, closest match first.
+     */
+    public int[] searchTitles(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return titles.search(query, FuzzyIndex.defaultMaxEdits(query), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the books whose author contains the query, give or take a few typos.
+     *
+     * @param query The author or part of the name.
+     * @param limit The maximum number of books.
+     * @return The IDs of the matching books, closest match first.
+     */
+    public int[] searchAuthors(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return authors.search(query, FuzzyIndex.defaultMaxEdits(query), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a newly saved book to the indexes. Books without an ID are left to the next rebuild.
+     *
+     * @param book The book.
+     */
+    public void bookAdded(Book book) {
+        if (book.getId() <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            titles.add(book.getTitle(), book.getId());
+            authors.add(book.getAuthor(), book.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of distinct titles and authors in the indexes.
+     *
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        lock.readLock().lock();
+        try {
+            return titles.getEntryCount() + authors.getEntryCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Schedules a rebuild of the indexes at a fixed interval.
+     *
+     * @param executor The executor running the rebuilds.
+     * @param interval The time between two rebuilds.
+     * @return The scheduled task, which can be used to cancel it.
+     */
+    public ScheduledFuture<?> scheduleRebuilds(ScheduledExecutorService executor, Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Rebuild interval must be greater than zero");
+        }
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // keep the schedule alive, the current indexes stay in use
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,213 @@
+package service;
+
+import java.util.Arrays;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Tracks the keys with the highest counts in a stream of (estimated) counts, in bounded memory.
+ * <p>
+ * Candidates live in an indexed min-heap of fixed capacity: a key enters when there is room or when its count beats
+ * the smallest candidate, which it replaces. The best candidates are also kept sorted in a short ranking that each
+ * offer updates in time bounded by the ranking size, so reading the top keys needs no sorting.
+ * Counts offered for a key are expected to grow until the next {@link #rescore}. This class is not thread-safe.
+ */
+class HeavyHitters {
+
+    private final long[] keys;
+    private final int[] counts;
+    private final Object[] labels;
+    private final LongIntHashMap positions;
+    private int size;
+
+    private final long[] rankedKeys;
+    private final int[] rankedCounts;
+    private final Object[] rankedLabels;
+    private int rankedSize;
+
+    /**
+     * Constructs an empty tracker.
+     *
+     * @param capacity    The number of candidates kept.
+     * @param rankingSize The number of top candidates kept sorted, at most the capacity.
+     */
+    HeavyHitters(int capacity, int rankingSize) {
+        if (rankingSize <= 0 || rankingSize > capacity) {
+            throw new IllegalArgumentException("Ranking size must be between 1 and the capacity");
+        }
+        keys = new long[capacity];
+        counts = new int[capacity];
+        labels = new Object[capacity];
+        positions = new LongIntHashMap(capacity);
+        rankedKeys = new long[rankingSize];
+        rankedCounts = new int[rankingSize];
+        rankedLabels = new Object[rankingSize];
+    }
+
+    /**
+     * Offers the current count of a key.
+     *
+     * @param key   The key.
+     * @param count Its count.
+     * @param label A label returned with the key, such as a title.
+     */
+    void offer(long key, int count, Object label) {
+        int position = positions.get(key);
+        if (position != LongIntHashMap.MISSING) {
+            counts[position] = count;
+            labels[position] = label;
+            siftDown(position);
+        } else if (size < keys.length) {
+            set(size, key, count, label);
+            siftUp(size++);
+        } else if (count > counts[0]) {
+            positions.remove(keys[0]);
+            set(0, key, count, label);
+            siftDown(0);
+        } else {
+            return;
+        }
+        rank(key, count, label);
+    }
+
+    /**
+     * Replaces every candidate count, such as after old counts expired, and drops the candidates left at zero.
+     *
+     * @param counter The new count of a key.
+     */
+    void rescore(LongToIntFunction counter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int count = counter.applyAsInt(keys[i]);
+            positions.remove(keys[i]);
+            if (count > 0) {
+                keys[kept] = keys[i];
+                counts[kept] = count;
+                labels[kept] = labels[i];
+                kept++;
+            }
+        }
+        Arrays.fill(labels, kept, size, null);
+        size = kept;
+        for (int i = 0; i < size; i++) {
+            positions.put(keys[i], i);
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(counts[b], counts[a]));
+        rankedSize = Math.min(size, rankedKeys.length);
+        for (int rank = 0; rank < rankedSize; rank++) {
+            rankedKeys[rank] = keys[order[rank]];
+            rankedCounts[rank] = counts[order[rank]];
+            rankedLabels[rank] = labels[order[rank]];
+        }
+        Arrays.fill(rankedLabels, rankedSize, rankedLabels.length, null);
+    }
+
+    /**
+     * Gets the number of ranked candidates.
+     *
+     * @return The ranking size, at most the one given at construction.
+     */
+    int rankedSize() {
+        return rankedSize;
+    }
+
+    long rankedKey(int rank) {
+        return rankedKeys[rank];
+    }
+
+    int rankedCount(int rank) {
+        return rankedCounts[rank];
+    }
+
+    Object rankedLabel(int rank) {
+        return rankedLabels[rank];
+    }
+
+    /**
+     * Moves a key whose count grew up the ranking, or into it.
+     */
+    private void rank(long key, int count, Object label) {
+        int rank = rankedSize;
+        for (int i = 0; i < rankedSize; i++) {
+            if (rankedKeys[i] == key) {
+                rank = i;
+                break;
+            }
+        }
+        if (rank == rankedSize) {
+            if (rankedSize < rankedKeys.length) {
+                rankedSize++;
+            } else if (count > rankedCounts[rankedSize - 1]) {
+                rank = rankedSize - 1;
+            } else {
+                return;
+            }
+        }
+        while (rank > 0 && rankedCounts[rank - 1] < count) {
+            rankedKeys[rank] = rankedKeys[rank - 1];
+            rankedCounts[rank] = rankedCounts[rank - 1];
+            rankedLabels[rank] = rankedLabels[rank - 1];
+            rank--;
+        }
+        rankedKeys[rank] = key;
+        rankedCounts[rank] = count;
+        rankedLabels[rank] = label;
+    }
+
+    private void set(int position, long key, int count, Object label) {
+        keys[position] = key;
+        counts[position] = count;
+        labels[position] = label;
+        positions.put(key, position);
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (left + 1 < size && counts[left + 1] < counts[smallest]) {
+                smallest = left + 1;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long key = keys[a];
+        int count = counts[a];
+        Object label = labels[a];
+        keys[a] = keys[b];
+        counts[a] = counts[b];
+        labels[a] = labels[b];
+        keys[b] = key;
+        counts[b] = count;
+        labels[b] = label;
+        positions.put(keys[a], a);
+        positions.put(keys[b], b);
+    }
+}
@@ -0,0 +1,316 @@
+package service;
+
+import entity.Book;
+import entity.Reservation;
+import repository.BookRepository;
+import repository.ReservationRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class holds returned books for the users who reserved them, until a pickup deadline.
+ * <p>
+ * {@link LoanService} offers it each returned book once the loan is closed and before the book is made available. The
+ * book is held for the oldest waiting reservation and never becomes available in between, so no other loan can take
+ * it. Deadlines are kept in a {@link TimingWheel} ticking every {@link #TICK_MILLIS}, so scheduling a hold and
+ * cancelling it on pickup cost O(1) however many holds are pending, and the database is never scanned for expired
+ * holds. An expired hold passes the book to the next reservation in line, or makes it available when nobody else is
+ * waiting, publishing it on the {@link InvalidationBus} so no cache keeps it unavailable. Holds are started and ended
+ * with conditional updates, so a pickup racing an expiry, or two nodes racing for the same reservation, end with one
+ * winner. Holds are looked up in the database, so
+ * a book can be picked up through any node. Each node expires the holds it started; after a restart,
+ * {@link #rebuild()} reloads the held reservations and expires those whose deadline passed meanwhile.
+ */
+public class HoldService {
+
+    /**
+     * The resolution of the deadlines; a hold expires at most this late.
+     */
+    static final long TICK_MILLIS = 1000;
+
+    /**
+     * The number of waiting reservations tried when holding a book, in case other nodes claim the first ones.
+     */
+    static final int MAX_CLAIM_ATTEMPTS = 3;
+
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ReservationRepository reservationRepository;
+    private final BookRepository bookRepository;
+    private final Duration holdPeriod;
+    private final ScheduledExecutorService executor;
+    private final InvalidationBus invalidationBus;
+    private final Clock clock;
+
+    private TimingWheel<Reservation> wheel;
+    private final Map<Integer, TimingWheel.Timeout<Reservation>> holdsByBook = new HashMap<>();
+    private final Map<Integer, Reservation> passingOn = new HashMap<>(); // expired holds whose book is not passed on yet
+    private ScheduledFuture<?> ticker;
+
+    /**
+     * Constructs a new HoldService.
+     *
+     * @param reservationRepository The ReservationRepository instance keeping the reservations.
+     * @param bookRepository        The BookRepository instance to be used for book availability.
+     * @param holdPeriod            How long a user has to pick up a held book.
+     * @param executor              The executor running the ticks of the wheel.
+     */
+    public HoldService(ReservationRepository reservationRepository, BookRepository bookRepository, Duration holdPeriod,
+                       ScheduledExecutorService executor) {
+        this(reservationRepository, bookRepository, holdPeriod, executor, null);
+    }
+
+    /**
+     * Constructs a new HoldService that announces the books it makes available on an invalidation bus.
+     *
+     * @param reservationRepository The ReservationRepository instance keeping the reservations.
+     * @param bookRepository        The BookRepository instance to be used for book availability.
+     * @param holdPeriod            How long a user has to pick up a held book.
+     * @param executor              The executor running the ticks of the wheel.
+     * @param invalidationBus       The bus the books whose availability changed are published on, or null.
+     */
+    public HoldService(ReservationRepository reservationRepository, BookRepository bookRepository, Duration holdPeriod,
+                       ScheduledExecutorService executor, InvalidationBus invalidationBus) {
+        this(reservationRepository, bookRepository, holdPeriod, executor, invalidationBus, Clock.systemUTC());
+    }
+
+    HoldService(ReservationRepository reservationRepository, BookRepository bookRepository, Duration holdPeriod,
+                ScheduledExecutorService executor, InvalidationBus invalidationBus, Clock clock) {
+        if (holdPeriod == null || holdPeriod.isNegative() || holdPeriod.isZero()) {
+            throw new IllegalArgumentException("Hold period must be greater than zero");
+        }
+        this.reservationRepository = reservationRepository;
+        this.bookRepository = bookRepository;
+        this.holdPeriod = holdPeriod;
+        this.executor = executor;
+        this.invalidationBus = invalidationBus;
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(TICK_MILLIS, clock.millis());
+    }
+
+    /**
+     * Starts ticking the wheel on the executor. Call {@link #rebuild()} first after a restart.
+     */
+    public synchronized void start() {
+        if (ticker == null) {
+            ticker = executor.scheduleAtFixedRate(this::onTick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops ticking the wheel; pending holds stay in the database for the next {@link #rebuild()}.
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.cancel(false);
+            ticker = null;
+        }
+    }
+
+    /**
+     * Replaces the pending holds with the held reservations in the database.
+     *
+     * @return The number of pending holds.
+     * @throws RuntimeException if the reservations could not be read.
+     */
+    public int rebuild() {
+        List<Reservation> holds = reservationRepository.findActiveHolds();
+        if (holds == null) {
+            throw new RuntimeException("Connection error");
+        }
+        synchronized (this) {
+            wheel = new TimingWheel<>(TICK_MILLIS, clock.millis());
+            holdsByBook.clear();
+            for (Reservation hold : holds) {
+                track(hold);
+            }
+            for (Reservation hold : passingOn.values()) {
+                wheel.schedule(hold, clock.millis());
+            }
+            return getActiveHoldCount();
+        }
+    }
+
+    /**
+     * Holds a returned book for the next reservation in line, if any. Call it while the book is still unavailable,
+     * before the return makes it available.
+     *
+     * @param bookId The ID of the returned book.
+     * @return true if the book is now held and must stay unavailable, false if nobody is waiting.
+     * @throws RuntimeException if the waiting reservations could not be read or held; the book must not be released.
+     */
+    public boolean holdReturned(int bookId) {
+        return holdNext(bookId) != null;
+    }
+
+    /**
+     * Tells whether a book is held for a user, who may then borrow it although it is not available.
+     *
+     * @param bookId The ID of the book.
+     * @param userId The ID of the user.
+     * @return true if a pending hold of the book belongs to the user.
+     */
+    public boolean isHeldFor(int bookId, int userId) {
+        return reservationRepository.findHold(bookId, userId) != null;
+    }
+
+    /**
+     * Ends the hold of a book because its user picked it up.
+     *
+     * @param bookId The ID of the book.
+     * @param userId The ID of the user picking it up.
+     * @return The fulfilled hold, or null if the book is not held for the user or the hold just expired.
+     */
+    public Reservation pickUp(int bookId, int userId) {
+        Reservation hold = reservationRepository.findHold(bookId, userId);
+        if (hold == null || !reservationRepository.endHold(hold, true)) {
+            return null;
+        }
+        synchronized (this) {
+            TimingWheel.Timeout<Reservation> tracked = holdsByBook.get(bookId);
+            if (tracked != null && tracked.getTask().getId() == hold.getId()) { // started by this node
+                holdsByBook.remove(bookId);
+                wheel.cancel(tracked);
+            }
+        }
+        return hold;
+    }
+
+    /**
+     * Holds a picked-up book again, with its original deadline, because the loan it was picked up for failed.
+     *
+     * @param hold The hold returned by {@link #pickUp}.
+     * @return true if the book is held again, false if the reservation could not be updated.
+     */
+    public boolean restoreHold(Reservation hold) {
+        if (!reservationRepository.reopenHold(hold)) {
+            return false;
+        }
+        synchronized (this) {
+            track(hold); // a deadline passed meanwhile expires on the next tick
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of holds waiting for a pickup.
+     *
+     * @return The pending holds.
+     */
+    public synchronized int getActiveHoldCount() {
+        return wheel.size() - passingOn.size();
+    }
+
+    /**
+     * Moves the wheel to the current time and expires the holds whose deadline passed.
+     * A book that cannot be passed on or made available after its hold ended is retried a minute later.
+     *
+     * @return The number of holds expired.
+     */
+    int expireDue() {
+        List<Reservation> due;
+        synchronized (this) {
+            due = wheel.advance(clock.millis());
+            for (Reservation hold : due) {
+                TimingWheel.Timeout<Reservation> tracked = holdsByBook.get(hold.getBookId());
+                if (tracked != null && tracked.getTask() == hold) {
+                    holdsByBook.remove(hold.getBookId());
+                }
+            }
+        }
+        int expired = 0;
+        for (Reservation hold : due) {
+            boolean ended;
+            synchronized (this) {
+                ended = passingOn.remove(hold.getId()) != null; // a retry; the hold already ended
+            }
+            try {
+                if (!ended) {
+                    if (!reservationRepository.endHold(hold, false)) {
+                        continue; // picked up meanwhile
+                    }
+                    ended = true;
+                    expired++;
+                }
+                if (holdNext(hold.getBookId()) == null) {
+                    setAvailable(hold.getBookId(), true);
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // the other expired holds must still move on
+                if (ended) {
+                    synchronized (this) {
+                        passingOn.put(hold.getId(), hold);
+                        wheel.schedule(hold, clock.millis() + RETRY_DELAY_MILLIS);
+                    }
+                }
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Holds a book for the oldest waiting reservation, trying the next one when another node claims it first.
+     * The book is unavailable, still on loan or held, and stays so when a reservation is held.
+     *
+     * @return The held reservation, or null if nobody is waiting.
+     * @throws RuntimeException if the reservations could not be read, or none of those read could be held.
+     */
+    private Reservation holdNext(int bookId) {
+        List<Reservation> waiting = reservationRepository.findWaiting(bookId, MAX_CLAIM_ATTEMPTS);
+        if (waiting == null) {
+            throw new RuntimeException("Connection error");
+        }
+        if (waiting.isEmpty()) {
+            return null;
+        }
+        for (Reservation next : waiting) {
+            Instant expiresAt = Instant.now(clock).plus(holdPeriod);
+            if (reservationRepository.startHold(next, expiresAt)) {
+                next.setHoldExpiresAt(expiresAt);
+                synchronized (this) {
+                    track(next);
+                }
+                return next;
+            }
+        }
+        throw new RuntimeException("Reservation hold failed"); // claimed elsewhere, or the updates failed
+    }
+
+    private void track(Reservation hold) {
+        TimingWheel.Timeout<Reservation> previous = holdsByBook.put(hold.getBookId(),
+                wheel.schedule(hold, hold.getHoldExpiresAt().toEpochMilli()));
+        if (previous != null) {
+            wheel.cancel(previous);
+        }
+    }
+
+    private void setAvailable(int bookId, boolean available) {
+        Book book = bookRepository.findById(bookId);
+        if (book == null) {
+            return;
+        }
+        book.setAvailable(available);
+        if (!bookRepository.updateBook(bookId, book)) {
+            throw new RuntimeException("Book availability update failed");
+        }
+        if (invalidationBus != null) {
+            invalidationBus.publish(CacheRegion.BOOK, bookId);
+        }
+    }
+
+    private void onTick() {
+        try {
+            expireDue();
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // the next tick picks up where this one stopped
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package service;
+
+/**
+ * Broadcasts the keys of changed entities to the other nodes, so their in-process caches drop stale copies.
+ * <p>
+ * Keys are published after the change is committed. The publishing node's listeners receive them at once, the other
+ * nodes once their batch is sent. Delivery to other nodes is best-effort: a key may be lost when a node is down or, with
+ * {@link UdpInvalidationBus}, when a datagram is dropped, so caches should still be refreshed periodically.
+ */
+public interface InvalidationBus extends AutoCloseable {
+
+    /**
+     * Announces that an entity changed. Local listeners are told at once; for the other nodes, keys are coalesced and
+     * sent in batches shortly after.
+     *
+     * @param region The kind of entity.
+     * @param id     The ID of the entity.
+     */
+    void publish(CacheRegion region, int id);
+
+    /**
+     * Registers a listener for the keys published by any node.
+     *
+     * @param listener The listener.
+     */
+    void subscribe(InvalidationListener listener);
+
+    /**
+     * Sends the keys published so far without waiting for the batch to fill or its delay to pass.
+     */
+    void flush();
+
+    /**
+     * Sends the pending keys and stops receiving.
+     */
+    @Override
+    void close();
+}
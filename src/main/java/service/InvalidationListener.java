@@ -0,0 +1,17 @@
+package service;
+
+/**
+ * Receives the entities changed on any node, from an {@link InvalidationBus}.
+ */
+@FunctionalInterface
+public interface InvalidationListener {
+
+    /**
+     * Called when an entity changed; cached copies of it should be dropped.
+     * Called on the thread that sends or receives the batch, so it should return quickly.
+     *
+     * @param region The kind of entity.
+     * @param id     The ID of the entity.
+     */
+    void invalidate(CacheRegion region, int id);
+}
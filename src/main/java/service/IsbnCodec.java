@@ -0,0 +1,132 @@
+package service;
+
+/**
+ * Validates ISBNs and encodes them as primitive longs.
+ * <p>
+ * ISBN-10 and ISBN-13 are accepted with or without hyphens and spaces, and their check digit must be correct.
+ * Both are normalized to ISBN-13, so "0-439-42089-X" and "9780439420891" encode to the same value: the 13 digits
+ * read as a decimal number. Encoding allocates nothing, which keeps it cheap on lookup paths.
+ */
+public final class IsbnCodec {
+
+    /**
+     * Returned by {@link #encode(String)} for anything that is not a valid ISBN.
+     */
+    public static final long INVALID = -1L;
+
+    private IsbnCodec() {
+    }
+
+    /**
+     * Encodes an ISBN as its ISBN-13 value.
+     *
+     * @param isbn The ISBN-10 or ISBN-13, hyphens and spaces allowed.
+     * @return The ISBN-13 as a long, or {@link #INVALID} if the ISBN is malformed or its check digit is wrong.
+     */
+    public static long encode(String isbn) {
+        if (isbn == null) {
+            return INVALID;
+        }
+        long digits = 0;
+        int count = 0;
+        boolean tenCheck = false; // an 'X' check digit, worth 10 in an ISBN-10
+        for (int i = 0; i < isbn.length(); i++) {
+            char c = isbn.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            if (tenCheck) {
+                return INVALID;
+            }
+            if (c >= '0' && c <= '9') {
+                if (++count > 13) {
+                    return INVALID;
+                }
+                digits = digits * 10 + (c - '0');
+            } else if ((c == 'X' || c == 'x') && count == 9) {
+                tenCheck = true;
+                count++;
+            } else {
+                return INVALID;
+            }
+        }
+
+        if (count == 10) {
+            long body = tenCheck ? digits : digits / 10;
+            int check = tenCheck ? 10 : (int) (digits % 10);
+            if (isbn10CheckDigit(body) != check) {
+                return INVALID;
+            }
+            return withCheckDigit(978_000_000_000L + body);
+        }
+        if (count == 13) {
+            long prefix = digits / 10_000_000_000L;
+            if ((prefix != 978 && prefix != 979) || withCheckDigit(digits / 10) != digits) {
+                return INVALID;
+            }
+            return digits;
+        }
+        return INVALID;
+    }
+
+    /**
+     * Decodes an encoded ISBN.
+     *
+     * @param encoded A value returned by {@link #encode(String)}.
+     * @return The ISBN-13 as 13 digits.
+     */
+    public static String decode(long encoded) {
+        if (encoded < 9_780_000_000_000L || encoded > 9_799_999_999_999L) {
+            throw new IllegalArgumentException("Not an encoded ISBN: " + encoded);
+        }
+        return Long.toString(encoded);
+    }
+
+    /**
+     * Normalizes an ISBN to the 13 digits of its ISBN-13.
+     *
+     * @param isbn The ISBN-10 or ISBN-13, hyphens and spaces allowed.
+     * @return The ISBN-13, or null if the ISBN is not valid.
+     */
+    public static String normalize(String isbn) {
+        long encoded = encode(isbn);
+        return encoded == INVALID ? null : decode(encoded);
+    }
+
+    /**
+     * Checks an ISBN.
+     *
+     * @param isbn The ISBN-10 or ISBN-13, hyphens and spaces allowed.
+     * @return true if the ISBN is well formed and its check digit is correct.
+     */
+    public static boolean isValid(String isbn) {
+        return encode(isbn) != INVALID;
+    }
+
+    /**
+     * Appends the ISBN-13 check digit to the first 12 digits.
+     *
+     * @param first12 The first 12 digits of an ISBN-13.
+     * @return The 13 digits.
+     */
+    static long withCheckDigit(long first12) {
+        int sum = 0;
+        long rest = first12;
+        for (int i = 0; i < 12; i++) {
+            int digit = (int) (rest % 10);
+            sum += (i % 2 == 0) ? digit * 3 : digit; // weights 1, 3, 1, ... counted from the left
+            rest /= 10;
+        }
+        return first12 * 10 + (10 - sum % 10) % 10;
+    }
+
+    private static int isbn10CheckDigit(long first9) {
+        int sum = 0;
+        long rest = first9;
+        for (int weight = 2; weight <= 10; weight++) {
+            sum += weight * (int) (rest % 10);
+            rest /= 10;
+        }
+        return (11 - sum % 11) % 11;
+    }
+}
@@ -0,0 +1,50 @@
+package service;
+
+import repository.LoanRepository;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+/**
+ * This class provides services for archiving returned loans.
+ * Loans returned before the configured horizon are moved out of the active loans table,
+ * so the queries on the loan hot path only touch active data.
+ */
+public class LoanArchiveService {
+
+    private final LoanRepository loanRepository;
+    private final Period horizon;
+
+    /**
+     * Constructs a new LoanArchiveService instance.
+     *
+     * @param loanRepository The LoanRepository instance to be used for loan operations.
+     * @param horizon        How long a returned loan stays in the active loans table.
+     */
+    public LoanArchiveService(LoanRepository loanRepository, Period horizon) {
+        if (horizon == null || horizon.isNegative() || horizon.isZero()) {
+            throw new IllegalArgumentException("Archive horizon must be greater than zero");
+        }
+        this.loanRepository = loanRepository;
+        this.horizon = horizon;
+    }
+
+    /**
+     * Archives the loans returned before the horizon, counted back from the given date.
+     *
+     * @param today The reference date.
+     * @return The number of archived loans.
+     */
+    public int archiveReturnedLoans(LocalDate today) {
+        if (today == null) {
+            throw new IllegalArgumentException("Date cannot be null");
+        }
+
+        int archived = loanRepository.archiveReturnedLoans(today.minus(horizon));
+        if (archived < 0) {
+            throw new RuntimeException("Loan archiving failed");
+        }
+
+        return archived;
+    }
+}
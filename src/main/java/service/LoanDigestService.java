@@ -0,0 +1,101 @@
+package service;
+
+import entity.OverdueLoan;
+import repository.LoanRepository;
+import repository.OutboxRepository;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.function.Consumer;
+
+/**
+ * This class sends each borrower one digest of their overdue and soon-due loans, instead of one reminder per book.
+ * <p>
+ * The loans of all users come from a single query ordered by user, so each digest is built in one pass, without
+ * per-user or per-book lookups, and memory holds one user's loans at a time. Digests go through the outbox, which
+ * delivers them in the background; each is keyed by user and date, so a run repeated the same day queues none twice.
+ */
+public class LoanDigestService {
+
+    private static final NotificationTemplates TEMPLATES = new NotificationTemplates();
+
+    private final LoanRepository loanRepository;
+    private final OutboxRepository outboxRepository;
+    private final Period window;
+
+    /**
+     * Constructs a new LoanDigestService.
+     *
+     * @param loanRepository   The LoanRepository instance to be used for loan operations.
+     * @param outboxRepository The OutboxRepository instance receiving the digests.
+     * @param window           How far ahead of the digest date a due loan is included.
+     */
+    public LoanDigestService(LoanRepository loanRepository, OutboxRepository outboxRepository, Period window) {
+        if (window == null || window.isNegative()) {
+            throw new IllegalArgumentException("Digest window cannot be negative");
+        }
+        this.loanRepository = loanRepository;
+        this.outboxRepository = outboxRepository;
+        this.window = window;
+    }
+
+    /**
+     * Queues a digest for every user with loans overdue or due within the window.
+     *
+     * @param today The digest date.
+     * @return The number of digests queued; a digest the outbox rejects is left out.
+     * @throws RuntimeException if the loans could not be read; digests of the users read so far are already queued.
+     */
+    public int queueDigests(LocalDate today) {
+        DigestBuilder builder = new DigestBuilder(today);
+        if (!loanRepository.streamDueLoansByUser(today.plus(window), builder)) {
+            throw new RuntimeException("Connection error");
+        }
+        builder.flush();
+        return builder.queued;
+    }
+
+    /**
+     * Accumulates the consecutive loans of one user and queues their digest when the next user starts.
+     */
+    private class DigestBuilder implements Consumer<OverdueLoan> {
+
+        private final StringBuilder items = new StringBuilder(1024);
+        private final LocalDate date;
+        private OverdueLoan first;
+        private int count;
+        private int queued;
+
+        DigestBuilder(LocalDate date) {
+            this.date = date;
+        }
+
+        @Override
+        public void accept(OverdueLoan loan) {
+            if (first != null && first.getUserID() != loan.getUserID()) {
+                flush();
+            }
+            if (first == null) {
+                first = loan;
+            }
+            TEMPLATES.renderItem(NotificationType.LOAN_DIGEST, NotificationTemplates.DEFAULT_LOCALE, items,
+                    loan.getTitle(), loan.getExpectedReturnDate());
+            count++;
+        }
+
+        void flush() {
+            if (first == null) {
+                return;
+            }
+            boolean saved = outboxRepository.enqueueOnce(TEMPLATES.render(NotificationType.LOAN_DIGEST,
+                    NotificationTemplates.DEFAULT_LOCALE, first.getBorrowerEmail(), first.getBorrowerName(), count, items),
+                    "loan_digest:" + first.getUserID() + ":" + date);
+            if (saved) {
+                queued++;
+            }
+            first = null;
+            count = 0;
+            items.setLength(0);
+        }
+    }
+}
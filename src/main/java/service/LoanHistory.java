@@ -0,0 +1,81 @@
+package service;
+
+import entity.Loan;
+import repository.LoanRepository;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The loan history of a user.
+ * It starts with the active loans and pages in archived loans only when they are requested.
+ */
+public class LoanHistory extends AbstractList<Loan> {
+
+    public static final int DEFAULT_ARCHIVE_PAGE_SIZE = 50;
+
+    private final LoanRepository loanRepository;
+    private final int userId;
+    private final int archivePageSize;
+    private final List<Loan> loans;
+    private Loan lastArchived;
+    private boolean archiveExhausted;
+
+    /**
+     * Constructs a new LoanHistory instance.
+     *
+     * @param loanRepository  The LoanRepository instance used to page in archived loans.
+     * @param userId          The ID of the user.
+     * @param activeLoans     The loans found in the active loans table.
+     * @param archivePageSize The number of archived loans loaded per page.
+     */
+    public LoanHistory(LoanRepository loanRepository, int userId, List<Loan> activeLoans, int archivePageSize) {
+        if (archivePageSize <= 0) {
+            throw new IllegalArgumentException("Archive page size must be greater than zero");
+        }
+        this.loanRepository = loanRepository;
+        this.userId = userId;
+        this.archivePageSize = archivePageSize;
+        this.loans = new ArrayList<>(activeLoans);
+    }
+
+    /**
+     * Loads the next page of archived loans and appends it to this history.
+     *
+     * @return The loans of the loaded page, empty if the archive is exhausted.
+     */
+    public List<Loan> loadArchivedPage() {
+        if (archiveExhausted) {
+            return List.of();
+        }
+        List<Loan> page = loanRepository.findArchivedByUserId(userId, lastArchived, archivePageSize);
+        if (page.size() < archivePageSize) {
+            archiveExhausted = true;
+        }
+        if (!page.isEmpty()) {
+            lastArchived = page.get(page.size() - 1);
+        }
+        loans.addAll(page);
+        return page;
+    }
+
+    /**
+     * Checks whether more archived loans may still be loaded.
+     *
+     * @return true if the archive has not been read to the end, false otherwise.
+     */
+    public boolean hasMoreArchived() {
+        return !archiveExhausted;
+    }
+
+    @Override
+    public Loan get(int index) {
+        return loans.get(index);
+    }
+
+    @Override
+    public int size() {
+        return loans.size();
+    }
+}
@@ -0,0 +1,32 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+
+import java.time.LocalDate;
+
+/**
+ * Receives the loans registered and returned through {@link LoanService}, once they are saved.
+ * Listeners run on the caller's thread and should return quickly; an exception thrown by a listener is logged
+ * and does not undo the loan or stop the other listeners.
+ */
+public interface LoanListener {
+
+    /**
+     * Called after a loan is saved.
+     *
+     * @param loan The loan; its ID is set when the repository returned one.
+     * @param book The loaned book.
+     */
+    default void loanCreated(Loan loan, Book book) {
+    }
+
+    /**
+     * Called after a loan is marked as returned.
+     *
+     * @param loan       The loan as it was before the return.
+     * @param returnDate The date the book was returned.
+     */
+    default void loanReturned(Loan loan, LocalDate returnDate) {
+    }
+}
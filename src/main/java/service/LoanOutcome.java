@@ -0,0 +1,19 @@
+package service;
+
+/**
+ * The outcome of loaning one book in a multi-book checkout.
+ */
+public enum LoanOutcome {
+    /**
+     * The book was loaned to the user.
+     */
+    LOANED,
+    /**
+     * The book does not exist.
+     */
+    BOOK_NOT_FOUND,
+    /**
+     * The book is already on loan.
+     */
+    NOT_AVAILABLE
+}
@@ -2,18 +2,26 @@ package service;
 
 import entity.Book;
 import entity.Loan;
+import entity.OutboxMessage;
+import entity.Reservation;
 import entity.User;
 import repository.BookRepository;
 import repository.LoanRepository;
 import repository.UserRepository;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.sql.Date;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
 
 /**
  * This class provides services for managing loan book operations.
@@ -22,10 +30,15 @@ import java.util.List;
  */
 public class LoanService {
 
+    private static final NotificationTemplates TEMPLATES = new NotificationTemplates();
+
     private final LoanRepository loanRepository;
     private final BookRepository bookRepository;
     private final UserRepository userRepository;
     private final EmailService emailService;
+    private final ReminderScheduler reminderScheduler;
+    private final List<LoanListener> loanListeners;
+    private final HoldService holdService;
 
     /**
      * Constructs a new LoanService instance.
@@ -35,14 +48,65 @@ public class LoanService {
      * @param userRepository The UserRepository instance to be used for user operations.
      */
     public LoanService(LoanRepository loanRepository, BookRepository bookRepository, UserRepository userRepository,EmailService emailService) {
+        this(loanRepository, bookRepository, userRepository, emailService, null);
+    }
+
+    /**
+     * Constructs a new LoanService instance that schedules the return reminders of the loans it registers.
+     *
+     * @param loanRepository    The LoanRepository instance to be used for loan operations.
+     * @param bookRepository    The BookRepository instance to be used for book operations.
+     * @param userRepository    The UserRepository instance to be used for user operations.
+     * @param emailService      The EmailService instance to be used for immediate notifications.
+     * @param reminderScheduler The scheduler of return reminders, or null to schedule none.
+     */
+    public LoanService(LoanRepository loanRepository, BookRepository bookRepository, UserRepository userRepository,
+                       EmailService emailService, ReminderScheduler reminderScheduler) {
+        this(loanRepository, bookRepository, userRepository, emailService, reminderScheduler, List.of());
+    }
+
+    /**
+     * Constructs a new LoanService instance that also tells listeners about the loans it registers and returns.
+     *
+     * @param loanRepository    The LoanRepository instance to be used for loan operations.
+     * @param bookRepository    The BookRepository instance to be used for book operations.
+     * @param userRepository    The UserRepository instance to be used for user operations.
+     * @param emailService      The EmailService instance to be used for immediate notifications.
+     * @param reminderScheduler The scheduler of return reminders, or null to schedule none.
+     * @param loanListeners     The listeners, called in order after each saved loan or return, or null for none.
+     */
+    public LoanService(LoanRepository loanRepository, BookRepository bookRepository, UserRepository userRepository,
+                       EmailService emailService, ReminderScheduler reminderScheduler, List<LoanListener> loanListeners) {
+        this(loanRepository, bookRepository, userRepository, emailService, reminderScheduler, loanListeners, null);
+    }
+
+    /**
+     * Constructs a new LoanService instance that also lets users borrow the books held for their reservations.
+     * Returned books are offered to the hold service before they are made available.
+     *
+     * @param loanRepository    The LoanRepository instance to be used for loan operations.
+     * @param bookRepository    The BookRepository instance to be used for book operations.
+     * @param userRepository    The UserRepository instance to be used for user operations.
+     * @param emailService      The EmailService instance to be used for immediate notifications.
+     * @param reminderScheduler The scheduler of return reminders, or null to schedule none.
+     * @param loanListeners     The listeners, called in order after each saved loan or return, or null for none.
+     * @param holdService       The service holding returned books for reservations, or null to hold none.
+     */
+    public LoanService(LoanRepository loanRepository, BookRepository bookRepository, UserRepository userRepository,
+                       EmailService emailService, ReminderScheduler reminderScheduler, List<LoanListener> loanListeners,
+                       HoldService holdService) {
         this.loanRepository = loanRepository;
         this.bookRepository = bookRepository;
         this.userRepository = userRepository;
         this.emailService = emailService;
+        this.reminderScheduler = reminderScheduler;
+        this.loanListeners = loanListeners != null ? List.copyOf(loanListeners) : List.of();
+        this.holdService = holdService;
     }
 
     /**
      * Registers a loan of a book to a user.
+     * A book held for the user's reservation can be borrowed by that user although it is not available.
      *
      * @param bookId     The ID of the book being loaned.
      * @param userId     The ID of the user taking the loan.
@@ -61,7 +125,8 @@ public class LoanService {
             throw new RuntimeException("User not found");
         }
 
-        if (!book.isAvailable()) {
+        boolean heldForUser = !book.isAvailable() && holdService != null && holdService.isHeldFor(bookId, userId);
+        if (!book.isAvailable() && !heldForUser) {
             throw new RuntimeException("Book is not available for loan");
         }
 
@@ -73,11 +138,33 @@ public class LoanService {
             throw new IllegalArgumentException("Return date must be after the loan date");
         }
 
-        book.setAvailable(false);
-        bookRepository.saveBook(book);
+        Reservation hold = null;
+        if (heldForUser) {
+            hold = holdService.pickUp(bookId, userId);
+            if (hold == null) {
+                throw new RuntimeException("Book is not available for loan"); // the hold expired meanwhile
+            }
+        }
 
         Loan loan = new Loan(bookId, userId, loanDate, returnDate);
-        boolean result = loanRepository.saveLoan(loan);
+        boolean result = false;
+        try {
+            book.setAvailable(false);
+            if (!bookRepository.updateBook(bookId, book)) {
+                throw new RuntimeException("Book availability update failed");
+            }
+            result = loanRepository.saveLoan(loan, returnReminder(user, book, returnDate.toString()));
+        } finally {
+            if (!result && hold != null) {
+                holdService.restoreHold(hold); // keep the book for the user until the original deadline
+            }
+        }
+        if (result && reminderScheduler != null && loan.getId() > 0) {
+            reminderScheduler.schedule(loan);
+        }
+        if (result) {
+            notifyLoanCreated(loan, book);
+        }
 
         bookRepository.closeConnection();
         userRepository.closeConnection();
@@ -87,8 +174,80 @@ public class LoanService {
     }
 
 
+    /**
+     * Registers the loan of several books to a user in a single transaction.
+     * Like loanBook, each loan queues its return reminder in the outbox and has its reminders scheduled.
+     * Unlike loanBook, the repository connections stay open, so the service can be called again.
+     *
+     * @param userId     The ID of the user taking the loans.
+     * @param bookIds    The IDs of the books being loaned.
+     * @param loanDate   The date the loans start.
+     * @param returnDate The date the loans are due.
+     * @return The outcome for each requested book, in request order.
+     */
+    public Map<Integer, LoanOutcome> loanBooks(int userId, int[] bookIds, LocalDate loanDate, LocalDate returnDate) {
+        if (bookIds == null || bookIds.length == 0) {
+            throw new IllegalArgumentException("Book IDs cannot be null or empty");
+        }
+
+        if (loanDate.isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Loan date invalid");
+        }
+
+        if (returnDate.isBefore(loanDate) || returnDate.isEqual(loanDate)) {
+            throw new IllegalArgumentException("Return date must be after the loan date");
+        }
+
+        User user = userRepository.findById(userId);
+        if (user == null) {
+            throw new RuntimeException("User not found");
+        }
+
+        Map<Integer, Book> books = bookRepository.findByIds(bookIds);
+        if (books == null) {
+            throw new RuntimeException("Connection error");
+        }
+        int[] availableBookIds = Arrays.stream(bookIds).distinct()
+                .filter(bookId -> books.containsKey(bookId) && books.get(bookId).isAvailable())
+                .toArray();
+
+        Map<Integer, OutboxMessage> reminders = new HashMap<>();
+        for (int bookId : availableBookIds) {
+            reminders.put(bookId, returnReminder(user, books.get(bookId), returnDate.toString()));
+        }
+        List<Loan> loans = availableBookIds.length == 0
+                ? List.of()
+                : loanRepository.loanBooks(userId, availableBookIds, loanDate, returnDate, reminders);
+        if (loans == null) {
+            throw new RuntimeException("Loan transaction failed");
+        }
+        Map<Integer, Loan> loansByBook = new HashMap<>();
+        for (Loan loan : loans) {
+            loansByBook.put(loan.getBookID(), loan);
+        }
+
+        Map<Integer, LoanOutcome> outcomes = new LinkedHashMap<>();
+        for (int bookId : bookIds) {
+            if (!books.containsKey(bookId)) {
+                outcomes.put(bookId, LoanOutcome.BOOK_NOT_FOUND);
+            } else if (loansByBook.containsKey(bookId)) {
+                if (outcomes.put(bookId, LoanOutcome.LOANED) == null) {
+                    Loan loan = loansByBook.get(bookId);
+                    if (reminderScheduler != null && loan.getId() > 0) {
+                        reminderScheduler.schedule(loan);
+                    }
+                    notifyLoanCreated(loan, books.get(bookId));
+                }
+            } else {
+                outcomes.put(bookId, LoanOutcome.NOT_AVAILABLE); // on loan already, or claimed concurrently
+            }
+        }
+        return outcomes;
+    }
+
     /**
      * Registers the return of a loaned book.
+     * A book held for a waiting reservation is not made available.
      *
      * @param loanId The ID of the loan being returned.
      */
@@ -99,16 +258,27 @@ public class LoanService {
         }
 
         Book book = bookRepository.findById(loan.getBookID());
-        book.setAvailable(true);
-
-        boolean savedBook = bookRepository.updateBook(loan.getBookID(), book);
-        if (!savedBook) {
-            throw new RuntimeException("Book availability update failed");
-        }
-        boolean updatedLoan = loanRepository.updateReturnedDate(loanId, LocalDate.now());
+        LocalDate returnDate = LocalDate.now();
+        boolean updatedLoan = loanRepository.updateReturnedDate(loanId, returnDate);
         if (!updatedLoan) {
             throw new RuntimeException("Loan returned date update failed");
         }
+        try {
+            boolean held = holdService != null && holdService.holdReturned(loan.getBookID()); // before anyone can take it
+            if (!held) {
+                book.setAvailable(true);
+                if (!bookRepository.updateBook(loan.getBookID(), book)) {
+                    throw new RuntimeException("Book availability update failed");
+                }
+            }
+        } catch (RuntimeException e) {
+            loanRepository.reopenLoans(List.of(loanId), returnDate); // the book is neither held nor available
+            throw e;
+        }
+        if (reminderScheduler != null) {
+            reminderScheduler.cancel(loanId);
+        }
+        notifyLoanReturned(loan, returnDate);
 
         bookRepository.closeConnection();
         loanRepository.closeConnection();
@@ -116,28 +286,76 @@ public class LoanService {
         return true;
     }
 
+    /**
+     * Registers the return of several loaned books, such as a drop-box batch.
+     * Loans are read with one multi-get and closed with one statement;
+     * a failing item is reported in its outcome and does not stop the others.
+     * Each book is offered to the waiting reservations once its loan is closed; held books are not made available.
+     *
+     * @param loanIds The IDs of the loans being returned.
+     * @return The outcome for each loan, in request order.
+     */
+    public Map<Integer, ReturnOutcome> returnBooks(int[] loanIds) {
+        if (loanIds == null || loanIds.length == 0) {
+            throw new IllegalArgumentException("Loan IDs cannot be null or empty");
+        }
+
+        Map<Integer, Loan> loans = loanRepository.findByIds(loanIds);
+        if (loans == null) {
+            throw new RuntimeException("Connection error");
+        }
+        Map<Integer, ReturnOutcome> outcomes = new LinkedHashMap<>();
+        Map<Integer, Integer> bookIdsByLoanId = new LinkedHashMap<>();
+        for (int loanId : loanIds) {
+            Loan loan = loans.get(loanId);
+            if (loan == null) {
+                outcomes.put(loanId, ReturnOutcome.LOAN_NOT_FOUND);
+            } else if (loan.getActualReturnDate() != null) {
+                outcomes.put(loanId, ReturnOutcome.ALREADY_RETURNED);
+            } else {
+                outcomes.put(loanId, ReturnOutcome.FAILED); // replaced below once the update succeeds
+                bookIdsByLoanId.put(loanId, loan.getBookID());
+            }
+        }
+
+        if (!bookIdsByLoanId.isEmpty()) {
+            IntPredicate holdBook = holdService != null ? holdService::holdReturned : bookId -> false;
+            LocalDate returnDate = LocalDate.now();
+            for (int loanId : loanRepository.returnLoans(bookIdsByLoanId, returnDate, holdBook)) {
+                outcomes.put(loanId, ReturnOutcome.RETURNED);
+                notifyLoanReturned(loans.get(loanId), returnDate);
+            }
+        }
+        return outcomes;
+    }
+
     /**
      * Retrieves the loan history of a user.
+     * The history holds the active loans; archived loans are paged in through {@link LoanHistory#loadArchivedPage()}.
+     * If the user has no active loans, the first archived page is loaded right away.
      *
      * @param userId The ID of the user.
-     * @return List of loans associated with the user.
+     * @return The loan history of the user.
      */
-    public List<Loan> getLoanHistory(int userId) {
+    public LoanHistory getLoanHistory(int userId) {
         User user = userRepository.findById(userId);
 
         if (user == null) {
             throw new RuntimeException("User not found");
         }
 
-        List<Loan> loanList = loanRepository.findByUserId(userId);
-        if (loanList.isEmpty()) {
+        LoanHistory loanHistory = new LoanHistory(loanRepository, userId, loanRepository.findByUserId(userId),
+                LoanHistory.DEFAULT_ARCHIVE_PAGE_SIZE);
+        if (loanHistory.isEmpty()) {
+            loanHistory.loadArchivedPage();
+        }
+        if (loanHistory.isEmpty()) {
             throw new RuntimeException("No loan found for user");
         }
 
         userRepository.closeConnection();
-        loanRepository.closeConnection();
 
-        return loanList;
+        return loanHistory;
     }
 
 
@@ -161,6 +379,53 @@ public class LoanService {
     }
 
 
+    /**
+     * Streams a report of the loans that have not been returned by the specified date to an output stream.
+     * Each row holds the book, the borrower, the due date and the days overdue. Rows are written as they are read,
+     * so the report runs in constant memory for any number of rows.
+     *
+     * @param actualDate The report date, in 'yyyy-MM-dd' format.
+     * @param format     The report format.
+     * @param out        The stream receiving the report; it is flushed but not closed.
+     * @return The number of rows written.
+     * @throws IllegalArgumentException if the date is invalid or null.
+     */
+    public long exportOverdueReport(String actualDate, ReportFormat format, OutputStream out) {
+        if (actualDate == null || actualDate.isEmpty()) {
+            throw new IllegalArgumentException("Date cannot be null or empty");
+        }
+        if (format == null || out == null) {
+            throw new IllegalArgumentException("Format and output stream cannot be null");
+        }
+
+        LocalDate date;
+        try {
+            date = LocalDate.parse(actualDate, DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date format. Please use 'yyyy-MM-dd'");
+        }
+
+        OverdueReportWriter writer = new OverdueReportWriter(out, format, date);
+        try {
+            if (!loanRepository.streamOverdueLoans(date, writer)) {
+                throw new RuntimeException("Connection error");
+            }
+            writer.flush();
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Report could not be written", e.getCause());
+        }
+        return writer.getRowCount();
+    }
+
+    /**
+     * Sends a return reminder right away.
+     * Loans made through loanBook already queue this reminder in the outbox with the loan, for {@link OutboxRelay} to deliver.
+     *
+     * @param userID     The ID of the borrower.
+     * @param bookID     The ID of the loaned book.
+     * @param dateReturn The due date, in 'yyyy-MM-dd' format.
+     * @return true if the email was sent, false if the user, the book or the date is invalid, or the send failed.
+     */
     public boolean SendNotification(int userID, int bookID, String dateReturn) {
         try {
             LocalDate date = LocalDate.parse(dateReturn, DateTimeFormatter.ISO_LOCAL_DATE);
@@ -175,16 +440,37 @@ public class LoanService {
                 return false;
             }
 
-            String emailBody = "Estimado " + user.getName() + ",\n\n"
-                    + "Este es un recordatorio de que debe devolver el libro '" + book.getTitle()
-                    + "' antes del " + dateReturn + ".\n\n"
-                    + "Gracias.";
-
-            return emailService.sendEmail(user.getEmail(), "Recordatorio de Devolución de Libro", emailBody);
+            OutboxMessage reminder = returnReminder(user, book, dateReturn);
+            return emailService.sendEmail(reminder.getRecipient(), reminder.getSubject(), reminder.getBody());
         } catch (DateTimeParseException e) {
             return false;
         } catch (Exception e) {
             throw new RuntimeException("Error de conexión al servidor de correos", e);
         }
     }
+
+    private void notifyLoanCreated(Loan loan, Book book) {
+        for (LoanListener listener : loanListeners) {
+            try {
+                listener.loanCreated(loan, book);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // the loan is saved; a failing listener must not report it as failed
+            }
+        }
+    }
+
+    private void notifyLoanReturned(Loan loan, LocalDate returnDate) {
+        for (LoanListener listener : loanListeners) {
+            try {
+                listener.loanReturned(loan, returnDate);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // the return is saved; a failing listener must not report it as failed
+            }
+        }
+    }
+
+    private static OutboxMessage returnReminder(User user, Book book, String dateReturn) {
+        return TEMPLATES.render(NotificationType.RETURN_REMINDER, NotificationTemplates.DEFAULT_LOCALE, user.getEmail(),
+                user.getName(), book.getTitle(), dateReturn);
+    }
 }
@@ -0,0 +1,55 @@
+package service;
+
+import repository.LoanRepository;
+import repository.LoanSnapshotWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * This class provides services for exporting loans to a columnar snapshot file,
+ * so aggregate queries can run offline instead of against the loans table.
+ */
+public class LoanSnapshotService {
+
+    private final LoanRepository loanRepository;
+
+    /**
+     * Constructs a new LoanSnapshotService instance.
+     *
+     * @param loanRepository The LoanRepository instance to be used for loan operations.
+     */
+    public LoanSnapshotService(LoanRepository loanRepository) {
+        this.loanRepository = loanRepository;
+    }
+
+    /**
+     * Exports the active loans to a snapshot file.
+     * Loans created after the export started may not be included; they are picked up by the next snapshot.
+     * If the export fails, the previous snapshot file is left as it was.
+     *
+     * @param path The path of the snapshot file.
+     * @return The number of exported loans.
+     */
+    public int exportLoans(Path path) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+
+        int loanCount = loanRepository.countLoans();
+        if (loanCount < 0) {
+            throw new RuntimeException("Connection error");
+        }
+
+        try (LoanSnapshotWriter writer = new LoanSnapshotWriter(path, loanCount)) {
+            if (!loanRepository.streamLoans(writer::append)) {
+                throw new RuntimeException("Connection error");
+            }
+            writer.commit();
+            return writer.getRowCount();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot file could not be written", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * An {@link InvalidationBus} between nodes running in the same process, such as several service instances in one
+ * test. Buses joined to the same {@link Hub} receive each other's batches on the thread that sends them.
+ */
+public class LocalInvalidationBus extends BatchingInvalidationBus {
+
+    private final Hub hub;
+
+    /**
+     * Constructs a bus and joins it to a hub.
+     *
+     * @param hub      The hub connecting the buses of the process.
+     * @param executor The executor running the delayed flushes.
+     * @param maxDelay How long a key may wait for others to join its batch.
+     * @param maxBatch The number of distinct keys that sends a batch at once.
+     */
+    public LocalInvalidationBus(Hub hub, ScheduledExecutorService executor, Duration maxDelay, int maxBatch) {
+        super(executor, maxDelay, maxBatch);
+        this.hub = hub;
+        hub.buses.add(this);
+    }
+
+    @Override
+    void send(long sender, long[] keys) {
+        for (LocalInvalidationBus bus : hub.buses) {
+            bus.deliver(sender, keys, keys.length);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        hub.buses.remove(this);
+    }
+
+    /**
+     * Connects the buses of one process.
+     */
+    public static final class Hub {
+
+        private final List<LocalInvalidationBus> buses = new CopyOnWriteArrayList<>();
+    }
+}
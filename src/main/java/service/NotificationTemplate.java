@@ -0,0 +1,121 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A notification template compiled once into a list of literal and parameter segments.
+ * <p>
+ * Placeholders are written {@code {name}} and must be among the parameters the template is compiled with;
+ * <code>{{</code> and <code>}}</code> stand for literal braces. Rendering appends the segments in order, so it costs no parsing
+ * or lookups, and {@link #render(Object...)} reuses a per-thread builder presized to the literal text.
+ * Instances are immutable and thread-safe.
+ */
+public final class NotificationTemplate {
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+    private static final int MAX_RETAINED_BUFFER = 16 * 1024;
+
+    private final String[] literals;     // literals[i] precedes parameter parameterIndexes[i]; one more trailing literal
+    private final int[] parameterIndexes;
+    private final int parameterCount;
+    private final int literalLength;
+
+    private NotificationTemplate(List<String> literals, List<Integer> parameterIndexes, int parameterCount) {
+        this.literals = literals.toArray(new String[0]);
+        this.parameterIndexes = parameterIndexes.stream().mapToInt(Integer::intValue).toArray();
+        this.parameterCount = parameterCount;
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param source     The template text.
+     * @param parameters The parameter names, in the order their values are passed to render.
+     * @return The compiled template.
+     * @throws IllegalArgumentException if a placeholder is unknown or a brace is unbalanced.
+     */
+    public static NotificationTemplate compile(String source, String... parameters) {
+        if (source == null) {
+            throw new IllegalArgumentException("Template cannot be null");
+        }
+        List<String> literals = new ArrayList<>();
+        List<Integer> parameterIndexes = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '{' && i + 1 < source.length() && source.charAt(i + 1) == '{') {
+                literal.append('{');
+                i += 2;
+            } else if (c == '}' && i + 1 < source.length() && source.charAt(i + 1) == '}') {
+                literal.append('}');
+                i += 2;
+            } else if (c == '{') {
+                int end = source.indexOf('}', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unclosed placeholder at " + i);
+                }
+                literals.add(literal.toString());
+                literal.setLength(0);
+                parameterIndexes.add(parameterIndex(source.substring(i + 1, end), parameters));
+                i = end + 1;
+            } else if (c == '}') {
+                throw new IllegalArgumentException("Unmatched '}' at " + i);
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+        literals.add(literal.toString());
+        return new NotificationTemplate(literals, parameterIndexes, parameters.length);
+    }
+
+    /**
+     * Renders the template into a builder.
+     *
+     * @param out    The builder receiving the text.
+     * @param values The parameter values, in the order of the compiled parameters.
+     */
+    public void renderTo(StringBuilder out, Object... values) {
+        if (values.length != parameterCount) {
+            throw new IllegalArgumentException("Expected " + parameterCount + " values but got " + values.length);
+        }
+        for (int i = 0; i < parameterIndexes.length; i++) {
+            out.append(literals[i]).append(values[parameterIndexes[i]]);
+        }
+        out.append(literals[literals.length - 1]);
+    }
+
+    /**
+     * Renders the template.
+     *
+     * @param values The parameter values, in the order of the compiled parameters.
+     * @return The rendered text.
+     */
+    public String render(Object... values) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.ensureCapacity(literalLength + 16 * parameterIndexes.length);
+        renderTo(buffer, values);
+        String text = buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove(); // do not pin an unusually large buffer to the thread
+        }
+        return text;
+    }
+
+    private static int parameterIndex(String name, String[] parameters) {
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown placeholder: {" + name + "}");
+    }
+}
@@ -0,0 +1,97 @@
+package service;
+
+import entity.OutboxMessage;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The notification templates of every locale, compiled on first use of a locale and then cached.
+ * <p>
+ * Templates are read from a properties resource bundle. A locale without a bundle of its own falls back to the base
+ * bundle, which holds the Spanish templates, rather than to the JVM default locale. This class is thread-safe.
+ */
+public class NotificationTemplates {
+
+    public static final String DEFAULT_BUNDLE = "notifications.messages";
+    public static final Locale DEFAULT_LOCALE = Locale.forLanguageTag("es");
+
+    private static final ResourceBundle.Control NO_FALLBACK =
+            ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_PROPERTIES);
+
+    private final String bundleName;
+    private final Map<Locale, Map<NotificationType, NotificationTemplate[]>> templatesByLocale = new ConcurrentHashMap<>(); // subject, body, item
+
+    /**
+     * Constructs a template set over the default bundle.
+     */
+    public NotificationTemplates() {
+        this(DEFAULT_BUNDLE);
+    }
+
+    /**
+     * Constructs a template set over a resource bundle.
+     *
+     * @param bundleName The base name of the bundle, such as {@code notifications.messages}.
+     */
+    public NotificationTemplates(String bundleName) {
+        this.bundleName = bundleName;
+    }
+
+    /**
+     * Renders a notification.
+     *
+     * @param type      The kind of notification.
+     * @param locale    The locale of the recipient.
+     * @param recipient The email address of the recipient.
+     * @param values    The parameter values, in the order declared by the type.
+     * @return The notification, ready to be sent or added to the outbox.
+     */
+    public OutboxMessage render(NotificationType type, Locale locale, String recipient, Object... values) {
+        NotificationTemplate[] templates = templates(locale).get(type);
+        return new OutboxMessage(recipient, templates[0].render(values), templates[1].render(values));
+    }
+
+    /**
+     * Renders one item of a notification that lists several, such as one loan of a digest.
+     *
+     * @param type   The kind of notification; it must have an item template.
+     * @param locale The locale of the recipient.
+     * @param out    The builder receiving the item.
+     * @param values The item parameter values, in the order declared by the type.
+     */
+    public void renderItem(NotificationType type, Locale locale, StringBuilder out, Object... values) {
+        NotificationTemplate item = templates(locale).get(type)[2];
+        if (item == null) {
+            throw new IllegalArgumentException(type + " has no item template");
+        }
+        item.renderTo(out, values);
+    }
+
+    private Map<NotificationType, NotificationTemplate[]> templates(Locale locale) {
+        return templatesByLocale.computeIfAbsent(locale == null ? DEFAULT_LOCALE : locale, this::compile);
+    }
+
+    private Map<NotificationType, NotificationTemplate[]> compile(Locale locale) {
+        ResourceBundle bundle = ResourceBundle.getBundle(bundleName, locale, NO_FALLBACK);
+        Map<NotificationType, NotificationTemplate[]> templates = new EnumMap<>(NotificationType.class);
+        for (NotificationType type : NotificationType.values()) {
+            try {
+                String[] itemParameters = type.getItemParameters();
+                templates.put(type, new NotificationTemplate[]{
+                        NotificationTemplate.compile(bundle.getString(type.getKey() + ".subject"), type.getParameters()),
+                        NotificationTemplate.compile(bundle.getString(type.getKey() + ".body"), type.getParameters()),
+                        itemParameters.length == 0 ? null
+                                : NotificationTemplate.compile(bundle.getString(type.getKey() + ".item"), itemParameters)
+                });
+            } catch (MissingResourceException e) {
+                throw new IllegalStateException("Missing template " + type.getKey() + " for locale " + locale, e);
+            }
+        }
+        return templates;
+    }
+}
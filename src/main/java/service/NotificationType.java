@@ -0,0 +1,34 @@
+package service;
+
+/**
+ * The kinds of notification, with the parameters their templates can use.
+ * Templates live in the {@code notifications/messages} resource bundle under {@code <key>.subject} and {@code <key>.body};
+ * notifications listing several items also have a {@code <key>.item} template, rendered once per item.
+ */
+public enum NotificationType {
+
+    RETURN_REMINDER("return_reminder", new String[0], "name", "title", "dueDate"),
+    LOAN_DIGEST("loan_digest", new String[]{"title", "dueDate"}, "name", "count", "loans");
+
+    private final String key;
+    private final String[] itemParameters;
+    private final String[] parameters;
+
+    NotificationType(String key, String[] itemParameters, String... parameters) {
+        this.key = key;
+        this.itemParameters = itemParameters;
+        this.parameters = parameters;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    String[] getParameters() {
+        return parameters.clone();
+    }
+
+    String[] getItemParameters() {
+        return itemParameters.clone();
+    }
+}
@@ -0,0 +1,126 @@
+package service;
+
+import entity.OutboxMessage;
+import repository.OutboxRepository;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class delivers the notifications of the outbox in the background.
+ * <p>
+ * Each run claims a batch of pending notifications, sends them and marks the delivered ones as sent. A failed send
+ * is retried with exponential backoff until {@link #MAX_ATTEMPTS} is reached, then abandoned. Several relays, on one
+ * node or many, can run against the same outbox: claimed rows are leased, so each notification goes to one relay.
+ * A relay that crashes between sending and marking a batch causes those notifications to be sent again once their
+ * lease expires, so delivery is at least once.
+ */
+public class OutboxRelay {
+
+    static final int MAX_ATTEMPTS = 5;
+    static final Duration INITIAL_BACKOFF = Duration.ofSeconds(30);
+    static final Duration MAX_BACKOFF = Duration.ofHours(1);
+
+    private final OutboxRepository outboxRepository;
+    private final EmailService emailService;
+    private final int batchSize;
+    private final Duration lease;
+
+    /**
+     * Constructs a new OutboxRelay.
+     *
+     * @param outboxRepository The repository of the outbox.
+     * @param emailService     The service sending the emails.
+     * @param batchSize        The number of notifications claimed per batch.
+     * @param lease            How long a claimed batch is hidden from other relays; longer than sending a batch takes.
+     */
+    public OutboxRelay(OutboxRepository outboxRepository, EmailService emailService, int batchSize, Duration lease) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater than zero");
+        }
+        if (lease == null || lease.isNegative() || lease.isZero()) {
+            throw new IllegalArgumentException("Lease must be greater than zero");
+        }
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.batchSize = batchSize;
+        this.lease = lease;
+    }
+
+    /**
+     * Claims and delivers one batch of notifications.
+     *
+     * @return The number of notifications claimed.
+     */
+    public int relayBatch() {
+        List<OutboxMessage> batch = outboxRepository.claimBatch(batchSize, lease);
+        long[] sent = new long[batch.size()];
+        int sentCount = 0;
+        for (OutboxMessage message : batch) {
+            if (send(message)) {
+                sent[sentCount++] = message.getId();
+            } else if (message.getAttempts() >= MAX_ATTEMPTS) {
+                outboxRepository.markAbandoned(message.getId());
+            } else {
+                outboxRepository.markFailed(message.getId(), backoff(message.getAttempts()));
+            }
+        }
+        if (sentCount > 0) {
+            outboxRepository.markSent(sentCount == sent.length ? sent : Arrays.copyOf(sent, sentCount));
+        }
+        return batch.size();
+    }
+
+    /**
+     * Claims and delivers batches until the outbox has no more pending notifications.
+     *
+     * @return The number of notifications claimed.
+     */
+    public int drain() {
+        int total = 0;
+        int claimed;
+        do {
+            claimed = relayBatch();
+            total += claimed;
+        } while (claimed == batchSize);
+        return total;
+    }
+
+    /**
+     * Drains the outbox periodically.
+     *
+     * @param executor The executor running the relay.
+     * @param interval The delay between the end of one run and the start of the next.
+     * @return The scheduled task, which can be used to cancel it.
+     */
+    public ScheduledFuture<?> schedule(ScheduledExecutorService executor, Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Relay interval must be greater than zero");
+        }
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                drain();
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // keep the schedule alive, the next run retries
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean send(OutboxMessage message) {
+        try {
+            return emailService.sendEmail(message.getRecipient(), message.getSubject(), message.getBody());
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    static Duration backoff(int attempts) {
+        Duration backoff = INITIAL_BACKOFF.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+    }
+}
@@ -0,0 +1,156 @@
+package service;
+
+import entity.OverdueLoan;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes overdue report rows to an output stream as they arrive.
+ * Only a fixed-size buffer is held in memory, whatever the number of rows.
+ */
+public class OverdueReportWriter implements Consumer<OverdueLoan> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Writer writer;
+    private final ReportFormat format;
+    private final LocalDate reportDate;
+    private final StringBuilder line = new StringBuilder(256);
+    private long rowCount;
+
+    /**
+     * Constructs a new OverdueReportWriter and writes the header, if the format has one.
+     *
+     * @param out        The stream receiving the report; it is not closed by this writer.
+     * @param format     The report format.
+     * @param reportDate The date the days overdue are counted up to.
+     */
+    public OverdueReportWriter(OutputStream out, ReportFormat format, LocalDate reportDate) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.format = format;
+        this.reportDate = reportDate;
+        if (format == ReportFormat.CSV) {
+            write("book_id,title,isbn,user_id,borrower_name,borrower_email,due_date,days_overdue\n");
+        }
+    }
+
+    /**
+     * Writes one report row.
+     *
+     * @param overdueLoan The overdue loan.
+     * @throws UncheckedIOException if the stream cannot be written.
+     */
+    @Override
+    public void accept(OverdueLoan overdueLoan) {
+        long daysOverdue = ChronoUnit.DAYS.between(overdueLoan.getExpectedReturnDate(), reportDate);
+        line.setLength(0);
+        if (format == ReportFormat.CSV) {
+            line.append(overdueLoan.getBookID()).append(',');
+            appendCsv(overdueLoan.getTitle()).append(',');
+            appendCsv(overdueLoan.getIsbn()).append(',');
+            line.append(overdueLoan.getUserID()).append(',');
+            appendCsv(overdueLoan.getBorrowerName()).append(',');
+            appendCsv(overdueLoan.getBorrowerEmail()).append(',');
+            line.append(overdueLoan.getExpectedReturnDate()).append(',');
+            line.append(daysOverdue).append('\n');
+        } else {
+            line.append("{\"book_id\":").append(overdueLoan.getBookID());
+            line.append(",\"title\":");
+            appendJson(overdueLoan.getTitle());
+            line.append(",\"isbn\":");
+            appendJson(overdueLoan.getIsbn());
+            line.append(",\"user_id\":").append(overdueLoan.getUserID());
+            line.append(",\"borrower_name\":");
+            appendJson(overdueLoan.getBorrowerName());
+            line.append(",\"borrower_email\":");
+            appendJson(overdueLoan.getBorrowerEmail());
+            line.append(",\"due_date\":\"").append(overdueLoan.getExpectedReturnDate()).append('"');
+            line.append(",\"days_overdue\":").append(daysOverdue).append("}\n");
+        }
+        write(line);
+        rowCount++;
+    }
+
+    /**
+     * Flushes the buffered rows to the stream.
+     *
+     * @throws UncheckedIOException if the stream cannot be written.
+     */
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of rows written.
+     *
+     * @return The number of rows, not counting the header.
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    private StringBuilder appendCsv(String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        return line.append('"');
+    }
+
+    private void appendJson(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    private void write(CharSequence text) {
+        try {
+            writer.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
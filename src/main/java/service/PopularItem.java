@@ -0,0 +1,49 @@
+package service;
+
+/**
+ * A book or an author in a popularity ranking, with its estimated number of loans.
+ */
+public final class PopularItem {
+
+    private final int bookId;
+    private final String name;
+    private final int loans;
+
+    public PopularItem(int bookId, String name, int loans) {
+        this.bookId = bookId;
+        this.name = name;
+        this.loans = loans;
+    }
+
+    /**
+     * Gets the ID of the book.
+     *
+     * @return The book ID, or 0 for an author.
+     */
+    public int getBookId() {
+        return bookId;
+    }
+
+    /**
+     * Gets the title of the book or the name of the author.
+     *
+     * @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the estimated number of loans in the window; it may exceed the true number slightly, never fall below it.
+     *
+     * @return The loans.
+     */
+    public int getLoans() {
+        return loans;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + loans + ")";
+    }
+}
@@ -0,0 +1,179 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+import repository.LoanRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * This class ranks the most loaned books and authors of the last day, week and month.
+ * <p>
+ * Loans are counted as they happen when this service is registered as a {@link LoanListener}, in count-min sketches
+ * of fixed size per day and per window, so memory does not grow with the catalog or the number of loans. Each window
+ * keeps its top books and authors sorted as loans arrive, which makes reading a ranking independent of the data size.
+ * Counts are estimates that may be slightly high for rarely loaned books, never low. {@link #rebuild()} replays the
+ * loan history of the last month up to today, for a fresh start or after the process was down.
+ */
+public class PopularityService implements LoanListener {
+
+    /**
+     * The largest ranking that can be asked for.
+     */
+    public static final int MAX_RANKED = 100;
+
+    private final LoanRepository loanRepository;
+    private final Supplier<LocalDate> today;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private PopularityTracker books = new PopularityTracker(MAX_RANKED);
+    private PopularityTracker authors = new PopularityTracker(MAX_RANKED);
+
+    /**
+     * Constructs a new PopularityService with empty rankings; call {@link #rebuild()} to load the history.
+     *
+     * @param loanRepository The LoanRepository instance providing the loan history.
+     */
+    public PopularityService(LoanRepository loanRepository) {
+        this(loanRepository, LocalDate::now);
+    }
+
+    PopularityService(LoanRepository loanRepository, Supplier<LocalDate> today) {
+        this.loanRepository = loanRepository;
+        this.today = today;
+    }
+
+    /**
+     * Replaces the rankings with ones counted from the loans of the last month, archived loans included.
+     *
+     * @return The number of loans counted.
+     */
+    public int rebuild() {
+        LocalDate now = today.get();
+        PopularityTracker rebuiltBooks = new PopularityTracker(MAX_RANKED);
+        PopularityTracker rebuiltAuthors = new PopularityTracker(MAX_RANKED);
+        rebuiltBooks.advanceTo(now.toEpochDay());
+        rebuiltAuthors.advanceTo(now.toEpochDay());
+        int[] count = new int[1];
+        boolean streamed = loanRepository.streamLoanEvents(now.minusDays(PopularityTracker.HISTORY_DAYS - 1), now, event -> {
+            long day = event.getLoanDate().toEpochDay();
+            rebuiltBooks.record(event.getBookID(), event.getTitle(), day);
+            rebuiltAuthors.record(authorKey(event.getAuthor()), event.getAuthor(), day);
+            count[0]++;
+        });
+        if (!streamed) {
+            throw new RuntimeException("Connection error");
+        }
+        lock.writeLock().lock();
+        try {
+            books = rebuiltBooks;
+            authors = rebuiltAuthors;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return count[0];
+    }
+
+    /**
+     * Counts a loan. A loan dated after today is counted today, so it cannot move the windows ahead of the clock.
+     *
+     * @param bookId   The ID of the loaned book.
+     * @param title    The title of the book.
+     * @param author   The author of the book.
+     * @param loanDate The date of the loan.
+     */
+    public void recordLoan(int bookId, String title, String author, LocalDate loanDate) {
+        long day = Math.min(loanDate.toEpochDay(), today.get().toEpochDay());
+        lock.writeLock().lock();
+        try {
+            books.record(bookId, title, day);
+            if (author != null) {
+                authors.record(authorKey(author), author, day);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void loanCreated(Loan loan, Book book) {
+        recordLoan(book.getId(), book.getTitle(), book.getAuthor(), loan.getLoanDate());
+    }
+
+    /**
+     * Gets the most loaned books of a window.
+     *
+     * @param window The window, ending today.
+     * @param limit  The maximum number of books, from 1 to {@link #MAX_RANKED}.
+     * @return The books, most loaned first.
+     */
+    public List<PopularItem> topBooks(PopularityWindow window, int limit) {
+        return top(window, limit, true);
+    }
+
+    /**
+     * Gets the most loaned authors of a window. Authors are matched ignoring case and accents.
+     *
+     * @param window The window, ending today.
+     * @param limit  The maximum number of authors, from 1 to {@link #MAX_RANKED}.
+     * @return The authors, most loaned first; their book ID is 0.
+     */
+    public List<PopularItem> topAuthors(PopularityWindow window, int limit) {
+        return top(window, limit, false);
+    }
+
+    private List<PopularItem> top(PopularityWindow window, int limit, boolean ofBooks) {
+        if (window == null) {
+            throw new IllegalArgumentException("Window cannot be null");
+        }
+        if (limit <= 0 || limit > MAX_RANKED) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_RANKED);
+        }
+        long now = today.get().toEpochDay();
+        lock.readLock().lock();
+        try {
+            if (books.getToday() >= now && authors.getToday() >= now) {
+                return ranking(ofBooks ? books : authors, window, limit, ofBooks);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock(); // first read of a new day: drop the days that left the windows
+        try {
+            books.advanceTo(now);
+            authors.advanceTo(now);
+            return ranking(ofBooks ? books : authors, window, limit, ofBooks);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static List<PopularItem> ranking(PopularityTracker tracker, PopularityWindow window, int limit,
+                                             boolean ofBooks) {
+        HeavyHitters top = tracker.top(window);
+        int size = Math.min(limit, top.rankedSize());
+        List<PopularItem> items = new ArrayList<>(size);
+        for (int rank = 0; rank < size; rank++) {
+            items.add(new PopularItem(ofBooks ? (int) top.rankedKey(rank) : 0, (String) top.rankedLabel(rank),
+                    top.rankedCount(rank)));
+        }
+        return items;
+    }
+
+    /**
+     * Hashes an author name to a 64-bit key, so authors are counted without keeping their names around.
+     */
+    private static long authorKey(String author) {
+        String normalized = AutocompleteIndex.normalize(author).trim();
+        long hash = 0xCBF29CE484222325L; // FNV-1a
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash == Long.MIN_VALUE ? 0 : hash; // Long.MIN_VALUE is reserved by LongIntHashMap
+    }
+}
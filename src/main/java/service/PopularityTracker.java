@@ -0,0 +1,119 @@
+package service;
+
+/**
+ * Counts events per key over the sliding windows of {@link PopularityWindow}, in fixed memory.
+ * <p>
+ * Each of the last {@link #HISTORY_DAYS} days has its own {@link CountMinSketch}, and each window keeps a running sketch
+ * equal to the sum of its days: an event is added to its day and to the windows covering that day, and when a day
+ * leaves a window its sketch is subtracted. Each window feeds a {@link HeavyHitters} tracker, so its top keys are read
+ * without scanning anything. Window candidates are rescored once per day change, when counts go down.
+ * This class is not thread-safe.
+ */
+class PopularityTracker {
+
+    static final int HISTORY_DAYS = 30;
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 4096;
+
+    private final CountMinSketch[] days = new CountMinSketch[HISTORY_DAYS];
+    private final CountMinSketch[] windows = new CountMinSketch[PopularityWindow.values().length];
+    private final HeavyHitters[] hitters = new HeavyHitters[PopularityWindow.values().length];
+    private long today = Long.MIN_VALUE;
+
+    /**
+     * Constructs an empty tracker.
+     *
+     * @param maxRanked The largest top-K that can be asked for.
+     */
+    PopularityTracker(int maxRanked) {
+        for (int day = 0; day < HISTORY_DAYS; day++) {
+            days[day] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        }
+        for (PopularityWindow window : PopularityWindow.values()) {
+            windows[window.ordinal()] = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+            hitters[window.ordinal()] = new HeavyHitters(maxRanked * 8, maxRanked);
+        }
+    }
+
+    /**
+     * Counts an event. Events older than the history are ignored; a later day moves the windows forward.
+     *
+     * @param key      The key, such as a book ID.
+     * @param label    The label returned with the key.
+     * @param epochDay The day of the event.
+     */
+    void record(long key, Object label, long epochDay) {
+        advanceTo(epochDay);
+        if (epochDay <= today - HISTORY_DAYS) {
+            return;
+        }
+        days[slot(epochDay)].add(key, 1);
+        for (PopularityWindow window : PopularityWindow.values()) {
+            if (epochDay > today - window.getDays()) {
+                CountMinSketch sketch = windows[window.ordinal()];
+                sketch.add(key, 1);
+                hitters[window.ordinal()].offer(key, sketch.estimate(key), label);
+            }
+        }
+    }
+
+    /**
+     * Moves the windows forward to end on a day, dropping the days that leave them.
+     *
+     * @param epochDay The new last day; earlier days are ignored. The first call sets the day.
+     */
+    void advanceTo(long epochDay) {
+        if (today == Long.MIN_VALUE) {
+            today = epochDay;
+            return;
+        }
+        if (epochDay <= today) {
+            return;
+        }
+        if (epochDay - today >= HISTORY_DAYS) {
+            for (CountMinSketch sketch : days) {
+                sketch.clear();
+            }
+            for (CountMinSketch sketch : windows) {
+                sketch.clear();
+            }
+        } else {
+            for (long day = today + 1; day <= epochDay; day++) {
+                for (PopularityWindow window : PopularityWindow.values()) {
+                    long leaving = day - window.getDays(); // still in the history: windows are at most HISTORY_DAYS long
+                    windows[window.ordinal()].merge(days[slot(leaving)], -1);
+                }
+                days[slot(day)].clear(); // the slot of the day leaving the history
+            }
+        }
+        today = epochDay;
+        for (PopularityWindow window : PopularityWindow.values()) {
+            CountMinSketch sketch = windows[window.ordinal()];
+            hitters[window.ordinal()].rescore(sketch::estimate);
+        }
+    }
+
+    /**
+     * Gets the top keys of a window, most counted first.
+     *
+     * @param window The window.
+     * @return The tracker of the window, to be read only.
+     */
+    HeavyHitters top(PopularityWindow window) {
+        return hitters[window.ordinal()];
+    }
+
+    /**
+     * Gets the last day of the windows.
+     *
+     * @return The epoch day, or {@link Long#MIN_VALUE} before the first event.
+     */
+    long getToday() {
+        return today;
+    }
+
+    private static int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) HISTORY_DAYS);
+    }
+}
@@ -0,0 +1,20 @@
+package service;
+
+/**
+ * The sliding windows over which loan popularity is ranked, in whole days ending today.
+ */
+public enum PopularityWindow {
+    DAY(1),
+    WEEK(7),
+    MONTH(30);
+
+    private final int days;
+
+    PopularityWindow(int days) {
+        this.days = days;
+    }
+
+    public int getDays() {
+        return days;
+    }
+}
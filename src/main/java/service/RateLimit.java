@@ -0,0 +1,32 @@
+package service;
+
+/**
+ * A token-bucket rate limit: a sustained rate of permits per second and a burst allowance.
+ */
+public final class RateLimit {
+
+    private final double permitsPerSecond;
+    private final int burst;
+
+    /**
+     * Constructs a new RateLimit.
+     *
+     * @param permitsPerSecond The sustained rate.
+     * @param burst            The number of permits that can be taken at once after an idle period.
+     */
+    public RateLimit(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least one");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
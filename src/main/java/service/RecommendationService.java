@@ -0,0 +1,148 @@
+package service;
+
+import entity.Loan;
+import repository.LoanRepository;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This class answers "patrons who borrowed this also borrowed" from a {@link CoBorrowingIndex} held in memory.
+ * <p>
+ * A rebuild streams every loan, archived ones included, grouped by user, and reduces each user to the set of distinct
+ * books they borrowed. Only the most recent {@link #MAX_BASKET_SIZE} books of a user are kept, since the pairs of a
+ * basket grow with the square of its size and a handful of very heavy readers would otherwise dominate the counts.
+ * The pairs are then counted in parallel on a fork/join pool, and the new index replaces the old one at once.
+ */
+public class RecommendationService {
+
+    /**
+     * The number of neighbors kept per book, and the largest limit accepted by {@link #alsoBorrowed}.
+     */
+    public static final int NEIGHBORS_PER_BOOK = 10;
+
+    /**
+     * The maximum number of distinct books counted per user.
+     */
+    static final int MAX_BASKET_SIZE = 200;
+
+    private final LoanRepository loanRepository;
+    private final ForkJoinPool pool;
+    private volatile CoBorrowingIndex index;
+
+    /**
+     * Constructs a new RecommendationService that counts on the common fork/join pool.
+     *
+     * @param loanRepository The LoanRepository instance providing the loan history.
+     */
+    public RecommendationService(LoanRepository loanRepository) {
+        this(loanRepository, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new RecommendationService with an empty index; call {@link #rebuild()} to load it.
+     *
+     * @param loanRepository The LoanRepository instance providing the loan history.
+     * @param pool           The pool counting the pairs of books.
+     */
+    public RecommendationService(LoanRepository loanRepository, ForkJoinPool pool) {
+        this.loanRepository = loanRepository;
+        this.pool = pool;
+        this.index = CoBorrowingIndex.build(new int[0], new int[]{0}, NEIGHBORS_PER_BOOK, pool);
+    }
+
+    /**
+     * Replaces the index with one built from the whole loan history.
+     *
+     * @return The number of books having recommendations.
+     */
+    public int rebuild() {
+        BasketCollector baskets = new BasketCollector();
+        if (!loanRepository.streamLoansByUser(baskets::accept)) {
+            throw new RuntimeException("Connection error");
+        }
+        baskets.flush();
+        CoBorrowingIndex rebuilt = CoBorrowingIndex.build(Arrays.copyOf(baskets.books, baskets.bookCount),
+                Arrays.copyOf(baskets.offsets, baskets.userCount + 1), NEIGHBORS_PER_BOOK, pool);
+        index = rebuilt;
+        return rebuilt.getBookCount();
+    }
+
+    /**
+     * Gets the books most often borrowed by the patrons who borrowed a book.
+     *
+     * @param bookId The ID of the book.
+     * @param limit  The maximum number of books, from 1 to {@link #NEIGHBORS_PER_BOOK}.
+     * @return The book IDs, most shared patrons first; empty if there is no recommendation.
+     */
+    public int[] alsoBorrowed(int bookId, int limit) {
+        if (bookId <= 0) {
+            throw new IllegalArgumentException("Book ID must be greater than zero");
+        }
+        if (limit <= 0 || limit > NEIGHBORS_PER_BOOK) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + NEIGHBORS_PER_BOOK);
+        }
+        return index.neighbors(bookId, limit);
+    }
+
+    /**
+     * Gets the number of books having recommendations.
+     *
+     * @return The number of books.
+     */
+    public int getBookCount() {
+        return index.getBookCount();
+    }
+
+    /**
+     * Turns loans grouped by user into baskets of distinct books, laid out one after the other.
+     */
+    private static final class BasketCollector {
+
+        private int[] books = new int[1024];
+        private int[] offsets = new int[256];
+        private int bookCount;
+        private int userCount;
+
+        private final int[] basket = new int[MAX_BASKET_SIZE];
+        private int basketSize;
+        private int currentUser = -1;
+
+        void accept(Loan loan) {
+            if (loan.getUserID() != currentUser) {
+                flush();
+                currentUser = loan.getUserID();
+            }
+            if (basketSize < MAX_BASKET_SIZE && !contains(loan.getBookID())) {
+                basket[basketSize++] = loan.getBookID(); // loans come most recent first
+            }
+        }
+
+        /**
+         * Ends the basket of the current user; users who borrowed a single book form no pair and are left out.
+         */
+        void flush() {
+            if (basketSize > 1) {
+                if (bookCount + basketSize > books.length) {
+                    books = Arrays.copyOf(books, Math.max(books.length * 2, bookCount + basketSize));
+                }
+                if (userCount + 2 > offsets.length) {
+                    offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                }
+                System.arraycopy(basket, 0, books, bookCount, basketSize);
+                bookCount += basketSize;
+                offsets[++userCount] = bookCount;
+            }
+            basketSize = 0;
+        }
+
+        private boolean contains(int bookId) {
+            for (int i = 0; i < basketSize; i++) {
+                if (basket[i] == bookId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
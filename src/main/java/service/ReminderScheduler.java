@@ -0,0 +1,316 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+import entity.OutboxMessage;
+import entity.User;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.OutboxRepository;
+import repository.UserRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class queues return reminders at fixed offsets before each loan's due date, such as 3 days, 1 day and the day itself.
+ * <p>
+ * Pending reminders are kept in memory, bucketed by firing time in a sorted map, and a single timer task is armed for
+ * the earliest bucket, so the database is not polled. When a bucket fires, its loans, users and books are read with one
+ * multi-get each, and reminders of loans returned or renewed in the meantime are dropped. Reminders are added to the
+ * outbox under a key made of the loan, its due date and the offset, so a reminder is queued at most once even after
+ * a restart or when several nodes run a scheduler. Reminders whose lookup or enqueue fails are retried a minute later.
+ * After a restart, {@link #rebuild()} reloads the open loans; a loan not yet overdue whose last reminder was missed
+ * while the scheduler was down receives it at once.
+ */
+public class ReminderScheduler {
+
+    private static final NotificationTemplates TEMPLATES = new NotificationTemplates();
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final LoanRepository loanRepository;
+    private final BookRepository bookRepository;
+    private final UserRepository userRepository;
+    private final OutboxRepository outboxRepository;
+    private final List<Period> offsets;
+    private final LocalTime sendTime;
+    private final ZoneId zone;
+    private final ScheduledExecutorService executor;
+    private final Clock clock;
+
+    private final TreeMap<Long, List<Reminder>> buckets = new TreeMap<>(); // keyed by firing time in epoch millis
+    private final Map<Integer, List<Reminder>> remindersByLoan = new HashMap<>();
+    private ScheduledFuture<?> wakeUp;
+    private long wakeUpAt = Long.MAX_VALUE;
+    private int pending;
+
+    /**
+     * Constructs a new ReminderScheduler.
+     *
+     * @param loanRepository   The LoanRepository instance to be used for loan operations.
+     * @param bookRepository   The BookRepository instance to be used for book operations.
+     * @param userRepository   The UserRepository instance to be used for user operations.
+     * @param outboxRepository The OutboxRepository instance receiving the reminders.
+     * @param offsets          How long before the due date each reminder goes out; {@link Period#ZERO} for the due date.
+     * @param sendTime         The local time of day reminders go out.
+     * @param zone             The time zone of the library.
+     * @param executor         The executor running the timer.
+     */
+    public ReminderScheduler(LoanRepository loanRepository, BookRepository bookRepository, UserRepository userRepository,
+                             OutboxRepository outboxRepository, List<Period> offsets, LocalTime sendTime, ZoneId zone,
+                             ScheduledExecutorService executor) {
+        this(loanRepository, bookRepository, userRepository, outboxRepository, offsets, sendTime, zone, executor,
+                Clock.system(zone));
+    }
+
+    ReminderScheduler(LoanRepository loanRepository, BookRepository bookRepository, UserRepository userRepository,
+                      OutboxRepository outboxRepository, List<Period> offsets, LocalTime sendTime, ZoneId zone,
+                      ScheduledExecutorService executor, Clock clock) {
+        if (offsets == null || offsets.isEmpty() || offsets.stream().anyMatch(Period::isNegative)) {
+            throw new IllegalArgumentException("Offsets cannot be empty or negative");
+        }
+        this.loanRepository = loanRepository;
+        this.bookRepository = bookRepository;
+        this.userRepository = userRepository;
+        this.outboxRepository = outboxRepository;
+        this.offsets = List.copyOf(offsets);
+        this.sendTime = sendTime;
+        this.zone = zone;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Replaces the pending reminders with those of the open loans in the database.
+     *
+     * @return The number of pending reminders.
+     * @throws RuntimeException if the open loans could not be read.
+     */
+    public int rebuild() {
+        synchronized (this) {
+            buckets.clear();
+            remindersByLoan.clear();
+            pending = 0;
+        }
+        if (!loanRepository.streamOpenLoans(this::schedule)) {
+            throw new RuntimeException("Connection error");
+        }
+        return getPendingCount();
+    }
+
+    /**
+     * Schedules the reminders of a loan, replacing any it already had, such as after a renewal.
+     *
+     * @param loan The loan; it must have an ID.
+     * @return The number of reminders scheduled.
+     */
+    public int schedule(Loan loan) {
+        if (loan.getId() <= 0) {
+            throw new IllegalArgumentException("Loan ID must be greater than zero");
+        }
+        cancel(loan.getId());
+        if (loan.getActualReturnDate() != null) {
+            return 0;
+        }
+
+        long now = clock.millis();
+        LocalDate today = LocalDate.now(clock);
+        List<Reminder> reminders = new ArrayList<>();
+        Reminder lastMissed = null;
+        for (Period offset : offsets) {
+            Reminder reminder = new Reminder(loan, offset, fireAt(loan.getExpectedReturnDate().minus(offset)));
+            if (reminder.fireAt > now) {
+                reminders.add(reminder);
+            } else if (lastMissed == null || reminder.fireAt > lastMissed.fireAt) {
+                lastMissed = reminder;
+            }
+        }
+        if (lastMissed != null && !loan.getExpectedReturnDate().isBefore(today)) {
+            reminders.add(lastMissed); // fires right away; earlier missed reminders are superseded by it
+        }
+
+        synchronized (this) {
+            for (Reminder reminder : reminders) {
+                add(reminder);
+            }
+            arm();
+        }
+        return reminders.size();
+    }
+
+    /**
+     * Drops the pending reminders of a loan, such as when it is returned.
+     *
+     * @param loanId The ID of the loan.
+     */
+    public synchronized void cancel(int loanId) {
+        List<Reminder> reminders = remindersByLoan.remove(loanId);
+        if (reminders == null) {
+            return;
+        }
+        for (Reminder reminder : reminders) {
+            List<Reminder> bucket = buckets.get(reminder.fireAt);
+            if (bucket != null && bucket.remove(reminder)) {
+                pending--;
+                if (bucket.isEmpty()) {
+                    buckets.remove(reminder.fireAt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of reminders waiting to fire.
+     *
+     * @return The pending reminders.
+     */
+    public synchronized int getPendingCount() {
+        return pending;
+    }
+
+    /**
+     * Queues the reminders whose time has come and re-arms the timer for the next bucket.
+     *
+     * @return The number of reminders added to the outbox.
+     */
+    int fireDue() {
+        List<Reminder> due = takeDue(clock.millis());
+        int queued = 0;
+        if (!due.isEmpty()) {
+            int[] loanIds = due.stream().mapToInt(reminder -> reminder.loanId).distinct().toArray();
+            Map<Integer, Loan> loans = loanRepository.findByIds(loanIds);
+            Map<Integer, User> users = userRepository.findByIds(due.stream().mapToInt(reminder -> reminder.userId).distinct().toArray());
+            Map<Integer, Book> books = bookRepository.findByIds(due.stream().mapToInt(reminder -> reminder.bookId).distinct().toArray());
+
+            List<Reminder> retries = new ArrayList<>();
+            if (loans == null || users == null || books == null) {
+                for (Reminder reminder : due) {
+                    retries.add(reminder.retryAt(clock.millis() + RETRY_DELAY_MILLIS)); // lookup failed, try again later
+                }
+                due = List.of();
+            }
+            for (Reminder reminder : due) {
+                Loan loan = loans.get(reminder.loanId);
+                User user = users.get(reminder.userId);
+                Book book = books.get(reminder.bookId);
+                if (loan == null || loan.getActualReturnDate() != null || !reminder.dueDate.equals(loan.getExpectedReturnDate())
+                        || user == null || book == null) {
+                    continue; // returned, renewed or deleted since it was scheduled
+                }
+                OutboxMessage message = TEMPLATES.render(NotificationType.RETURN_REMINDER, NotificationTemplates.DEFAULT_LOCALE,
+                        user.getEmail(), user.getName(), book.getTitle(), reminder.dueDate.toString());
+                if (outboxRepository.enqueueOnce(message, reminder.dedupKey())) {
+                    queued++;
+                } else {
+                    retries.add(reminder.retryAt(clock.millis() + RETRY_DELAY_MILLIS));
+                }
+            }
+            synchronized (this) {
+                retries.forEach(this::add);
+            }
+        }
+        synchronized (this) {
+            arm();
+        }
+        return queued;
+    }
+
+    private synchronized List<Reminder> takeDue(long now) {
+        List<Reminder> due = new ArrayList<>();
+        Iterator<Map.Entry<Long, List<Reminder>>> iterator = buckets.headMap(now, true).entrySet().iterator();
+        while (iterator.hasNext()) {
+            for (Reminder reminder : iterator.next().getValue()) {
+                due.add(reminder);
+                List<Reminder> ofLoan = remindersByLoan.get(reminder.loanId);
+                ofLoan.remove(reminder);
+                if (ofLoan.isEmpty()) {
+                    remindersByLoan.remove(reminder.loanId);
+                }
+            }
+            iterator.remove();
+        }
+        pending -= due.size();
+        return due;
+    }
+
+    private void add(Reminder reminder) {
+        buckets.computeIfAbsent(reminder.fireAt, fireAt -> new ArrayList<>()).add(reminder);
+        remindersByLoan.computeIfAbsent(reminder.loanId, loanId -> new ArrayList<>()).add(reminder);
+        pending++;
+    }
+
+    private void arm() {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        long next = buckets.firstKey();
+        if (wakeUp != null && !wakeUp.isDone() && wakeUpAt <= next) {
+            return; // the armed task fires first and re-arms after itself
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+        }
+        wakeUpAt = next;
+        wakeUp = executor.schedule(this::onWakeUp, Math.max(0, next - clock.millis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void onWakeUp() {
+        synchronized (this) {
+            wakeUp = null;
+            wakeUpAt = Long.MAX_VALUE;
+        }
+        try {
+            fireDue();
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // keep the timer alive; the reminders of this bucket come back with the next rebuild
+            synchronized (this) {
+                arm();
+            }
+        }
+    }
+
+    private long fireAt(LocalDate date) {
+        return date.atTime(sendTime).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private static final class Reminder {
+
+        final int loanId, bookId, userId;
+        final LocalDate dueDate;
+        final Period offset;
+        final long fireAt;
+
+        Reminder(Loan loan, Period offset, long fireAt) {
+            this(loan.getId(), loan.getBookID(), loan.getUserID(), loan.getExpectedReturnDate(), offset, fireAt);
+        }
+
+        private Reminder(int loanId, int bookId, int userId, LocalDate dueDate, Period offset, long fireAt) {
+            this.loanId = loanId;
+            this.bookId = bookId;
+            this.userId = userId;
+            this.dueDate = dueDate;
+            this.offset = offset;
+            this.fireAt = fireAt;
+        }
+
+        Reminder retryAt(long fireAt) {
+            return new Reminder(loanId, bookId, userId, dueDate, offset, fireAt);
+        }
+
+        String dedupKey() {
+            return "return_reminder:" + loanId + ":" + dueDate + ":" + offset;
+        }
+    }
+}
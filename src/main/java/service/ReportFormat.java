@@ -0,0 +1,15 @@
+package service;
+
+/**
+ * The output formats of streamed reports.
+ */
+public enum ReportFormat {
+    /**
+     * Comma-separated values with a header line.
+     */
+    CSV,
+    /**
+     * One JSON object per line.
+     */
+    JSON_LINES
+}
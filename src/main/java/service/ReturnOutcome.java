@@ -0,0 +1,23 @@
+package service;
+
+/**
+ * The outcome of returning one loan in a bulk return.
+ */
+public enum ReturnOutcome {
+    /**
+     * The loan was returned and its book is available again.
+     */
+    RETURNED,
+    /**
+     * The loan does not exist.
+     */
+    LOAN_NOT_FOUND,
+    /**
+     * The loan had already been returned.
+     */
+    ALREADY_RETURNED,
+    /**
+     * The loan could not be updated.
+     */
+    FAILED
+}
@@ -0,0 +1,41 @@
+package service;
+
+/**
+ * An autocomplete suggestion: a title or an author name, with the number of loans that ranks it.
+ */
+public final class Suggestion {
+
+    /**
+     * What a suggestion completes to.
+     */
+    public enum Kind {
+        TITLE, AUTHOR
+    }
+
+    private final String text;
+    private final Kind kind;
+    private final long popularity;
+
+    public Suggestion(String text, Kind kind, long popularity) {
+        this.text = text;
+        this.kind = kind;
+        this.popularity = popularity;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getPopularity() {
+        return popularity;
+    }
+
+    @Override
+    public String toString() {
+        return kind + ":" + text + " (" + popularity + ")";
+    }
+}
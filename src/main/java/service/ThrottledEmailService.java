@@ -0,0 +1,213 @@
+package service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * An email service that admits sends through rate limits and a concurrency bulkhead before passing them on.
+ * <p>
+ * Each send takes a token from the bucket of the recipient's domain and one from the global bucket, then a slot of
+ * the bulkhead, which caps the sends in flight. A caller that cannot be admitted waits up to its deadline and is then
+ * rejected: the send returns false without reaching the relay. A deadline of zero fails fast. Callers do not hold a
+ * bulkhead slot while they wait for a token, so a slow relay cannot also starve the rate-limited callers.
+ */
+public class ThrottledEmailService extends EmailService {
+
+    private final EmailService delegate;
+    private final TokenBucket globalBucket;
+    private final RateLimit defaultDomainLimit;
+    private final Map<String, RateLimit> domainLimits;
+    private final Map<String, TokenBucket> domainBuckets = new ConcurrentHashMap<>();
+    private final Semaphore bulkhead;
+    private final int maxConcurrentSends;
+    private final Duration defaultMaxWait;
+    private final LongSupplier nanoClock;
+    private final LongConsumer parker;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder bulkheadRejected = new LongAdder();
+
+    /**
+     * Constructs a new ThrottledEmailService.
+     *
+     * @param delegate           The service actually sending the emails.
+     * @param globalLimit        The limit on all sends together.
+     * @param defaultDomainLimit The limit on sends to a domain without a limit of its own.
+     * @param domainLimits       Limits for specific recipient domains, such as {@code gmail.com}.
+     * @param maxConcurrentSends The maximum number of sends in flight.
+     * @param defaultMaxWait     How long {@link #sendEmail(String, String, String)} waits for admission.
+     */
+    public ThrottledEmailService(EmailService delegate, RateLimit globalLimit, RateLimit defaultDomainLimit,
+                                 Map<String, RateLimit> domainLimits, int maxConcurrentSends, Duration defaultMaxWait) {
+        this(delegate, globalLimit, defaultDomainLimit, domainLimits, maxConcurrentSends, defaultMaxWait,
+                System::nanoTime, LockSupport::parkNanos);
+    }
+
+    ThrottledEmailService(EmailService delegate, RateLimit globalLimit, RateLimit defaultDomainLimit,
+                          Map<String, RateLimit> domainLimits, int maxConcurrentSends, Duration defaultMaxWait,
+                          LongSupplier nanoClock, LongConsumer parker) {
+        if (delegate == null || globalLimit == null || defaultDomainLimit == null || domainLimits == null) {
+            throw new IllegalArgumentException("Delegate and limits cannot be null");
+        }
+        if (maxConcurrentSends < 1) {
+            throw new IllegalArgumentException("At least one concurrent send is required");
+        }
+        this.delegate = delegate;
+        this.defaultDomainLimit = defaultDomainLimit;
+        this.domainLimits = new HashMap<>();
+        domainLimits.forEach((domain, limit) -> this.domainLimits.put(domain.toLowerCase(Locale.ROOT), limit));
+        this.maxConcurrentSends = maxConcurrentSends;
+        this.bulkhead = new Semaphore(maxConcurrentSends, true);
+        this.defaultMaxWait = requireWait(defaultMaxWait);
+        this.nanoClock = nanoClock;
+        this.parker = parker;
+        this.globalBucket = new TokenBucket(globalLimit, nanoClock.getAsLong());
+    }
+
+    /**
+     * Sends an email, waiting for admission up to the default deadline.
+     *
+     * @return true if the email was sent, false if it was rejected or the relay failed.
+     */
+    @Override
+    public boolean sendEmail(String to, String subject, String body) {
+        return sendEmail(to, subject, body, defaultMaxWait);
+    }
+
+    /**
+     * Sends an email, waiting for admission up to the given deadline.
+     *
+     * @param to      The recipient.
+     * @param subject The subject.
+     * @param body    The body.
+     * @param maxWait How long to wait for admission; {@link Duration#ZERO} fails fast.
+     * @return true if the email was sent, false if it was rejected or the relay failed.
+     */
+    public boolean sendEmail(String to, String subject, String body, Duration maxWait) {
+        long deadline = nanoClock.getAsLong() + requireWait(maxWait).toNanos();
+        TokenBucket domainBucket = domainBuckets.computeIfAbsent(domain(to), this::newDomainBucket);
+
+        waiting.incrementAndGet();
+        try {
+            if (!acquireToken(domainBucket, deadline)) {
+                rateLimited.increment();
+                return false;
+            }
+            if (!acquireSlot(deadline)) {
+                bulkheadRejected.increment();
+                return false;
+            }
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        try {
+            return delegate.sendEmail(to, subject, body);
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Gets the number of callers waiting for admission.
+     *
+     * @return The queue depth.
+     */
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    /**
+     * Gets the number of sends currently passed on to the relay.
+     *
+     * @return The sends in flight.
+     */
+    public int getInFlight() {
+        return maxConcurrentSends - bulkhead.availablePermits();
+    }
+
+    /**
+     * Gets the number of sends rejected because a rate limit was not met before the deadline.
+     *
+     * @return The rate-limited count.
+     */
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    /**
+     * Gets the number of sends rejected because the bulkhead stayed full until the deadline.
+     *
+     * @return The bulkhead rejection count.
+     */
+    public long getBulkheadRejectedCount() {
+        return bulkheadRejected.sum();
+    }
+
+    /**
+     * Gets the number of rejected sends.
+     *
+     * @return The rate-limited and bulkhead rejections together.
+     */
+    public long getRejectedCount() {
+        return getRateLimitedCount() + getBulkheadRejectedCount();
+    }
+
+    private boolean acquireToken(TokenBucket domainBucket, long deadline) {
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long wait = domainBucket.tryAcquire(now);
+            if (wait == 0) {
+                wait = globalBucket.tryAcquire(now);
+                if (wait == 0) {
+                    return true;
+                }
+                domainBucket.refund();
+            }
+            if (now + wait > deadline || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            parker.accept(wait);
+        }
+    }
+
+    private boolean acquireSlot(long deadline) {
+        long remaining = deadline - nanoClock.getAsLong();
+        if (remaining <= 0) {
+            return bulkhead.tryAcquire();
+        }
+        try {
+            return bulkhead.tryAcquire(remaining, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private TokenBucket newDomainBucket(String domain) {
+        return new TokenBucket(domainLimits.getOrDefault(domain, defaultDomainLimit), nanoClock.getAsLong());
+    }
+
+    static String domain(String address) {
+        int at = address == null ? -1 : address.lastIndexOf('@');
+        return at < 0 ? "" : address.substring(at + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static Duration requireWait(Duration maxWait) {
+        if (maxWait == null || maxWait.isNegative()) {
+            throw new IllegalArgumentException("Maximum wait cannot be negative");
+        }
+        return maxWait;
+    }
+}
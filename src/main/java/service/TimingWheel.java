@@ -0,0 +1,177 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A hierarchical timing wheel: timeouts in buckets of a fixed tick, with coarser wheels for far deadlines.
+ * <p>
+ * Level 0 has one bucket per tick for the next {@code 2^BITS} ticks, level 1 one bucket per {@code 2^BITS} ticks, and
+ * so on; levels are added as far deadlines need them. A timeout goes to the finest level whose range covers its
+ * deadline, and is moved down one level when the clock reaches its bucket, so it is touched a few times at most. Each
+ * bucket is a doubly linked list, which makes both scheduling and cancelling O(1) whatever the number of timeouts.
+ * Moving the clock costs O(1) per tick plus the timeouts that fire or move. This class is not thread-safe.
+ *
+ * @param <T> The type of the tasks.
+ */
+class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SIZE = 1 << BITS;
+    private static final int MASK = SIZE - 1;
+    private static final int MAX_LEVELS = (Long.SIZE + BITS - 1) / BITS;
+
+    private final long tickMillis;
+    private final List<Timeout<T>[]> levels = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * Constructs an empty wheel.
+     *
+     * @param tickMillis The resolution of the wheel; timeouts fire at most one tick late.
+     * @param nowMillis  The current time.
+     */
+    TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be greater than zero");
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task           The task.
+     * @param deadlineMillis When the task is due; a past deadline fires on the next tick.
+     * @return The handle cancelling the timeout.
+     */
+    Timeout<T> schedule(T task, long deadlineMillis) {
+        long tick = Math.max(currentTick + 1, (deadlineMillis + tickMillis - 1) / tickMillis); // never early
+        Timeout<T> timeout = new Timeout<>(task, tick);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a timeout that has not fired.
+     *
+     * @param timeout The handle returned by {@link #schedule}.
+     * @return true if it was pending, false if it already fired or was cancelled.
+     */
+    boolean cancel(Timeout<T> timeout) {
+        if (timeout.prev == null) {
+            return false;
+        }
+        timeout.unlink();
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the clock forward and collects the tasks that are due.
+     *
+     * @param nowMillis The current time.
+     * @return The due tasks, earliest deadline first.
+     */
+    List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            for (int level = levels.size() - 1; level > 0; level--) { // higher levels first, they may feed lower ones
+                if ((currentTick & ((1L << (level * BITS)) - 1)) == 0) {
+                    Timeout<T> head = levels.get(level)[(int) (currentTick >>> (level * BITS)) & MASK];
+                    for (Timeout<T> timeout = head.next; timeout != head; ) {
+                        Timeout<T> next = timeout.next;
+                        timeout.unlink();
+                        place(timeout);
+                        timeout = next;
+                    }
+                }
+            }
+            Timeout<T> head = bucket(0, currentTick);
+            for (Timeout<T> timeout = head.next; timeout != head; ) {
+                Timeout<T> next = timeout.next;
+                timeout.unlink();
+                size--;
+                due.add(timeout.task);
+                timeout = next;
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Gets the number of pending timeouts.
+     *
+     * @return The number of timeouts.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Puts a timeout in the finest level whose current range covers its tick: the level below the first one where
+     * the tick and the clock agree on all higher digits.
+     */
+    private void place(Timeout<T> timeout) {
+        int level = 0;
+        while (level < MAX_LEVELS - 1 && (timeout.tick >>> ((level + 1) * BITS)) != (currentTick >>> ((level + 1) * BITS))) {
+            level++;
+        }
+        timeout.linkBefore(bucket(level, timeout.tick));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Timeout<T> bucket(int level, long tick) {
+        while (levels.size() <= level) {
+            Timeout<T>[] buckets = new Timeout[SIZE];
+            for (int i = 0; i < SIZE; i++) {
+                buckets[i] = new Timeout<>(null, 0);
+                buckets[i].prev = buckets[i];
+                buckets[i].next = buckets[i];
+            }
+            levels.add(buckets);
+        }
+        return levels.get(level)[(int) (tick >>> (level * BITS)) & MASK];
+    }
+
+    /**
+     * A scheduled task, linked into the bucket of its tick; bucket heads are sentinels without a task.
+     *
+     * @param <T> The type of the task.
+     */
+    static final class Timeout<T> {
+
+        private final T task;
+        private final long tick;
+        private Timeout<T> prev;
+        private Timeout<T> next;
+
+        private Timeout(T task, long tick) {
+            this.task = task;
+            this.tick = tick;
+        }
+
+        T getTask() {
+            return task;
+        }
+
+        private void linkBefore(Timeout<T> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
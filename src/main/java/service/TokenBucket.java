@@ -0,0 +1,44 @@
+package service;
+
+/**
+ * A token bucket refilled lazily from a nanosecond clock. This class is thread-safe.
+ */
+class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefill;
+
+    TokenBucket(RateLimit limit, long now) {
+        this.permitsPerNano = limit.getPermitsPerSecond() / 1_000_000_000d;
+        this.capacity = limit.getBurst();
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    /**
+     * Takes one token if there is one.
+     *
+     * @param now The current clock reading, in nanoseconds.
+     * @return 0 if a token was taken, otherwise the nanoseconds until one will be available.
+     */
+    synchronized long tryAcquire(long now) {
+        if (now > lastRefill) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * permitsPerNano);
+            lastRefill = now;
+        }
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / permitsPerNano));
+    }
+
+    /**
+     * Gives back a token taken by a caller that was then turned away by another limit.
+     */
+    synchronized void refund() {
+        tokens = Math.min(capacity, tokens + 1);
+    }
+}
@@ -0,0 +1,148 @@
+package service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * An {@link InvalidationBus} that sends batches as UDP datagrams to a list of peers, one datagram per
+ * {@link #MAX_KEYS_PER_DATAGRAM} keys. Bound to the loopback address, it runs several nodes on one machine.
+ * <p>
+ * A datagram holds a magic number, the ID of the sending node, the number of keys and the keys. A daemon thread
+ * receives datagrams and hands their keys to the listeners; malformed datagrams are ignored. UDP does not
+ * retransmit, so a dropped datagram leaves its keys stale on that peer until its caches are refreshed.
+ */
+public class UdpInvalidationBus extends BatchingInvalidationBus {
+
+    /**
+     * The most keys sent in one datagram, which keeps datagrams at about 8 KB.
+     */
+    static final int MAX_KEYS_PER_DATAGRAM = 1024;
+
+    private static final int MAGIC = 0x4C49_4231; // "LIB1"
+    private static final int HEADER_BYTES = 4 + 8 + 4;
+
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> peers = new CopyOnWriteArrayList<>();
+    private final Thread receiver;
+
+    /**
+     * Constructs a bus listening on a loopback port.
+     *
+     * @param port     The port to receive on, or 0 for any free port.
+     * @param executor The executor running the delayed flushes.
+     * @param maxDelay How long a key may wait for others to join its batch.
+     * @param maxBatch The number of distinct keys that sends a batch at once.
+     */
+    public UdpInvalidationBus(int port, ScheduledExecutorService executor, Duration maxDelay, int maxBatch) {
+        this(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), executor, maxDelay, maxBatch);
+    }
+
+    /**
+     * Constructs a bus listening on an address.
+     *
+     * @param address  The address to receive on.
+     * @param executor The executor running the delayed flushes.
+     * @param maxDelay How long a key may wait for others to join its batch.
+     * @param maxBatch The number of distinct keys that sends a batch at once.
+     */
+    public UdpInvalidationBus(InetSocketAddress address, ScheduledExecutorService executor, Duration maxDelay,
+                              int maxBatch) {
+        super(executor, maxDelay, maxBatch);
+        try {
+            socket = new DatagramSocket(address);
+        } catch (SocketException e) {
+            throw new UncheckedIOException(e);
+        }
+        receiver = new Thread(this::receive, "invalidation-bus-" + socket.getLocalPort());
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    /**
+     * Adds a node to send batches to.
+     *
+     * @param peer The address the other node receives on.
+     */
+    public void addPeer(InetSocketAddress peer) {
+        peers.add(peer);
+    }
+
+    /**
+     * Gets the address this bus receives on, to be added as a peer of the other nodes.
+     *
+     * @return The address.
+     */
+    public InetSocketAddress getLocalAddress() {
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    @Override
+    void send(long sender, long[] keys) {
+        for (int start = 0; start < keys.length; start += MAX_KEYS_PER_DATAGRAM) {
+            int count = Math.min(MAX_KEYS_PER_DATAGRAM, keys.length - start);
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + count * 8);
+            buffer.putInt(MAGIC).putLong(sender).putInt(count);
+            for (int i = start; i < start + count; i++) {
+                buffer.putLong(keys[i]);
+            }
+            for (InetSocketAddress peer : peers) {
+                try {
+                    socket.send(new DatagramPacket(buffer.array(), buffer.position(), peer));
+                } catch (IOException e) {
+                    e.printStackTrace(); // the other peers still get the batch
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        socket.close(); // unblocks the receiver
+        try {
+            receiver.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void receive() {
+        byte[] data = new byte[HEADER_BYTES + MAX_KEYS_PER_DATAGRAM * 8];
+        long[] keys = new long[MAX_KEYS_PER_DATAGRAM];
+        DatagramPacket packet = new DatagramPacket(data, data.length);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(data.length);
+                socket.receive(packet);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    e.printStackTrace();
+                }
+                continue;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(data, 0, packet.getLength());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                continue;
+            }
+            long sender = buffer.getLong();
+            int count = buffer.getInt();
+            if (count < 0 || count > MAX_KEYS_PER_DATAGRAM || buffer.remaining() != count * 8) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                keys[i] = buffer.getLong();
+            }
+            deliver(sender, keys, count);
+        }
+    }
+}
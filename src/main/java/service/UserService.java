@@ -3,6 +3,8 @@ package service;
 import entity.User;
 import repository.UserRepository;
 
+import java.util.Map;
+
 /**
  * This class provides services for managing user operations.
  */
@@ -42,4 +44,24 @@ public class UserService {
         User newUser = new User(name, email);
         return userRepository.save(newUser);
     }
+
+    /**
+     * Finds several users by id with one query per chunk of ids, instead of one query per user.
+     *
+     * @param userIds The ids of the users.
+     * @return The users found, keyed by id.
+     */
+    public Map<Integer, User> findUsersByIds(int[] userIds) {
+        if (userIds == null) {
+            throw new IllegalArgumentException("User IDs cannot be null");
+        }
+        if (userIds.length == 0) {
+            return Map.of();
+        }
+        Map<Integer, User> users = userRepository.findByIds(userIds);
+        if (users == null) {
+            throw new RuntimeException("Connection error");
+        }
+        return users;
+    }
 }
@@ -0,0 +1,42 @@
+-- Baseline schema. IF NOT EXISTS lets databases created before the migrations were introduced adopt them.
+
+CREATE TABLE IF NOT EXISTS books (
+    id         SERIAL PRIMARY KEY,
+    title      TEXT        NOT NULL,
+    author     TEXT        NOT NULL,
+    isbn       TEXT        NOT NULL,
+    available  BOOLEAN     NOT NULL DEFAULT TRUE,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id    SERIAL PRIMARY KEY,
+    name  TEXT NOT NULL,
+    email TEXT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS loans (
+    id                   SERIAL PRIMARY KEY,
+    book_id              INTEGER NOT NULL REFERENCES books (id),
+    user_id              INTEGER NOT NULL REFERENCES users (id),
+    loan_date            DATE    NOT NULL,
+    expected_return_date DATE    NOT NULL,
+    actual_return_date   DATE
+);
+
+-- Same columns as loans, in the same order: LoanRepository.archiveReturnedLoans moves rows with INSERT ... SELECT *.
+CREATE TABLE IF NOT EXISTS loans_archive (
+    id                   INTEGER PRIMARY KEY,
+    book_id              INTEGER NOT NULL,
+    user_id              INTEGER NOT NULL,
+    loan_date            DATE    NOT NULL,
+    expected_return_date DATE    NOT NULL,
+    actual_return_date   DATE
+);
+
+CREATE TABLE IF NOT EXISTS reservations (
+    id               SERIAL PRIMARY KEY,
+    book_id          INTEGER NOT NULL REFERENCES books (id),
+    user_id          INTEGER NOT NULL REFERENCES users (id),
+    reservation_date DATE    NOT NULL
+);
@@ -0,0 +1,23 @@
+-- Indexes behind the hot lookups of the repositories.
+
+-- BookRepository.findByIsbn / findRepeatedIsbn; also enforces ISBN uniqueness.
+CREATE UNIQUE INDEX IF NOT EXISTS books_isbn_idx ON books (isbn);
+
+-- CatalogSnapshotService delta query (BookRepository.findUpdatedSince).
+-- A books table created before the migrations has no updated_at, and V1 leaves existing tables as they are.
+ALTER TABLE books ADD COLUMN IF NOT EXISTS updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+CREATE INDEX IF NOT EXISTS books_updated_at_idx ON books (updated_at);
+
+-- UserRepository.findByEmail; also enforces email uniqueness.
+CREATE UNIQUE INDEX IF NOT EXISTS users_email_idx ON users (email);
+
+-- LoanRepository.findByUserId.
+CREATE INDEX IF NOT EXISTS loans_user_id_idx ON loans (user_id);
+
+-- Overdue queries only look at open loans, which are a small part of the table.
+CREATE INDEX IF NOT EXISTS loans_open_due_date_idx ON loans (expected_return_date) WHERE actual_return_date IS NULL;
+
+-- LoanRepository.findArchivedByUserId pages by user, most recent first.
+CREATE INDEX IF NOT EXISTS loans_archive_user_id_loan_date_idx ON loans_archive (user_id, loan_date DESC);
+
+CREATE INDEX IF NOT EXISTS reservations_book_id_idx ON reservations (book_id);
@@ -0,0 +1,7 @@
+-- Trigram indexes let the '%term%' ILIKE searches of BookRepository.findByTitle / findByAuthor use an index.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS books_title_trgm_idx ON books USING gin (title gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS books_author_trgm_idx ON books USING gin (author gin_trgm_ops);
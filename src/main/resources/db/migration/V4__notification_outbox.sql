@@ -0,0 +1,15 @@
+-- Notifications written in the same transaction as the loan change and delivered later by OutboxRelay.
+CREATE TABLE outbox (
+    id           BIGSERIAL PRIMARY KEY,
+    recipient    TEXT        NOT NULL,
+    subject      TEXT        NOT NULL,
+    body         TEXT        NOT NULL,
+    attempts     INTEGER     NOT NULL DEFAULT 0,
+    available_at TIMESTAMPTZ NOT NULL DEFAULT now(), -- not claimable before; pushed forward by claims and retries
+    created_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+    sent_at      TIMESTAMPTZ,
+    failed_at    TIMESTAMPTZ                         -- set once the relay gives up
+);
+
+-- Only pending rows are scanned by the relay; delivered rows never enter the index.
+CREATE INDEX outbox_pending_idx ON outbox (available_at) WHERE sent_at IS NULL AND failed_at IS NULL;
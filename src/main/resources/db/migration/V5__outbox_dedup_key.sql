@@ -0,0 +1,5 @@
+-- Lets producers that may run twice, such as the reminder scheduler after a restart or on several nodes,
+-- enqueue a notification at most once. Rows without a key are never deduplicated.
+ALTER TABLE outbox ADD COLUMN dedup_key TEXT;
+
+CREATE UNIQUE INDEX outbox_dedup_key_idx ON outbox (dedup_key);
@@ -0,0 +1,31 @@
+-- ISBNs are stored as the 13 digits of their ISBN-13, the form BookService now normalizes them to before saving and
+-- searching. Only values IsbnCodec accepts are rewritten: ISBN-10s and 978/979 ISBN-13s, hyphens and spaces allowed,
+-- an ISBN-10 check digit of 'X' or 'x', and a correct check digit. Hyphens and spaces are dropped and ISBN-10s get
+-- the 978 prefix and a new check digit; anything else is left as it is. A book saved twice, once under each form,
+-- makes this fail on books_isbn_idx and must be merged first.
+WITH stripped AS (
+    SELECT id, isbn, upper(regexp_replace(isbn, '[- ]', '', 'g')) AS s
+    FROM books
+    WHERE isbn ~ '^[0-9X x-]+$'
+), valid AS (
+    SELECT id, isbn, s
+    FROM stripped
+    WHERE (s ~ '^97[89][0-9]{10}$'
+           AND (SELECT sum(substr(s, i, 1)::int * CASE WHEN i % 2 = 1 THEN 1 ELSE 3 END)
+                FROM generate_series(1, 13) AS i) % 10 = 0)
+       OR (s ~ '^[0-9]{9}[0-9X]$'
+           AND (SELECT sum(CASE WHEN substr(s, i, 1) = 'X' THEN 10 ELSE substr(s, i, 1)::int END * (11 - i))
+                FROM generate_series(1, 10) AS i) % 11 = 0)
+), normalized AS (
+    SELECT id, isbn, s AS normalized
+    FROM valid
+    WHERE length(s) = 13
+    UNION ALL
+    SELECT id, isbn, body || ((10 - (SELECT sum(substr(body, i, 1)::int * CASE WHEN i % 2 = 1 THEN 1 ELSE 3 END)
+                                     FROM generate_series(1, 12) AS i) % 10) % 10)::text
+    FROM (SELECT id, isbn, '978' || left(s, 9) AS body FROM valid WHERE length(s) = 10) AS ten
+)
+UPDATE books AS b
+SET isbn = n.normalized, updated_at = now()
+FROM normalized AS n
+WHERE b.id = n.id AND n.isbn <> n.normalized;
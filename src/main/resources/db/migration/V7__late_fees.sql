@@ -0,0 +1,14 @@
+-- Late fees, kept by FeeService. Fees are keyed by loan ID only, so they follow a loan into loans_archive.
+-- user_fees holds each user's total, so reading it is a primary key lookup rather than a sum over their loans.
+CREATE TABLE loan_fees (
+    loan_id    INTEGER     PRIMARY KEY,
+    user_id    INTEGER     NOT NULL,
+    fee_cents  BIGINT      NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE TABLE user_fees (
+    user_id           INTEGER     PRIMARY KEY,
+    outstanding_cents BIGINT      NOT NULL,
+    updated_at        TIMESTAMPTZ NOT NULL DEFAULT now()
+);
@@ -0,0 +1,8 @@
+-- Reservations wait in line for a book, then hold it for their user until a pickup deadline.
+-- status is WAITING, HELD, FULFILLED or EXPIRED. The partial indexes cover only the rows HoldService reads:
+-- the next waiting reservation of a book, and the active holds reloaded after a restart.
+ALTER TABLE reservations ADD COLUMN status TEXT NOT NULL DEFAULT 'WAITING';
+ALTER TABLE reservations ADD COLUMN hold_expires_at TIMESTAMPTZ;
+
+CREATE INDEX reservations_waiting_idx ON reservations (book_id, reservation_date, id) WHERE status = 'WAITING';
+CREATE INDEX reservations_held_idx ON reservations (hold_expires_at) WHERE status = 'HELD';
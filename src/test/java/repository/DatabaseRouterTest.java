@@ -0,0 +1,132 @@
+package repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the DatabaseRouter class.
+ */
+@ExtendWith(MockitoExtension.class)
+class DatabaseRouterTest {
+
+    @Mock
+    private DataSource primary;
+    @Mock
+    private DataSource replica1;
+    @Mock
+    private DataSource replica2;
+    @Mock
+    private Connection primaryConnection;
+    @Mock
+    private Connection replicaConnection1;
+    @Mock
+    private Connection replicaConnection2;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica1.getConnection()).thenReturn(replicaConnection1);
+        lenient().when(replica2.getConnection()).thenReturn(replicaConnection2);
+    }
+
+    private DatabaseRouter router(DatabaseRouter.Strategy strategy) {
+        return new DatabaseRouter(primary, List.of(replica1, replica2), strategy, Duration.ofSeconds(5), clock::get);
+    }
+
+    /**
+     * Tests that reads alternate between the replicas.
+     */
+    @Test
+    void testRead_RoundRobin() throws SQLException {
+        DatabaseRouter router = router(DatabaseRouter.Strategy.ROUND_ROBIN);
+
+        try (LeasedConnection first = router.read(); LeasedConnection second = router.read(); LeasedConnection third = router.read()) {
+            Assertions.assertSame(replicaConnection1, first.get());
+            Assertions.assertSame(replicaConnection2, second.get());
+            Assertions.assertSame(replicaConnection1, third.get());
+        }
+        verify(primary, never()).getConnection();
+    }
+
+    /**
+     * Tests that reads go to the replica with the fewest connections in use, and that releasing a lease counts.
+     */
+    @Test
+    void testRead_LeastLoaded() throws SQLException {
+        DatabaseRouter router = router(DatabaseRouter.Strategy.LEAST_LOADED);
+
+        LeasedConnection first = router.read();
+        LeasedConnection second = router.read();
+        Assertions.assertSame(replicaConnection1, first.get());
+        Assertions.assertSame(replicaConnection2, second.get());
+
+        first.close();
+        Assertions.assertEquals(0, router.getConnectionsInUse(0));
+        try (LeasedConnection third = router.read()) {
+            Assertions.assertSame(replicaConnection1, third.get());
+        }
+        second.close();
+        verify(replicaConnection1, times(2)).close();
+    }
+
+    /**
+     * Tests that a user reads from the primary during the read-your-writes window only.
+     */
+    @Test
+    void testRead_ReadYourWrites() throws SQLException {
+        DatabaseRouter router = router(DatabaseRouter.Strategy.ROUND_ROBIN);
+        router.recordWrite(7);
+
+        clock.set(Duration.ofSeconds(4).toNanos());
+        try (LeasedConnection ownRead = router.read(7); LeasedConnection otherRead = router.read(8)) {
+            Assertions.assertSame(primaryConnection, ownRead.get());
+            Assertions.assertSame(replicaConnection1, otherRead.get());
+        }
+
+        clock.set(Duration.ofSeconds(6).toNanos());
+        try (LeasedConnection laterRead = router.read(7)) {
+            Assertions.assertSame(replicaConnection2, laterRead.get());
+        }
+    }
+
+    /**
+     * Tests that an unreachable replica falls back to the primary.
+     */
+    @Test
+    void testRead_ReplicaDown() throws SQLException {
+        DatabaseRouter router = router(DatabaseRouter.Strategy.ROUND_ROBIN);
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        try (LeasedConnection read = router.read()) {
+            Assertions.assertSame(primaryConnection, read.get());
+        }
+        Assertions.assertEquals(0, router.getConnectionsInUse(0));
+    }
+
+    /**
+     * Tests that without replicas every read goes to the primary.
+     */
+    @Test
+    void testRead_NoReplicas() throws SQLException {
+        DatabaseRouter router = new DatabaseRouter(primary, List.of(), DatabaseRouter.Strategy.LEAST_LOADED, Duration.ZERO);
+
+        try (LeasedConnection read = router.read()) {
+            Assertions.assertSame(primaryConnection, read.get());
+        }
+    }
+}
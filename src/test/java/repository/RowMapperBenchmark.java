@@ -0,0 +1,92 @@
+package repository;
+
+import entity.Book;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the name-based Book mapping the repositories used to inline with {@link BookRowMapper}.
+ * Rows come from an in-memory {@link CachedRowSet}, so the numbers measure mapping cost only, not I/O.
+ * Not run by the test suite; run the main method. The optional first argument is the number of rows.
+ */
+public class RowMapperBenchmark {
+
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        CachedRowSet resultSet = books(rows);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long byName = time(resultSet, RowMapperBenchmark::mapByName);
+            long byIndex = time(resultSet, rs -> RowMapper.mapAll(rs, BookRowMapper.FACTORY));
+            if (round >= ROUNDS / 2) { // the first rounds are warm-up
+                System.out.printf("round %2d: by name %6.1f ns/row, by index %6.1f ns/row%n",
+                        round, (double) byName / rows, (double) byIndex / rows);
+            }
+        }
+    }
+
+    private interface Mapping {
+        List<Book> map(ResultSet resultSet) throws SQLException;
+    }
+
+    private static long time(CachedRowSet resultSet, Mapping mapping) throws SQLException {
+        resultSet.beforeFirst();
+        long start = System.nanoTime();
+        List<Book> books = mapping.map(resultSet);
+        long elapsed = System.nanoTime() - start;
+        if (books.size() != resultSet.size()) {
+            throw new IllegalStateException("Unexpected row count");
+        }
+        return elapsed;
+    }
+
+    private static List<Book> mapByName(ResultSet resultSet) throws SQLException {
+        List<Book> books = new ArrayList<>();
+        while (resultSet.next()) {
+            books.add(new Book(
+                    resultSet.getInt("id"),
+                    resultSet.getString("title"),
+                    resultSet.getString("author"),
+                    resultSet.getString("isbn"),
+                    resultSet.getBoolean("available")
+            ));
+        }
+        return books;
+    }
+
+    private static CachedRowSet books(int rows) throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(6);
+        String[] names = {"id", "title", "author", "isbn", "available", "updated_at"};
+        int[] types = {Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN, Types.TIMESTAMP};
+        for (int i = 0; i < names.length; i++) {
+            metaData.setColumnName(i + 1, names[i]);
+            metaData.setColumnLabel(i + 1, names[i]);
+            metaData.setColumnType(i + 1, types[i]);
+        }
+
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        for (int id = 1; id <= rows; id++) {
+            rowSet.moveToInsertRow();
+            rowSet.updateInt(1, id);
+            rowSet.updateString(2, "Title " + id);
+            rowSet.updateString(3, "Author " + id % 1000);
+            rowSet.updateString(4, String.format("978%010d", id));
+            rowSet.updateBoolean(5, id % 2 == 0);
+            rowSet.updateNull(6);
+            rowSet.insertRow();
+        }
+        rowSet.moveToCurrentRow();
+        return rowSet;
+    }
+}
@@ -0,0 +1,149 @@
+package repository;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Migration tests against a throwaway PostgreSQL started in a container for this class, so no existing database is
+ * touched. The tests are skipped when Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SchemaMigratorTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private Connection connection;
+
+    @BeforeAll
+    void setUp() throws SQLException {
+        connection = DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Assertions.assertEquals(SchemaMigrator.MIGRATIONS.size(), new SchemaMigrator(connection).migrate());
+        seed();
+    }
+
+    @AfterAll
+    void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Tests that running the migrations again applies nothing.
+     */
+    @Test
+    void testMigrate_Idempotent() {
+        SchemaMigrator migrator = new SchemaMigrator(connection);
+
+        Assertions.assertEquals(0, migrator.migrate());
+        Assertions.assertEquals(SchemaMigrator.version(SchemaMigrator.MIGRATIONS.get(SchemaMigrator.MIGRATIONS.size() - 1)),
+                migrator.currentVersion());
+    }
+
+    /**
+     * Tests that a database created before the migrations, whose books table has no updated_at, adopts them, and that
+     * only valid ISBNs are normalized. It is built in its own schema so the seeded public schema is left alone.
+     */
+    @Test
+    void testMigrate_AdoptsPreMigrationSchema() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS legacy CASCADE");
+            statement.execute("CREATE SCHEMA legacy");
+            statement.execute("SET search_path TO legacy, public"); // public still provides pg_trgm
+            try {
+                statement.execute("CREATE TABLE books (id SERIAL PRIMARY KEY, title TEXT NOT NULL, author TEXT NOT NULL, " +
+                        "isbn TEXT NOT NULL, available BOOLEAN NOT NULL DEFAULT TRUE)");
+                statement.execute("CREATE TABLE users (id SERIAL PRIMARY KEY, name TEXT NOT NULL, email TEXT NOT NULL)");
+                statement.execute("INSERT INTO books (title, author, isbn) VALUES ('Rayuela', 'Julio Cortázar', '978-84-376-0457-2'), " +
+                        "('Harry Potter', 'J.K. Rowling', '043942089x'), ('Wrong check digit', 'Anonymous', '0-439-42089-1'), " +
+                        "('Shelf mark', 'Anonymous', '12-34 5')");
+
+                Assertions.assertEquals(SchemaMigrator.MIGRATIONS.size(), new SchemaMigrator(connection).migrate());
+                ResultSet resultSet = statement.executeQuery("SELECT isbn, updated_at FROM books ORDER BY id");
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals("9788437604572", resultSet.getString(1));
+                Assertions.assertNotNull(resultSet.getTimestamp(2));
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals("9780439420891", resultSet.getString(1));
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals("0-439-42089-1", resultSet.getString(1)); // not an ISBN, left as it is
+                Assertions.assertTrue(resultSet.next());
+                Assertions.assertEquals("12-34 5", resultSet.getString(1));
+            } finally {
+                statement.execute("SET search_path TO public");
+                statement.execute("DROP SCHEMA legacy CASCADE");
+            }
+        }
+    }
+
+    @Test
+    void testFindByIsbn_UsesIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM books WHERE isbn = '9780000000042'", "books_isbn_idx");
+    }
+
+    @Test
+    void testFindByEmail_UsesIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM users WHERE email = 'user42@example.com'", "users_email_idx");
+    }
+
+    @Test
+    void testFindByUserId_UsesIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM loans WHERE user_id = 42", "loans_user_id_idx");
+    }
+
+    @Test
+    void testFindOverdueBooks_UsesPartialIndex() throws SQLException {
+        assertUsesIndex("SELECT b.* FROM books b JOIN loans l ON b.id = l.book_id " +
+                "WHERE l.actual_return_date IS NULL AND l.expected_return_date < DATE '2023-02-01'", "loans_open_due_date_idx");
+    }
+
+    @Test
+    void testFindByTitle_UsesTrigramIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM books WHERE title ILIKE '%tle 12345%'", "books_title_trgm_idx");
+    }
+
+    @Test
+    void testFindByAuthor_UsesTrigramIndex() throws SQLException {
+        assertUsesIndex("SELECT * FROM books WHERE author ILIKE '%thor 477%'", "books_author_trgm_idx");
+    }
+
+    private void seed() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("INSERT INTO books (title, author, isbn, available) " +
+                    "SELECT 'Title ' || i, 'Author ' || (i % 500), '978' || lpad(i::text, 10, '0'), i % 10 <> 0 " +
+                    "FROM generate_series(1, 20000) i");
+            statement.execute("INSERT INTO users (name, email) " +
+                    "SELECT 'User ' || i, 'user' || i || '@example.com' FROM generate_series(1, 2000) i");
+            statement.execute("INSERT INTO loans (book_id, user_id, loan_date, expected_return_date, actual_return_date) " +
+                    "SELECT 1 + i % 20000, 1 + i % 2000, DATE '2023-01-01' + i % 365, DATE '2023-01-15' + i % 365, " +
+                    "CASE WHEN i % 20 = 0 THEN NULL ELSE DATE '2023-01-10' + i % 365 END " +
+                    "FROM generate_series(1, 40000) i");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    private void assertUsesIndex(String query, String index) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement()) {
+            ResultSet resultSet = statement.executeQuery("EXPLAIN " + query);
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+        }
+        Assertions.assertTrue(plan.toString().contains(index), "Expected " + index + " in plan:\n" + plan);
+    }
+}
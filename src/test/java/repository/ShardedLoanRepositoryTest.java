@@ -0,0 +1,355 @@
+package repository;
+
+import entity.Book;
+import entity.Loan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ShardedLoanRepository class.
+ */
+@ExtendWith(MockitoExtension.class)
+class ShardedLoanRepositoryTest {
+
+    @Mock
+    private JdbcLoanRepository shard0;
+    @Mock
+    private JdbcLoanRepository shard1;
+    @Mock
+    private JdbcLoanRepository shard2;
+    @Mock
+    private BookRepository catalog;
+
+    private ExecutorService executor;
+    private ShardedLoanRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(3);
+        repository = new ShardedLoanRepository(List.of(shard0, shard1, shard2), catalog, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private JdbcLoanRepository shard(int index) {
+        return List.of(shard0, shard1, shard2).get(index);
+    }
+
+    /**
+     * Tests that a loan is saved on the shard of its user, and that the user's loans are read from that shard.
+     */
+    @Test
+    void testSaveLoan_RoutesByUser() {
+        // Arrange
+        Loan loan = new Loan(10, 42, LocalDate.now(), LocalDate.now().plusDays(14));
+        JdbcLoanRepository home = shard(Shards.ofUser(42, 3));
+        when(home.saveLoan(loan)).thenReturn(true);
+        when(home.findByUserId(42)).thenReturn(List.of(loan));
+
+        // Act
+        boolean saved = repository.saveLoan(loan);
+        List<Loan> loans = repository.findByUserId(42);
+
+        // Assert
+        Assertions.assertTrue(saved);
+        Assertions.assertEquals(List.of(loan), loans);
+        for (JdbcLoanRepository other : List.of(shard0, shard1, shard2)) {
+            if (other != home) {
+                verifyNoInteractions(other);
+            }
+        }
+    }
+
+    /**
+     * Tests that consecutive user IDs are spread across all shards.
+     */
+    @Test
+    void testOfUser_SpreadsUsers() {
+        int[] counts = new int[3];
+        for (int userId = 1; userId <= 3000; userId++) {
+            counts[Shards.ofUser(userId, 3)]++;
+        }
+
+        for (int count : counts) {
+            Assertions.assertTrue(count > 800, "Unbalanced shards: " + count);
+        }
+    }
+
+    /**
+     * Tests that loans are found by ID on the shard encoded in the ID, in one query per shard.
+     */
+    @Test
+    void testFindByIds_GroupsByShard() {
+        // Arrange
+        Loan loan3 = new Loan(3, 1, 1, LocalDate.now(), LocalDate.now(), null);
+        Loan loan4 = new Loan(4, 1, 2, LocalDate.now(), LocalDate.now(), null);
+        Loan loan6 = new Loan(6, 1, 3, LocalDate.now(), LocalDate.now(), null);
+        when(shard0.findByIds(aryEq(new int[]{3, 6}))).thenReturn(Map.of(3, loan3, 6, loan6));
+        when(shard1.findByIds(aryEq(new int[]{4}))).thenReturn(Map.of(4, loan4));
+
+        // Act
+        Map<Integer, Loan> loans = repository.findByIds(new int[]{3, 4, 6});
+
+        // Assert
+        Assertions.assertEquals(Map.of(3, loan3, 4, loan4, 6, loan6), loans);
+        verifyNoInteractions(shard2);
+    }
+
+    /**
+     * Tests that a shard failing its query fails the whole lookup rather than hiding its loans.
+     */
+    @Test
+    void testFindByIds_ShardFailed() {
+        // Arrange
+        Loan loan3 = new Loan(3, 1, 1, LocalDate.now(), LocalDate.now(), null);
+        when(shard0.findByIds(aryEq(new int[]{3}))).thenReturn(Map.of(3, loan3));
+        when(shard1.findByIds(aryEq(new int[]{4}))).thenReturn(null);
+
+        // Act
+        Map<Integer, Loan> loans = repository.findByIds(new int[]{3, 4});
+
+        // Assert
+        Assertions.assertNull(loans);
+    }
+
+    /**
+     * Tests that a loan missing from the shard its ID points to, such as one saved before the sequences were aligned,
+     * is found on another shard.
+     */
+    @Test
+    void testFindById_FallsBackToOtherShards() {
+        // Arrange
+        Loan loan7 = new Loan(7, 1, 1, LocalDate.now(), LocalDate.now(), null);
+        when(shard1.findById(7)).thenReturn(null);
+        when(shard0.findById(7)).thenReturn(null);
+        when(shard2.findById(7)).thenReturn(loan7);
+        when(shard0.findByIds(aryEq(new int[]{7}))).thenReturn(Map.of());
+        when(shard2.findByIds(aryEq(new int[]{7}))).thenReturn(Map.of(7, loan7));
+
+        // Act
+        Loan found = repository.findById(7);
+        Map<Integer, Loan> foundByIds = repository.findByIds(new int[]{7});
+
+        // Assert
+        Assertions.assertSame(loan7, found);
+        Assertions.assertEquals(Map.of(7, loan7), foundByIds);
+    }
+
+    /**
+     * Tests that each shard's loan sequence is aligned with its own index.
+     */
+    @Test
+    void testAlignLoanSequences() {
+        // Arrange
+        when(shard0.alignLoanSequence(0, 3)).thenReturn(true);
+        when(shard1.alignLoanSequence(1, 3)).thenReturn(true);
+        when(shard2.alignLoanSequence(2, 3)).thenReturn(false);
+
+        // Act & Assert
+        Assertions.assertFalse(repository.alignLoanSequences());
+        verify(shard2, times(1)).alignLoanSequence(2, 3);
+    }
+
+    /**
+     * Tests that the overdue books of all shards are merged.
+     */
+    @Test
+    void testFindOverdueBooks_MergesShards() {
+        // Arrange
+        Date date = Date.valueOf(LocalDate.now());
+        Book book1 = new Book(1, "Title 1", "Author", "1111111111111", false);
+        Book book2 = new Book(2, "Title 2", "Author", "2222222222222", false);
+        when(shard0.findOverdueBooks(date)).thenReturn(List.of(book1));
+        when(shard1.findOverdueBooks(date)).thenReturn(new ArrayList<>());
+        when(shard2.findOverdueBooks(date)).thenReturn(List.of(book2));
+
+        // Act
+        List<Book> books = repository.findOverdueBooks(date);
+
+        // Assert
+        Assertions.assertEquals(List.of(book1, book2), books);
+    }
+
+    /**
+     * Tests that the loan counts of all shards are summed, and that a failing shard fails the count.
+     */
+    @Test
+    void testCountLoans() {
+        // Arrange
+        when(shard0.countLoans()).thenReturn(5);
+        when(shard1.countLoans()).thenReturn(7);
+        when(shard2.countLoans()).thenReturn(1, -1);
+
+        // Act & Assert
+        Assertions.assertEquals(13, repository.countLoans());
+        Assertions.assertEquals(-1, repository.countLoans());
+    }
+
+    /**
+     * Tests that streaming stops at the first failing shard.
+     */
+    @Test
+    void testStreamLoans_StopsOnFailure() {
+        // Arrange
+        when(shard0.streamLoans(any())).thenReturn(true);
+        when(shard1.streamLoans(any())).thenReturn(false);
+
+        // Act
+        boolean streamed = repository.streamLoans(loan -> { });
+
+        // Assert
+        Assertions.assertFalse(streamed);
+        verifyNoInteractions(shard2);
+    }
+
+    /**
+     * Tests that multi-book checkout claims the books in the catalog, then saves the loans on the user's shard.
+     */
+    @Test
+    void testLoanBooks_ClaimsThenSavesOnUserShard() {
+        // Arrange
+        LocalDate loanDate = LocalDate.now();
+        JdbcLoanRepository home = shard(Shards.ofUser(42, 3));
+        List<Loan> saved = List.of(new Loan(1, 42, loanDate, loanDate.plusDays(14)), new Loan(3, 42, loanDate, loanDate.plusDays(14)));
+        when(catalog.claimBooks(aryEq(new int[]{1, 2, 3}))).thenReturn(new LinkedHashSet<>(List.of(1, 3)));
+        when(home.saveLoans(42, Set.of(1, 3), loanDate, loanDate.plusDays(14), Map.of())).thenReturn(saved);
+
+        // Act
+        List<Loan> loaned = repository.loanBooks(42, new int[]{1, 2, 3}, loanDate, loanDate.plusDays(14), Map.of());
+
+        // Assert
+        Assertions.assertEquals(saved, loaned);
+        verify(catalog, never()).releaseBooks(any());
+    }
+
+    /**
+     * Tests that claimed books are released again when the loans cannot be saved on the shard.
+     */
+    @Test
+    void testLoanBooks_ReleasesBooksWhenShardFails() {
+        // Arrange
+        LocalDate loanDate = LocalDate.now();
+        JdbcLoanRepository home = shard(Shards.ofUser(42, 3));
+        when(catalog.claimBooks(aryEq(new int[]{1, 2}))).thenReturn(new LinkedHashSet<>(List.of(1, 2)));
+        when(home.saveLoans(anyInt(), any(), any(), any(), any())).thenReturn(null);
+
+        // Act
+        List<Loan> loaned = repository.loanBooks(42, new int[]{1, 2}, loanDate, loanDate.plusDays(14), Map.of());
+
+        // Assert
+        Assertions.assertNull(loaned);
+        verify(catalog, times(1)).releaseBooks(Set.of(1, 2));
+    }
+
+    /**
+     * Tests that a bulk return closes the loans on their shards, then releases only the books of the closed loans.
+     */
+    @Test
+    void testReturnLoans_ClosesThenReleasesBooks() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        when(shard0.closeLoans(List.of(3), today)).thenReturn(Set.of(3));
+        when(shard1.closeLoans(List.of(4), today)).thenReturn(Set.of()); // returned already
+        when(catalog.releaseBooks(List.of(30))).thenReturn(true);
+        Map<Integer, Integer> bookIdsByLoanId = new LinkedHashMap<>();
+        bookIdsByLoanId.put(4, 40);
+        bookIdsByLoanId.put(3, 30);
+
+        // Act
+        Set<Integer> returned = repository.returnLoans(bookIdsByLoanId, today);
+
+        // Assert
+        Assertions.assertEquals(Set.of(3), returned);
+        verify(shard0, never()).reopenLoans(any(), any());
+    }
+
+    /**
+     * Tests that books are offered to the holds once their loans are closed, and held books are left unavailable.
+     */
+    @Test
+    void testReturnLoans_KeepsHeldBooks() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        List<Integer> offered = new ArrayList<>();
+        when(shard0.closeLoans(List.of(3), today)).thenReturn(Set.of(3));
+
+        // Act
+        Set<Integer> returned = repository.returnLoans(Map.of(3, 30), today, bookId -> {
+            verify(shard0).closeLoans(List.of(3), today);
+            return offered.add(bookId);
+        });
+
+        // Assert
+        Assertions.assertEquals(Set.of(3), returned);
+        Assertions.assertEquals(List.of(30), offered);
+        verify(catalog, never()).releaseBooks(any());
+    }
+
+    /**
+     * Tests that a loan whose book cannot be offered to the holds is opened again, and the others are returned.
+     */
+    @Test
+    void testReturnLoans_ReopensWhenHoldFails() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        when(shard0.closeLoans(List.of(3, 6), today)).thenReturn(Set.of(3, 6));
+        when(catalog.releaseBooks(List.of(60))).thenReturn(true);
+        Map<Integer, Integer> bookIdsByLoanId = new LinkedHashMap<>();
+        bookIdsByLoanId.put(3, 30);
+        bookIdsByLoanId.put(6, 60);
+
+        // Act
+        Set<Integer> returned = repository.returnLoans(bookIdsByLoanId, today, bookId -> {
+            if (bookId == 30) {
+                throw new RuntimeException("Connection error");
+            }
+            return false;
+        });
+
+        // Assert
+        Assertions.assertEquals(Set.of(6), returned);
+        verify(shard0, times(1)).reopenLoans(List.of(3), today);
+    }
+
+    /**
+     * Tests that closed loans are opened again when their books cannot be released.
+     */
+    @Test
+    void testReturnLoans_ReopensWhenCatalogFails() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        when(shard0.closeLoans(List.of(3), today)).thenReturn(Set.of(3));
+        when(catalog.releaseBooks(List.of(30))).thenReturn(false);
+
+        // Act
+        Set<Integer> returned = repository.returnLoans(Map.of(3, 30), today);
+
+        // Assert
+        Assertions.assertTrue(returned.isEmpty());
+        verify(shard0, times(1)).reopenLoans(List.of(3), today);
+    }
+}
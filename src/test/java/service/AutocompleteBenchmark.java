@@ -0,0 +1,45 @@
+package service;
+
+import entity.Book;
+
+import java.util.Random;
+
+/**
+ * Measures the build size and the completion latency of an AutocompleteIndex over a synthetic catalog.
+ * Not run by the test suite; run the main method directly. The optional first argument is the number of
+ * books (200,000 by default).
+ */
+public class AutocompleteBenchmark {
+
+    private static final String[] WORDS = {
+            "historia", "amor", "guerra", "mar", "noche", "ciudad", "tiempo", "soledad", "viento", "sombra",
+            "camino", "tierra", "fuego", "sueño", "jardín", "río", "luna", "memoria", "silencio", "verano"
+    };
+    private static final String[] PREFIXES = {"h", "hi", "hist", "so", "sole", "ciu", "autor 12", "memoria del"};
+
+    public static void main(String[] args) {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        AutocompleteIndex index = new AutocompleteIndex();
+        for (int id = 1; id <= books; id++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " del " + WORDS[random.nextInt(WORDS.length)] + " " + id;
+            index.addBook(new Book(id, title, "Autor " + random.nextInt(books / 10 + 1), String.format("978%010d", id), true),
+                    random.nextInt(100));
+        }
+        System.out.printf("Build:    %,d books, %,d entries, %,d nodes in %,d ms%n",
+                books, index.getEntryCount(), index.getNodeCount(), (System.nanoTime() - start) / 1_000_000);
+
+        int rounds = 1_000_000;
+        int sink = 0;
+        for (int warmup = 0; warmup < 2; warmup++) {
+            start = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                sink += index.complete(PREFIXES[i % PREFIXES.length], AutocompleteIndex.MAX_RESULTS).size();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("Complete: %.2f us per prefix (%d)%n", elapsed / 1000.0 / rounds, sink);
+    }
+}
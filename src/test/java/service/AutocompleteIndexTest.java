@@ -0,0 +1,128 @@
+package service;
+
+import entity.Book;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for the AutocompleteIndex class.
+ */
+class AutocompleteIndexTest {
+
+    private AutocompleteIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new AutocompleteIndex();
+        index.addBook(new Book(1, "Cien Años de Soledad", "Gabriel García Márquez", "9780060883287", true), 5);
+        index.addBook(new Book(2, "En agosto nos vemos", "Gabriel García Márquez", "9780593311080", true), 2);
+        index.addBook(new Book(3, "El Señor de los Anillos", "J.R.R. Tolkien", "9780618346252", true), 9);
+    }
+
+    /**
+     * Tests that completions ignore case and accents and match the start of any word, most loaned first.
+     */
+    @Test
+    void testComplete_MatchesWordStarts() {
+        // Act
+        List<Suggestion> byTitleWord = index.complete("SOLE", 10);
+        List<Suggestion> byAuthorWord = index.complete("marq", 10);
+        List<Suggestion> shared = index.complete("e", 10);
+
+        // Assert
+        Assertions.assertEquals(List.of("TITLE:Cien Años de Soledad (5)"), texts(byTitleWord));
+        Assertions.assertEquals(List.of("AUTHOR:Gabriel García Márquez (7)"), texts(byAuthorWord));
+        Assertions.assertEquals(List.of("TITLE:El Señor de los Anillos (9)", "TITLE:En agosto nos vemos (2)"), texts(shared));
+    }
+
+    /**
+     * Tests that recorded loans move a suggestion ahead of more popular ones.
+     */
+    @Test
+    void testRecordLoan_Reranks() {
+        // Arrange
+        for (int i = 0; i < 8; i++) {
+            index.recordLoan(2);
+        }
+
+        // Act
+        List<Suggestion> suggestions = index.complete("e", 10);
+
+        // Assert
+        Assertions.assertEquals(List.of("TITLE:En agosto nos vemos (10)", "TITLE:El Señor de los Anillos (9)"), texts(suggestions));
+        Assertions.assertEquals(15, index.complete("gabriel", 1).get(0).getPopularity());
+    }
+
+    /**
+     * Tests that each node keeps only its most popular entries and that the limit is applied.
+     */
+    @Test
+    void testComplete_KeepsTopEntries() {
+        // Arrange
+        for (int id = 10; id < 40; id++) {
+            index.addBook(new Book(id, "Historia " + id, "Autor " + id, "978000000" + id, true), id);
+        }
+
+        // Act
+        List<Suggestion> suggestions = index.complete("hist", 3);
+        List<Suggestion> all = index.complete("hist", AutocompleteIndex.MAX_RESULTS);
+
+        // Assert
+        Assertions.assertEquals(List.of("TITLE:Historia 39 (39)", "TITLE:Historia 38 (38)", "TITLE:Historia 37 (37)"), texts(suggestions));
+        Assertions.assertEquals(AutocompleteIndex.MAX_RESULTS, all.size());
+        Assertions.assertEquals("Historia 30", all.get(AutocompleteIndex.MAX_RESULTS - 1).getText());
+    }
+
+    /**
+     * Tests that adding a book again keeps a single entry and that unknown prefixes complete to nothing.
+     */
+    @Test
+    void testAddBook_Idempotent() {
+        // Arrange
+        int entries = index.getEntryCount();
+
+        // Act
+        index.addBook(new Book(1, "Cien Años de Soledad", "Gabriel García Márquez", "9780060883287", true), 0);
+
+        // Assert
+        Assertions.assertEquals(entries, index.getEntryCount());
+        Assertions.assertEquals(1, index.complete("cien", 10).size());
+        Assertions.assertTrue(index.complete("zzz", 10).isEmpty());
+        Assertions.assertTrue(index.complete("  ", 10).isEmpty());
+    }
+
+    /**
+     * Tests that prefixes longer than the indexed key length are filtered exactly.
+     */
+    @Test
+    void testComplete_LongPrefix() {
+        // Arrange
+        String common = "una historia muy larga sobre el mar ";
+        index.addBook(new Book(50, common + "y el viento", "Autor", "9780000000050", true), 1);
+        index.addBook(new Book(51, common + "y la tierra", "Autor", "9780000000051", true), 2);
+
+        // Act
+        List<Suggestion> suggestions = index.complete(common + "y el", 10);
+
+        // Assert
+        Assertions.assertEquals(List.of("TITLE:" + common + "y el viento (1)"), texts(suggestions));
+    }
+
+    /**
+     * Tests the normalization of text.
+     */
+    @Test
+    void testNormalize() {
+        Assertions.assertEquals("el senor de los anillos", AutocompleteIndex.normalize("  El Señor de los Anillos!"));
+        Assertions.assertEquals("j r r tolkien", AutocompleteIndex.normalize("J.R.R. Tolkien"));
+        Assertions.assertEquals("", AutocompleteIndex.normalize(null));
+    }
+
+    private static List<String> texts(List<Suggestion> suggestions) {
+        return suggestions.stream().map(Suggestion::toString).collect(Collectors.toList());
+    }
+}
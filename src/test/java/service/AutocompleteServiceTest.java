@@ -0,0 +1,80 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.BookRepository;
+import repository.LoanRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the AutocompleteService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class AutocompleteServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private LoanRepository loanRepository;
+
+    @InjectMocks
+    private AutocompleteService autocompleteService;
+
+    /**
+     * Tests that loans reported to the service as a listener raise their book in the completions.
+     */
+    @Test
+    void testLoanCreated_RaisesBook() {
+        // Arrange
+        Book solitude = new Book(1, "Cien Años de Soledad", "Gabriel García Márquez", "9780060883287", true);
+        Book rings = new Book(3, "El Señor de los Anillos", "J.R.R. Tolkien", "9780618346252", true);
+        when(bookRepository.findUpdatedSince(Instant.EPOCH)).thenReturn(List.of(solitude, rings));
+        when(loanRepository.countLoansByBook()).thenReturn(Map.of(1, 1, 3, 2));
+        autocompleteService.rebuild();
+        LoanListener listener = autocompleteService;
+
+        // Act
+        for (int i = 0; i < 2; i++) {
+            listener.loanCreated(new Loan(10 + i, 1, 50, LocalDate.of(2024, 6, 10), LocalDate.of(2024, 6, 24), null), solitude);
+        }
+        List<Suggestion> suggestions = autocompleteService.complete("s", 10);
+
+        // Assert
+        Assertions.assertEquals("Cien Años de Soledad", suggestions.get(0).getText());
+        Assertions.assertEquals(3, suggestions.get(0).getPopularity());
+    }
+
+    /**
+     * Tests that a failed count of loans keeps the current index instead of ranking every book as never loaned.
+     */
+    @Test
+    void testRebuild_CountFailedKeepsIndex() {
+        // Arrange
+        Book solitude = new Book(1, "Cien Años de Soledad", "Gabriel García Márquez", "9780060883287", true);
+        Book rings = new Book(3, "El Señor de los Anillos", "J.R.R. Tolkien", "9780618346252", true);
+        when(bookRepository.findUpdatedSince(Instant.EPOCH)).thenReturn(List.of(solitude, rings));
+        when(loanRepository.countLoansByBook()).thenReturn(Map.of(1, 1, 3, 2)).thenReturn(null);
+        autocompleteService.rebuild();
+
+        // Act
+        int indexed = autocompleteService.rebuild();
+        List<Suggestion> suggestions = autocompleteService.complete("s", 10);
+
+        // Assert
+        Assertions.assertEquals(0, indexed);
+        Assertions.assertEquals("El Señor de los Anillos", suggestions.get(0).getText());
+        Assertions.assertEquals(2, suggestions.get(0).getPopularity());
+    }
+}
@@ -15,6 +15,7 @@ import repository.BookRepository;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.Mockito.*;
 
@@ -35,7 +36,7 @@ class BookServiceTest {
         bookService = new BookService(bookRepository);
         title = "Cien Años de Soledad";
         author = "Gabriel García Márquez";
-        isbn = "1234567890";
+        isbn = "9780060883287";
         book1 = new Book("Cien Años de Soledad", "Gabriel García Márquez", "1234567890", true);
         book2 = new Book("En agosto nos vemos", "Gabriel García Márquez", "9780618346252", true);
     }
@@ -121,6 +122,42 @@ class BookServiceTest {
             verify(bookRepository, never()).saveBook(any(Book.class));
         }
 
+        /**
+         * Tests the case when the book ISBN has a wrong check digit while trying to save a book.
+         */
+        @Test
+        void testSaveBook_InvalidISBNFailure() {
+            // Arrange
+            String expectedMessage = "Invalid ISBN";
+
+            // Act
+            RuntimeException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    bookService.saveBook(title, author, "9780060883288")
+            );
+
+            // Assert
+            Assertions.assertEquals(expectedMessage, exception.getMessage());
+            verify(bookRepository, never()).findRepeatedIsbn(anyString());
+            verify(bookRepository, never()).saveBook(any(Book.class));
+        }
+
+        /**
+         * Tests that an ISBN-10 with hyphens is checked and saved as the equivalent ISBN-13.
+         */
+        @Test
+        void testSaveBook_NormalizesIsbn10() {
+            // Arrange
+            when(bookRepository.findRepeatedIsbn("9780439420891")).thenReturn(false);
+            when(bookRepository.saveBook(any(Book.class))).thenReturn(true);
+
+            // Act
+            boolean result = bookService.saveBook(title, author, "0-439-42089-X");
+
+            // Assert
+            assertTrue(result);
+            verify(bookRepository).saveBook(argThat(book -> book.getIsbn().equals("9780439420891")));
+        }
+
         /**
          * Tests the case when the book ISBN is already in use while trying to save a book.
          */
@@ -235,13 +272,88 @@ class BookServiceTest {
         void testSearchBookByIsbn_InvalidIsbn() {
             // Arrange
             String invalidIsbn = "invalid-isbn";
-            when(bookRepository.findByIsbn(invalidIsbn)).thenReturn(null);
 
             // Act
             Book result = bookService.searchBookByIsbn(invalidIsbn);
 
             // Assert
             Assertions.assertNull(result);
+            verify(bookRepository, never()).findByIsbn(anyString());
+        }
+
+        /**
+         * Tests that an ISBN-10 with hyphens is searched as the equivalent ISBN-13.
+         */
+        @Test
+        void testSearchBookByIsbn_NormalizesIsbn10() {
+            // Arrange
+            when(bookRepository.findByIsbn("9780439420891")).thenReturn(book1);
+
+            // Act
+            Book result = bookService.searchBookByIsbn("0-439-42089-X");
+
+            // Assert
+            Assertions.assertEquals(book1, result);
+        }
+
+        /**
+         * Tests that the catalog cache finds a book by any form of its ISBN without querying the database.
+         */
+        @Test
+        void testSearchBookByIsbn_FromCatalogCache() {
+            // Arrange
+            CatalogCache catalogCache = new CatalogCache();
+            catalogCache.put(new Book(3, "El Señor de los Anillos", "J.R.R. Tolkien", "043942089X", true));
+            BookService cachedBookService = new BookService(bookRepository, catalogCache);
+
+            // Act
+            Book result = cachedBookService.searchBookByIsbn("978-0-439-42089-1");
+
+            // Assert
+            Assertions.assertEquals(3, result.getId());
+            Assertions.assertEquals("9780439420891", result.getIsbn());
+            verify(bookRepository, never()).findByIsbn(anyString());
+        }
+    }
+
+    /**
+     * Unit tests for the searchBooksByIds method of the BookService class.
+     */
+    @Nested
+    class SearchBooksByIdsTest {
+
+        @Test
+        void testSearchBooksByIds_Success() {
+            // Arrange
+            int[] bookIds = {1, 2};
+            Map<Integer, Book> expectedBooks = Map.of(1, book1, 2, book2);
+            when(bookRepository.findByIds(bookIds)).thenReturn(expectedBooks);
+
+            // Act
+            Map<Integer, Book> result = bookService.searchBooksByIds(bookIds);
+
+            // Assert
+            assertEquals(expectedBooks, result);
+            verify(bookRepository, times(1)).findByIds(bookIds);
+        }
+
+        @Test
+        void testSearchBooksByIds_EmptyIds() {
+            // Act
+            Map<Integer, Book> result = bookService.searchBooksByIds(new int[0]);
+
+            // Assert
+            assertTrue(result.isEmpty());
+            verify(bookRepository, never()).findByIds(any(int[].class));
+        }
+
+        @Test
+        void testSearchBooksByIds_NullIds() {
+            // Act
+            Exception exception = assertThrows(IllegalArgumentException.class, () -> bookService.searchBooksByIds(null));
+
+            // Assert
+            assertEquals("Book IDs cannot be null", exception.getMessage());
         }
     }
 
@@ -309,7 +421,178 @@ class BookServiceTest {
 
             assertEquals("Book ID must be greater than zero", exception.getMessage());
         }
+
+        @Test
+        public void seeAvailability_FromCatalogCache() {
+            // Arrange
+            int bookId = 456;
+            CatalogCache catalogCache = new CatalogCache();
+            catalogCache.put(new Book(bookId, title, author, isbn, false));
+            BookService cachedBookService = new BookService(bookRepository, catalogCache);
+
+            // Act
+            boolean isAvailable = cachedBookService.checkBookAvailability(bookId);
+
+            // Assert
+            assertFalse(isAvailable);
+            verify(bookRepository, never()).isBookAvailable(anyInt());
+        }
     }
 
-}
+    /**
+     * Unit tests for the suggest method of the BookService class.
+     */
+    @Nested
+    class SuggestTest {
 
+        /**
+         * Tests that a saved book is completed from the autocomplete index without searching the database.
+         */
+        @Test
+        void testSuggest_FromAutocomplete() {
+            // Arrange
+            AutocompleteService autocompleteService = new AutocompleteService(bookRepository, null);
+            BookService autocompleteBookService = new BookService(bookRepository, null, autocompleteService);
+            when(bookRepository.findRepeatedIsbn(isbn)).thenReturn(false);
+            when(bookRepository.saveBook(any(Book.class))).thenReturn(true);
+            autocompleteBookService.saveBook(title, author, isbn);
+
+            // Act
+            List<Suggestion> suggestions = autocompleteBookService.suggest("cien a", 5);
+
+            // Assert
+            assertEquals(1, suggestions.size());
+            assertEquals(title, suggestions.get(0).getText());
+            verify(bookRepository, never()).findByTitle(anyString());
+        }
+
+        /**
+         * Tests that without an autocomplete index the titles are searched in the database.
+         */
+        @Test
+        void testSuggest_FromDatabase() {
+            // Arrange
+            when(bookRepository.findByTitle("gabriel")).thenReturn(Arrays.asList(book1, book2));
+
+            // Act
+            List<Suggestion> suggestions = bookService.suggest("gabriel", 1);
+
+            // Assert
+            assertEquals(1, suggestions.size());
+            assertEquals(Suggestion.Kind.TITLE, suggestions.get(0).getKind());
+        }
+
+        /**
+         * Tests that a limit outside the supported range is rejected.
+         */
+        @Test
+        void testSuggest_InvalidLimit() {
+            Exception exception = assertThrows(IllegalArgumentException.class, () -> bookService.suggest("cien", 0));
+
+            assertEquals("Limit must be between 1 and " + AutocompleteIndex.MAX_RESULTS, exception.getMessage());
+        }
+    }
+
+    /**
+     * Unit tests for the fuzzy search methods of the BookService class.
+     */
+    @Nested
+    class FuzzySearchTest {
+
+        /**
+         * Tests that a misspelled author finds the books through the typo-tolerant index, in ranking order.
+         */
+        @Test
+        void testSearchBooksByAuthorFuzzy_ToleratesTypos() {
+            // Arrange
+            Book withId1 = new Book(1, book1.getTitle(), book1.getAuthor(), book1.getIsbn(), true);
+            Book withId2 = new Book(2, book2.getTitle(), book2.getAuthor(), book2.getIsbn(), true);
+            when(bookRepository.findUpdatedSince(any())).thenReturn(Arrays.asList(withId1, withId2));
+            FuzzySearchService fuzzySearchService = new FuzzySearchService(bookRepository);
+            fuzzySearchService.rebuild();
+            when(bookRepository.findByIds(new int[]{1, 2})).thenReturn(Map.of(2, withId2, 1, withId1));
+            BookService fuzzyBookService = new BookService(bookRepository, null, null, fuzzySearchService);
+
+            // Act
+            List<Book> books = fuzzyBookService.searchBooksByAuthorFuzzy("Garcia Marques");
+
+            // Assert
+            assertEquals(Arrays.asList(withId1, withId2), books);
+            verify(bookRepository, never()).findByAuthor(anyString());
+        }
+
+        /**
+         * Tests that a misspelled title is served from the catalog cache without querying the database.
+         */
+        @Test
+        void testSearchBooksByTitleFuzzy_FromCatalogCache() {
+            // Arrange
+            Book withId = new Book(7, title, author, isbn, true);
+            CatalogCache catalogCache = new CatalogCache();
+            catalogCache.put(withId);
+            FuzzySearchService fuzzySearchService = new FuzzySearchService(bookRepository);
+            fuzzySearchService.bookAdded(withId);
+            BookService fuzzyBookService = new BookService(bookRepository, catalogCache, null, fuzzySearchService);
+
+            // Act
+            List<Book> books = fuzzyBookService.searchBooksByTitleFuzzy("cien anos de soledat");
+
+            // Assert
+            assertEquals(1, books.size());
+            assertEquals(7, books.get(0).getId());
+            assertEquals(title, books.get(0).getTitle());
+            verify(bookRepository, never()).findByIds(any());
+        }
+
+        /**
+         * Tests that without typo-tolerant indexes the exact search is used.
+         */
+        @Test
+        void testSearchBooksByTitleFuzzy_FallsBackToExact() {
+            // Arrange
+            when(bookRepository.findByTitle(title)).thenReturn(Collections.singletonList(book1));
+
+            // Act
+            List<Book> books = bookService.searchBooksByTitleFuzzy(title);
+
+            // Assert
+            assertEquals(Collections.singletonList(book1), books);
+        }
+    }
+
+    /**
+     * Unit tests for the findAlsoBorrowed method of the BookService class.
+     */
+    @Nested
+    class FindAlsoBorrowedTest {
+
+        /**
+         * Tests that recommended books are resolved in ranking order.
+         */
+        @Test
+        void testFindAlsoBorrowed_InRankingOrder() {
+            // Arrange
+            Book withId1 = new Book(1, book1.getTitle(), book1.getAuthor(), book1.getIsbn(), true);
+            Book withId2 = new Book(2, book2.getTitle(), book2.getAuthor(), book2.getIsbn(), true);
+            RecommendationService recommendationService = mock(RecommendationService.class);
+            when(recommendationService.alsoBorrowed(3, 5)).thenReturn(new int[]{2, 1});
+            when(bookRepository.findByIds(new int[]{2, 1})).thenReturn(Map.of(1, withId1, 2, withId2));
+            BookService recommendingService = new BookService(bookRepository, null, null, null, recommendationService);
+
+            // Act
+            List<Book> books = recommendingService.findAlsoBorrowed(3, 5);
+
+            // Assert
+            assertEquals(Arrays.asList(withId2, withId1), books);
+        }
+
+        /**
+         * Tests that nothing is recommended without a recommendation index.
+         */
+        @Test
+        void testFindAlsoBorrowed_WithoutIndex() {
+            assertTrue(bookService.findAlsoBorrowed(3, 5).isEmpty());
+            verify(bookRepository, never()).findByIds(any());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package service;
+
+import entity.Book;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.BookRepository;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the CatalogSnapshotService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotServiceTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private Path snapshotPath;
+    private Book book1, book2;
+
+    @BeforeEach
+    void setUp() {
+        snapshotPath = tempDir.resolve("catalog.snapshot");
+        book1 = new Book(1, "Cien Años de Soledad", "Gabriel García Márquez", "9780060883287", true);
+        book2 = new Book(2, "El Señor de los Anillos", "J.R.R. Tolkien", "9780618346257", false);
+    }
+
+    /**
+     * Tests that a cold start without a snapshot loads the whole catalog.
+     */
+    @Test
+    void testWarmStart_WithoutSnapshot() {
+        // Arrange
+        CatalogCache catalogCache = new CatalogCache();
+        CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, catalogCache, snapshotPath);
+        when(bookRepository.findUpdatedSince(Instant.EPOCH)).thenReturn(List.of(book1, book2));
+
+        // Act
+        int result = service.warmStart();
+
+        // Assert
+        Assertions.assertEquals(2, result);
+        Assertions.assertEquals(2, catalogCache.size());
+        Assertions.assertEquals(2, catalogCache.getByIsbn("9780618346257").getId());
+    }
+
+    /**
+     * Tests that a restart restores the snapshot and only reads the delta from the database.
+     */
+    @Test
+    void testWarmStart_FromSnapshot() {
+        // Arrange
+        CatalogCache catalogCache = new CatalogCache();
+        CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, catalogCache, snapshotPath);
+        when(bookRepository.findUpdatedSince(Instant.EPOCH)).thenReturn(List.of(book1, book2));
+        service.warmStart();
+        service.saveSnapshot();
+        Instant syncedAt = service.getSyncedAt();
+
+        Book returnedBook = new Book(2, "El Señor de los Anillos", "J.R.R. Tolkien", "9780618346257", true);
+        when(bookRepository.findUpdatedSince(syncedAt.minus(CatalogSnapshotService.SYNC_OVERLAP))).thenReturn(List.of(returnedBook));
+        CatalogCache restartedCache = new CatalogCache();
+        CatalogSnapshotService restarted = new CatalogSnapshotService(bookRepository, restartedCache, snapshotPath);
+
+        // Act
+        int result = restarted.warmStart();
+
+        // Assert
+        Assertions.assertEquals(1, result);
+        Assertions.assertEquals(2, restartedCache.size());
+        Assertions.assertEquals("Cien Años de Soledad", restartedCache.getById(1).getTitle());
+        Assertions.assertTrue(restartedCache.getById(2).isAvailable());
+        verify(bookRepository, times(1)).findUpdatedSince(Instant.EPOCH);
+    }
+
+    /**
+     * Tests that a failed catch-up keeps the sync instant, so the next run reads the missed changes again.
+     */
+    @Test
+    void testCatchUp_DatabaseErrorKeepsSyncInstant() {
+        // Arrange
+        CatalogCache catalogCache = new CatalogCache();
+        CatalogSnapshotService service = new CatalogSnapshotService(bookRepository, catalogCache, snapshotPath);
+        when(bookRepository.findUpdatedSince(Instant.EPOCH)).thenReturn(List.of(book1, book2));
+        service.warmStart();
+        Instant syncedAt = service.getSyncedAt();
+        when(bookRepository.findUpdatedSince(syncedAt.minus(CatalogSnapshotService.SYNC_OVERLAP))).thenReturn(null);
+
+        // Act
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, service::catchUp);
+
+        // Assert
+        Assertions.assertEquals("Connection error", exception.getMessage());
+        Assertions.assertEquals(syncedAt, service.getSyncedAt());
+    }
+}
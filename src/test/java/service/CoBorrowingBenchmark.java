@@ -0,0 +1,59 @@
+package service;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Measures building the co-borrowing index over synthetic baskets, on one thread and on all processors,
+ * and the latency of a lookup. Not run by the test suite; run the main method with a large heap, for example
+ * {@code -Xmx4g}. The optional arguments are the number of users (200,000 by default) and of books (50,000).
+ */
+public class CoBorrowingBenchmark {
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int catalog = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        Random random = new Random(42);
+        int[] offsets = new int[users + 1];
+        int[] books = new int[users * 40];
+        int size = 0;
+        for (int user = 0; user < users; user++) {
+            int basket = 2 + (int) Math.min(38, -Math.log(1 - random.nextDouble()) * 8); // most patrons borrow a few books
+            int start = size;
+            while (size - start < basket) {
+                int book = 1 + (int) (catalog * Math.pow(random.nextDouble(), 2)); // popular books are borrowed more
+                boolean seen = false;
+                for (int i = start; i < size && !seen; i++) {
+                    seen = books[i] == book;
+                }
+                if (!seen) {
+                    books[size++] = book;
+                }
+            }
+            offsets[user + 1] = size;
+        }
+        System.out.printf("Baskets: %,d users, %,d loans%n", users, size);
+
+        long sink = 0;
+        for (int parallelism : new int[]{1, Runtime.getRuntime().availableProcessors()}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            long best = Long.MAX_VALUE;
+            CoBorrowingIndex index = null;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                index = CoBorrowingIndex.build(books, offsets, RecommendationService.NEIGHBORS_PER_BOOK, pool);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            System.out.printf("Build on %2d threads: %,d books in %,d ms%n", parallelism, index.getBookCount(), best / 1_000_000);
+
+            long start = System.nanoTime();
+            int lookups = 1_000_000;
+            for (int i = 0; i < lookups; i++) {
+                sink += index.neighbors(1 + random.nextInt(catalog), RecommendationService.NEIGHBORS_PER_BOOK).length;
+            }
+            System.out.printf("Lookup: %.0f ns%n", (System.nanoTime() - start) / (double) lookups);
+        }
+        System.out.println(sink);
+    }
+}
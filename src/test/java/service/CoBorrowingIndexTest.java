@@ -0,0 +1,136 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Unit tests for the CoBorrowingIndex class.
+ */
+class CoBorrowingIndexTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    /**
+     * Tests that neighbors are ranked by shared patrons, then by lower book ID.
+     */
+    @Test
+    void testNeighbors_RankedBySharedPatrons() {
+        // Arrange: users {1, 2, 3}, {1, 2}, {1, 3, 4}, {2, 4}
+        int[] books = {1, 2, 3, 1, 2, 1, 3, 4, 2, 4};
+        int[] offsets = {0, 3, 5, 8, 10};
+
+        // Act
+        CoBorrowingIndex index = CoBorrowingIndex.build(books, offsets, 10, POOL);
+
+        // Assert
+        Assertions.assertArrayEquals(new int[]{2, 3, 4}, index.neighbors(1, 10));
+        Assertions.assertArrayEquals(new int[]{1, 3, 4}, index.neighbors(2, 10));
+        Assertions.assertArrayEquals(new int[]{1}, index.neighbors(4, 1));
+        Assertions.assertEquals(2, index.count(1, 2));
+        Assertions.assertEquals(0, index.count(3, 99));
+        Assertions.assertEquals(0, index.neighbors(99, 10).length);
+        Assertions.assertEquals(4, index.getBookCount());
+    }
+
+    /**
+     * Tests that only the strongest neighbors are kept when a book has more than fit in its row.
+     */
+    @Test
+    void testNeighbors_KeepsTopN() {
+        // Arrange: book 1 is borrowed with book 100 + k by k users
+        int[] books = new int[2 * 36];
+        int[] offsets = new int[36 + 1];
+        int size = 0;
+        int user = 0;
+        for (int k = 1; k <= 8; k++) {
+            for (int repeat = 0; repeat < k; repeat++) {
+                books[size++] = 1;
+                books[size++] = 100 + k;
+                offsets[++user] = size;
+            }
+        }
+
+        // Act
+        CoBorrowingIndex index = CoBorrowingIndex.build(books, offsets, 3, POOL);
+
+        // Assert
+        Assertions.assertArrayEquals(new int[]{108, 107, 106}, index.neighbors(1, 10));
+        Assertions.assertEquals(8, index.count(1, 108));
+        Assertions.assertArrayEquals(new int[]{1}, index.neighbors(101, 10));
+    }
+
+    /**
+     * Tests that counting split over many fork/join tasks gives the same counts as one task.
+     */
+    @Test
+    void testBuild_ManyPartitions() {
+        // Arrange: more pairs than one task counts, all users borrowing books 1 and 2, every other one also book 3
+        int users = CoBorrowingIndex.PAIRS_PER_TASK * 2 + 7;
+        int[] books = new int[users * 3];
+        int[] offsets = new int[users + 1];
+        int size = 0;
+        for (int user = 0; user < users; user++) {
+            books[size++] = 1;
+            books[size++] = 2;
+            if (user % 2 == 0) {
+                books[size++] = 3;
+            }
+            offsets[user + 1] = size;
+        }
+
+        // Act
+        CoBorrowingIndex index = CoBorrowingIndex.build(books, offsets, 10, POOL);
+
+        // Assert
+        Assertions.assertEquals(users, index.count(1, 2));
+        Assertions.assertEquals((users + 1) / 2, index.count(2, 3));
+        Assertions.assertArrayEquals(new int[]{2, 3}, index.neighbors(1, 10));
+    }
+
+    /**
+     * Tests that baskets larger than one task are counted whole among many small ones.
+     */
+    @Test
+    void testBuild_LargeBaskets() {
+        // Arrange: a thousand two-book baskets around two baskets of 600 books, each with more pairs than one task
+        int large = 600;
+        int[] books = new int[2 * large + 2000];
+        int[] offsets = new int[1003];
+        int size = 0;
+        int user = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (i == 300 || i == 700) {
+                for (int book = 1; book <= large; book++) {
+                    books[size++] = book;
+                }
+                offsets[++user] = size;
+            }
+            books[size++] = 1;
+            books[size++] = 1000 + i;
+            offsets[++user] = size;
+        }
+
+        // Act
+        CoBorrowingIndex index = CoBorrowingIndex.build(books, offsets, 5, POOL);
+
+        // Assert
+        Assertions.assertTrue((long) large * (large - 1) / 2 > CoBorrowingIndex.PAIRS_PER_TASK);
+        Assertions.assertEquals(2, index.count(1, 2));
+        Assertions.assertEquals(2, index.count(600, 1));
+        Assertions.assertArrayEquals(new int[]{2, 3, 4}, index.neighbors(1, 3));
+        Assertions.assertEquals(1, index.count(1000, 1));
+    }
+
+    /**
+     * Tests that an index without baskets recommends nothing.
+     */
+    @Test
+    void testBuild_Empty() {
+        CoBorrowingIndex index = CoBorrowingIndex.build(new int[0], new int[]{0}, 10, POOL);
+
+        Assertions.assertEquals(0, index.getBookCount());
+        Assertions.assertEquals(0, index.neighbors(1, 10).length);
+    }
+}
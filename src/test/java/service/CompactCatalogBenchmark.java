@@ -0,0 +1,54 @@
+package service;
+
+import entity.Book;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the retained heap of a catalog held as Book objects against the same catalog held in a CompactCatalog.
+ * Not run by the test suite; run the main method with a large heap, for example {@code -Xmx4g}.
+ * The optional first argument is the number of books (5,000,000 by default).
+ */
+public class CompactCatalogBenchmark {
+
+    private static final int AUTHORS = 200_000;
+
+    public static void main(String[] args) {
+        int books = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        long baseline = usedHeap();
+        Map<Integer, Book> objects = new HashMap<>();
+        for (int id = 1; id <= books; id++) {
+            objects.put(id, book(id));
+        }
+        long objectBytes = usedHeap() - baseline;
+        System.out.printf("Book objects:    %,d books, %,d bytes (%d bytes/book)%n", objects.size(), objectBytes, objectBytes / books);
+        objects = null;
+
+        baseline = usedHeap();
+        CompactCatalog catalog = new CompactCatalog(books);
+        for (int id = 1; id <= books; id++) {
+            catalog.put(book(id));
+        }
+        long compactBytes = usedHeap() - baseline;
+        System.out.printf("CompactCatalog:  %,d books, %,d bytes (%d bytes/book)%n", catalog.size(), compactBytes, compactBytes / books);
+        System.out.printf("Savings:         %.1f%%%n", 100.0 * (objectBytes - compactBytes) / objectBytes);
+    }
+
+    /**
+     * Builds a book the way a repository does, with freshly allocated strings.
+     */
+    private static Book book(int id) {
+        return new Book(id, "Title of the book number " + id, new String("Author " + (id % AUTHORS)),
+                Long.toString(IsbnCodec.withCheckDigit(978_000_000_000L + id)), id % 3 != 0);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
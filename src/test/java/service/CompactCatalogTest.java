@@ -0,0 +1,94 @@
+package service;
+
+import entity.Book;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the CompactCatalog class.
+ */
+class CompactCatalogTest {
+
+    private CompactCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new CompactCatalog(4);
+    }
+
+    /**
+     * Tests that a stored book is returned with its ISBN normalized and is found by any form of it.
+     */
+    @Test
+    void testPut_RoundTrip() {
+        // Arrange
+        Book isbn13 = new Book(1, "Cien Años de Soledad", "Gabriel García Márquez", "9780060883287", true);
+        Book isbn10 = new Book(2, "El Señor de los Anillos", "J.R.R. Tolkien", "043942089X", false);
+        Book freeForm = new Book(3, "En agosto nos vemos", "Gabriel García Márquez", "978-0-618-34625-7", true);
+        Book invalid = new Book(4, "Rayuela", "Julio Cortázar", "not-an-isbn", true);
+
+        // Act
+        catalog.put(isbn13);
+        catalog.put(isbn10);
+        catalog.put(freeForm);
+        catalog.put(invalid);
+
+        // Assert
+        assertBook(isbn13, catalog.getById(1));
+        assertBook(new Book(2, isbn10.getTitle(), isbn10.getAuthor(), "9780439420891", false), catalog.getByIsbn("0-439-42089-X"));
+        assertBook(new Book(3, freeForm.getTitle(), freeForm.getAuthor(), "9780618346257", true), catalog.getByIsbn(9780618346257L));
+        assertBook(invalid, catalog.getById(4));
+        Assertions.assertNull(catalog.getByIsbn("not-an-isbn"));
+        Assertions.assertEquals(4, catalog.size());
+        Assertions.assertEquals(3, catalog.getAuthorCount());
+    }
+
+    /**
+     * Tests that replacing a book updates its indexes.
+     */
+    @Test
+    void testPut_ReplacesBook() {
+        // Arrange
+        catalog.put(new Book(1, "Cien Años de Soledad", "Gabriel García Márquez", "9780618346257", true));
+        Book updated = new Book(1, "Cien Años de Soledad (edición revisada)", "Gabriel García Márquez", "9780060883287", false);
+
+        // Act
+        catalog.put(updated);
+
+        // Assert
+        Assertions.assertNull(catalog.getByIsbn("9780618346257"));
+        assertBook(updated, catalog.getByIsbn("9780060883287"));
+        Assertions.assertFalse(catalog.isAvailable(1));
+        Assertions.assertEquals(1, catalog.size());
+    }
+
+    /**
+     * Tests that the arrays grow past the expected size and removed books disappear.
+     */
+    @Test
+    void testPut_GrowsAndRemoves() {
+        // Arrange
+        for (int id = 1; id <= 100; id++) {
+            catalog.put(new Book(id, "Title " + id, "Author " + (id % 7), Long.toString(IsbnCodec.withCheckDigit(978_000_000_000L + id)), id % 2 == 0));
+        }
+
+        // Act
+        catalog.remove(50);
+
+        // Assert
+        Assertions.assertEquals(99, catalog.size());
+        Assertions.assertNull(catalog.getById(50));
+        Assertions.assertEquals("Title 99", catalog.getById(99).getTitle());
+        Assertions.assertEquals(7, catalog.getAuthorCount());
+        Assertions.assertEquals(99, catalog.getBooks().size());
+    }
+
+    private static void assertBook(Book expected, Book actual) {
+        Assertions.assertEquals(expected.getId(), actual.getId());
+        Assertions.assertEquals(expected.getTitle(), actual.getTitle());
+        Assertions.assertEquals(expected.getAuthor(), actual.getAuthor());
+        Assertions.assertEquals(expected.getIsbn(), actual.getIsbn());
+        Assertions.assertEquals(expected.isAvailable(), actual.isAvailable());
+    }
+}
@@ -0,0 +1,186 @@
+package service;
+
+import entity.Loan;
+import entity.LoanFee;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.FeeRepository;
+import repository.LoanRepository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the FeeService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class FeeServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 10);
+    private static final Instant STARTED = Instant.parse("2024-06-10T03:00:00Z");
+
+    @Mock
+    private LoanRepository loanRepository;
+    @Mock
+    private FeeRepository feeRepository;
+
+    private FeeService feeService;
+
+    @BeforeEach
+    void setUp() {
+        feeService = new FeeService(loanRepository, feeRepository, new DailyFeePolicy(2, 25, 1000), new ForkJoinPool(2));
+    }
+
+    private void streamLoans(List<Loan> loans) {
+        when(loanRepository.streamLoansByUser(any())).thenAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            loans.forEach(consumer);
+            return true;
+        });
+    }
+
+    private static Loan loan(int id, int userId, LocalDate due, LocalDate returned) {
+        return new Loan(id, 1, userId, due.minusDays(14), due, returned);
+    }
+
+    /**
+     * Tests that a recomputation charges returned and open loans, sums them per user and clears stale fees.
+     */
+    @Test
+    void testRecomputeAll_ChargesLateLoans() {
+        // Arrange
+        when(feeRepository.currentTime()).thenReturn(STARTED);
+        streamLoans(List.of(
+                loan(1, 1, TODAY.minusDays(10), TODAY.minusDays(5)), // returned 5 days late: 125
+                loan(2, 1, TODAY.minusDays(4), null),               // 4 days late and still out: 100
+                loan(3, 2, TODAY.minusDays(3), TODAY.minusDays(2)), // within the grace period
+                loan(4, 3, TODAY.minusDays(200), null)));           // capped
+        when(feeRepository.saveFees(anyList(), anyMap())).thenReturn(true);
+        when(feeRepository.deleteFeesNotUpdatedSince(STARTED)).thenReturn(0);
+
+        // Act
+        int charged = feeService.recomputeAll(TODAY);
+
+        // Assert
+        Assertions.assertEquals(3, charged);
+        verify(feeRepository, times(1)).saveFees(argThat(fees -> fees.size() == 3
+                        && fees.get(0).getFeeCents() == 125 && fees.get(1).getFeeCents() == 100
+                        && fees.get(2).getFeeCents() == 1000),
+                argThat(totals -> totals.equals(Map.of(1, 225L, 3, 1000L))));
+        verify(feeRepository, times(1)).deleteFeesNotUpdatedSince(STARTED);
+    }
+
+    /**
+     * Tests that the loans of a user split over two chunks are summed into one total.
+     */
+    @Test
+    void testRecomputeAll_UserSpanningChunks() {
+        // Arrange
+        List<Loan> loans = new ArrayList<>();
+        for (int id = 1; id <= FeeService.CHUNK_SIZE + 5; id++) {
+            loans.add(loan(id, id <= FeeService.CHUNK_SIZE - 5 ? id : 99_999, TODAY.minusDays(3), null)); // 75 each
+        }
+        when(feeRepository.currentTime()).thenReturn(STARTED);
+        streamLoans(loans);
+        Map<Integer, Long> totals = new HashMap<>();
+        List<LoanFee> fees = new ArrayList<>();
+        when(feeRepository.saveFees(anyList(), anyMap())).thenAnswer(invocation -> {
+            fees.addAll(invocation.getArgument(0));
+            Map<Integer, Long> chunkTotals = invocation.getArgument(1);
+            chunkTotals.forEach((userId, total) -> Assertions.assertNull(totals.put(userId, total)));
+            return true;
+        });
+        when(feeRepository.deleteFeesNotUpdatedSince(STARTED)).thenReturn(0);
+
+        // Act
+        feeService.recomputeAll(TODAY);
+
+        // Assert
+        Assertions.assertEquals(FeeService.CHUNK_SIZE + 5, fees.size());
+        Assertions.assertEquals(10 * 75L, totals.get(99_999));
+        Assertions.assertEquals(75L, totals.get(1));
+        verify(feeRepository, times(2)).saveFees(anyList(), anyMap());
+    }
+
+    /**
+     * Tests that a failed chunk stops the recomputation before stale fees are deleted.
+     */
+    @Test
+    void testRecomputeAll_SaveFailed() {
+        // Arrange
+        when(feeRepository.currentTime()).thenReturn(STARTED);
+        streamLoans(List.of(loan(1, 1, TODAY.minusDays(10), null)));
+        when(feeRepository.saveFees(anyList(), anyMap())).thenReturn(false);
+
+        // Act & Assert
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> feeService.recomputeAll(TODAY));
+        Assertions.assertEquals("Connection error", exception.getMessage());
+        verify(feeRepository, never()).deleteFeesNotUpdatedSince(any());
+    }
+
+    /**
+     * Tests that a return records the final fee of the loan.
+     */
+    @Test
+    void testLoanReturned_RecordsFee() {
+        // Arrange
+        Loan loan = loan(7, 3, TODAY.minusDays(6), null);
+        when(feeRepository.recordFee(any())).thenReturn(true);
+
+        // Act
+        feeService.loanReturned(loan, TODAY);
+
+        // Assert
+        ArgumentCaptor<LoanFee> fee = ArgumentCaptor.forClass(LoanFee.class);
+        verify(feeRepository).recordFee(fee.capture());
+        Assertions.assertEquals(7, fee.getValue().getLoanId());
+        Assertions.assertEquals(3, fee.getValue().getUserId());
+        Assertions.assertEquals(150, fee.getValue().getFeeCents());
+    }
+
+    /**
+     * Tests that the outstanding total is read as saved, and that errors are reported.
+     */
+    @Test
+    void testGetOutstandingCents() {
+        // Arrange
+        when(feeRepository.findOutstanding(3)).thenReturn(450L);
+        when(feeRepository.findOutstanding(4)).thenReturn(-1L);
+
+        // Act & Assert
+        Assertions.assertEquals(450, feeService.getOutstandingCents(3));
+        Assertions.assertThrows(RuntimeException.class, () -> feeService.getOutstandingCents(4));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> feeService.getOutstandingCents(0));
+    }
+
+    /**
+     * Tests the daily policy around the grace period and the cap.
+     */
+    @Test
+    void testDailyFeePolicy() {
+        DailyFeePolicy policy = new DailyFeePolicy(2, 25, 1000);
+
+        Assertions.assertEquals(0, policy.feeCents(TODAY, TODAY.minusDays(1)));
+        Assertions.assertEquals(0, policy.feeCents(TODAY, TODAY.plusDays(2)));
+        Assertions.assertEquals(75, policy.feeCents(TODAY, TODAY.plusDays(3)));
+        Assertions.assertEquals(1000, policy.feeCents(TODAY, TODAY.plusDays(365)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new DailyFeePolicy(-1, 25, 1000));
+    }
+}
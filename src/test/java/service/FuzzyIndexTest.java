@@ -0,0 +1,84 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the FuzzyIndex class.
+ */
+class FuzzyIndexTest {
+
+    private FuzzyIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FuzzyIndex();
+        index.add("Gabriel García Márquez", 1);
+        index.add("Gabriel García Márquez", 2);
+        index.add("J.R.R. Tolkien", 3);
+        index.add("Gabriela Mistral", 4);
+        index.add("Mario Vargas Llosa", 5);
+    }
+
+    /**
+     * Tests that a misspelled part of a name finds the books of the author.
+     */
+    @Test
+    void testSearch_ToleratesTypos() {
+        // Act
+        int[] misspelled = index.search("Garcia Marques", 2, 10);
+        int[] transposed = index.search("tolkein", 2, 10);
+
+        // Assert
+        Assertions.assertArrayEquals(new int[]{1, 2}, misspelled);
+        Assertions.assertArrayEquals(new int[]{3}, transposed);
+    }
+
+    /**
+     * Tests that exact matches come before closer and shorter texts first.
+     */
+    @Test
+    void testSearch_RanksByDistanceThenLength() {
+        // Act
+        int[] ids = index.search("gabriel", 1, 10);
+
+        // Assert
+        Assertions.assertArrayEquals(new int[]{4, 1, 2}, ids);
+        Assertions.assertArrayEquals(new int[]{4}, index.search("gabriel", 1, 1));
+    }
+
+    /**
+     * Tests that matches beyond the edit bound and too short queries find nothing.
+     */
+    @Test
+    void testSearch_NoMatch() {
+        Assertions.assertEquals(0, index.search("borges", 1, 10).length);
+        Assertions.assertEquals(0, index.search("vargaz", 0, 10).length);
+        Assertions.assertEquals(0, index.search("ga", 2, 10).length);
+    }
+
+    /**
+     * Tests the bounded substring edit distance.
+     */
+    @Test
+    void testSubstringDistance() {
+        Assertions.assertEquals(0, FuzzyIndex.substringDistance("marquez", "gabriel garcia marquez", 2));
+        Assertions.assertEquals(1, FuzzyIndex.substringDistance("garcia marques", "gabriel garcia marquez", 2));
+        Assertions.assertEquals(2, FuzzyIndex.substringDistance("tolkein", "j r r tolkien", 2));
+        Assertions.assertEquals(3, FuzzyIndex.substringDistance("borges", "j r r tolkien", 2));
+        String longText = "historia de una larga novela sobre el mar el viento la tierra y los hombres que la habitan";
+        Assertions.assertEquals(0, FuzzyIndex.substringDistance(longText.substring(5, 75), longText, 2));
+        Assertions.assertEquals(1, FuzzyIndex.substringDistance(longText.substring(5, 75).replace("mar", "mer"), longText, 2));
+    }
+
+    /**
+     * Tests the default edit bound by query length.
+     */
+    @Test
+    void testDefaultMaxEdits() {
+        Assertions.assertEquals(0, FuzzyIndex.defaultMaxEdits("Eco"));
+        Assertions.assertEquals(1, FuzzyIndex.defaultMaxEdits("Tolkein"));
+        Assertions.assertEquals(2, FuzzyIndex.defaultMaxEdits("Garcia Marques"));
+    }
+}
@@ -0,0 +1,66 @@
+package service;
+
+import java.util.Random;
+
+/**
+ * Measures the latency of typo-tolerant searches over a synthetic catalog of titles.
+ * Not run by the test suite; run the main method with a large heap, for example {@code -Xmx4g}.
+ * The optional first argument is the number of titles (1,000,000 by default).
+ */
+public class FuzzySearchBenchmark {
+
+    private static final String[] STOP_WORDS = {"el", "la", "de", "los", "las", "y", "en", "del"};
+    private static final String[] SYLLABLES = {
+            "ma", "ri", "so", "le", "dad", "cien", "tor", "na", "ve", "lu", "ca", "mi", "no", "che", "cio", "gue",
+            "rra", "tie", "rra", "fue", "go", "ja", "din", "rio", "me", "mo", "ria", "si", "len", "pe", "rros", "cas"
+    };
+    private static final String[] KNOWN = {"Cien años de soledad", "La ciudad y los perros", "El laberinto de la soledad",
+            "Memoria de mis putas tristes", "El amor en los tiempos del cólera", "Relato de un náufrago"};
+    private static final String[] QUERIES = {"cien anos de soledat", "la ciudad y los perors", "laberinto",
+            "memoria de mis", "el amor en los tiempos", "naufrago"};
+
+    public static void main(String[] args) {
+        int titles = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(42);
+        String[] vocabulary = new String[20_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int syllables = 2 + random.nextInt(3); syllables > 0; syllables--) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            vocabulary[i] = word.toString();
+        }
+
+        long start = System.nanoTime();
+        FuzzyIndex index = new FuzzyIndex();
+        for (int id = 0; id < KNOWN.length; id++) {
+            index.add(KNOWN[id], id);
+        }
+        for (int id = KNOWN.length; id < titles; id++) {
+            StringBuilder title = new StringBuilder();
+            for (int words = 2 + random.nextInt(5); words > 0; words--) {
+                boolean stop = random.nextInt(10) < 4;
+                title.append(stop ? STOP_WORDS[random.nextInt(STOP_WORDS.length)] : vocabulary[random.nextInt(vocabulary.length)])
+                        .append(' ');
+            }
+            index.add(title.toString(), id);
+        }
+        System.out.printf("Build:  %,d titles in %,d ms%n", index.getEntryCount(), (System.nanoTime() - start) / 1_000_000);
+
+        int rounds = 300;
+        long sink = 0;
+        for (String query : QUERIES) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < rounds; i++) {
+                start = System.nanoTime();
+                sink += index.search(query, FuzzyIndex.defaultMaxEdits(query), BookService.FUZZY_SEARCH_LIMIT).length;
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            start = System.nanoTime();
+            int found = index.search(query, FuzzyIndex.defaultMaxEdits(query), BookService.FUZZY_SEARCH_LIMIT).length;
+            System.out.printf("%-24s %2d books, %.2f ms (best %.2f ms)%n", query, found,
+                    (System.nanoTime() - start) / 1e6, best / 1e6);
+        }
+        System.out.println(sink);
+    }
+}
@@ -0,0 +1,349 @@
+package service;
+
+import entity.Book;
+import entity.Reservation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.BookRepository;
+import repository.ReservationRepository;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the HoldService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class HoldServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-10T09:00:00Z");
+    private static final Duration HOLD_PERIOD = Duration.ofDays(3);
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 10);
+
+    @Mock
+    private ReservationRepository reservationRepository;
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private ScheduledExecutorService executor;
+    @Mock
+    private InvalidationBus invalidationBus;
+
+    private final MutableClock clock = new MutableClock();
+    private HoldService holdService;
+    private Book book;
+
+    @BeforeEach
+    void setUp() {
+        clock.instant = NOW;
+        holdService = new HoldService(reservationRepository, bookRepository, HOLD_PERIOD, executor, invalidationBus, clock);
+        book = new Book(7, "Rayuela", "Julio Cortázar", "9788437604572", true);
+    }
+
+    private static Reservation waiting(int id, int userId) {
+        return new Reservation(id, 7, userId, TODAY.minusDays(id), null);
+    }
+
+    /**
+     * Tests that a returned book is held for the oldest waiting reservation, and left unavailable for the return to
+     * keep it so.
+     */
+    @Test
+    void testHoldReturned_HoldsForNextReservation() {
+        // Arrange
+        Reservation first = waiting(1, 20);
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS)).thenReturn(List.of(first));
+        when(reservationRepository.startHold(first, NOW.plus(HOLD_PERIOD))).thenReturn(true);
+
+        // Act
+        boolean held = holdService.holdReturned(7);
+
+        // Assert
+        Assertions.assertTrue(held);
+        Assertions.assertEquals(1, holdService.getActiveHoldCount());
+        verifyNoInteractions(bookRepository);
+    }
+
+    /**
+     * Tests that a reservation claimed by another node first is skipped for the next one in line.
+     */
+    @Test
+    void testHoldReturned_ReservationClaimedElsewhere() {
+        // Arrange
+        Reservation first = waiting(1, 20);
+        Reservation second = waiting(2, 21);
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS)).thenReturn(List.of(first, second));
+        when(reservationRepository.startHold(eq(first), any())).thenReturn(false);
+        when(reservationRepository.startHold(eq(second), any())).thenReturn(true);
+
+        // Act
+        boolean held = holdService.holdReturned(7);
+
+        // Assert
+        Assertions.assertTrue(held);
+        Assertions.assertEquals(1, holdService.getActiveHoldCount());
+        verify(reservationRepository).startHold(eq(second), any());
+    }
+
+    /**
+     * Tests that a return without waiting reservations leaves the book alone.
+     */
+    @Test
+    void testHoldReturned_NobodyWaiting() {
+        // Arrange
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS)).thenReturn(List.of());
+
+        // Act
+        boolean held = holdService.holdReturned(7);
+
+        // Assert
+        Assertions.assertFalse(held);
+        Assertions.assertEquals(0, holdService.getActiveHoldCount());
+        verifyNoInteractions(bookRepository);
+    }
+
+    /**
+     * Tests that an expired hold passes the book to the next reservation in line.
+     */
+    @Test
+    void testExpireDue_PassesToNextReservation() {
+        // Arrange
+        Reservation first = waiting(1, 20);
+        Reservation second = waiting(2, 21);
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(second));
+        when(reservationRepository.startHold(any(), any())).thenReturn(true);
+        holdService.holdReturned(7);
+        when(reservationRepository.endHold(first, false)).thenReturn(true);
+
+        // Act
+        clock.instant = NOW.plus(HOLD_PERIOD).minusSeconds(1);
+        int early = holdService.expireDue();
+        clock.instant = NOW.plus(HOLD_PERIOD);
+        int expired = holdService.expireDue();
+
+        // Assert
+        Assertions.assertEquals(0, early);
+        Assertions.assertEquals(1, expired);
+        Assertions.assertEquals(1, holdService.getActiveHoldCount());
+        verify(reservationRepository).startHold(second, NOW.plus(HOLD_PERIOD).plus(HOLD_PERIOD));
+        verifyNoInteractions(bookRepository); // the book stays unavailable
+    }
+
+    /**
+     * Tests that a failed read of the waiting reservations is reported, so the returned book is not released.
+     */
+    @Test
+    void testHoldReturned_QueryFailed() {
+        // Arrange
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS)).thenReturn(null);
+
+        // Act
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> holdService.holdReturned(7));
+
+        // Assert
+        Assertions.assertEquals("Connection error", exception.getMessage());
+        verifyNoInteractions(bookRepository);
+    }
+
+    /**
+     * Tests that an expired hold whose book cannot be passed on is retried later, instead of the book being released
+     * or forgotten.
+     */
+    @Test
+    void testExpireDue_QueryFailedRetries() {
+        // Arrange
+        Reservation held = new Reservation(1, 7, 20, TODAY.minusDays(5), NOW.minusSeconds(60));
+        when(reservationRepository.findActiveHolds()).thenReturn(List.of(held));
+        when(reservationRepository.endHold(held, false)).thenReturn(true);
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS)).thenReturn(null).thenReturn(List.of());
+        book.setAvailable(false);
+        when(bookRepository.findById(7)).thenReturn(book);
+        when(bookRepository.updateBook(7, book)).thenReturn(true);
+        holdService.rebuild();
+
+        // Act
+        clock.instant = NOW.plusMillis(HoldService.TICK_MILLIS);
+        int expired = holdService.expireDue();
+        boolean availableAfterFailure = book.isAvailable();
+        clock.instant = NOW.plusSeconds(90);
+        int expiredOnRetry = holdService.expireDue();
+
+        // Assert
+        Assertions.assertEquals(1, expired);
+        Assertions.assertFalse(availableAfterFailure);
+        Assertions.assertEquals(0, expiredOnRetry);
+        Assertions.assertTrue(book.isAvailable());
+        Assertions.assertEquals(0, holdService.getActiveHoldCount());
+        verify(reservationRepository, times(1)).endHold(held, false);
+    }
+
+    /**
+     * Tests that the last expired hold of a book makes it available again.
+     */
+    @Test
+    void testExpireDue_NobodyLeftMakesBookAvailable() {
+        // Arrange
+        Reservation held = new Reservation(1, 7, 20, TODAY.minusDays(5), NOW.minusSeconds(60));
+        when(reservationRepository.findActiveHolds()).thenReturn(List.of(held));
+        when(reservationRepository.endHold(held, false)).thenReturn(true);
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS)).thenReturn(List.of());
+        book.setAvailable(false);
+        when(bookRepository.findById(7)).thenReturn(book);
+        when(bookRepository.updateBook(7, book)).thenReturn(true);
+
+        // Act
+        int loaded = holdService.rebuild();
+        clock.instant = NOW.plusMillis(HoldService.TICK_MILLIS);
+        int expired = holdService.expireDue();
+
+        // Assert
+        Assertions.assertEquals(1, loaded);
+        Assertions.assertEquals(1, expired);
+        Assertions.assertTrue(book.isAvailable());
+        Assertions.assertEquals(0, holdService.getActiveHoldCount());
+        verify(invalidationBus, times(1)).publish(CacheRegion.BOOK, 7);
+    }
+
+    /**
+     * Tests that a picked-up hold is fulfilled and no longer expires.
+     */
+    @Test
+    void testPickUp_CancelsExpiry() {
+        // Arrange
+        Reservation held = new Reservation(1, 7, 20, TODAY.minusDays(5), NOW.plus(HOLD_PERIOD));
+        Reservation stored = new Reservation(1, 7, 20, TODAY.minusDays(5), NOW.plus(HOLD_PERIOD));
+        when(reservationRepository.findActiveHolds()).thenReturn(List.of(held));
+        when(reservationRepository.findHold(7, 21)).thenReturn(null);
+        when(reservationRepository.findHold(7, 20)).thenReturn(stored);
+        when(reservationRepository.endHold(stored, true)).thenReturn(true);
+        holdService.rebuild();
+
+        // Act
+        Reservation wrongUser = holdService.pickUp(7, 21);
+        Reservation pickedUp = holdService.pickUp(7, 20);
+        clock.instant = NOW.plus(HOLD_PERIOD).plusSeconds(10);
+        int expired = holdService.expireDue();
+
+        // Assert
+        Assertions.assertNull(wrongUser);
+        Assertions.assertSame(stored, pickedUp);
+        Assertions.assertEquals(0, expired);
+        Assertions.assertEquals(0, holdService.getActiveHoldCount());
+        verify(reservationRepository, never()).endHold(any(), eq(false));
+    }
+
+    /**
+     * Tests that a hold started by another node is seen and can be picked up through this one.
+     */
+    @Test
+    void testPickUp_HoldStartedElsewhere() {
+        // Arrange
+        Reservation stored = new Reservation(1, 7, 20, TODAY.minusDays(5), NOW.plus(HOLD_PERIOD));
+        when(reservationRepository.findHold(7, 20)).thenReturn(stored, stored, null);
+        when(reservationRepository.endHold(stored, true)).thenReturn(true);
+
+        // Act
+        boolean held = holdService.isHeldFor(7, 20);
+        Reservation pickedUp = holdService.pickUp(7, 20);
+        boolean heldAfter = holdService.isHeldFor(7, 20);
+
+        // Assert
+        Assertions.assertTrue(held);
+        Assertions.assertSame(stored, pickedUp);
+        Assertions.assertFalse(heldAfter);
+        Assertions.assertEquals(0, holdService.getActiveHoldCount());
+    }
+
+    /**
+     * Tests that a hold ended meanwhile by an expiry elsewhere cannot be picked up.
+     */
+    @Test
+    void testPickUp_HoldEndedMeanwhile() {
+        // Arrange
+        Reservation stored = new Reservation(1, 7, 20, TODAY.minusDays(5), NOW);
+        when(reservationRepository.findHold(7, 20)).thenReturn(stored);
+        when(reservationRepository.endHold(stored, true)).thenReturn(false);
+
+        // Act & Assert
+        Assertions.assertNull(holdService.pickUp(7, 20));
+    }
+
+    /**
+     * Tests that a hold restored after a failed loan keeps its deadline and expires on it.
+     */
+    @Test
+    void testRestoreHold_KeepsDeadline() {
+        // Arrange
+        Reservation stored = new Reservation(1, 7, 20, TODAY.minusDays(5), NOW.plus(HOLD_PERIOD));
+        when(reservationRepository.findHold(7, 20)).thenReturn(stored);
+        when(reservationRepository.endHold(stored, true)).thenReturn(true);
+        when(reservationRepository.reopenHold(stored)).thenReturn(true);
+        when(reservationRepository.endHold(stored, false)).thenReturn(true);
+        when(reservationRepository.findWaiting(7, HoldService.MAX_CLAIM_ATTEMPTS)).thenReturn(List.of());
+        when(bookRepository.findById(7)).thenReturn(book);
+        when(bookRepository.updateBook(7, book)).thenReturn(true);
+
+        // Act
+        Reservation pickedUp = holdService.pickUp(7, 20);
+        boolean restored = holdService.restoreHold(pickedUp);
+        int pending = holdService.getActiveHoldCount();
+        clock.instant = NOW.plus(HOLD_PERIOD).minusSeconds(10);
+        int expiredEarly = holdService.expireDue();
+        clock.instant = NOW.plus(HOLD_PERIOD).plusSeconds(10);
+        int expired = holdService.expireDue();
+
+        // Assert
+        Assertions.assertTrue(restored);
+        Assertions.assertEquals(1, pending);
+        Assertions.assertEquals(0, expiredEarly);
+        Assertions.assertEquals(1, expired);
+    }
+
+    /**
+     * Tests that a failed reload of the holds is reported.
+     */
+    @Test
+    void testRebuild_DatabaseError() {
+        when(reservationRepository.findActiveHolds()).thenReturn(null);
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> holdService.rebuild());
+
+        Assertions.assertEquals("Connection error", exception.getMessage());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        Instant instant;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the IsbnCodec class.
+ */
+class IsbnCodecTest {
+
+    /**
+     * Tests that every form of the same ISBN encodes to the same ISBN-13 value.
+     */
+    @Test
+    void testEncode_NormalizesForms() {
+        // Act
+        long isbn13 = IsbnCodec.encode("9780439420891");
+        long hyphenated = IsbnCodec.encode("978-0-439-42089-1");
+        long isbn10 = IsbnCodec.encode("043942089X");
+        long isbn10Lower = IsbnCodec.encode("0 439 42089 x");
+
+        // Assert
+        Assertions.assertEquals(9780439420891L, isbn13);
+        Assertions.assertEquals(isbn13, hyphenated);
+        Assertions.assertEquals(isbn13, isbn10);
+        Assertions.assertEquals(isbn13, isbn10Lower);
+        Assertions.assertEquals("9780439420891", IsbnCodec.decode(isbn10));
+        Assertions.assertEquals("9780060883287", IsbnCodec.normalize("0060883286"));
+    }
+
+    /**
+     * Tests that malformed ISBNs and wrong check digits are rejected.
+     */
+    @Test
+    void testEncode_RejectsInvalid() {
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode("9780439420892")); // wrong ISBN-13 check digit
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode("0439420891")); // wrong ISBN-10 check digit
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode("1234567890123")); // not a 978/979 prefix
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode("04394208X9"));
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode("043942089X1"));
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode("97804394208910"));
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode("invalid-isbn"));
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode(""));
+        Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode(null));
+        Assertions.assertFalse(IsbnCodec.isValid("1234567890"));
+        Assertions.assertNull(IsbnCodec.normalize("1234567890"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IsbnCodec.decode(IsbnCodec.INVALID));
+    }
+
+    /**
+     * Tests the ISBN-13 check digit over a run of consecutive ISBNs.
+     */
+    @Test
+    void testWithCheckDigit_RoundTrip() {
+        for (long first12 = 979_100_000_000L; first12 < 979_100_001_000L; first12++) {
+            long isbn = IsbnCodec.withCheckDigit(first12);
+            Assertions.assertEquals(isbn, IsbnCodec.encode(Long.toString(isbn)));
+            Assertions.assertEquals(IsbnCodec.INVALID, IsbnCodec.encode(Long.toString(isbn + (isbn % 10 == 9 ? -1 : 1))));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.LoanRepository;
+
+import java.time.LocalDate;
+import java.time.Period;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the LoanArchiveService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class LoanArchiveServiceTest {
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    private LoanArchiveService loanArchiveService;
+
+    @BeforeEach
+    void setUp() {
+        loanArchiveService = new LoanArchiveService(loanRepository, Period.ofMonths(6));
+    }
+
+    /**
+     * Tests that loans returned before the horizon are archived.
+     */
+    @Test
+    void testArchiveReturnedLoans_Success() {
+        // Arrange
+        LocalDate today = LocalDate.of(2024, 6, 10);
+        when(loanRepository.archiveReturnedLoans(LocalDate.of(2023, 12, 10))).thenReturn(3);
+
+        // Act
+        int result = loanArchiveService.archiveReturnedLoans(today);
+
+        // Assert
+        Assertions.assertEquals(3, result);
+        verify(loanRepository, times(1)).archiveReturnedLoans(LocalDate.of(2023, 12, 10));
+    }
+
+    /**
+     * Tests the case when the archive statement fails.
+     */
+    @Test
+    void testArchiveReturnedLoans_DatabaseError() {
+        // Arrange
+        LocalDate today = LocalDate.of(2024, 6, 10);
+        when(loanRepository.archiveReturnedLoans(any(LocalDate.class))).thenReturn(-1);
+
+        // Act
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                loanArchiveService.archiveReturnedLoans(today)
+        );
+
+        // Assert
+        Assertions.assertEquals("Loan archiving failed", exception.getMessage());
+    }
+
+    /**
+     * Tests the case when the archive horizon is not positive.
+     */
+    @Test
+    void testConstructor_InvalidHorizon() {
+        // Act
+        RuntimeException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                new LoanArchiveService(loanRepository, Period.ZERO)
+        );
+
+        // Assert
+        Assertions.assertEquals("Archive horizon must be greater than zero", exception.getMessage());
+    }
+}
@@ -0,0 +1,137 @@
+package service;
+
+import entity.OutboxMessage;
+import entity.OverdueLoan;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.LoanRepository;
+import repository.OutboxRepository;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the LoanDigestService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class LoanDigestServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 10);
+
+    @Mock
+    private LoanRepository loanRepository;
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    private LoanDigestService loanDigestService;
+
+    @BeforeEach
+    void setUp() {
+        loanDigestService = new LoanDigestService(loanRepository, outboxRepository, Period.ofDays(3));
+    }
+
+    private void streamLoans(OverdueLoan... loans) {
+        when(loanRepository.streamDueLoansByUser(eq(TODAY.plusDays(3)), any())).thenAnswer(invocation -> {
+            Consumer<OverdueLoan> consumer = invocation.getArgument(1);
+            for (OverdueLoan loan : loans) {
+                consumer.accept(loan);
+            }
+            return true;
+        });
+    }
+
+    private static OverdueLoan loan(int userId, String name, String title, LocalDate dueDate) {
+        return new OverdueLoan(1, title, "9780000000000", userId, name, name.toLowerCase() + "@mail.com", dueDate);
+    }
+
+    /**
+     * Tests that each user gets one digest listing all of their loans.
+     */
+    @Test
+    void testQueueDigests_OnePerUser() {
+        // Arrange
+        streamLoans(
+                loan(1, "Ana", "Rayuela", TODAY.minusDays(2)),
+                loan(1, "Ana", "Ficciones", TODAY.plusDays(1)),
+                loan(2, "Luis", "Emma", TODAY));
+        when(outboxRepository.enqueueOnce(any(OutboxMessage.class), anyString())).thenReturn(true);
+
+        // Act
+        int queued = loanDigestService.queueDigests(TODAY);
+
+        // Assert
+        Assertions.assertEquals(2, queued);
+        ArgumentCaptor<OutboxMessage> captor = ArgumentCaptor.forClass(OutboxMessage.class);
+        verify(outboxRepository, times(1)).enqueueOnce(captor.capture(), eq("loan_digest:1:2024-06-10"));
+        verify(outboxRepository, times(1)).enqueueOnce(captor.capture(), eq("loan_digest:2:2024-06-10"));
+        List<OutboxMessage> digests = captor.getAllValues();
+
+        Assertions.assertEquals("ana@mail.com", digests.get(0).getRecipient());
+        Assertions.assertEquals("Resumen de sus préstamos (2)", digests.get(0).getSubject());
+        Assertions.assertTrue(digests.get(0).getBody().startsWith("Estimado Ana,"));
+        Assertions.assertTrue(digests.get(0).getBody().contains(
+                "- 'Rayuela', fecha de devolución 2024-06-08\n- 'Ficciones', fecha de devolución 2024-06-11\n"));
+        Assertions.assertEquals("luis@mail.com", digests.get(1).getRecipient());
+        Assertions.assertFalse(digests.get(1).getBody().contains("Rayuela"));
+    }
+
+    /**
+     * Tests that nothing is queued when no loans are due.
+     */
+    @Test
+    void testQueueDigests_NoLoans() {
+        // Arrange
+        streamLoans();
+
+        // Act
+        int queued = loanDigestService.queueDigests(TODAY);
+
+        // Assert
+        Assertions.assertEquals(0, queued);
+        verifyNoInteractions(outboxRepository);
+    }
+
+    /**
+     * Tests that a digest rejected by the outbox is not counted and does not stop the others.
+     */
+    @Test
+    void testQueueDigests_EnqueueFails() {
+        // Arrange
+        streamLoans(loan(1, "Ana", "Rayuela", TODAY), loan(2, "Luis", "Emma", TODAY));
+        when(outboxRepository.enqueueOnce(any(OutboxMessage.class), anyString())).thenReturn(false, true);
+
+        // Act
+        int queued = loanDigestService.queueDigests(TODAY);
+
+        // Assert
+        Assertions.assertEquals(1, queued);
+        verify(outboxRepository, times(2)).enqueueOnce(any(OutboxMessage.class), anyString());
+    }
+
+    /**
+     * Tests the case when the loans cannot be read.
+     */
+    @Test
+    void testQueueDigests_DatabaseError() {
+        // Arrange
+        when(loanRepository.streamDueLoansByUser(any(LocalDate.class), any())).thenReturn(false);
+
+        // Act
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                loanDigestService.queueDigests(TODAY));
+
+        // Assert
+        Assertions.assertEquals("Connection error", exception.getMessage());
+    }
+}
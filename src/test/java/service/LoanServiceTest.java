@@ -2,9 +2,13 @@ package service;
 
 import entity.Book;
 import entity.Loan;
+import entity.OutboxMessage;
+import entity.OverdueLoan;
+import entity.Reservation;
 import entity.User;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -15,12 +19,19 @@ import repository.UserRepository;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
 import java.sql.Date;
 
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
 
 @ExtendWith(MockitoExtension.class)
@@ -68,15 +79,163 @@ class LoanServiceTest {
 
             when(bookRepository.findById(bookId)).thenReturn(availableBook);
             when(userRepository.findById(userId)).thenReturn(validUser);
-            when(loanRepository.saveLoan(any(Loan.class))).thenReturn(true);
+            when(bookRepository.updateBook(bookId, availableBook)).thenReturn(true);
+            when(loanRepository.saveLoan(any(Loan.class), any(OutboxMessage.class))).thenReturn(true);
 
             // Act
             boolean result = loanService.loanBook(bookId, userId, loanDate, returnDate);
 
             // Assert
             Assertions.assertTrue(result);
-            verify(bookRepository, times(1)).saveBook(availableBook);
-            verify(loanRepository, times(1)).saveLoan(any(Loan.class));
+            verify(bookRepository, times(1)).updateBook(bookId, availableBook);
+            verify(loanRepository, times(1)).saveLoan(any(Loan.class), argThat(notification ->
+                    notification.getRecipient().equals(validUser.getEmail())
+                            && notification.getBody().contains(returnDate.toString())));
+            verify(emailService, never()).sendEmail(anyString(), anyString(), anyString());
+        }
+
+        /**
+         * Tests that listeners hear about a saved loan, and that a failing listener does not fail it.
+         */
+        @Test
+        void testLoanBook_NotifiesListeners() {
+            // Arrange
+            int bookId = 1;
+            int userId = 1;
+            LocalDate loanDate = LocalDate.now();
+            LoanListener failing = mock(LoanListener.class);
+            LoanListener listener = mock(LoanListener.class);
+            doThrow(new IllegalStateException("listener down")).when(failing).loanCreated(any(), any());
+            LoanService notifyingService = new LoanService(loanRepository, bookRepository, userRepository, emailService,
+                    null, List.of(failing, listener));
+
+            when(bookRepository.findById(bookId)).thenReturn(availableBook);
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(bookRepository.updateBook(bookId, availableBook)).thenReturn(true);
+            when(loanRepository.saveLoan(any(Loan.class), any(OutboxMessage.class))).thenReturn(true);
+
+            // Act
+            boolean result = notifyingService.loanBook(bookId, userId, loanDate, loanDate.plusWeeks(2));
+
+            // Assert
+            Assertions.assertTrue(result);
+            verify(listener, times(1)).loanCreated(argThat(loan -> loan.getLoanDate().equals(loanDate)), eq(availableBook));
+        }
+
+        /**
+         * Tests that a cached book is evicted by a local loan and return, so its availability is read again.
+         */
+        @Test
+        void testLoanBook_EvictsCachedBook() {
+            // Arrange
+            int bookId = 1;
+            LocalDate loanDate = LocalDate.now();
+            Book book = new Book(bookId, "Cien Años de Soledad", "Gabriel García Márquez", "9780060883287", true);
+            CatalogCache catalogCache = new CatalogCache();
+            LoanService cachingService = new LoanService(loanRepository, bookRepository, userRepository, emailService,
+                    null, List.of(catalogCache));
+
+            when(bookRepository.findById(bookId)).thenReturn(book);
+            when(userRepository.findById(1)).thenReturn(validUser);
+            when(bookRepository.updateBook(bookId, book)).thenReturn(true);
+            when(loanRepository.saveLoan(any(Loan.class), any(OutboxMessage.class))).thenReturn(true);
+            when(loanRepository.findById(5)).thenReturn(new Loan(5, bookId, 1, loanDate, loanDate.plusWeeks(2), null));
+            when(loanRepository.updateReturnedDate(5, loanDate)).thenReturn(true);
+
+            // Act
+            catalogCache.put(book);
+            cachingService.loanBook(bookId, 1, loanDate, loanDate.plusWeeks(2));
+            Book afterLoan = catalogCache.getById(bookId);
+            catalogCache.put(book);
+            cachingService.returnBook(5);
+            Book afterReturn = catalogCache.getById(bookId);
+
+            // Assert
+            Assertions.assertNull(afterLoan);
+            Assertions.assertNull(afterReturn);
+        }
+
+        /**
+         * Tests that the user a book is held for can borrow it, and nobody else can.
+         */
+        @Test
+        void testLoanBook_HeldForUser() {
+            // Arrange
+            int bookId = 2;
+            LocalDate loanDate = LocalDate.now();
+            HoldService holdService = mock(HoldService.class);
+            LoanService holdingService = new LoanService(loanRepository, bookRepository, userRepository, emailService,
+                    null, null, holdService);
+
+            when(bookRepository.findById(bookId)).thenReturn(unavailableBook);
+            when(userRepository.findById(anyInt())).thenReturn(validUser);
+            when(holdService.isHeldFor(bookId, 1)).thenReturn(true);
+            when(holdService.pickUp(bookId, 1)).thenReturn(new Reservation(3, bookId, 1, loanDate.minusDays(5), null));
+            when(bookRepository.updateBook(bookId, unavailableBook)).thenReturn(true);
+            when(loanRepository.saveLoan(any(Loan.class), any(OutboxMessage.class))).thenReturn(true);
+
+            // Act
+            boolean result = holdingService.loanBook(bookId, 1, loanDate, loanDate.plusWeeks(2));
+            RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                    () -> holdingService.loanBook(bookId, 2, loanDate, loanDate.plusWeeks(2)));
+
+            // Assert
+            Assertions.assertTrue(result);
+            Assertions.assertEquals("Book is not available for loan", exception.getMessage());
+            verify(holdService, times(1)).pickUp(bookId, 1);
+            verify(holdService, never()).pickUp(bookId, 2);
+        }
+
+        /**
+         * Tests that a hold picked up for a loan that could not be saved is restored, so the book is not lost.
+         */
+        @Test
+        void testLoanBook_HeldLoanFailedRestoresHold() {
+            // Arrange
+            int bookId = 2;
+            LocalDate loanDate = LocalDate.now();
+            HoldService holdService = mock(HoldService.class);
+            LoanService holdingService = new LoanService(loanRepository, bookRepository, userRepository, emailService,
+                    null, null, holdService);
+            Reservation hold = new Reservation(3, bookId, 1, loanDate.minusDays(5), null);
+
+            when(bookRepository.findById(bookId)).thenReturn(unavailableBook);
+            when(userRepository.findById(1)).thenReturn(validUser);
+            when(holdService.isHeldFor(bookId, 1)).thenReturn(true);
+            when(holdService.pickUp(bookId, 1)).thenReturn(hold);
+            when(bookRepository.updateBook(bookId, unavailableBook)).thenReturn(true);
+            when(loanRepository.saveLoan(any(Loan.class), any(OutboxMessage.class))).thenReturn(false);
+
+            // Act
+            boolean result = holdingService.loanBook(bookId, 1, loanDate, loanDate.plusWeeks(2));
+
+            // Assert
+            Assertions.assertFalse(result);
+            verify(holdService, times(1)).restoreHold(hold);
+        }
+
+        /**
+         * Tests the case when the book cannot be marked as loaned; no loan is saved.
+         */
+        @Test
+        void testLoanBook_BookAvailabilityUpdateFailed() {
+            // Arrange
+            int bookId = 1;
+            int userId = 1;
+            LocalDate loanDate = LocalDate.now();
+
+            when(bookRepository.findById(bookId)).thenReturn(availableBook);
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(bookRepository.updateBook(bookId, availableBook)).thenReturn(false);
+
+            // Act
+            RuntimeException exception = Assertions.assertThrows(RuntimeException.class,
+                    () -> loanService.loanBook(bookId, userId, loanDate, loanDate.plusWeeks(2)));
+
+            // Assert
+            Assertions.assertEquals("Book availability update failed", exception.getMessage());
+            verify(bookRepository, never()).saveBook(any(Book.class));
+            verify(loanRepository, never()).saveLoan(any(Loan.class), any(OutboxMessage.class));
         }
 
         /**
@@ -100,8 +259,8 @@ class LoanServiceTest {
 
             // Assert
             Assertions.assertEquals(expectedMessage, exception.getMessage());
-            verify(bookRepository, never()).saveBook(any(Book.class));
-            verify(loanRepository, never()).saveLoan(any(Loan.class));
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
+            verify(loanRepository, never()).saveLoan(any(Loan.class), any(OutboxMessage.class));
         }
 
         /**
@@ -127,8 +286,8 @@ class LoanServiceTest {
 
             // Assert
             Assertions.assertEquals(expectedMessage, exception.getMessage());
-            verify(bookRepository, never()).saveBook(any(Book.class));
-            verify(loanRepository, never()).saveLoan(any(Loan.class));
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
+            verify(loanRepository, never()).saveLoan(any(Loan.class), any(OutboxMessage.class));
         }
 
         /**
@@ -153,8 +312,8 @@ class LoanServiceTest {
 
             // Assert
             Assertions.assertEquals(expectedMessage, exception.getMessage());
-            verify(bookRepository, never()).saveBook(any(Book.class));
-            verify(loanRepository, never()).saveLoan(any(Loan.class));
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
+            verify(loanRepository, never()).saveLoan(any(Loan.class), any(OutboxMessage.class));
         }
 
         /**
@@ -179,8 +338,8 @@ class LoanServiceTest {
 
             // Assert
             Assertions.assertEquals(expectedMessage, exception.getMessage());
-            verify(bookRepository, never()).saveBook(any(Book.class));
-            verify(loanRepository, never()).saveLoan(any(Loan.class));
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
+            verify(loanRepository, never()).saveLoan(any(Loan.class), any(OutboxMessage.class));
         }
 
         /**
@@ -205,12 +364,155 @@ class LoanServiceTest {
 
             // Assert
             Assertions.assertEquals(expectedMessage, exception.getMessage());
-            verify(bookRepository, never()).saveBook(any(Book.class));
-            verify(loanRepository, never()).saveLoan(any(Loan.class));
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
+            verify(loanRepository, never()).saveLoan(any(Loan.class), any(OutboxMessage.class));
         }
 
     }
 
+    /**
+     * Unit tests for the loanBooks method of the LoanService class.
+     */
+    @Nested
+    class LoanBooksTests {
+
+        /**
+         * Tests that each requested book gets its own outcome.
+         */
+        @Test
+        void testLoanBooks_MixedOutcomes() {
+            // Arrange
+            int userId = 1;
+            int[] bookIds = {1, 2, 3};
+            LocalDate loanDate = LocalDate.now();
+            LocalDate returnDate = LocalDate.now().plusWeeks(2);
+
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(bookRepository.findByIds(bookIds)).thenReturn(Map.of(1, availableBook, 2, unavailableBook));
+            when(loanRepository.loanBooks(eq(userId), aryEq(new int[]{1}), eq(loanDate), eq(returnDate), anyMap()))
+                    .thenReturn(List.of(new Loan(1, userId, loanDate, returnDate)));
+
+            // Act
+            Map<Integer, LoanOutcome> result = loanService.loanBooks(userId, bookIds, loanDate, returnDate);
+
+            // Assert
+            Assertions.assertEquals(Map.of(1, LoanOutcome.LOANED, 2, LoanOutcome.NOT_AVAILABLE, 3, LoanOutcome.BOOK_NOT_FOUND), result);
+            verify(userRepository, times(1)).findById(userId);
+            verify(loanRepository, never()).closeConnection();
+        }
+
+        /**
+         * Tests that bulk loans queue their return reminders with the loans and have their reminders scheduled.
+         */
+        @Test
+        void testLoanBooks_SchedulesReminders() {
+            // Arrange
+            int userId = 1;
+            int[] bookIds = {1};
+            LocalDate loanDate = LocalDate.now();
+            LocalDate returnDate = LocalDate.now().plusWeeks(2);
+            ReminderScheduler reminderScheduler = mock(ReminderScheduler.class);
+            LoanService schedulingService = new LoanService(loanRepository, bookRepository, userRepository, emailService,
+                    reminderScheduler);
+            Loan saved = new Loan(41, 1, userId, loanDate, returnDate, null);
+
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(bookRepository.findByIds(bookIds)).thenReturn(Map.of(1, availableBook));
+            when(loanRepository.loanBooks(eq(userId), aryEq(bookIds), eq(loanDate), eq(returnDate), argThat(reminders ->
+                    reminders.size() == 1 && reminders.get(1).getRecipient().equals(validUser.getEmail())
+                            && reminders.get(1).getBody().contains(returnDate.toString()))))
+                    .thenReturn(List.of(saved));
+
+            // Act
+            Map<Integer, LoanOutcome> result = schedulingService.loanBooks(userId, bookIds, loanDate, returnDate);
+
+            // Assert
+            Assertions.assertEquals(Map.of(1, LoanOutcome.LOANED), result);
+            verify(reminderScheduler, times(1)).schedule(saved);
+        }
+
+        /**
+         * Tests the case when a book is claimed by someone else between the read and the update.
+         */
+        @Test
+        void testLoanBooks_ClaimedConcurrently() {
+            // Arrange
+            int userId = 1;
+            int[] bookIds = {1};
+            LocalDate loanDate = LocalDate.now();
+            LocalDate returnDate = LocalDate.now().plusWeeks(2);
+
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(bookRepository.findByIds(bookIds)).thenReturn(Map.of(1, availableBook));
+            when(loanRepository.loanBooks(eq(userId), eq(bookIds), eq(loanDate), eq(returnDate), anyMap())).thenReturn(List.of());
+
+            // Act
+            Map<Integer, LoanOutcome> result = loanService.loanBooks(userId, bookIds, loanDate, returnDate);
+
+            // Assert
+            Assertions.assertEquals(Map.of(1, LoanOutcome.NOT_AVAILABLE), result);
+        }
+
+        /**
+         * Tests the case when the user is not found.
+         */
+        @Test
+        void testLoanBooks_UserNotFound() {
+            // Arrange
+            int userId = 1;
+            int[] bookIds = {1, 2};
+            when(userRepository.findById(userId)).thenReturn(null);
+
+            // Act
+            RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                    loanService.loanBooks(userId, bookIds, LocalDate.now(), LocalDate.now().plusWeeks(2))
+            );
+
+            // Assert
+            Assertions.assertEquals("User not found", exception.getMessage());
+            verify(loanRepository, never()).loanBooks(anyInt(), any(int[].class), any(LocalDate.class), any(LocalDate.class), anyMap());
+        }
+
+        /**
+         * Tests the case when the transaction is rolled back.
+         */
+        @Test
+        void testLoanBooks_TransactionFailed() {
+            // Arrange
+            int userId = 1;
+            int[] bookIds = {1};
+            LocalDate loanDate = LocalDate.now();
+            LocalDate returnDate = LocalDate.now().plusWeeks(2);
+
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(bookRepository.findByIds(bookIds)).thenReturn(Map.of(1, availableBook));
+            when(loanRepository.loanBooks(eq(userId), eq(bookIds), eq(loanDate), eq(returnDate), anyMap())).thenReturn(null);
+
+            // Act
+            RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                    loanService.loanBooks(userId, bookIds, loanDate, returnDate)
+            );
+
+            // Assert
+            Assertions.assertEquals("Loan transaction failed", exception.getMessage());
+        }
+
+        /**
+         * Tests the case when no book is requested.
+         */
+        @Test
+        void testLoanBooks_EmptyBookIds() {
+            // Act
+            RuntimeException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    loanService.loanBooks(1, new int[0], LocalDate.now(), LocalDate.now().plusWeeks(2))
+            );
+
+            // Assert
+            Assertions.assertEquals("Book IDs cannot be null or empty", exception.getMessage());
+            verify(userRepository, never()).findById(anyInt());
+        }
+    }
+
     /**
      * Unit tests for the returnBook method of the LoanService class.
      */
@@ -242,6 +544,35 @@ class LoanServiceTest {
             verify(loanRepository, times(1)).updateReturnedDate(loanId, LocalDate.now());
         }
 
+        /**
+         * Tests that a book held for a reservation on return stays unavailable, the loan being closed first.
+         */
+        @Test
+        void testReturnBook_HeldForReservation() {
+            // Arrange
+            int loanId = 1;
+            Loan activeLoan = new Loan(1, 1, LocalDate.now(), LocalDate.now().plusDays(2), LocalDate.now().plusDays(2));
+            HoldService holdService = mock(HoldService.class);
+            LoanService holdingService = new LoanService(loanRepository, bookRepository, userRepository, emailService,
+                    null, null, holdService);
+
+            when(loanRepository.findById(loanId)).thenReturn(activeLoan);
+            when(bookRepository.findById(activeLoan.getBookID())).thenReturn(unavailableBook);
+            when(loanRepository.updateReturnedDate(loanId, LocalDate.now())).thenReturn(true);
+            when(holdService.holdReturned(activeLoan.getBookID())).thenReturn(true);
+
+            // Act
+            boolean result = holdingService.returnBook(loanId);
+
+            // Assert
+            Assertions.assertTrue(result);
+            Assertions.assertFalse(unavailableBook.isAvailable());
+            InOrder inOrder = inOrder(loanRepository, holdService);
+            inOrder.verify(loanRepository).updateReturnedDate(loanId, LocalDate.now());
+            inOrder.verify(holdService).holdReturned(activeLoan.getBookID());
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
+        }
+
         /**
          * Tests the case when the loan to be returned is not found.
          */
@@ -265,7 +596,7 @@ class LoanServiceTest {
         }
 
         /**
-         * Tests the case when the book availability update fails upon returning the book.
+         * Tests the case when the book availability update fails upon returning the book; the loan is opened again.
          */
         @Test
         void testReturnBook_BookAvailabilityUpdateFailed() {
@@ -276,6 +607,7 @@ class LoanServiceTest {
 
             when(loanRepository.findById(loanId)).thenReturn(activeLoan);
             when(bookRepository.findById(activeLoan.getBookID())).thenReturn(unavailableBook);
+            when(loanRepository.updateReturnedDate(loanId, LocalDate.now())).thenReturn(true);
             when(bookRepository.updateBook(activeLoan.getBookID(), unavailableBook)).thenReturn(false);
 
             // Act
@@ -286,7 +618,7 @@ class LoanServiceTest {
             verify(loanRepository, times(1)).findById(loanId);
             verify(bookRepository, times(1)).findById(activeLoan.getBookID());
             verify(bookRepository, times(1)).updateBook(activeLoan.getBookID(), unavailableBook);
-            verify(loanRepository, never()).updateReturnedDate(anyInt(), any(LocalDate.class));
+            verify(loanRepository, times(1)).reopenLoans(List.of(loanId), LocalDate.now());
         }
 
         /**
@@ -301,7 +633,6 @@ class LoanServiceTest {
 
             when(loanRepository.findById(loanId)).thenReturn(activeLoan);
             when(bookRepository.findById(activeLoan.getBookID())).thenReturn(unavailableBook);
-            when(bookRepository.updateBook(activeLoan.getBookID(), unavailableBook)).thenReturn(true);
             when(loanRepository.updateReturnedDate(loanId, LocalDate.now())).thenReturn(false);
 
             // Act
@@ -311,11 +642,127 @@ class LoanServiceTest {
             Assertions.assertEquals(expectedMessage, exception.getMessage());
             verify(loanRepository, times(1)).findById(loanId);
             verify(bookRepository, times(1)).findById(activeLoan.getBookID());
-            verify(bookRepository, times(1)).updateBook(activeLoan.getBookID(), unavailableBook);
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
             verify(loanRepository, times(1)).updateReturnedDate(loanId, LocalDate.now());
         }
     }
 
+    /**
+     * Unit tests for the returnBooks method of the LoanService class.
+     */
+    @Nested
+    class ReturnBooksTests {
+
+        /**
+         * Tests that each loan of the batch gets its own outcome.
+         */
+        @Test
+        void testReturnBooks_MixedOutcomes() {
+            // Arrange
+            int[] loanIds = {10, 11, 12, 13};
+            Loan openLoan = new Loan(10, 1, 1, LocalDate.now().minusDays(7), LocalDate.now().plusDays(7), null);
+            Loan failingLoan = new Loan(11, 2, 1, LocalDate.now().minusDays(7), LocalDate.now().plusDays(7), null);
+            Loan returnedLoan = new Loan(12, 3, 1, LocalDate.now().minusDays(7), LocalDate.now().plusDays(7), LocalDate.now().minusDays(1));
+
+            when(loanRepository.findByIds(loanIds)).thenReturn(Map.of(10, openLoan, 11, failingLoan, 12, returnedLoan));
+            when(loanRepository.returnLoans(eq(Map.of(10, 1, 11, 2)), eq(LocalDate.now()), any(IntPredicate.class)))
+                    .thenReturn(Set.of(10));
+
+            // Act
+            Map<Integer, ReturnOutcome> result = loanService.returnBooks(loanIds);
+
+            // Assert
+            Assertions.assertEquals(Map.of(
+                    10, ReturnOutcome.RETURNED,
+                    11, ReturnOutcome.FAILED,
+                    12, ReturnOutcome.ALREADY_RETURNED,
+                    13, ReturnOutcome.LOAN_NOT_FOUND), result);
+            verify(loanRepository, times(1)).findByIds(loanIds);
+            verify(loanRepository, never()).findById(anyInt());
+            verify(bookRepository, never()).updateBook(anyInt(), any(Book.class));
+        }
+
+        /**
+         * Tests that the batch offers the book of each closed loan to the holds.
+         */
+        @Test
+        void testReturnBooks_KeepsHeldBooksUnavailable() {
+            // Arrange
+            int[] loanIds = {10, 11};
+            Loan heldLoan = new Loan(10, 1, 1, LocalDate.now().minusDays(7), LocalDate.now().plusDays(7), null);
+            Loan freeLoan = new Loan(11, 2, 1, LocalDate.now().minusDays(7), LocalDate.now().plusDays(7), null);
+            HoldService holdService = mock(HoldService.class);
+            LoanService holdingService = new LoanService(loanRepository, bookRepository, userRepository, emailService,
+                    null, null, holdService);
+
+            when(loanRepository.findByIds(loanIds)).thenReturn(Map.of(10, heldLoan, 11, freeLoan));
+            when(holdService.holdReturned(1)).thenReturn(true);
+            when(holdService.holdReturned(2)).thenReturn(false);
+            when(loanRepository.returnLoans(eq(Map.of(10, 1, 11, 2)), eq(LocalDate.now()), any(IntPredicate.class)))
+                    .thenAnswer(invocation -> {
+                        IntPredicate holdBook = invocation.getArgument(2);
+                        return holdBook.test(1) && !holdBook.test(2) ? Set.of(10, 11) : Set.of();
+                    });
+
+            // Act
+            Map<Integer, ReturnOutcome> result = holdingService.returnBooks(loanIds);
+
+            // Assert
+            Assertions.assertEquals(Map.of(10, ReturnOutcome.RETURNED, 11, ReturnOutcome.RETURNED), result);
+            verify(holdService, times(1)).holdReturned(1);
+            verify(holdService, times(1)).holdReturned(2);
+        }
+
+        /**
+         * Tests that no update is sent when none of the loans can be returned.
+         */
+        @Test
+        void testReturnBooks_NothingToReturn() {
+            // Arrange
+            int[] loanIds = {10};
+            when(loanRepository.findByIds(loanIds)).thenReturn(Map.of());
+
+            // Act
+            Map<Integer, ReturnOutcome> result = loanService.returnBooks(loanIds);
+
+            // Assert
+            Assertions.assertEquals(Map.of(10, ReturnOutcome.LOAN_NOT_FOUND), result);
+            verify(loanRepository, never()).returnLoans(anyMap(), any(LocalDate.class), any(IntPredicate.class));
+        }
+
+        /**
+         * Tests that a failed lookup is reported as an error instead of every loan being not found.
+         */
+        @Test
+        void testReturnBooks_LookupFailed() {
+            // Arrange
+            int[] loanIds = {10};
+            when(loanRepository.findByIds(loanIds)).thenReturn(null);
+
+            // Act
+            RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                    loanService.returnBooks(loanIds));
+
+            // Assert
+            Assertions.assertEquals("Connection error", exception.getMessage());
+            verify(loanRepository, never()).returnLoans(anyMap(), any(LocalDate.class), any(IntPredicate.class));
+        }
+
+        /**
+         * Tests the case when no loan is given.
+         */
+        @Test
+        void testReturnBooks_EmptyLoanIds() {
+            // Act
+            RuntimeException exception = Assertions.assertThrows(IllegalArgumentException.class, () ->
+                    loanService.returnBooks(new int[0])
+            );
+
+            // Assert
+            Assertions.assertEquals("Loan IDs cannot be null or empty", exception.getMessage());
+        }
+    }
+
     /**
      * Unit tests for the getLoanHistory method of the LoanService class.
      */
@@ -385,6 +832,81 @@ class LoanServiceTest {
             verify(userRepository, times(1)).findById(userId);
             verify(loanRepository, times(1)).findByUserId(userId);
         }
+
+        /**
+         * Tests the case when the user only has archived loans.
+         */
+        @Test
+        void testGetLoanHistory_OnlyArchivedLoans() {
+            // Arrange
+            int userId = 1;
+            Loan archivedLoan = new Loan(1, 1, LocalDate.now().minusYears(2), LocalDate.now().minusYears(2).plusDays(14), LocalDate.now().minusYears(2).plusDays(10));
+
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(loanRepository.findByUserId(userId)).thenReturn(new ArrayList<>());
+            when(loanRepository.findArchivedByUserId(userId, null, LoanHistory.DEFAULT_ARCHIVE_PAGE_SIZE)).thenReturn(List.of(archivedLoan));
+
+            // Act
+            LoanHistory result = loanService.getLoanHistory(userId);
+
+            // Assert
+            Assertions.assertEquals(List.of(archivedLoan), result);
+            Assertions.assertFalse(result.hasMoreArchived());
+        }
+
+        /**
+         * Tests that archived loans are only read when they are requested.
+         */
+        @Test
+        void testGetLoanHistory_ArchiveLoadedLazily() {
+            // Arrange
+            int userId = 1;
+            Loan activeLoan = new Loan(1, 1, LocalDate.now(), LocalDate.now().plusDays(14));
+            Loan archivedLoan = new Loan(2, 1, LocalDate.now().minusYears(2), LocalDate.now().minusYears(2).plusDays(14), LocalDate.now().minusYears(2).plusDays(10));
+
+            when(userRepository.findById(userId)).thenReturn(validUser);
+            when(loanRepository.findByUserId(userId)).thenReturn(List.of(activeLoan));
+
+            // Act
+            LoanHistory result = loanService.getLoanHistory(userId);
+
+            // Assert
+            Assertions.assertEquals(List.of(activeLoan), result);
+            verify(loanRepository, never()).findArchivedByUserId(anyInt(), any(), anyInt());
+
+            // Act
+            when(loanRepository.findArchivedByUserId(userId, null, LoanHistory.DEFAULT_ARCHIVE_PAGE_SIZE)).thenReturn(List.of(archivedLoan));
+            List<Loan> page = result.loadArchivedPage();
+
+            // Assert
+            Assertions.assertEquals(List.of(archivedLoan), page);
+            Assertions.assertEquals(List.of(activeLoan, archivedLoan), result);
+        }
+
+        /**
+         * Tests that each archived page starts after the last loan of the previous one, not at an offset.
+         */
+        @Test
+        void testLoadArchivedPage_KeyedOnLastLoan() {
+            // Arrange
+            int userId = 1;
+            LocalDate loanDate = LocalDate.now().minusYears(2);
+            Loan newest = new Loan(9, 1, userId, loanDate, loanDate.plusDays(14), loanDate.plusDays(10));
+            Loan sameDay = new Loan(4, 2, userId, loanDate, loanDate.plusDays(14), loanDate.plusDays(10));
+            Loan oldest = new Loan(3, 3, userId, loanDate.minusDays(1), loanDate.plusDays(13), loanDate.plusDays(9));
+            LoanHistory history = new LoanHistory(loanRepository, userId, List.of(), 2);
+
+            when(loanRepository.findArchivedByUserId(userId, null, 2)).thenReturn(List.of(newest, sameDay));
+            when(loanRepository.findArchivedByUserId(userId, sameDay, 2)).thenReturn(List.of(oldest));
+
+            // Act
+            history.loadArchivedPage();
+            history.loadArchivedPage();
+
+            // Assert
+            Assertions.assertEquals(List.of(newest, sameDay, oldest), history);
+            Assertions.assertFalse(history.hasMoreArchived());
+        }
     }
 
     /**
@@ -471,6 +993,81 @@ class LoanServiceTest {
             assertEquals("Date cannot be null or empty", exception.getMessage());
         }
     }
+    /**
+     * Unit tests for the exportOverdueReport method of the LoanService class.
+     */
+    @Nested
+    class ExportOverdueReportTests {
+
+        private final OverdueLoan overdueLoan = new OverdueLoan(1, "Cien Años de Soledad, edición \"especial\"", "1234567890",
+                2, "John Doe", "example@mail.com", LocalDate.of(2024, 6, 1));
+
+        private void stubOverdueLoans(LocalDate date) {
+            when(loanRepository.streamOverdueLoans(eq(date), any())).thenAnswer(invocation -> {
+                Consumer<OverdueLoan> consumer = invocation.getArgument(1);
+                consumer.accept(overdueLoan);
+                return true;
+            });
+        }
+
+        @Test
+        void testExportOverdueReport_Csv() {
+            // Arrange
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            stubOverdueLoans(LocalDate.of(2024, 6, 10));
+
+            // Act
+            long rows = loanService.exportOverdueReport("2024-06-10", ReportFormat.CSV, out);
+
+            // Assert
+            assertEquals(1, rows);
+            assertEquals("book_id,title,isbn,user_id,borrower_name,borrower_email,due_date,days_overdue\n"
+                            + "1,\"Cien Años de Soledad, edición \"\"especial\"\"\",1234567890,2,John Doe,example@mail.com,2024-06-01,9\n",
+                    out.toString(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void testExportOverdueReport_JsonLines() {
+            // Arrange
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            stubOverdueLoans(LocalDate.of(2024, 6, 10));
+
+            // Act
+            long rows = loanService.exportOverdueReport("2024-06-10", ReportFormat.JSON_LINES, out);
+
+            // Assert
+            assertEquals(1, rows);
+            assertEquals("{\"book_id\":1,\"title\":\"Cien Años de Soledad, edición \\\"especial\\\"\",\"isbn\":\"1234567890\","
+                            + "\"user_id\":2,\"borrower_name\":\"John Doe\",\"borrower_email\":\"example@mail.com\","
+                            + "\"due_date\":\"2024-06-01\",\"days_overdue\":9}\n",
+                    out.toString(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        void testExportOverdueReport_ConnectionError() {
+            // Arrange
+            when(loanRepository.streamOverdueLoans(eq(LocalDate.of(2024, 6, 10)), any())).thenReturn(false);
+
+            // Act
+            Exception exception = assertThrows(RuntimeException.class, () ->
+                    loanService.exportOverdueReport("2024-06-10", ReportFormat.CSV, new ByteArrayOutputStream()));
+
+            // Assert
+            assertEquals("Connection error", exception.getMessage());
+        }
+
+        @Test
+        void testExportOverdueReport_InvalidDate() {
+            // Act
+            Exception exception = assertThrows(IllegalArgumentException.class, () ->
+                    loanService.exportOverdueReport("2024-13-10", ReportFormat.CSV, new ByteArrayOutputStream()));
+
+            // Assert
+            assertEquals("Invalid date format. Please use 'yyyy-MM-dd'", exception.getMessage());
+            verify(loanRepository, never()).streamOverdueLoans(any(), any());
+        }
+    }
+
     /**
      * Unit tests for the SendNotification method of the LoanService class.
      */
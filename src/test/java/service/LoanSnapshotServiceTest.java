@@ -0,0 +1,163 @@
+package service;
+
+import entity.Loan;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.LoanRepository;
+import repository.LoanSnapshotReader;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the LoanSnapshotService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class LoanSnapshotServiceTest {
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    @TempDir
+    Path tempDir;
+
+    private LoanSnapshotService loanSnapshotService;
+
+    @BeforeEach
+    void setUp() {
+        loanSnapshotService = new LoanSnapshotService(loanRepository);
+    }
+
+    /**
+     * Tests that exported loans can be scanned back column by column.
+     */
+    @Test
+    void testExportLoans_Success() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("loans.snapshot");
+        Loan returnedLoan = new Loan(7, 3, LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 15), LocalDate.of(2024, 5, 10));
+        Loan openLoan = new Loan(8, 4, LocalDate.of(2024, 6, 1), LocalDate.of(2024, 6, 15));
+
+        when(loanRepository.countLoans()).thenReturn(2);
+        when(loanRepository.streamLoans(any())).thenAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            consumer.accept(returnedLoan);
+            consumer.accept(openLoan);
+            return true;
+        });
+
+        // Act
+        int result = loanSnapshotService.exportLoans(path);
+
+        // Assert
+        Assertions.assertEquals(2, result);
+        try (LoanSnapshotReader reader = new LoanSnapshotReader(path)) {
+            Assertions.assertEquals(2, reader.getRowCount());
+            IntBuffer bookIds = reader.column(LoanSnapshotReader.Column.BOOK_ID);
+            Assertions.assertEquals(7, bookIds.get(0));
+            Assertions.assertEquals(8, bookIds.get(1));
+            IntBuffer userIds = reader.column(LoanSnapshotReader.Column.USER_ID);
+            Assertions.assertEquals(4, userIds.get(1));
+            IntBuffer returned = reader.column(LoanSnapshotReader.Column.ACTUAL_RETURN_DATE);
+            Assertions.assertEquals(LocalDate.of(2024, 5, 10), LoanSnapshotReader.toDate(returned.get(0)));
+            Assertions.assertNull(LoanSnapshotReader.toDate(returned.get(1)));
+        }
+    }
+
+    /**
+     * Tests that loans created after the count grow the snapshot instead of being dropped.
+     */
+    @Test
+    void testExportLoans_MoreLoansThanCounted() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("loans.snapshot");
+        when(loanRepository.countLoans()).thenReturn(1);
+        when(loanRepository.streamLoans(any())).thenAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            for (int i = 0; i < 40; i++) {
+                consumer.accept(new Loan(i, 1000 + i, LocalDate.of(2024, 5, 1).plusDays(i), LocalDate.of(2024, 6, 1)));
+            }
+            return true;
+        });
+
+        // Act
+        int result = loanSnapshotService.exportLoans(path);
+
+        // Assert
+        Assertions.assertEquals(40, result);
+        try (LoanSnapshotReader reader = new LoanSnapshotReader(path)) {
+            Assertions.assertEquals(40, reader.getRowCount());
+            IntBuffer bookIds = reader.column(LoanSnapshotReader.Column.BOOK_ID);
+            IntBuffer userIds = reader.column(LoanSnapshotReader.Column.USER_ID);
+            IntBuffer loanDates = reader.column(LoanSnapshotReader.Column.LOAN_DATE);
+            for (int i = 0; i < 40; i++) {
+                Assertions.assertEquals(i, bookIds.get(i));
+                Assertions.assertEquals(1000 + i, userIds.get(i));
+                Assertions.assertEquals(LocalDate.of(2024, 5, 1).plusDays(i), LoanSnapshotReader.toDate(loanDates.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Tests that a failed stream keeps the previous snapshot and leaves no partial file behind.
+     */
+    @Test
+    void testExportLoans_StreamFailedKeepsPreviousSnapshot() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("loans.snapshot");
+        Loan loan = new Loan(7, 3, LocalDate.of(2024, 5, 1), LocalDate.of(2024, 5, 15));
+        when(loanRepository.countLoans()).thenReturn(1, 2);
+        when(loanRepository.streamLoans(any())).thenAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            consumer.accept(loan);
+            return true;
+        }).thenAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            consumer.accept(loan);
+            return false;
+        });
+        loanSnapshotService.exportLoans(path);
+
+        // Act
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                loanSnapshotService.exportLoans(path)
+        );
+
+        // Assert
+        Assertions.assertEquals("Connection error", exception.getMessage());
+        try (LoanSnapshotReader reader = new LoanSnapshotReader(path)) {
+            Assertions.assertEquals(1, reader.getRowCount());
+        }
+        Assertions.assertFalse(Files.exists(tempDir.resolve("loans.snapshot.tmp")));
+    }
+
+    /**
+     * Tests the case when the loans cannot be counted.
+     */
+    @Test
+    void testExportLoans_ConnectionError() {
+        // Arrange
+        Path path = tempDir.resolve("loans.snapshot");
+        when(loanRepository.countLoans()).thenReturn(-1);
+
+        // Act
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () ->
+                loanSnapshotService.exportLoans(path)
+        );
+
+        // Assert
+        Assertions.assertEquals("Connection error", exception.getMessage());
+        verify(loanRepository, never()).streamLoans(any());
+    }
+}
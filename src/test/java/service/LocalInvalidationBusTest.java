@@ -0,0 +1,114 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Unit tests for the LocalInvalidationBus class and the batching it shares with the other buses.
+ */
+class LocalInvalidationBusTest {
+
+    private ScheduledExecutorService executor;
+    private LocalInvalidationBus.Hub hub;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        hub = new LocalInvalidationBus.Hub();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static List<String> record(InvalidationBus bus) {
+        List<String> received = new CopyOnWriteArrayList<>();
+        bus.subscribe((region, id) -> received.add(region + ":" + id));
+        return received;
+    }
+
+    /**
+     * Tests that repeated keys are sent once per batch to the other nodes, while the publishing node is told at once.
+     */
+    @Test
+    void testFlush_CoalescesKeys() {
+        // Arrange
+        LocalInvalidationBus nodeA = new LocalInvalidationBus(hub, executor, Duration.ofHours(1), 100);
+        LocalInvalidationBus nodeB = new LocalInvalidationBus(hub, executor, Duration.ofHours(1), 100);
+        List<String> receivedA = record(nodeA);
+        List<String> receivedB = record(nodeB);
+
+        // Act
+        nodeA.publish(CacheRegion.BOOK, 7);
+        nodeA.publish(CacheRegion.BOOK, 7);
+        nodeA.publish(CacheRegion.BOOK, 8);
+        List<String> receivedABeforeFlush = List.copyOf(receivedA);
+        Assertions.assertTrue(receivedB.isEmpty());
+        nodeA.flush();
+
+        // Assert
+        Assertions.assertEquals(2, receivedB.size());
+        Assertions.assertTrue(receivedB.containsAll(List.of("BOOK:7", "BOOK:8")));
+        Assertions.assertEquals(List.of("BOOK:7", "BOOK:7", "BOOK:8"), receivedABeforeFlush);
+        Assertions.assertEquals(3, receivedA.size());
+    }
+
+    /**
+     * Tests that a full batch is sent at once, and that a smaller one is sent after the delay.
+     */
+    @Test
+    void testPublish_SendsFullBatchesAndAfterDelay() throws InterruptedException {
+        // Arrange
+        LocalInvalidationBus nodeA = new LocalInvalidationBus(hub, executor, Duration.ofMillis(50), 3);
+        LocalInvalidationBus nodeB = new LocalInvalidationBus(hub, executor, Duration.ofMillis(50), 3);
+        List<String> receivedB = record(nodeB);
+
+        // Act
+        nodeA.publish(CacheRegion.BOOK, 1);
+        nodeA.publish(CacheRegion.BOOK, 2);
+        nodeA.publish(CacheRegion.BOOK, 3);
+        int afterFullBatch = receivedB.size();
+        nodeA.publish(CacheRegion.BOOK, 4);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (receivedB.size() < 4 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        // Assert
+        Assertions.assertEquals(3, afterFullBatch);
+        Assertions.assertEquals(4, receivedB.size());
+    }
+
+    /**
+     * Tests that a loan on one node evicts its book from the catalog cache of another.
+     */
+    @Test
+    void testLoanOnOneNode_EvictsCachedBookOnAnother() {
+        // Arrange
+        LocalInvalidationBus nodeA = new LocalInvalidationBus(hub, executor, Duration.ofHours(1), 100);
+        LocalInvalidationBus nodeB = new LocalInvalidationBus(hub, executor, Duration.ofHours(1), 100);
+        CatalogCache cacheB = new CatalogCache();
+        cacheB.put(new Book(5, "Dune", "Frank Herbert", "9780441013593", true));
+        nodeB.subscribe(cacheB);
+        CacheInvalidationPublisher publisherA = new CacheInvalidationPublisher(nodeA);
+
+        // Act
+        publisherA.loanCreated(new Loan(5, 1, LocalDate.now(), LocalDate.now().plusDays(14)), null);
+        nodeA.close();
+
+        // Assert
+        Assertions.assertNull(cacheB.getById(5));
+    }
+}
@@ -0,0 +1,66 @@
+package service;
+
+import java.util.Locale;
+
+/**
+ * Compares the string concatenation SendNotification used to build return reminders with a compiled
+ * {@link NotificationTemplate}, both producing a String and rendering into a reused builder.
+ * Not run by the test suite; run the main method. The optional first argument is the number of renders per round.
+ */
+public class NotificationTemplateBenchmark {
+
+    private static final int ROUNDS = 20;
+    private static final String[] NAMES = {"John Doe", "María José Pérez", "Ana", "Carlos Rodríguez Villalobos"};
+    private static final String[] TITLES = {"Cien Años de Soledad", "El Señor de los Anillos", "Rayuela", "Ficciones"};
+
+    private static long sink;
+
+    public static void main(String[] args) {
+        int renders = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        NotificationTemplate template = NotificationTemplate.compile(
+                "Estimado {name},\n\nEste es un recordatorio de que debe devolver el libro '{title}' antes del {dueDate}.\n\nGracias.",
+                NotificationType.RETURN_REMINDER.getParameters());
+        NotificationTemplates templates = new NotificationTemplates();
+        StringBuilder builder = new StringBuilder(256);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long concatenation = time(renders, i -> concatenate(NAMES[i & 3], TITLES[i & 3], "2024-06-10").length());
+            long rendered = time(renders, i -> template.render(NAMES[i & 3], TITLES[i & 3], "2024-06-10").length());
+            long intoBuilder = time(renders, i -> {
+                builder.setLength(0);
+                template.renderTo(builder, NAMES[i & 3], TITLES[i & 3], "2024-06-10");
+                return builder.length();
+            });
+            long localized = time(renders, i -> templates.render(NotificationType.RETURN_REMINDER, Locale.ENGLISH,
+                    "user@mail.com", NAMES[i & 3], TITLES[i & 3], "2024-06-10").getBody().length());
+            if (round >= ROUNDS / 2) { // the first rounds are warm-up
+                System.out.printf("round %2d: concatenation %5.1f ns, template %5.1f ns, into builder %5.1f ns, "
+                                + "subject+body by locale %5.1f ns%n", round, (double) concatenation / renders,
+                        (double) rendered / renders, (double) intoBuilder / renders, (double) localized / renders);
+            }
+        }
+        System.out.println(sink == 42 ? "" : "done");
+    }
+
+    private interface Render {
+        int apply(int i);
+    }
+
+    private static long time(int renders, Render render) {
+        long start = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < renders; i++) {
+            total += render.apply(i);
+        }
+        long elapsed = System.nanoTime() - start;
+        sink += total;
+        return elapsed;
+    }
+
+    private static String concatenate(String name, String title, String dateReturn) {
+        return "Estimado " + name + ",\n\n"
+                + "Este es un recordatorio de que debe devolver el libro '" + title
+                + "' antes del " + dateReturn + ".\n\n"
+                + "Gracias.";
+    }
+}
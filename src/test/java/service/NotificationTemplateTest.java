@@ -0,0 +1,95 @@
+package service;
+
+import entity.OutboxMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+
+/**
+ * Unit tests for the NotificationTemplate and NotificationTemplates classes.
+ */
+class NotificationTemplateTest {
+
+    /**
+     * Tests that placeholders are replaced in any order and may repeat.
+     */
+    @Test
+    void testRender_Placeholders() {
+        NotificationTemplate template = NotificationTemplate.compile("{b} and {a}, then {b}", "a", "b");
+
+        Assertions.assertEquals("2 and 1, then 2", template.render(1, 2));
+    }
+
+    /**
+     * Tests that doubled braces render as literal braces.
+     */
+    @Test
+    void testRender_EscapedBraces() {
+        NotificationTemplate template = NotificationTemplate.compile("{{{name}}}", "name");
+
+        Assertions.assertEquals("{Ana}", template.render("Ana"));
+    }
+
+    /**
+     * Tests that rendering appends to the given builder.
+     */
+    @Test
+    void testRenderTo_AppendsToBuilder() {
+        StringBuilder builder = new StringBuilder("> ");
+
+        NotificationTemplate.compile("Hola {name}", "name").renderTo(builder, "Ana");
+
+        Assertions.assertEquals("> Hola Ana", builder.toString());
+    }
+
+    /**
+     * Tests that unknown placeholders and unbalanced braces are rejected when compiling.
+     */
+    @Test
+    void testCompile_Invalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> NotificationTemplate.compile("{unknown}", "name"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> NotificationTemplate.compile("{name", "name"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> NotificationTemplate.compile("name}", "name"));
+    }
+
+    /**
+     * Tests the case when the number of values does not match the parameters.
+     */
+    @Test
+    void testRender_WrongValueCount() {
+        NotificationTemplate template = NotificationTemplate.compile("{a}{b}", "a", "b");
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> template.render("only one"));
+    }
+
+    /**
+     * Tests that the Spanish reminder renders exactly as the hand-built message did.
+     */
+    @Test
+    void testTemplates_SpanishReminder() {
+        OutboxMessage message = new NotificationTemplates().render(NotificationType.RETURN_REMINDER,
+                NotificationTemplates.DEFAULT_LOCALE, "john@mail.com", "John Doe", "Cien Años de Soledad", "2024-06-10");
+
+        Assertions.assertEquals("john@mail.com", message.getRecipient());
+        Assertions.assertEquals("Recordatorio de Devolución de Libro", message.getSubject());
+        Assertions.assertEquals("Estimado John Doe,\n\n"
+                + "Este es un recordatorio de que debe devolver el libro 'Cien Años de Soledad' antes del 2024-06-10.\n\n"
+                + "Gracias.", message.getBody());
+    }
+
+    /**
+     * Tests that a locale with its own bundle is used, and that other locales fall back to Spanish.
+     */
+    @Test
+    void testTemplates_LocaleFallback() {
+        NotificationTemplates templates = new NotificationTemplates();
+
+        OutboxMessage english = templates.render(NotificationType.RETURN_REMINDER, Locale.UK, "a@mail.com", "Ann", "Emma", "2024-06-10");
+        OutboxMessage german = templates.render(NotificationType.RETURN_REMINDER, Locale.GERMAN, "a@mail.com", "Ann", "Emma", "2024-06-10");
+
+        Assertions.assertEquals("Book Return Reminder", english.getSubject());
+        Assertions.assertTrue(english.getBody().startsWith("Dear Ann,"));
+        Assertions.assertEquals("Recordatorio de Devolución de Libro", german.getSubject());
+    }
+}
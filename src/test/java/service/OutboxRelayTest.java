@@ -0,0 +1,127 @@
+package service;
+
+import entity.OutboxMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.OutboxRepository;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the OutboxRelay class.
+ */
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    private static final Duration LEASE = Duration.ofMinutes(5);
+
+    @Mock
+    private OutboxRepository outboxRepository;
+    @Mock
+    private EmailService emailService;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxRepository, emailService, 2, LEASE);
+    }
+
+    /**
+     * Tests that the delivered notifications of a batch are marked as sent with one update.
+     */
+    @Test
+    void testRelayBatch_Success() {
+        // Arrange
+        when(outboxRepository.claimBatch(2, LEASE)).thenReturn(List.of(
+                new OutboxMessage(1, "a@mail.com", "Subject", "Body", 1),
+                new OutboxMessage(2, "b@mail.com", "Subject", "Body", 1)));
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(true);
+
+        // Act
+        int claimed = outboxRelay.relayBatch();
+
+        // Assert
+        Assertions.assertEquals(2, claimed);
+        verify(outboxRepository, times(1)).markSent(aryEq(new long[]{1, 2}));
+        verify(outboxRepository, never()).markFailed(anyLong(), any());
+    }
+
+    /**
+     * Tests that a failed or throwing send is retried later, while the rest of the batch is still delivered.
+     */
+    @Test
+    void testRelayBatch_SendFails() {
+        // Arrange
+        when(outboxRepository.claimBatch(2, LEASE)).thenReturn(List.of(
+                new OutboxMessage(1, "a@mail.com", "Subject", "Body", 1),
+                new OutboxMessage(2, "b@mail.com", "Subject", "Body", 3)));
+        when(emailService.sendEmail(eq("a@mail.com"), any(), any())).thenThrow(new RuntimeException("Relay down"));
+        when(emailService.sendEmail(eq("b@mail.com"), any(), any())).thenReturn(false);
+
+        // Act
+        outboxRelay.relayBatch();
+
+        // Assert
+        verify(outboxRepository, times(1)).markFailed(1, Duration.ofSeconds(30));
+        verify(outboxRepository, times(1)).markFailed(2, Duration.ofMinutes(2));
+        verify(outboxRepository, never()).markSent(any());
+    }
+
+    /**
+     * Tests that a notification is abandoned after its last attempt.
+     */
+    @Test
+    void testRelayBatch_Abandoned() {
+        // Arrange
+        when(outboxRepository.claimBatch(2, LEASE)).thenReturn(List.of(
+                new OutboxMessage(7, "a@mail.com", "Subject", "Body", OutboxRelay.MAX_ATTEMPTS)));
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(false);
+
+        // Act
+        outboxRelay.relayBatch();
+
+        // Assert
+        verify(outboxRepository, times(1)).markAbandoned(7);
+        verify(outboxRepository, never()).markFailed(anyLong(), any());
+    }
+
+    /**
+     * Tests that draining claims batches until one comes back short.
+     */
+    @Test
+    void testDrain() {
+        // Arrange
+        when(outboxRepository.claimBatch(2, LEASE))
+                .thenReturn(List.of(new OutboxMessage(1, "a@mail.com", "S", "B", 1), new OutboxMessage(2, "b@mail.com", "S", "B", 1)))
+                .thenReturn(List.of(new OutboxMessage(3, "c@mail.com", "S", "B", 1)));
+        when(emailService.sendEmail(any(), any(), any())).thenReturn(true);
+
+        // Act
+        int claimed = outboxRelay.drain();
+
+        // Assert
+        Assertions.assertEquals(3, claimed);
+        verify(outboxRepository, times(2)).claimBatch(2, LEASE);
+    }
+
+    /**
+     * Tests that the backoff doubles per attempt up to its cap.
+     */
+    @Test
+    void testBackoff() {
+        Assertions.assertEquals(Duration.ofSeconds(30), OutboxRelay.backoff(1));
+        Assertions.assertEquals(Duration.ofSeconds(60), OutboxRelay.backoff(2));
+        Assertions.assertEquals(OutboxRelay.MAX_BACKOFF, OutboxRelay.backoff(30));
+    }
+}
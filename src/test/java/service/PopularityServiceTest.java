@@ -0,0 +1,211 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+import entity.LoanEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.LoanRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the PopularityService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class PopularityServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 10);
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    private final AtomicReference<LocalDate> today = new AtomicReference<>(TODAY);
+    private PopularityService popularityService;
+
+    @BeforeEach
+    void setUp() {
+        popularityService = new PopularityService(loanRepository, today::get);
+    }
+
+    private void loan(int bookId, String title, String author, LocalDate date, int times) {
+        for (int i = 0; i < times; i++) {
+            popularityService.recordLoan(bookId, title, author, date);
+        }
+    }
+
+    /**
+     * Tests that each window ranks only the loans it covers, most loaned first.
+     */
+    @Test
+    void testTopBooks_PerWindow() {
+        // Arrange
+        loan(1, "Dune", "Frank Herbert", TODAY, 2);
+        loan(2, "Emma", "Jane Austen", TODAY.minusDays(3), 3);
+        loan(3, "Ulysses", "James Joyce", TODAY.minusDays(20), 5);
+
+        // Act & Assert
+        Assertions.assertEquals("[Dune (2)]", popularityService.topBooks(PopularityWindow.DAY, 10).toString());
+        Assertions.assertEquals("[Emma (3), Dune (2)]", popularityService.topBooks(PopularityWindow.WEEK, 10).toString());
+        Assertions.assertEquals("[Ulysses (5), Emma (3), Dune (2)]",
+                popularityService.topBooks(PopularityWindow.MONTH, 10).toString());
+        Assertions.assertEquals(3, popularityService.topBooks(PopularityWindow.MONTH, 1).get(0).getBookId());
+    }
+
+    /**
+     * Tests that loans leave the windows as the days go by.
+     */
+    @Test
+    void testTopBooks_WindowsSlide() {
+        // Arrange
+        loan(1, "Dune", "Frank Herbert", TODAY, 2);
+        loan(2, "Emma", "Jane Austen", TODAY.minusDays(3), 3);
+
+        // Act
+        today.set(TODAY.plusDays(4));
+
+        // Assert
+        Assertions.assertTrue(popularityService.topBooks(PopularityWindow.DAY, 10).isEmpty());
+        Assertions.assertEquals("[Dune (2)]", popularityService.topBooks(PopularityWindow.WEEK, 10).toString());
+        Assertions.assertEquals("[Emma (3), Dune (2)]", popularityService.topBooks(PopularityWindow.MONTH, 10).toString());
+
+        today.set(TODAY.plusDays(40));
+        Assertions.assertTrue(popularityService.topBooks(PopularityWindow.MONTH, 10).isEmpty());
+    }
+
+    /**
+     * Tests that authors add up the loans of their books, ignoring case and accents.
+     */
+    @Test
+    void testTopAuthors() {
+        // Arrange
+        loan(1, "Emma", "Jane Austen", TODAY, 2);
+        loan(2, "Persuasion", "jane austen", TODAY, 2);
+        loan(3, "Cien años de soledad", "Gabriel García Márquez", TODAY, 3);
+
+        // Act
+        List<PopularItem> authors = popularityService.topAuthors(PopularityWindow.DAY, 10);
+
+        // Assert
+        Assertions.assertEquals(2, authors.size());
+        Assertions.assertEquals(4, authors.get(0).getLoans());
+        Assertions.assertEquals(0, authors.get(0).getBookId());
+        Assertions.assertEquals("Gabriel García Márquez (3)", authors.get(1).toString());
+    }
+
+    /**
+     * Tests that a loan registered through the listener hook is counted.
+     */
+    @Test
+    void testLoanCreated() {
+        // Arrange
+        Book book = new Book(7, "Dune", "Frank Herbert", "9780441013593", true);
+
+        // Act
+        popularityService.loanCreated(new Loan(7, 1, TODAY, TODAY.plusDays(14)), book);
+
+        // Assert
+        Assertions.assertEquals("[Dune (1)]", popularityService.topBooks(PopularityWindow.DAY, 10).toString());
+        Assertions.assertEquals("[Frank Herbert (1)]", popularityService.topAuthors(PopularityWindow.DAY, 10).toString());
+    }
+
+    /**
+     * Tests that a loan dated after today is counted today and does not drop the loans of the current windows.
+     */
+    @Test
+    void testRecordLoan_FutureDateCountedToday() {
+        // Arrange
+        loan(1, "Dune", "Frank Herbert", TODAY, 2);
+        loan(2, "Emma", "Jane Austen", TODAY.minusDays(3), 3);
+
+        // Act
+        loan(3, "Ulysses", "James Joyce", TODAY.plusDays(40), 1);
+
+        // Assert
+        Assertions.assertEquals("[Dune (2), Ulysses (1)]", popularityService.topBooks(PopularityWindow.DAY, 10).toString());
+        Assertions.assertEquals("[Emma (3), Dune (2), Ulysses (1)]",
+                popularityService.topBooks(PopularityWindow.WEEK, 10).toString());
+    }
+
+    /**
+     * Tests that a rebuild counts the loan history of the last month and replaces the current counts.
+     */
+    @Test
+    void testRebuild() {
+        // Arrange
+        loan(9, "Stale", "Nobody", TODAY, 10);
+        when(loanRepository.streamLoanEvents(eq(TODAY.minusDays(29)), eq(TODAY), any())).thenAnswer(invocation -> {
+            Consumer<LoanEvent> consumer = invocation.getArgument(2);
+            consumer.accept(new LoanEvent(2, "Emma", "Jane Austen", TODAY.minusDays(10)));
+            consumer.accept(new LoanEvent(1, "Dune", "Frank Herbert", TODAY));
+            consumer.accept(new LoanEvent(2, "Emma", "Jane Austen", TODAY.minusDays(1)));
+            return true;
+        });
+
+        // Act
+        int counted = popularityService.rebuild();
+
+        // Assert
+        Assertions.assertEquals(3, counted);
+        Assertions.assertEquals("[Dune (1)]", popularityService.topBooks(PopularityWindow.DAY, 10).toString());
+        Assertions.assertEquals("[Emma (2), Dune (1)]", popularityService.topBooks(PopularityWindow.MONTH, 10).toString());
+    }
+
+    /**
+     * Tests that a failed rebuild throws and keeps the current counts.
+     */
+    @Test
+    void testRebuild_ConnectionError() {
+        // Arrange
+        loan(1, "Dune", "Frank Herbert", TODAY, 1);
+        when(loanRepository.streamLoanEvents(any(), any(), any())).thenReturn(false);
+
+        // Act & Assert
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> popularityService.rebuild());
+        Assertions.assertEquals("Connection error", exception.getMessage());
+        Assertions.assertEquals("[Dune (1)]", popularityService.topBooks(PopularityWindow.DAY, 10).toString());
+    }
+
+    /**
+     * Tests that the ranking keeps the heaviest books when there are far more books than ranked places.
+     */
+    @Test
+    void testTopBooks_ManyBooks() {
+        // Arrange
+        for (int bookId = 1; bookId <= 5000; bookId++) {
+            loan(bookId, "Book " + bookId, "Author " + bookId, TODAY, 1);
+        }
+        loan(4242, "Book 4242", "Author 4242", TODAY, 50);
+        loan(17, "Book 17", "Author 17", TODAY, 30);
+
+        // Act
+        List<PopularItem> top = popularityService.topBooks(PopularityWindow.WEEK, 2);
+
+        // Assert
+        Assertions.assertEquals(4242, top.get(0).getBookId());
+        Assertions.assertEquals(17, top.get(1).getBookId());
+        Assertions.assertTrue(top.get(0).getLoans() >= 51);
+    }
+
+    /**
+     * Tests that invalid limits are rejected.
+     */
+    @Test
+    void testTopBooks_InvalidLimit() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> popularityService.topBooks(PopularityWindow.DAY, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> popularityService.topAuthors(PopularityWindow.DAY, PopularityService.MAX_RANKED + 1));
+    }
+}
@@ -0,0 +1,95 @@
+package service;
+
+import entity.Loan;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.LoanRepository;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for the RecommendationService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class RecommendationServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 10);
+
+    @Mock
+    private LoanRepository loanRepository;
+
+    private RecommendationService recommendationService;
+
+    @BeforeEach
+    void setUp() {
+        recommendationService = new RecommendationService(loanRepository, new ForkJoinPool(2));
+    }
+
+    private void streamLoans(int[]... userAndBook) {
+        when(loanRepository.streamLoansByUser(any())).thenAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            for (int[] loan : userAndBook) {
+                consumer.accept(new Loan(loan[1], loan[0], TODAY, TODAY.plusDays(14)));
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Tests that a rebuild groups the loans by user and recommends the books borrowed by the same patrons.
+     */
+    @Test
+    void testRebuild_RecommendsCoBorrowedBooks() {
+        // Arrange: user 1 borrowed book 10 twice
+        streamLoans(new int[]{1, 10}, new int[]{1, 20}, new int[]{1, 10},
+                new int[]{2, 10}, new int[]{2, 20}, new int[]{2, 30},
+                new int[]{3, 30}, new int[]{3, 40},
+                new int[]{4, 50});
+
+        // Act
+        int books = recommendationService.rebuild();
+
+        // Assert
+        Assertions.assertEquals(4, books);
+        Assertions.assertArrayEquals(new int[]{20, 30}, recommendationService.alsoBorrowed(10, 5));
+        Assertions.assertArrayEquals(new int[]{10, 20, 40}, recommendationService.alsoBorrowed(30, 5));
+        Assertions.assertEquals(0, recommendationService.alsoBorrowed(50, 5).length);
+    }
+
+    /**
+     * Tests that a failed rebuild throws and keeps the current recommendations.
+     */
+    @Test
+    void testRebuild_ConnectionError() {
+        // Arrange
+        streamLoans(new int[]{1, 10}, new int[]{1, 20});
+        recommendationService.rebuild();
+        doReturn(false).when(loanRepository).streamLoansByUser(any());
+
+        // Act & Assert
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> recommendationService.rebuild());
+        Assertions.assertEquals("Connection error", exception.getMessage());
+        Assertions.assertArrayEquals(new int[]{20}, recommendationService.alsoBorrowed(10, 5));
+    }
+
+    /**
+     * Tests that invalid book IDs and limits are rejected.
+     */
+    @Test
+    void testAlsoBorrowed_InvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> recommendationService.alsoBorrowed(0, 5));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> recommendationService.alsoBorrowed(1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> recommendationService.alsoBorrowed(1, RecommendationService.NEIGHBORS_PER_BOOK + 1));
+    }
+}
@@ -0,0 +1,254 @@
+package service;
+
+import entity.Book;
+import entity.Loan;
+import entity.User;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import repository.BookRepository;
+import repository.LoanRepository;
+import repository.OutboxRepository;
+import repository.UserRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Period;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ReminderScheduler class.
+ */
+@ExtendWith(MockitoExtension.class)
+class ReminderSchedulerTest {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+    private static final LocalDate DUE_DATE = LocalDate.of(2024, 6, 13);
+
+    @Mock
+    private LoanRepository loanRepository;
+    @Mock
+    private BookRepository bookRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private OutboxRepository outboxRepository;
+    @Mock
+    private ScheduledExecutorService executor;
+    @Mock
+    private ScheduledFuture<?> future;
+
+    private final MutableClock clock = new MutableClock();
+    private ReminderScheduler scheduler;
+    private Loan loan;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doReturn(future).when(executor).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        scheduler = new ReminderScheduler(loanRepository, bookRepository, userRepository, outboxRepository,
+                List.of(Period.ofDays(3), Period.ofDays(1), Period.ZERO), LocalTime.of(9, 0), ZONE, executor, clock);
+        loan = new Loan(7, 3, 5, LocalDate.of(2024, 5, 30), DUE_DATE, null);
+    }
+
+    private void setNow(LocalDateTime now) {
+        clock.instant = now.toInstant(ZoneOffset.UTC);
+    }
+
+    private void stubLookups(Loan current) {
+        when(loanRepository.findByIds(aryEq(new int[]{7}))).thenReturn(Map.of(7, current));
+        lenient().when(userRepository.findByIds(aryEq(new int[]{5}))).thenReturn(Map.of(5, new User(5, "Ana", "ana@mail.com")));
+        lenient().when(bookRepository.findByIds(aryEq(new int[]{3}))).thenReturn(Map.of(3, new Book(3, "Rayuela", "Cortázar", "9780000000000", false)));
+    }
+
+    /**
+     * Tests that a new loan gets one reminder per offset and arms the timer for the earliest.
+     */
+    @Test
+    void testSchedule_AllOffsets() {
+        // Arrange
+        setNow(LocalDateTime.of(2024, 5, 30, 12, 0));
+
+        // Act
+        int scheduled = scheduler.schedule(loan);
+
+        // Assert
+        Assertions.assertEquals(3, scheduled);
+        Assertions.assertEquals(3, scheduler.getPendingCount());
+        long untilFirst = TimeUnit.HOURS.toMillis(10 * 24 + 21); // May 30 12:00 to June 10 09:00
+        verify(executor, times(1)).schedule(any(Runnable.class), eq(untilFirst), eq(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Tests that a fired reminder is queued once under its deduplication key.
+     */
+    @Test
+    void testFireDue_QueuesReminder() {
+        // Arrange
+        setNow(LocalDateTime.of(2024, 5, 30, 12, 0));
+        scheduler.schedule(loan);
+        setNow(LocalDateTime.of(2024, 6, 10, 9, 0));
+        stubLookups(loan);
+        when(outboxRepository.enqueueOnce(any(), anyString())).thenReturn(true);
+
+        // Act
+        int queued = scheduler.fireDue();
+
+        // Assert
+        Assertions.assertEquals(1, queued);
+        Assertions.assertEquals(2, scheduler.getPendingCount());
+        verify(outboxRepository, times(1)).enqueueOnce(argThat(message -> message.getRecipient().equals("ana@mail.com")
+                && message.getBody().contains("'Rayuela' antes del 2024-06-13")), eq("return_reminder:7:2024-06-13:P3D"));
+    }
+
+    /**
+     * Tests that reminders whose lookup fails are kept for a retry instead of being dropped.
+     */
+    @Test
+    void testFireDue_LookupFailedRetries() {
+        // Arrange
+        setNow(LocalDateTime.of(2024, 5, 30, 12, 0));
+        scheduler.schedule(loan);
+        setNow(LocalDateTime.of(2024, 6, 10, 9, 0));
+        when(loanRepository.findByIds(aryEq(new int[]{7}))).thenReturn(null);
+
+        // Act
+        int queued = scheduler.fireDue();
+
+        // Assert
+        Assertions.assertEquals(0, queued);
+        Assertions.assertEquals(3, scheduler.getPendingCount());
+        verifyNoInteractions(outboxRepository);
+    }
+
+    /**
+     * Tests that the reminders of a loan returned in the meantime are dropped when they fire.
+     */
+    @Test
+    void testFireDue_LoanReturned() {
+        // Arrange
+        setNow(LocalDateTime.of(2024, 5, 30, 12, 0));
+        scheduler.schedule(loan);
+        setNow(LocalDateTime.of(2024, 6, 10, 9, 0));
+        stubLookups(new Loan(7, 3, 5, LocalDate.of(2024, 5, 30), DUE_DATE, LocalDate.of(2024, 6, 1)));
+
+        // Act
+        int queued = scheduler.fireDue();
+
+        // Assert
+        Assertions.assertEquals(0, queued);
+        verifyNoInteractions(outboxRepository);
+    }
+
+    /**
+     * Tests that a reminder the outbox could not take is retried later.
+     */
+    @Test
+    void testFireDue_EnqueueFails() {
+        // Arrange
+        setNow(LocalDateTime.of(2024, 5, 30, 12, 0));
+        scheduler.schedule(loan);
+        setNow(LocalDateTime.of(2024, 6, 10, 9, 0));
+        stubLookups(loan);
+        when(outboxRepository.enqueueOnce(any(), anyString())).thenReturn(false);
+
+        // Act
+        int queued = scheduler.fireDue();
+
+        // Assert
+        Assertions.assertEquals(0, queued);
+        Assertions.assertEquals(3, scheduler.getPendingCount());
+    }
+
+    /**
+     * Tests that cancelling a loan drops its reminders.
+     */
+    @Test
+    void testCancel() {
+        // Arrange
+        setNow(LocalDateTime.of(2024, 5, 30, 12, 0));
+        scheduler.schedule(loan);
+
+        // Act
+        scheduler.cancel(7);
+
+        // Assert
+        Assertions.assertEquals(0, scheduler.getPendingCount());
+        Assertions.assertEquals(0, scheduler.fireDue());
+    }
+
+    /**
+     * Tests that a rebuild after downtime keeps only the latest missed reminder of a loan not yet overdue,
+     * and none for an overdue loan.
+     */
+    @Test
+    void testRebuild_AfterDowntime() {
+        // Arrange
+        setNow(LocalDateTime.of(2024, 6, 12, 15, 0)); // after the 3-day and 1-day reminders, before the due date
+        Loan overdue = new Loan(8, 4, 6, LocalDate.of(2024, 5, 1), LocalDate.of(2024, 6, 1), null);
+        when(loanRepository.streamOpenLoans(any())).thenAnswer(invocation -> {
+            Consumer<Loan> consumer = invocation.getArgument(0);
+            consumer.accept(loan);
+            consumer.accept(overdue);
+            return true;
+        });
+
+        // Act
+        int pending = scheduler.rebuild();
+
+        // Assert
+        Assertions.assertEquals(2, pending); // the missed 1-day reminder and the due-date reminder
+        verify(executor).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Tests the case when the open loans cannot be read.
+     */
+    @Test
+    void testRebuild_DatabaseError() {
+        when(loanRepository.streamOpenLoans(any())).thenReturn(false);
+
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> scheduler.rebuild());
+
+        Assertions.assertEquals("Connection error", exception.getMessage());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        Instant instant = Instant.EPOCH;
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
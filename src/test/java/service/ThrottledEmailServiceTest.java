@@ -0,0 +1,181 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the ThrottledEmailService class.
+ */
+@ExtendWith(MockitoExtension.class)
+class ThrottledEmailServiceTest {
+
+    @Mock
+    private EmailService delegate;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ThrottledEmailService service(RateLimit global, RateLimit perDomain, Map<String, RateLimit> domains,
+                                          int maxConcurrentSends, Duration maxWait) {
+        return new ThrottledEmailService(delegate, global, perDomain, domains, maxConcurrentSends, maxWait,
+                clock::get, clock::addAndGet);
+    }
+
+    /**
+     * Tests that a caller failing fast is rejected once the burst of its domain is spent,
+     * while other domains keep their own budget.
+     */
+    @Test
+    void testSendEmail_DomainLimitFailsFast() {
+        // Arrange
+        when(delegate.sendEmail(anyString(), anyString(), anyString())).thenReturn(true);
+        ThrottledEmailService service = service(new RateLimit(100, 100), new RateLimit(1, 2),
+                Map.of(), 10, Duration.ZERO);
+
+        // Act
+        boolean first = service.sendEmail("a@example.com", "Subject", "Body");
+        boolean second = service.sendEmail("b@Example.com", "Subject", "Body");
+        boolean third = service.sendEmail("c@example.com", "Subject", "Body");
+        boolean otherDomain = service.sendEmail("d@other.org", "Subject", "Body");
+
+        // Assert
+        Assertions.assertTrue(first);
+        Assertions.assertTrue(second);
+        Assertions.assertFalse(third);
+        Assertions.assertTrue(otherDomain);
+        Assertions.assertEquals(1, service.getRateLimitedCount());
+        Assertions.assertEquals(1, service.getRejectedCount());
+        verify(delegate, never()).sendEmail(eq("c@example.com"), anyString(), anyString());
+    }
+
+    /**
+     * Tests that a caller with a deadline waits for the next token instead of being rejected.
+     */
+    @Test
+    void testSendEmail_WaitsForToken() {
+        // Arrange
+        when(delegate.sendEmail(anyString(), anyString(), anyString())).thenReturn(true);
+        ThrottledEmailService service = service(new RateLimit(100, 100), new RateLimit(1, 1),
+                Map.of(), 10, Duration.ofSeconds(2));
+
+        // Act
+        boolean first = service.sendEmail("a@example.com", "Subject", "Body");
+        boolean second = service.sendEmail("b@example.com", "Subject", "Body");
+
+        // Assert
+        Assertions.assertTrue(first);
+        Assertions.assertTrue(second);
+        Assertions.assertEquals(TimeUnit.SECONDS.toNanos(1), clock.get());
+        Assertions.assertEquals(0, service.getRejectedCount());
+    }
+
+    /**
+     * Tests that a caller is rejected without waiting when the next token comes after its deadline.
+     */
+    @Test
+    void testSendEmail_DeadlineTooShort() {
+        // Arrange
+        when(delegate.sendEmail(anyString(), anyString(), anyString())).thenReturn(true);
+        ThrottledEmailService service = service(new RateLimit(1, 1), new RateLimit(100, 100),
+                Map.of(), 10, Duration.ofMillis(500));
+
+        // Act
+        service.sendEmail("a@example.com", "Subject", "Body");
+        boolean result = service.sendEmail("b@other.org", "Subject", "Body");
+
+        // Assert
+        Assertions.assertFalse(result);
+        Assertions.assertEquals(0, clock.get());
+        Assertions.assertEquals(1, service.getRateLimitedCount());
+    }
+
+    /**
+     * Tests that a domain limit overrides the default domain limit, and that the global limit still applies.
+     */
+    @Test
+    void testSendEmail_DomainOverrideAndGlobalLimit() {
+        // Arrange
+        when(delegate.sendEmail(anyString(), anyString(), anyString())).thenReturn(true);
+        ThrottledEmailService service = service(new RateLimit(1, 3), new RateLimit(1, 1),
+                Map.of("Library.org", new RateLimit(1, 5)), 10, Duration.ZERO);
+
+        // Act
+        int sent = 0;
+        for (int i = 0; i < 5; i++) {
+            if (service.sendEmail("staff" + i + "@library.org", "Subject", "Body")) {
+                sent++;
+            }
+        }
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        boolean afterRefill = service.sendEmail("staff@library.org", "Subject", "Body");
+
+        // Assert
+        Assertions.assertEquals(3, sent);
+        Assertions.assertTrue(afterRefill);
+        Assertions.assertEquals(2, service.getRateLimitedCount());
+    }
+
+    /**
+     * Tests that the bulkhead rejects sends beyond the concurrency limit, and reports the sends in flight.
+     */
+    @Test
+    void testSendEmail_BulkheadFull() throws Exception {
+        // Arrange
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.sendEmail(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return true;
+        });
+        ThrottledEmailService service = service(new RateLimit(100, 100), new RateLimit(100, 100),
+                Map.of(), 1, Duration.ZERO);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // Act
+            Future<Boolean> slow = executor.submit(() -> service.sendEmail("a@example.com", "Subject", "Body"));
+            entered.await();
+            int inFlight = service.getInFlight();
+            boolean rejected = service.sendEmail("b@example.com", "Subject", "Body");
+            release.countDown();
+
+            // Assert
+            Assertions.assertTrue(slow.get());
+            Assertions.assertEquals(1, inFlight);
+            Assertions.assertFalse(rejected);
+            Assertions.assertEquals(1, service.getBulkheadRejectedCount());
+            Assertions.assertEquals(0, service.getInFlight());
+            Assertions.assertEquals(0, service.getQueueDepth());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests the case when the maximum wait is negative.
+     */
+    @Test
+    void testSendEmail_NegativeWait() {
+        ThrottledEmailService service = service(new RateLimit(1, 1), new RateLimit(1, 1),
+                Map.of(), 1, Duration.ZERO);
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> service.sendEmail("a@example.com", "Subject", "Body", Duration.ofSeconds(-1)));
+        verifyNoInteractions(delegate);
+    }
+}
@@ -0,0 +1,115 @@
+package service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for the TimingWheel class.
+ */
+class TimingWheelTest {
+
+    /**
+     * Tests that a task fires on the tick of its deadline, never before.
+     */
+    @Test
+    void testAdvance_FiresAtDeadline() {
+        // Arrange
+        TimingWheel<String> wheel = new TimingWheel<>(10, 1_000);
+        wheel.schedule("a", 1_050);
+
+        // Act & Assert
+        Assertions.assertEquals(List.of(), wheel.advance(1_049));
+        Assertions.assertEquals(List.of("a"), wheel.advance(1_050));
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Tests that far deadlines cascade down the levels and fire on their own tick.
+     */
+    @Test
+    void testAdvance_FarDeadlines() {
+        // Arrange
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        long[] deadlines = {63, 64, 65, 4_095, 4_096, 4_097, 262_143, 262_145, 1_000_000};
+        for (long deadline : deadlines) {
+            wheel.schedule(deadline, deadline);
+        }
+
+        // Act & Assert
+        for (long deadline : deadlines) {
+            Assertions.assertEquals(List.of(), wheel.advance(deadline - 1));
+            Assertions.assertEquals(List.of(deadline), wheel.advance(deadline));
+        }
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    /**
+     * Tests that random deadlines all fire, in deadline order, when the clock jumps in uneven steps.
+     */
+    @Test
+    void testAdvance_RandomDeadlinesInOrder() {
+        // Arrange
+        Random random = new Random(42);
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 0);
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = 1 + random.nextInt(300_000);
+            wheel.schedule(deadline, deadline);
+        }
+
+        // Act
+        List<Long> fired = new ArrayList<>();
+        for (long now = 0; now <= 300_000; now += 1 + random.nextInt(500)) {
+            for (long deadline : wheel.advance(now)) {
+                Assertions.assertTrue(deadline <= now, "fired early");
+                fired.add(deadline);
+            }
+        }
+        fired.addAll(wheel.advance(300_000));
+
+        // Assert
+        Assertions.assertEquals(5_000, fired.size());
+        for (int i = 1; i < fired.size(); i++) {
+            Assertions.assertTrue(fired.get(i - 1) <= fired.get(i));
+        }
+    }
+
+    /**
+     * Tests that a cancelled task does not fire, and that a task cannot be cancelled once it fired.
+     */
+    @Test
+    void testCancel() {
+        // Arrange
+        TimingWheel<String> wheel = new TimingWheel<>(1, 0);
+        TimingWheel.Timeout<String> near = wheel.schedule("near", 5);
+        TimingWheel.Timeout<String> far = wheel.schedule("far", 100_000);
+        TimingWheel.Timeout<String> kept = wheel.schedule("kept", 100_000);
+
+        // Act
+        boolean cancelledFar = wheel.cancel(far);
+        List<String> fired = wheel.advance(200_000);
+
+        // Assert
+        Assertions.assertTrue(cancelledFar);
+        Assertions.assertFalse(wheel.cancel(far));
+        Assertions.assertFalse(wheel.cancel(near));
+        Assertions.assertEquals(List.of("near", "kept"), fired);
+        Assertions.assertEquals("kept", kept.getTask());
+    }
+
+    /**
+     * Tests that a deadline already past fires on the next tick, and that the tick must be positive.
+     */
+    @Test
+    void testSchedule_PastDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(1_000, 10_000);
+        wheel.schedule("late", 0);
+
+        Assertions.assertEquals(List.of(), wheel.advance(10_999));
+        Assertions.assertEquals(List.of("late"), wheel.advance(11_000));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimingWheel<>(0, 0));
+    }
+}
@@ -0,0 +1,87 @@
+package service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Unit tests for the UdpInvalidationBus class, with two nodes on the loopback interface.
+ */
+class UdpInvalidationBusTest {
+
+    private ScheduledExecutorService executor;
+    private UdpInvalidationBus nodeA;
+    private UdpInvalidationBus nodeB;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        nodeA = new UdpInvalidationBus(0, executor, Duration.ofMillis(20), 5000);
+        nodeB = new UdpInvalidationBus(0, executor, Duration.ofMillis(20), 5000);
+        nodeA.addPeer(nodeB.getLocalAddress());
+        nodeB.addPeer(nodeA.getLocalAddress());
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.close();
+        nodeB.close();
+        executor.shutdownNow();
+    }
+
+    private static void awaitSize(Set<?> set, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (set.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Tests that keys published on one node reach the other, and come back to neither as an echo.
+     */
+    @Test
+    void testPublish_ReachesPeer() throws InterruptedException {
+        // Arrange
+        Set<String> receivedA = ConcurrentHashMap.newKeySet();
+        Set<String> receivedB = ConcurrentHashMap.newKeySet();
+        nodeA.subscribe((region, id) -> receivedA.add(region + ":" + id));
+        nodeB.subscribe((region, id) -> receivedB.add(region + ":" + id));
+
+        // Act
+        nodeA.publish(CacheRegion.BOOK, 42);
+        nodeA.publish(CacheRegion.BOOK, 3);
+        awaitSize(receivedB, 2);
+
+        // Assert
+        Assertions.assertEquals(Set.of("BOOK:42", "BOOK:3"), receivedB);
+        Assertions.assertEquals(Set.of("BOOK:42", "BOOK:3"), receivedA);
+    }
+
+    /**
+     * Tests that a batch larger than one datagram is split and arrives whole.
+     */
+    @Test
+    void testFlush_SplitsLargeBatches() throws InterruptedException {
+        // Arrange
+        Set<Integer> receivedB = ConcurrentHashMap.newKeySet();
+        nodeB.subscribe((region, id) -> receivedB.add(id));
+        int keys = UdpInvalidationBus.MAX_KEYS_PER_DATAGRAM * 2 + 10;
+
+        // Act
+        for (int id = 1; id <= keys; id++) {
+            nodeA.publish(CacheRegion.BOOK, id);
+        }
+        nodeA.flush();
+        awaitSize(receivedB, keys);
+
+        // Assert
+        Assertions.assertEquals(keys, receivedB.size());
+    }
+}
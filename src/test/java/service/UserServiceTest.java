@@ -7,6 +7,8 @@ import repository.UserRepository;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
+import java.util.Map;
+
 class UserServiceTest {
 
     private UserRepository userRepository;
@@ -95,4 +97,31 @@ class UserServiceTest {
         verify(userRepository, never()).findByEmail(anyString());
         verify(userRepository, never()).save(any(User.class));
     }
+
+    @Test
+    void findUsersByIds_Success() {
+        // Arrange
+        int[] userIds = {1, 2};
+        Map<Integer, User> expectedUsers = Map.of(
+                1, new User(1, "Juan Perez", "juan.perez@example.com"),
+                2, new User(2, "Ana Gomez", "ana.gomez@example.com"));
+        when(userRepository.findByIds(userIds)).thenReturn(expectedUsers);
+
+        // Act
+        Map<Integer, User> result = userService.findUsersByIds(userIds);
+
+        // Assert
+        assertEquals(expectedUsers, result);
+        verify(userRepository, times(1)).findByIds(userIds);
+    }
+
+    @Test
+    void findUsersByIds_EmptyIds() {
+        // Act
+        Map<Integer, User> result = userService.findUsersByIds(new int[0]);
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(userRepository, never()).findByIds(any(int[].class));
+    }
 }